@@ -70,12 +70,19 @@ public class CeQueueImpl implements CeQueue {
   private final DbClient dbClient;
   private final UuidFactory uuidFactory;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final CeQueueListener[] listeners;
 
-  public CeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, DefaultOrganizationProvider defaultOrganizationProvider) {
+  public CeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, DefaultOrganizationProvider defaultOrganizationProvider,
+    CeQueueListener[] listeners) {
     this.system2 = system2;
     this.dbClient = dbClient;
     this.uuidFactory = uuidFactory;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.listeners = listeners;
+  }
+
+  public CeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, DefaultOrganizationProvider defaultOrganizationProvider) {
+    this(system2, dbClient, uuidFactory, defaultOrganizationProvider, new CeQueueListener[0]);
   }
 
   @Override
@@ -103,6 +110,7 @@ public class CeQueueImpl implements CeQueue {
       }
       CeQueueDto taskDto = addToQueueInDb(dbSession, submission);
       dbSession.commit();
+      notifyListeners();
 
       Map<String, ComponentDto> componentsByUuid = loadComponentDtos(dbSession, taskDto);
       if (componentsByUuid.isEmpty()) {
@@ -141,10 +149,23 @@ public class CeQueueImpl implements CeQueue {
         .collect(Collectors.toList());
       List<CeTask> tasks = loadTasks(dbSession, taskDtos);
       dbSession.commit();
+      if (!taskDtos.isEmpty()) {
+        notifyListeners();
+      }
       return tasks;
     }
   }
 
+  private void notifyListeners() {
+    for (CeQueueListener listener : listeners) {
+      try {
+        listener.onSubmit();
+      } catch (RuntimeException e) {
+        Loggers.get(CeQueueImpl.class).warn("Failed to notify {} of submitted tasks", listener.getClass().getSimpleName(), e);
+      }
+    }
+  }
+
   private Predicate<CeTaskSubmit> filterBySubmitOptions(SubmitOption[] options, Collection<CeTaskSubmit> submissions, DbSession dbSession) {
     EnumSet<SubmitOption> submitOptions = toSet(options);
 
@@ -55,6 +55,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.ce.queue.CeQueue.SubmitOption.UNIQUE_QUEUE_PER_MAIN_COMPONENT;
 
 public class CeQueueImplTest {
@@ -208,6 +212,67 @@ public class CeQueueImplTest {
       .contains(task.getUuid());
   }
 
+  @Test
+  public void submit_notifies_listeners_once_task_is_in_queue() {
+    CeQueueListener listener = mock(CeQueueListener.class);
+    CeQueue underTest = new CeQueueImpl(system2, db.getDbClient(), uuidFactory, defaultOrganizationProvider, new CeQueueListener[] {listener});
+
+    CeTask task = underTest.submit(createTaskSubmit("some type"));
+
+    verify(listener).onSubmit();
+    assertThat(db.getDbClient().ceQueueDao().selectByUuid(db.getSession(), task.getUuid())).isPresent();
+  }
+
+  @Test
+  public void submit_with_UNIQUE_QUEUE_PER_MAIN_COMPONENT_does_not_notify_listeners_when_task_is_not_created() {
+    CeQueueListener listener = mock(CeQueueListener.class);
+    CeQueue underTest = new CeQueueImpl(system2, db.getDbClient(), uuidFactory, defaultOrganizationProvider, new CeQueueListener[] {listener});
+    String mainComponentUuid = randomAlphabetic(5);
+    insertPendingInQueue(newComponent(mainComponentUuid));
+
+    Optional<CeTask> task = underTest.submit(createTaskSubmit("with_component", newComponent(mainComponentUuid), null), UNIQUE_QUEUE_PER_MAIN_COMPONENT);
+
+    assertThat(task).isEmpty();
+    verifyZeroInteractions(listener);
+  }
+
+  @Test
+  public void submit_does_not_fail_when_a_listener_fails() {
+    CeQueueListener failingListener = mock(CeQueueListener.class);
+    doThrow(new IllegalStateException("Faking listener failure")).when(failingListener).onSubmit();
+    CeQueueListener listener = mock(CeQueueListener.class);
+    CeQueue underTest = new CeQueueImpl(system2, db.getDbClient(), uuidFactory, defaultOrganizationProvider,
+      new CeQueueListener[] {failingListener, listener});
+
+    CeTask task = underTest.submit(createTaskSubmit("some type"));
+
+    verify(listener).onSubmit();
+    assertThat(db.getDbClient().ceQueueDao().selectByUuid(db.getSession(), task.getUuid())).isPresent();
+  }
+
+  @Test
+  public void massSubmit_notifies_listeners_once_for_all_tasks() {
+    CeQueueListener listener = mock(CeQueueListener.class);
+    CeQueue underTest = new CeQueueImpl(system2, db.getDbClient(), uuidFactory, defaultOrganizationProvider, new CeQueueListener[] {listener});
+
+    underTest.massSubmit(asList(createTaskSubmit("some type"), createTaskSubmit("some other type")));
+
+    verify(listener).onSubmit();
+  }
+
+  @Test
+  public void massSubmit_does_not_notify_listeners_when_no_task_is_created() {
+    CeQueueListener listener = mock(CeQueueListener.class);
+    CeQueue underTest = new CeQueueImpl(system2, db.getDbClient(), uuidFactory, defaultOrganizationProvider, new CeQueueListener[] {listener});
+    String mainComponentUuid = randomAlphabetic(5);
+    insertPendingInQueue(newComponent(mainComponentUuid));
+
+    List<CeTask> tasks = underTest.massSubmit(of(createTaskSubmit("with_component", newComponent(mainComponentUuid), null)), UNIQUE_QUEUE_PER_MAIN_COMPONENT);
+
+    assertThat(tasks).isEmpty();
+    verifyZeroInteractions(listener);
+  }
+
   @Test
   public void massSubmit_returns_tasks_for_each_CeTaskSubmit_populated_from_CeTaskSubmit_and_creates_CeQueue_row_for_each() {
     String mainComponentUuid = randomAlphabetic(10);
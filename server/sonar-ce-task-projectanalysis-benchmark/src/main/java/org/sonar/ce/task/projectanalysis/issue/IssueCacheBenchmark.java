@@ -0,0 +1,207 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.task.projectanalysis.util.cache.DiskCache;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+/**
+ * Writing and reading of synthetic issues by {@link IssueCache}, as protobuf messages, and by
+ * {@link ReferenceIssueCache}, with Java serialization. Issues are appended by groups of the same file, as done by
+ * {@link IntegrateIssuesVisitor}. Setup fails if both caches do not read back the same issues, and prints the size of
+ * both files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IssueCacheBenchmark {
+
+  private static final int ISSUES_PER_FILE = 20;
+  private static final RuleType[] TYPES = {RuleType.CODE_SMELL, RuleType.BUG, RuleType.VULNERABILITY};
+
+  @Param({"10000", "100000"})
+  public int issues;
+
+  private List<DefaultIssue> generated;
+  private Path dir;
+  private IssueCache protobufCache;
+  private ReferenceIssueCache serializationCache;
+
+  @Setup
+  public void setUp() throws Exception {
+    generated = generate(issues, 42L);
+    dir = Files.createTempDirectory("issue-cache-benchmark");
+    protobufCache = appendProtobuf(dir.resolve("protobuf.dat").toFile());
+    serializationCache = appendSerialization(dir.resolve("serialization.dat").toFile());
+
+    List<String> expected = new ArrayList<>();
+    generated.forEach(issue -> expected.add(describe(issue)));
+    List<String> protobufIssues = new ArrayList<>();
+    try (CloseableIterator<DefaultIssue> it = protobufCache.traverse()) {
+      it.forEachRemaining(issue -> protobufIssues.add(describe(issue)));
+    }
+    List<String> serializationIssues = new ArrayList<>();
+    serializationCache.traverse(issue -> serializationIssues.add(describe(issue)));
+    if (!expected.equals(protobufIssues) || !expected.equals(serializationIssues)) {
+      throw new IllegalStateException("Both caches do not read back the same issues");
+    }
+    System.out.printf("%n%d issues: %d bytes with protobuf, %d bytes with Java serialization%n", issues,
+      Files.size(dir.resolve("protobuf.dat")), Files.size(dir.resolve("serialization.dat")));
+  }
+
+  @TearDown
+  public void tearDown() {
+    FileUtils.deleteQuietly(dir.toFile());
+  }
+
+  @Benchmark
+  public IssueCache appendProtobuf() {
+    return appendProtobuf(dir.resolve("append-protobuf.dat").toFile());
+  }
+
+  @Benchmark
+  public ReferenceIssueCache appendSerialization() throws IOException {
+    return appendSerialization(dir.resolve("append-serialization.dat").toFile());
+  }
+
+  @Benchmark
+  public void traverseProtobuf(Blackhole blackhole) {
+    try (CloseableIterator<DefaultIssue> it = protobufCache.traverse()) {
+      it.forEachRemaining(blackhole::consume);
+    }
+  }
+
+  @Benchmark
+  public void traverseSerialization(Blackhole blackhole) throws IOException, ClassNotFoundException {
+    serializationCache.traverse(blackhole::consume);
+  }
+
+  private IssueCache appendProtobuf(File file) {
+    IssueCache cache = new IssueCache(file, System2.INSTANCE);
+    for (int from = 0; from < generated.size(); from += ISSUES_PER_FILE) {
+      try (DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender appender = cache.newAppender()) {
+        generated.subList(from, Math.min(from + ISSUES_PER_FILE, generated.size())).forEach(appender::append);
+      }
+    }
+    return cache;
+  }
+
+  private ReferenceIssueCache appendSerialization(File file) throws IOException {
+    ReferenceIssueCache cache = new ReferenceIssueCache(file);
+    for (int from = 0; from < generated.size(); from += ISSUES_PER_FILE) {
+      try (ReferenceIssueCache.Appender appender = cache.newAppender()) {
+        for (DefaultIssue issue : generated.subList(from, Math.min(from + ISSUES_PER_FILE, generated.size()))) {
+          appender.append(issue);
+        }
+      }
+    }
+    return cache;
+  }
+
+  private static String describe(DefaultIssue issue) {
+    FieldDiffs currentChange = issue.currentChange();
+    return String.join("|", issue.key(), String.valueOf(issue.type()), issue.componentUuid(), issue.componentKey(), String.valueOf(issue.ruleKey()),
+      issue.severity(), issue.message(), String.valueOf(issue.line()), String.valueOf(issue.gap()), String.valueOf(issue.effortInMinutes()),
+      issue.status(), String.valueOf(issue.assignee()), issue.checksum(), issue.authorLogin(), String.valueOf(issue.tags()),
+      Objects.toString(issue.getLocations()), String.valueOf(issue.creationDate().getTime()), String.valueOf(issue.isNew()),
+      String.valueOf(issue.changes().size()), currentChange == null ? "" : currentChange.toEncodedString());
+  }
+
+  private static List<DefaultIssue> generate(int count, long seed) {
+    Random random = new Random(seed);
+    Date date = new Date(1_500_000_000_000L);
+    List<DefaultIssue> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int file = i / ISSUES_PER_FILE;
+      int line = 1 + random.nextInt(1_000);
+      DefaultIssue issue = new DefaultIssue()
+        .setKey("AW" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36))
+        .setType(TYPES[random.nextInt(TYPES.length)])
+        .setComponentUuid("FILE_" + file)
+        .setComponentKey("project:src/main/java/org/sonar/File" + file + ".java")
+        .setModuleUuid("PROJECT")
+        .setModuleUuidPath(".PROJECT.")
+        .setProjectUuid("PROJECT")
+        .setProjectKey("project")
+        .setRuleKey(RuleKey.of("java", "S" + (100 + random.nextInt(500))))
+        .setLanguage("java")
+        .setSeverity(Severity.ALL.get(random.nextInt(Severity.ALL.size())))
+        .setMessage("Refactor this method to reduce its Cognitive Complexity from " + (16 + random.nextInt(30)) + " to the 15 allowed.")
+        .setLine(line)
+        .setGap(random.nextBoolean() ? null : (double) random.nextInt(10))
+        .setEffort(Duration.create(5L + random.nextInt(60)))
+        .setStatus(Issue.STATUS_OPEN)
+        .setAssigneeUuid(random.nextBoolean() ? ("user" + random.nextInt(20)) : null)
+        .setChecksum(Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()))
+        .setAuthorLogin("author" + random.nextInt(20))
+        .setTags(random.nextInt(4) == 0 ? Collections.singletonList("brain-overload") : Collections.emptyList())
+        .setLocations(DbIssues.Locations.newBuilder()
+          .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(line).setEndLine(line + random.nextInt(3)).setStartOffset(2).setEndOffset(40))
+          .build())
+        .setCreationDate(date)
+        .setUpdateDate(date)
+        .setNew(random.nextInt(10) == 0);
+      if (random.nextInt(5) == 0) {
+        issue.setFieldChange(IssueChangeContext.createScan(date), "severity", Severity.MAJOR, Severity.MINOR);
+      }
+      result.add(issue);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.Consumer;
+import org.sonar.core.issue.DefaultIssue;
+
+/**
+ * Cache of issues as implemented before {@link IssueCache} wrote protobuf messages: issues are written with Java
+ * serialization, the stream being reset after each issue. Used as reference, both for the issues read back and for
+ * the performance of {@link IssueCache}.
+ */
+public class ReferenceIssueCache {
+
+  private final File file;
+
+  public ReferenceIssueCache(File file) throws IOException {
+    this.file = file;
+    // writes the serialization stream header once, appenders do not write it
+    try (ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(file))) {
+      output.flush();
+    }
+  }
+
+  public Appender newAppender() throws IOException {
+    return new Appender();
+  }
+
+  public void traverse(Consumer<DefaultIssue> consumer) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      while (true) {
+        try {
+          consumer.accept((DefaultIssue) input.readObject());
+        } catch (EOFException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  public class Appender implements AutoCloseable {
+    private final ObjectOutputStream output;
+
+    private Appender() throws IOException {
+      this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
+        @Override
+        protected void writeStreamHeader() {
+          // already written by the constructor of the cache
+        }
+      };
+    }
+
+    public Appender append(DefaultIssue issue) throws IOException {
+      output.writeObject(issue);
+      output.reset();
+      return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+      output.close();
+    }
+  }
+}
@@ -25,7 +25,15 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 final class DequeBasedPath<T> implements PathAwareVisitor.Path<T>, Iterable<PathAwareVisitor.PathElement<T>> {
-  private final Deque<PathAwareVisitor.PathElement<T>> deque = new ArrayDeque<>();
+  private final Deque<PathAwareVisitor.PathElement<T>> deque;
+
+  DequeBasedPath() {
+    this.deque = new ArrayDeque<>();
+  }
+
+  private DequeBasedPath(Deque<PathAwareVisitor.PathElement<T>> deque) {
+    this.deque = deque;
+  }
 
   @Override
   public T current() {
@@ -71,4 +79,11 @@ final class DequeBasedPath<T> implements PathAwareVisitor.Path<T>, Iterable<Path
   public PathAwareVisitor.PathElement<T> pop() {
     return deque.pop();
   }
+
+  /**
+   * Copy of this path sharing its elements, which can then be changed independently.
+   */
+  public DequeBasedPath<T> copy() {
+    return new DequeBasedPath<>(new ArrayDeque<>(deque));
+  }
 }
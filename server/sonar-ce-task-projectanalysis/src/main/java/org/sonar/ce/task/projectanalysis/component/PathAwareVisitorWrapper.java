@@ -25,10 +25,15 @@ public class PathAwareVisitorWrapper<T> implements VisitorWrapper {
 
   private final PathAwareVisitor<T> delegate;
 
-  private final DequeBasedPath<T> stack = new DequeBasedPath<>();
+  private final DequeBasedPath<T> stack;
 
   public PathAwareVisitorWrapper(PathAwareVisitor<T> delegate) {
+    this(delegate, new DequeBasedPath<>());
+  }
+
+  private PathAwareVisitorWrapper(PathAwareVisitor<T> delegate, DequeBasedPath<T> stack) {
     this.delegate = delegate;
+    this.stack = stack;
   }
 
   @Override
@@ -46,6 +51,11 @@ public class PathAwareVisitorWrapper<T> implements VisitorWrapper {
     stack.pop();
   }
 
+  @Override
+  public VisitorWrapper fork() {
+    return new PathAwareVisitorWrapper<>(delegate, stack.copy());
+  }
+
   @Override
   public void visitProject(Component tree) {
     delegate.visitProject(tree, stack);
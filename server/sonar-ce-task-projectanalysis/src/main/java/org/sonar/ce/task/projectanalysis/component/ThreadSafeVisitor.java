@@ -0,0 +1,40 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.component;
+
+/**
+ * Marker interface of the {@link TypeAwareVisitor} and {@link PathAwareVisitor} which can visit components of type
+ * {@link Component.Type#FILE FILE} concurrently.
+ * <p>
+ * When all the visitors crawling down to files implement this interface, {@link VisitorsCrawler} can visit the files
+ * of a directory concurrently. Such visitors must then:
+ * <ul>
+ *   <li>support concurrent calls to their {@code visitFile} and {@code visitAny} methods, for distinct files</li>
+ *   <li>not rely on the order in which the files of a directory are visited</li>
+ *   <li>for {@link PathAwareVisitor}, only change the elements of the path which are not the current one in a
+ *   thread-safe way, since those are shared by all the files of the directory</li>
+ * </ul>
+ * Directories and projects are still visited by a single thread, after all their children have been visited for
+ * post-order visitors. A visitor whose result depends on the order of aggregation should therefore leave the result of
+ * each file in the parent element of the path, keyed by file, and aggregate them in the order of
+ * {@link Component#getChildren()} when visiting the directory.
+ */
+public interface ThreadSafeVisitor extends ComponentVisitor {
+}
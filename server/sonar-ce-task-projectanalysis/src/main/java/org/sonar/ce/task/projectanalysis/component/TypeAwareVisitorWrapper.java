@@ -42,6 +42,12 @@ public class TypeAwareVisitorWrapper implements VisitorWrapper {
     // Nothing to do
   }
 
+  @Override
+  public VisitorWrapper fork() {
+    // stateless
+    return this;
+  }
+
   @Override
   public void visitProject(Component tree) {
     delegate.visitProject(tree);
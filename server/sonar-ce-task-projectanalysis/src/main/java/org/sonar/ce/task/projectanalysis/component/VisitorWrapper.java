@@ -27,4 +27,10 @@ public interface VisitorWrapper extends TypeAwareVisitor {
 
   void afterComponent(Component component);
 
+  /**
+   * Wrapper of the same visitor which keeps its own state from now on, so that it can visit a component on another
+   * thread than this wrapper.
+   */
+  VisitorWrapper fork();
+
 }
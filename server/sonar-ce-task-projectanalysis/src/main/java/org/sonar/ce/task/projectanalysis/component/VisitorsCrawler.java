@@ -23,24 +23,44 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 
 import static com.google.common.collect.FluentIterable.from;
 import static com.google.common.collect.Iterables.concat;
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 /**
  * This crawler make any number of {@link TypeAwareVisitor} or {@link PathAwareVisitor} defined in a list visit a component tree, component per component, in the order of the list
+ * <p>
+ * When created with a parallelism greater than 1 and all the visitors crawling down to files are {@link ThreadSafeVisitor},
+ * the files of each directory are visited concurrently by a fork/join pool. Each file is still visited by all the visitors,
+ * in the order of the list, and the parent directory is visited once all its files have been visited.
  */
 public class VisitorsCrawler implements ComponentCrawler {
 
+  private static final Logger LOGGER = Loggers.get(VisitorsCrawler.class);
+
+  /**
+   * Maximum number of files visited concurrently by the crawlers created with {@link #threads(Configuration)}.
+   */
+  public static final String THREADS_PROPERTY = "sonar.ce.visitors.threads";
+
   private final boolean computeDuration;
+  private final int parallelism;
   private final Map<ComponentVisitor, VisitorDuration> visitorCumulativeDurations;
   private final List<VisitorWrapper> preOrderVisitorWrappers;
   private final List<VisitorWrapper> postOrderVisitorWrappers;
@@ -50,11 +70,44 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration) {
+    this(visitors, computeDuration, 1);
+  }
+
+  /**
+   * @param parallelism maximum number of files visited concurrently
+   */
+  public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration, int parallelism) {
     List<VisitorWrapper> visitorWrappers = from(visitors).transform(ToVisitorWrapper.INSTANCE).toList();
     this.preOrderVisitorWrappers = from(visitorWrappers).filter(MathPreOrderVisitor.INSTANCE).toList();
     this.postOrderVisitorWrappers = from(visitorWrappers).filter(MatchPostOrderVisitor.INSTANCE).toList();
     this.computeDuration = computeDuration;
     this.visitorCumulativeDurations = computeDuration ? from(visitors).toMap(VisitorWrapperToInitialDuration.INSTANCE) : Collections.emptyMap();
+    this.parallelism = parallelism > 1 && canVisitFilesConcurrently(visitorWrappers) ? parallelism : 1;
+  }
+
+  /**
+   * Parallelism set by property {@value #THREADS_PROPERTY}, 1 by default.
+   */
+  public static int threads(Configuration config) {
+    int threads = config.getInt(THREADS_PROPERTY).orElse(1);
+    if (threads < 1) {
+      throw MessageException.of(format("Property %s must be a positive integer. Got: %d", THREADS_PROPERTY, threads));
+    }
+    return threads;
+  }
+
+  private static boolean canVisitFilesConcurrently(List<VisitorWrapper> visitorWrappers) {
+    List<String> notThreadSafe = from(visitorWrappers)
+      .filter(MatchVisitorMaxDepth.forType(Component.Type.FILE))
+      .transform(VisitorWrapper::getWrappedVisitor)
+      .filter(visitor -> !(visitor instanceof ThreadSafeVisitor))
+      .transform(visitor -> visitor.getClass().getSimpleName())
+      .toList();
+    if (notThreadSafe.isEmpty()) {
+      return true;
+    }
+    LOGGER.debug("Files are visited sequentially because of visitors which are not thread-safe: {}", notThreadSafe);
+    return false;
   }
 
   public Map<ComponentVisitor, Long> getCumulativeDurations() {
@@ -68,8 +121,25 @@ public class VisitorsCrawler implements ComponentCrawler {
 
   @Override
   public void visit(final Component component) {
+    if (parallelism == 1) {
+      visit(component, null);
+      return;
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      visit(component, pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private void visit(Component component, @Nullable ForkJoinPool pool) {
+    visit(component, preOrderVisitorWrappers, postOrderVisitorWrappers, pool);
+  }
+
+  private void visit(Component component, List<VisitorWrapper> preOrderWrappers, List<VisitorWrapper> postOrderWrappers, @Nullable ForkJoinPool pool) {
     try {
-      visitImpl(component);
+      visitImpl(component, preOrderWrappers, postOrderWrappers, pool);
     } catch (RuntimeException e) {
       VisitException.rethrowOrWrap(
         e,
@@ -78,15 +148,15 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
   }
 
-  private void visitImpl(Component component) {
+  private void visitImpl(Component component, List<VisitorWrapper> preOrderWrappers, List<VisitorWrapper> postOrderWrappers, @Nullable ForkJoinPool pool) {
     MatchVisitorMaxDepth visitorMaxDepth = MatchVisitorMaxDepth.forComponent(component);
-    List<VisitorWrapper> preOrderVisitorWrappersToExecute = from(preOrderVisitorWrappers).filter(visitorMaxDepth).toList();
-    List<VisitorWrapper> postOrderVisitorWrappersToExecute = from(postOrderVisitorWrappers).filter(visitorMaxDepth).toList();
+    List<VisitorWrapper> preOrderVisitorWrappersToExecute = from(preOrderWrappers).filter(visitorMaxDepth).toList();
+    List<VisitorWrapper> postOrderVisitorWrappersToExecute = from(postOrderWrappers).filter(visitorMaxDepth).toList();
     if (preOrderVisitorWrappersToExecute.isEmpty() && postOrderVisitorWrappersToExecute.isEmpty()) {
       return;
     }
 
-    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappers, postOrderVisitorWrappers)) {
+    for (VisitorWrapper visitorWrapper : concat(preOrderWrappers, postOrderWrappers)) {
       visitorWrapper.beforeComponent(component);
     }
 
@@ -94,7 +164,7 @@ public class VisitorsCrawler implements ComponentCrawler {
       visitNode(component, visitorWrapper);
     }
 
-    visitChildren(component);
+    visitChildren(component, pool);
 
     for (VisitorWrapper visitorWrapper : postOrderVisitorWrappersToExecute) {
       visitNode(component, visitorWrapper);
@@ -105,9 +175,60 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
   }
 
-  private void visitChildren(Component component) {
+  private void visitChildren(Component component, @Nullable ForkJoinPool pool) {
+    if (pool == null) {
+      for (Component child : component.getChildren()) {
+        visit(child, null);
+      }
+      return;
+    }
+    // consecutive files are visited concurrently, other children in order
+    List<Component> files = new ArrayList<>();
     for (Component child : component.getChildren()) {
-      visit(child);
+      if (child.getType() == Component.Type.FILE) {
+        files.add(child);
+      } else {
+        visitFiles(files, pool);
+        files.clear();
+        visit(child, pool);
+      }
+    }
+    visitFiles(files, pool);
+  }
+
+  private void visitFiles(List<Component> files, ForkJoinPool pool) {
+    if (files.size() == 1) {
+      visit(files.get(0), pool);
+    } else if (!files.isEmpty()) {
+      pool.invoke(new VisitFilesTask(files, 0, files.size()));
+    }
+  }
+
+  private void visitForked(Component file) {
+    List<VisitorWrapper> forkedPreOrderWrappers = from(preOrderVisitorWrappers).transform(VisitorWrapper::fork).toList();
+    List<VisitorWrapper> forkedPostOrderWrappers = from(postOrderVisitorWrappers).transform(VisitorWrapper::fork).toList();
+    visit(file, forkedPreOrderWrappers, forkedPostOrderWrappers, null);
+  }
+
+  private class VisitFilesTask extends RecursiveAction {
+    private final List<Component> files;
+    private final int from;
+    private final int to;
+
+    private VisitFilesTask(List<Component> files, int from, int to) {
+      this.files = files;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        visitForked(files.get(from));
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new VisitFilesTask(files, from, middle), new VisitFilesTask(files, middle, to));
+      }
     }
   }
 
@@ -179,7 +300,11 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
 
     public static MatchVisitorMaxDepth forComponent(Component component) {
-      return INSTANCES.get(component.getType());
+      return forType(component.getType());
+    }
+
+    public static MatchVisitorMaxDepth forType(Component.Type type) {
+      return INSTANCES.get(type);
     }
 
     @Override
@@ -208,14 +333,14 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private static final class VisitorDuration {
-    private long duration = 0;
+    private final LongAdder duration = new LongAdder();
 
     public void increment(long duration) {
-      this.duration += duration;
+      this.duration.add(duration);
     }
 
     public long getDuration() {
-      return duration;
+      return duration.sum();
     }
   }
 
@@ -24,11 +24,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.CheckForNull;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ComponentVisitor;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.ce.task.projectanalysis.component.PathAwareVisitorAdapter;
+import org.sonar.ce.task.projectanalysis.component.ThreadSafeVisitor;
 import org.sonar.ce.task.projectanalysis.measure.Measure;
 import org.sonar.ce.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
@@ -88,6 +90,15 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     public FormulaExecutorComponentVisitor buildFor(Iterable<Formula> formulas) {
       return new FormulaExecutorComponentVisitor(this, formulas);
     }
+
+    /**
+     * Visitor which can compute the measures of files concurrently, see {@link ThreadSafeVisitor}. The formulas
+     * must then support concurrent calls, and their counters must only read the measures of the leaf they are
+     * initialized with.
+     */
+    public FormulaExecutorComponentVisitor buildThreadSafeFor(Iterable<Formula> formulas) {
+      return new ThreadSafeFormulaExecutorComponentVisitor(this, formulas);
+    }
   }
 
   @Override
@@ -129,6 +140,11 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
   }
 
   private void processNotLeaf(Component component, Path<FormulaExecutorComponentVisitor.Counters> path) {
+    // aggregate in the order of the children, whatever the order in which they were visited
+    for (Component child : component.getChildren()) {
+      path.current().aggregateChild(child);
+    }
+    Map<Formula, Counter> counters = new HashMap<>();
     for (Formula formula : formulas) {
       Counter counter = path.current().getCounter(formula);
       // If there were no file under this node, the counter won't be initialized
@@ -136,21 +152,24 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
         for (String metricKey : formula.getOutputMetricKeys()) {
           addNewMeasure(component, metricKey, formula, counter);
         }
-        aggregateToParent(path, formula, counter);
+        counters.put(formula, counter);
       }
     }
+    addToParent(component, path, counters);
   }
 
   private void processLeaf(Component component, Path<FormulaExecutorComponentVisitor.Counters> path) {
     CounterInitializationContext counterContext = new CounterInitializationContextImpl(component);
+    Map<Formula, Counter> counters = new HashMap<>();
     for (Formula formula : formulas) {
       Counter counter = formula.createNewCounter();
       counter.initialize(counterContext);
       for (String metricKey : formula.getOutputMetricKeys()) {
         addNewMeasure(component, metricKey, formula, counter);
       }
-      aggregateToParent(path, formula, counter);
+      counters.put(formula, counter);
     }
+    addToParent(component, path, counters);
   }
 
   private void addNewMeasure(Component component, String metricKey, Formula formula, Counter counter) {
@@ -165,9 +184,9 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     }
   }
 
-  private static void aggregateToParent(Path<FormulaExecutorComponentVisitor.Counters> path, Formula formula, Counter currentCounter) {
+  private static void addToParent(Component component, Path<FormulaExecutorComponentVisitor.Counters> path, Map<Formula, Counter> counters) {
     if (!path.isRoot()) {
-      path.parent().aggregate(formula, currentCounter);
+      path.parent().addChild(component, counters);
     }
   }
 
@@ -192,6 +211,20 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
 
   public static class Counters {
     Map<Formula, Counter> countersByFormula = new HashMap<>();
+    // children may be visited concurrently, see ThreadSafeFormulaExecutorComponentVisitor
+    private final Map<String, Map<Formula, Counter>> childCountersByUuid = new ConcurrentHashMap<>();
+
+    void addChild(Component child, Map<Formula, Counter> childCounters) {
+      childCountersByUuid.put(child.getUuid(), childCounters);
+    }
+
+    void aggregateChild(Component child) {
+      // no need to keep the counters of the child in memory
+      Map<Formula, Counter> childCounters = childCountersByUuid.remove(child.getUuid());
+      if (childCounters != null) {
+        childCounters.forEach(this::aggregate);
+      }
+    }
 
     public void aggregate(Formula formula, Counter childCounter) {
       Counter counter = countersByFormula.get(formula);
@@ -211,6 +244,12 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     }
   }
 
+  private static final class ThreadSafeFormulaExecutorComponentVisitor extends FormulaExecutorComponentVisitor implements ThreadSafeVisitor {
+    private ThreadSafeFormulaExecutorComponentVisitor(Builder builder, Iterable<Formula> formulas) {
+      super(builder, formulas);
+    }
+  }
+
   private static class CreateMeasureContextImpl implements CreateMeasureContext {
     private final Component component;
     private final Metric metric;
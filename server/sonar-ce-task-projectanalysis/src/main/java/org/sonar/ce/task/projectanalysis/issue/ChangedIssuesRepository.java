@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import org.sonar.db.es.EsQueueDto;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Keys of the issues inserted or updated in DB during the analysis. They are the only issues of the
+ * branch which have to be indexed at the end of the analysis.
+ * <p>
+ * When too many issues changed, keys are not kept in memory anymore and the whole branch is indexed.
+ * <p>
+ * The es_queue items inserted before the issues are kept here until indexing succeeds.
+ */
+public class ChangedIssuesRepository {
+  static final int MAX_KEYS = 50_000;
+
+  private final int maxKeys;
+  private Set<String> keys = new HashSet<>();
+  private boolean changed = false;
+  private Collection<EsQueueDto> recoveryItems = emptyList();
+
+  public ChangedIssuesRepository() {
+    this(MAX_KEYS);
+  }
+
+  ChangedIssuesRepository(int maxKeys) {
+    this.maxKeys = maxKeys;
+  }
+
+  public void add(String issueKey) {
+    changed = true;
+    if (keys == null) {
+      return;
+    }
+    keys.add(issueKey);
+    if (keys.size() > maxKeys) {
+      keys = null;
+    }
+  }
+
+  /**
+   * @return the keys of the changed issues, or empty if there are too many of them to be indexed one by one
+   */
+  public Optional<Set<String>> getChangedIssueKeys() {
+    return Optional.ofNullable(keys).map(Collections::unmodifiableSet);
+  }
+
+  public boolean hasChangedIssues() {
+    return changed;
+  }
+
+  public void setRecoveryItems(Collection<EsQueueDto> recoveryItems) {
+    this.recoveryItems = recoveryItems;
+  }
+
+  public Collection<EsQueueDto> getRecoveryItems() {
+    return recoveryItems;
+  }
+}
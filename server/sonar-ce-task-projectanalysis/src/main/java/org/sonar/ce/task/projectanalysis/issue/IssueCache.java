@@ -19,24 +19,265 @@
  */
 package org.sonar.ce.task.projectanalysis.issue;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.File;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.SerializationUtils;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.TempFolder;
 import org.sonar.ce.task.projectanalysis.util.cache.DiskCache;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
 
 /**
  * Cache of all the issues involved in the analysis. Their state is as it will be
  * persisted in database (after issue tracking, auto-assignment, ...)
  */
-public class IssueCache extends DiskCache<DefaultIssue> {
+public class IssueCache extends DiskCache<DefaultIssue, ProtobufIssueCache.Issue> {
 
   // this constructor is used by picocontainer
   public IssueCache(TempFolder tempFolder, System2 system2) {
-    super(tempFolder.newFile("issues", ".dat"), system2);
+    super(tempFolder.newFile("issues", ".dat"), system2, ProtobufIssueCache.Issue.parser());
   }
 
   public IssueCache(File file, System2 system2) {
-    super(file, system2);
+    super(file, system2, ProtobufIssueCache.Issue.parser());
+  }
+
+  @Override
+  protected ProtobufIssueCache.Issue toMessage(DefaultIssue issue) {
+    ProtobufIssueCache.Issue.Builder builder = ProtobufIssueCache.Issue.newBuilder();
+    setIfNotNull(issue.key(), builder::setKey);
+    if (issue.type() != null) {
+      builder.setRuleType(issue.type().getDbConstant());
+    }
+    setIfNotNull(issue.componentUuid(), builder::setComponentUuid);
+    setIfNotNull(issue.componentKey(), builder::setComponentKey);
+    setIfNotNull(issue.moduleUuid(), builder::setModuleUuid);
+    setIfNotNull(issue.moduleUuidPath(), builder::setModuleUuidPath);
+    setIfNotNull(issue.projectUuid(), builder::setProjectUuid);
+    setIfNotNull(issue.projectKey(), builder::setProjectKey);
+    if (issue.ruleKey() != null) {
+      builder.setRuleKey(issue.ruleKey().toString());
+    }
+    setIfNotNull(issue.language(), builder::setLanguage);
+    setIfNotNull(issue.severity(), builder::setSeverity);
+    builder.setManualSeverity(issue.manualSeverity());
+    setIfNotNull(issue.message(), builder::setMessage);
+    setIfNotNull(issue.line(), builder::setLine);
+    setIfNotNull(issue.gap(), builder::setGap);
+    setIfNotNull(issue.effortInMinutes(), builder::setEffort);
+    setIfNotNull(issue.status(), builder::setStatus);
+    setIfNotNull(issue.resolution(), builder::setResolution);
+    setIfNotNull(issue.assignee(), builder::setAssigneeUuid);
+    setIfNotNull(issue.checksum(), builder::setChecksum);
+    builder.putAllAttributes(issue.attributes());
+    setIfNotNull(issue.authorLogin(), builder::setAuthorLogin);
+    issue.defaultIssueComments().forEach(comment -> builder.addComments(toMessage(comment)));
+    builder.addAllTags(issue.tags());
+    DbIssues.Locations locations = issue.getLocations();
+    if (locations != null) {
+      builder.setLocations(locations.toByteString());
+    }
+    builder.setIsFromExternalRuleEngine(issue.isFromExternalRuleEngine());
+    setIfNotNull(toTime(issue.creationDate()), builder::setCreationDate);
+    setIfNotNull(toTime(issue.updateDate()), builder::setUpdateDate);
+    setIfNotNull(toTime(issue.closeDate()), builder::setCloseDate);
+    builder.setIsFromHotspot(issue.isFromHotspot());
+    List<FieldDiffs> changes = issue.changes();
+    for (int i = 0; i < changes.size(); i++) {
+      FieldDiffs change = changes.get(i);
+      builder.addChanges(toMessage(change));
+      if (change == issue.currentChange()) {
+        builder.setCurrentChange(i);
+      }
+    }
+    builder.setIsNew(issue.isNew());
+    builder.setIsCopied(issue.isCopied());
+    builder.setBeingClosed(issue.isBeingClosed());
+    builder.setOnDisabledRule(issue.isOnDisabledRule());
+    builder.setIsChanged(issue.isChanged());
+    builder.setSendNotifications(issue.mustSendNotifications());
+    setIfNotNull(issue.selectedAt(), builder::setSelectedAt);
+    return builder.build();
+  }
+
+  @Override
+  protected DefaultIssue fromMessage(ProtobufIssueCache.Issue message) {
+    DefaultIssue issue = new DefaultIssue();
+    issue.setKey(message.hasKey() ? message.getKey() : null);
+    issue.setType(message.hasRuleType() ? RuleType.valueOf(message.getRuleType()) : null);
+    issue.setComponentUuid(message.hasComponentUuid() ? message.getComponentUuid() : null);
+    issue.setComponentKey(message.hasComponentKey() ? message.getComponentKey() : null);
+    issue.setModuleUuid(message.hasModuleUuid() ? message.getModuleUuid() : null);
+    issue.setModuleUuidPath(message.hasModuleUuidPath() ? message.getModuleUuidPath() : null);
+    issue.setProjectUuid(message.hasProjectUuid() ? message.getProjectUuid() : null);
+    issue.setProjectKey(message.hasProjectKey() ? message.getProjectKey() : null);
+    issue.setRuleKey(message.hasRuleKey() ? RuleKey.parse(message.getRuleKey()) : null);
+    issue.setLanguage(message.hasLanguage() ? message.getLanguage() : null);
+    issue.setSeverity(message.hasSeverity() ? message.getSeverity() : null);
+    issue.setManualSeverity(message.getManualSeverity());
+    issue.setMessage(message.hasMessage() ? message.getMessage() : null);
+    issue.setLine(message.hasLine() ? message.getLine() : null);
+    issue.setGap(message.hasGap() ? message.getGap() : null);
+    issue.setEffort(message.hasEffort() ? Duration.create(message.getEffort()) : null);
+    if (message.hasStatus()) {
+      issue.setStatus(message.getStatus());
+    }
+    issue.setResolution(message.hasResolution() ? message.getResolution() : null);
+    issue.setAssigneeUuid(message.hasAssigneeUuid() ? message.getAssigneeUuid() : null);
+    issue.setChecksum(message.hasChecksum() ? message.getChecksum() : null);
+    issue.setAttributes(message.getAttributesMap());
+    issue.setAuthorLogin(message.hasAuthorLogin() ? message.getAuthorLogin() : null);
+    message.getCommentsList().forEach(comment -> issue.addComment(toComment(comment)));
+    if (message.getTagsCount() > 0) {
+      issue.setTags(message.getTagsList());
+    }
+    if (message.hasLocations()) {
+      issue.setLocations(parseLocations(message.getLocations()));
+    }
+    issue.setIsFromExternalRuleEngine(message.getIsFromExternalRuleEngine());
+    issue.setCreationDate(message.hasCreationDate() ? new Date(message.getCreationDate()) : null);
+    issue.setUpdateDate(message.hasUpdateDate() ? new Date(message.getUpdateDate()) : null);
+    issue.setCloseDate(message.hasCloseDate() ? new Date(message.getCloseDate()) : null);
+    issue.setIsFromHotspot(message.getIsFromHotspot());
+    for (int i = 0; i < message.getChangesCount(); i++) {
+      FieldDiffs change = toFieldDiffs(message.getChanges(i));
+      if (message.hasCurrentChange() && message.getCurrentChange() == i) {
+        issue.setCurrentChange(change);
+      } else {
+        issue.addChange(change);
+      }
+    }
+    issue.setNew(message.getIsNew());
+    issue.setCopied(message.getIsCopied());
+    issue.setBeingClosed(message.getBeingClosed());
+    issue.setOnDisabledRule(message.getOnDisabledRule());
+    issue.setChanged(message.getIsChanged());
+    issue.setSendNotifications(message.getSendNotifications());
+    issue.setSelectedAt(message.hasSelectedAt() ? message.getSelectedAt() : null);
+    return issue;
+  }
+
+  private static ProtobufIssueCache.Comment toMessage(DefaultIssueComment comment) {
+    ProtobufIssueCache.Comment.Builder builder = ProtobufIssueCache.Comment.newBuilder();
+    setIfNotNull(comment.key(), builder::setKey);
+    setIfNotNull(comment.issueKey(), builder::setIssueKey);
+    setIfNotNull(comment.userUuid(), builder::setUserUuid);
+    setIfNotNull(toTime(comment.createdAt()), builder::setCreatedAt);
+    setIfNotNull(toTime(comment.updatedAt()), builder::setUpdatedAt);
+    setIfNotNull(comment.markdownText(), builder::setMarkdownText);
+    builder.setIsNew(comment.isNew());
+    return builder.build();
+  }
+
+  private static DefaultIssueComment toComment(ProtobufIssueCache.Comment message) {
+    return new DefaultIssueComment()
+      .setKey(message.hasKey() ? message.getKey() : null)
+      .setIssueKey(message.hasIssueKey() ? message.getIssueKey() : null)
+      .setUserUuid(message.hasUserUuid() ? message.getUserUuid() : null)
+      .setCreatedAt(message.hasCreatedAt() ? new Date(message.getCreatedAt()) : null)
+      .setUpdatedAt(message.hasUpdatedAt() ? new Date(message.getUpdatedAt()) : null)
+      .setMarkdownText(message.hasMarkdownText() ? message.getMarkdownText() : null)
+      .setNew(message.getIsNew());
+  }
+
+  private static ProtobufIssueCache.FieldDiffs toMessage(FieldDiffs fieldDiffs) {
+    ProtobufIssueCache.FieldDiffs.Builder builder = ProtobufIssueCache.FieldDiffs.newBuilder();
+    setIfNotNull(fieldDiffs.issueKey(), builder::setIssueKey);
+    setIfNotNull(fieldDiffs.userUuid(), builder::setUserUuid);
+    setIfNotNull(toTime(fieldDiffs.creationDate()), builder::setCreationDate);
+    for (Map.Entry<String, FieldDiffs.Diff> entry : fieldDiffs.diffs().entrySet()) {
+      ProtobufIssueCache.Diff.Builder diff = ProtobufIssueCache.Diff.newBuilder().setField(entry.getKey());
+      setIfNotNull(toValue(entry.getValue().oldValue()), diff::setOldValue);
+      setIfNotNull(toValue(entry.getValue().newValue()), diff::setNewValue);
+      builder.addDiffs(diff);
+    }
+    return builder.build();
+  }
+
+  private static FieldDiffs toFieldDiffs(ProtobufIssueCache.FieldDiffs message) {
+    FieldDiffs fieldDiffs = new FieldDiffs()
+      .setIssueKey(message.hasIssueKey() ? message.getIssueKey() : null)
+      .setUserUuid(message.hasUserUuid() ? message.getUserUuid() : null)
+      .setCreationDate(message.hasCreationDate() ? new Date(message.getCreationDate()) : null);
+    for (ProtobufIssueCache.Diff diff : message.getDiffsList()) {
+      fieldDiffs.setDiff(diff.getField(),
+        diff.hasOldValue() ? toSerializable(diff.getOldValue()) : null,
+        diff.hasNewValue() ? toSerializable(diff.getNewValue()) : null);
+    }
+    return fieldDiffs;
+  }
+
+  @CheckForNull
+  private static ProtobufIssueCache.Value toValue(@Nullable Serializable value) {
+    if (value == null) {
+      return null;
+    }
+    ProtobufIssueCache.Value.Builder builder = ProtobufIssueCache.Value.newBuilder();
+    if (value instanceof String) {
+      builder.setStringValue((String) value);
+    } else if (value instanceof Long) {
+      builder.setLongValue((Long) value);
+    } else if (value instanceof Integer) {
+      builder.setIntValue((Integer) value);
+    } else if (value instanceof Double) {
+      builder.setDoubleValue((Double) value);
+    } else if (value instanceof RuleType) {
+      builder.setRuleType(((RuleType) value).getDbConstant());
+    } else {
+      builder.setJavaSerialized(ByteString.copyFrom(SerializationUtils.serialize(value)));
+    }
+    return builder.build();
+  }
+
+  private static Serializable toSerializable(ProtobufIssueCache.Value value) {
+    switch (value.getValueCase()) {
+      case STRING_VALUE:
+        return value.getStringValue();
+      case LONG_VALUE:
+        return value.getLongValue();
+      case INT_VALUE:
+        return value.getIntValue();
+      case DOUBLE_VALUE:
+        return value.getDoubleValue();
+      case RULE_TYPE:
+        return RuleType.valueOf(value.getRuleType());
+      case JAVA_SERIALIZED:
+        return (Serializable) SerializationUtils.deserialize(value.getJavaSerialized().toByteArray());
+      default:
+        throw new IllegalStateException("Unsupported value: " + value.getValueCase());
+    }
+  }
+
+  private static DbIssues.Locations parseLocations(ByteString bytes) {
+    try {
+      return DbIssues.Locations.parseFrom(bytes);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException("Fail to read locations of issue", e);
+    }
+  }
+
+  @CheckForNull
+  private static Long toTime(@Nullable Date date) {
+    return date == null ? null : date.getTime();
+  }
+
+  private static <T> void setIfNotNull(@Nullable T value, Consumer<T> setter) {
+    if (value != null) {
+      setter.accept(value);
+    }
   }
 }
@@ -24,9 +24,11 @@ import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.analysis.Branch;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.db.component.BranchType;
 
+import static com.google.common.base.Preconditions.checkState;
 import static java.util.Collections.emptyMap;
 
 public class IssueTrackingDelegator {
@@ -54,6 +56,25 @@ public class IssueTrackingDelegator {
     }
   }
 
+  /**
+   * Whether {@link #track(Component, Input)} is supported. Only the standard tracking, against the previous analysis
+   * of the same branch, is supported.
+   */
+  public boolean canTrackConcurrently() {
+    return !analysisMetadataHolder.isSLBorPR() && !isFirstAnalysisSecondaryLongLivingBranch();
+  }
+
+  /**
+   * Tracks the specified raw issues of the component. Can be called concurrently for distinct components, as long as
+   * the raw input has been loaded beforehand.
+   *
+   * @throws IllegalStateException if {@link #canTrackConcurrently()} is false
+   */
+  public TrackingResult track(Component component, Input<DefaultIssue> rawInput) {
+    checkState(canTrackConcurrently(), "Issues of short-living branches, pull requests and first analysis of long-living branches can't be tracked concurrently");
+    return standardResult(tracker.track(component, rawInput));
+  }
+
   private static TrackingResult standardResult(Tracking<DefaultIssue, DefaultIssue> tracking) {
     return new TrackingResult(emptyMap(), tracking.getMatchedRaws(), tracking.getUnmatchedBases(), tracking.getUnmatchedRaws());
   }
@@ -0,0 +1,166 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.MessageException;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
+
+import static java.lang.String.format;
+import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit.FILE;
+
+/**
+ * Tracks the issues of the files ahead of {@link IntegrateIssuesVisitor}, on a pool of threads.
+ * <p>
+ * When property {@value #THREADS_PROPERTY} is greater than 1, requesting the tracking of a file submits the tracking of
+ * the next files of the component tree to the pool, by batches. Base issues of these files are then loaded from DB and
+ * matched with raw issues while the issues of the current file are processed. Results are always returned in the
+ * order of the requests.
+ * <p>
+ * Raw issues are read from the report by the requesting thread, as the repositories they are computed from are not
+ * thread-safe. Only the tracking of a long-living branch is pipelined, short-living branches and pull requests are
+ * tracked by the requesting thread.
+ */
+public class PipelinedIssueTracking implements Startable {
+
+  public static final String THREADS_PROPERTY = "sonar.ce.issueTracking.threads";
+  private static final int FILES_PER_THREAD = 4;
+
+  private final TreeRootHolder treeRootHolder;
+  private final IssueTrackingDelegator issueTracking;
+  private final TrackerRawInputFactory rawInputFactory;
+  private final Configuration config;
+  private final Map<Component, Future<TrackingResult>> pendingTrackings = new HashMap<>();
+
+  private Boolean pipelined;
+  private int threads;
+  @CheckForNull
+  private ExecutorService executor;
+  private Iterator<Component> nextFiles;
+
+  public PipelinedIssueTracking(TreeRootHolder treeRootHolder, IssueTrackingDelegator issueTracking, TrackerRawInputFactory rawInputFactory,
+    Configuration config) {
+    this.treeRootHolder = treeRootHolder;
+    this.issueTracking = issueTracking;
+    this.rawInputFactory = rawInputFactory;
+    this.config = config;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do, the pool is created when the first file is tracked
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  public TrackingResult track(Component component) {
+    if (component.getType() != Component.Type.FILE || !isPipelined()) {
+      return issueTracking.track(component);
+    }
+
+    if (pendingTrackings.size() <= threads) {
+      submitNextFiles(threads * FILES_PER_THREAD);
+    }
+    Future<TrackingResult> tracking = pendingTrackings.remove(component);
+    if (pendingTrackings.isEmpty() && !nextFiles.hasNext()) {
+      executor.shutdown();
+    }
+    if (tracking == null) {
+      // file is not visited in the order of the component tree
+      return issueTracking.track(component);
+    }
+    return getResult(component, tracking);
+  }
+
+  private boolean isPipelined() {
+    if (pipelined == null) {
+      threads = config.getInt(THREADS_PROPERTY).orElse(1);
+      if (threads < 1) {
+        throw MessageException.of(format("Property %s must be a positive integer. Got: %d", THREADS_PROPERTY, threads));
+      }
+      pipelined = threads > 1 && issueTracking.canTrackConcurrently();
+      if (pipelined) {
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+          .setNameFormat("IssueTracking-%d")
+          .setDaemon(true)
+          .build());
+        nextFiles = filesOf(treeRootHolder.getRoot()).iterator();
+      }
+    }
+    return pipelined;
+  }
+
+  private void submitNextFiles(int maxPendingTrackings) {
+    while (pendingTrackings.size() < maxPendingTrackings && nextFiles.hasNext()) {
+      Component file = nextFiles.next();
+      Input<DefaultIssue> rawInput = rawInputFactory.create(file);
+      // load raw issues and their line hashes before handing the input to the pool
+      if (!rawInput.getIssues().isEmpty()) {
+        rawInput.getBlockHashSequence();
+      }
+      pendingTrackings.put(file, executor.submit(() -> issueTracking.track(file, rawInput)));
+    }
+  }
+
+  private static TrackingResult getResult(Component file, Future<TrackingResult> tracking) {
+    try {
+      return tracking.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(format("Interrupted while tracking issues of component '%s'", file.getDbKey()), e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(format("Fail to track issues of component '%s'", file.getDbKey()), e.getCause());
+    }
+  }
+
+  private static List<Component> filesOf(Component root) {
+    List<Component> files = new ArrayList<>();
+    new DepthTraversalTypeAwareCrawler(new TypeAwareVisitorAdapter(FILE, PRE_ORDER) {
+      @Override
+      public void visitFile(Component file) {
+        files.add(file);
+      }
+    }).visit(root);
+    return files;
+  }
+}
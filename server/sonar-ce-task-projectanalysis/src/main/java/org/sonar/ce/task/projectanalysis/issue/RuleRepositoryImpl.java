@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import javax.annotation.CheckForNull;
 import org.sonar.api.rule.RuleKey;
@@ -41,12 +42,15 @@ import org.sonar.db.rule.RuleDto;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Rules can be read concurrently, for example by {@link PipelinedIssueTracking}, while ad hoc rules are added.
+ */
 public class RuleRepositoryImpl implements RuleRepository {
 
   @CheckForNull
-  private Map<RuleKey, Rule> rulesByKey;
+  private volatile Map<RuleKey, Rule> rulesByKey;
   @CheckForNull
-  private Map<Integer, Rule> rulesById;
+  private volatile Map<Integer, Rule> rulesById;
 
   private final AdHocRuleCreator creator;
   private final DbClient dbClient;
@@ -60,7 +64,7 @@ public class RuleRepositoryImpl implements RuleRepository {
     this.analysisMetadataHolder = analysisMetadataHolder;
   }
 
-  public void addOrUpdateAddHocRuleIfNeeded(RuleKey ruleKey, Supplier<NewAdHocRule> ruleSupplier) {
+  public synchronized void addOrUpdateAddHocRuleIfNeeded(RuleKey ruleKey, Supplier<NewAdHocRule> ruleSupplier) {
     ensureInitialized();
 
     Rule existingRule = rulesByKey.get(ruleKey);
@@ -72,7 +76,7 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   @Override
-  public void saveOrUpdateAddHocRules(DbSession dbSession) {
+  public synchronized void saveOrUpdateAddHocRules(DbSession dbSession) {
     ensureInitialized();
 
     adHocRulesPersist.values().forEach(r -> persistAndIndex(dbSession, r));
@@ -126,24 +130,31 @@ public class RuleRepositoryImpl implements RuleRepository {
 
   private void ensureInitialized() {
     if (rulesByKey == null) {
-      try (DbSession dbSession = dbClient.openSession(false)) {
-        loadRulesFromDb(dbSession);
+      synchronized (this) {
+        if (rulesByKey == null) {
+          try (DbSession dbSession = dbClient.openSession(false)) {
+            loadRulesFromDb(dbSession);
+          }
+        }
       }
     }
   }
 
   private void loadRulesFromDb(DbSession dbSession) {
-    this.rulesByKey = new HashMap<>();
-    this.rulesById = new HashMap<>();
+    Map<RuleKey, Rule> loadedRulesByKey = new ConcurrentHashMap<>();
+    Map<Integer, Rule> loadedRulesById = new ConcurrentHashMap<>();
     String organizationUuid = analysisMetadataHolder.getOrganization().getUuid();
     Multimap<Integer, DeprecatedRuleKeyDto> deprecatedRuleKeysByRuleId = dbClient.ruleDao().selectAllDeprecatedRuleKeys(dbSession).stream()
       .collect(MoreCollectors.index(DeprecatedRuleKeyDto::getRuleId));
     for (RuleDto ruleDto : dbClient.ruleDao().selectAll(dbSession, organizationUuid)) {
       Rule rule = new RuleImpl(ruleDto);
-      rulesByKey.put(ruleDto.getKey(), rule);
-      rulesById.put(ruleDto.getId(), rule);
-      deprecatedRuleKeysByRuleId.get(ruleDto.getId()).forEach(t -> rulesByKey.put(RuleKey.of(t.getOldRepositoryKey(), t.getOldRuleKey()), rule));
+      loadedRulesByKey.put(ruleDto.getKey(), rule);
+      loadedRulesById.put(ruleDto.getId(), rule);
+      deprecatedRuleKeysByRuleId.get(ruleDto.getId()).forEach(t -> loadedRulesByKey.put(RuleKey.of(t.getOldRepositoryKey(), t.getOldRuleKey()), rule));
     }
+    // rulesByKey is assigned last as it flags the repository as initialized
+    this.rulesById = loadedRulesById;
+    this.rulesByKey = loadedRulesByKey;
   }
 
   private static class AdHocRuleWrapper implements Rule {
@@ -51,7 +51,14 @@ public class TrackerExecution {
   }
 
   public Tracking<DefaultIssue, DefaultIssue> track(Component component) {
-    Input<DefaultIssue> rawInput = rawInputFactory.create(component);
+    return track(component, rawInputFactory.create(component));
+  }
+
+  /**
+   * Tracks the specified raw issues of the component. Can be called concurrently for distinct components, as long as
+   * the raw input has been loaded beforehand.
+   */
+  public Tracking<DefaultIssue, DefaultIssue> track(Component component, Input<DefaultIssue> rawInput) {
     Input<DefaultIssue> openBaseIssuesInput = baseInputFactory.create(component);
     NonClosedTracking<DefaultIssue, DefaultIssue> openIssueTracking = tracker.trackNonClosed(rawInput, openBaseIssuesInput);
     if (openIssueTracking.isComplete() || analysisMetadataHolder.isFirstAnalysis()) {
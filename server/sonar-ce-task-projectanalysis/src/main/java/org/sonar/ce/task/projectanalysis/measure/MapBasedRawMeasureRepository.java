@@ -23,6 +23,7 @@ import gnu.trove.map.hash.THashMap;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
@@ -34,10 +35,13 @@ import static java.util.Objects.requireNonNull;
 /**
  * Map based implementation of MeasureRepository which supports only raw measures.
  * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ * <p>
+ * Measures of distinct components can be read and written concurrently, those of a given component must be accessed
+ * by a single thread at a time.
  */
 public final class MapBasedRawMeasureRepository<T> implements MeasureRepository {
   private final Function<Component, T> componentToKey;
-  private final Map<T, Map<String, Measure>> measures = new THashMap<>();
+  private final Map<T, Map<String, Measure>> measures = new ConcurrentHashMap<>();
 
   public MapBasedRawMeasureRepository(Function<Component, T> componentToKey) {
     this.componentToKey = requireNonNull(componentToKey);
@@ -0,0 +1,233 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.purge;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Purges the historical data of projects and views outside of the CE workers, so that the analysis task which
+ * requested the purge does not wait for it.
+ * <p>
+ * Purges are executed one at a time by a low priority thread. Requests for the same root component which are not
+ * started yet are coalesced into one. After each purge, the thread pauses so that purges do not use the database
+ * more than the percentage of time defined by property {@link #DB_TIME_PERCENT_PROPERTY}.
+ * </p>
+ * <p>
+ * Another analysis of the project can start while it is purged, on any worker. As dates of analyses of a branch are
+ * strictly increasing, aborted analyses are deleted and history is purged only among the analyses created before
+ * the analysis which requested the purge. To limit contention, the purge of a project is also postponed while a task
+ * of this project is in progress, but for {@link #MAX_POSTPONE_DURATION_MS} at most.
+ * </p>
+ */
+@ComputeEngineSide
+public class DeferredProjectCleaner {
+  static final String DB_TIME_PERCENT_PROPERTY = "sonar.ce.purge.maxDbTimePercent";
+  private static final int DEFAULT_DB_TIME_PERCENT = 50;
+  static final long POSTPONE_DELAY_MS = 10_000L;
+  static final long MAX_POSTPONE_DURATION_MS = 30 * 60 * 1_000L;
+  private static final Logger LOG = Loggers.get(DeferredProjectCleaner.class);
+
+  private final ProjectCleanerExecutorService executorService;
+  private final ProjectCleaner projectCleaner;
+  private final DbClient dbClient;
+  private final System2 system2;
+  private final int dbTimePercent;
+  // guarded by itself
+  private final Map<String, PurgeRequest> pendingRequests = new LinkedHashMap<>();
+  private final AtomicBoolean retryScheduled = new AtomicBoolean(false);
+  private final AtomicLong successCount = new AtomicLong();
+  private final AtomicLong errorCount = new AtomicLong();
+  private final AtomicLong processingTime = new AtomicLong();
+
+  public DeferredProjectCleaner(ProjectCleanerExecutorService executorService, ProjectCleaner projectCleaner, DbClient dbClient, System2 system2,
+    Configuration config) {
+    this.executorService = executorService;
+    this.projectCleaner = projectCleaner;
+    this.dbClient = dbClient;
+    this.system2 = system2;
+    this.dbTimePercent = config.getInt(DB_TIME_PERCENT_PROPERTY).orElse(DEFAULT_DB_TIME_PERCENT);
+    if (dbTimePercent < 1 || dbTimePercent > 100) {
+      throw MessageException.of(format("Property %s must be an integer between 1 and 100. Got: %d", DB_TIME_PERCENT_PROPERTY, dbTimePercent));
+    }
+  }
+
+  /**
+   * @param analysisDate date of the analysis which requests the purge
+   */
+  public void schedule(String rootUuid, String projectUuid, Configuration projectConfig, Set<String> disabledComponentUuids, long analysisDate) {
+    PurgeRequest request = new PurgeRequest(rootUuid, projectUuid, projectConfig, disabledComponentUuids, analysisDate, system2.now());
+    synchronized (pendingRequests) {
+      pendingRequests.merge(rootUuid, request, PurgeRequest::coalesce);
+    }
+    executorService.execute(this::processPendingRequests);
+  }
+
+  /**
+   * Number of purges which are not started yet
+   */
+  public long getPendingCount() {
+    synchronized (pendingRequests) {
+      return pendingRequests.size();
+    }
+  }
+
+  /**
+   * Count of purges which ended successfully since startup
+   */
+  public long getSuccessCount() {
+    return successCount.get();
+  }
+
+  /**
+   * Count of purges which ended with an error since startup
+   */
+  public long getErrorCount() {
+    return errorCount.get();
+  }
+
+  /**
+   * Time spent purging since startup, in milliseconds
+   */
+  public long getProcessingTime() {
+    return processingTime.get();
+  }
+
+  private void processPendingRequests() {
+    List<PurgeRequest> requests;
+    synchronized (pendingRequests) {
+      requests = new ArrayList<>(pendingRequests.values());
+    }
+
+    boolean postponed = false;
+    for (PurgeRequest request : requests) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+      if (!isPostponedForTooLong(request) && isTaskInProgress(request.projectUuid)) {
+        postponed = true;
+      } else if (remove(request)) {
+        purge(request);
+      }
+    }
+
+    if (postponed && retryScheduled.compareAndSet(false, true)) {
+      executorService.schedule(() -> {
+        retryScheduled.set(false);
+        processPendingRequests();
+      }, POSTPONE_DELAY_MS, MILLISECONDS);
+    }
+  }
+
+  private boolean isPostponedForTooLong(PurgeRequest request) {
+    return system2.now() - request.requestedAt >= MAX_POSTPONE_DURATION_MS;
+  }
+
+  private boolean isTaskInProgress(String projectUuid) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.ceQueueDao().selectByMainComponentUuid(dbSession, projectUuid).stream()
+        .anyMatch(task -> task.getStatus() == CeQueueDto.Status.IN_PROGRESS);
+    }
+  }
+
+  /**
+   * Removes the request from the pending ones, unless it has been coalesced with a more recent one in the meantime.
+   */
+  private boolean remove(PurgeRequest request) {
+    synchronized (pendingRequests) {
+      return pendingRequests.remove(request.rootUuid, request);
+    }
+  }
+
+  private void purge(PurgeRequest request) {
+    long start = system2.now();
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      projectCleaner.purge(dbSession, request.rootUuid, request.projectUuid, request.projectConfig, request.disabledComponentUuids, request.analysisDate);
+      dbSession.commit();
+      successCount.incrementAndGet();
+    } catch (Exception e) {
+      errorCount.incrementAndGet();
+      LOG.error(format("Failed to purge component %s", request.rootUuid), e);
+    }
+    long duration = system2.now() - start;
+    processingTime.addAndGet(duration);
+    pause(duration);
+  }
+
+  private void pause(long purgeDuration) {
+    long pauseDuration = purgeDuration * (100 - dbTimePercent) / dbTimePercent;
+    if (pauseDuration <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(pauseDuration);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class PurgeRequest {
+    private final String rootUuid;
+    private final String projectUuid;
+    private final Configuration projectConfig;
+    private final Set<String> disabledComponentUuids;
+    private final long analysisDate;
+    private final long requestedAt;
+
+    private PurgeRequest(String rootUuid, String projectUuid, Configuration projectConfig, Set<String> disabledComponentUuids, long analysisDate,
+      long requestedAt) {
+      this.rootUuid = rootUuid;
+      this.projectUuid = projectUuid;
+      this.projectConfig = projectConfig;
+      this.disabledComponentUuids = new HashSet<>(disabledComponentUuids);
+      this.analysisDate = analysisDate;
+      this.requestedAt = requestedAt;
+    }
+
+    /**
+     * The most recent configuration and analysis apply, components disabled by any of the two analyses are purged.
+     * The request is as old as the first one, so that coalescing does not postpone it further.
+     */
+    private static PurgeRequest coalesce(PurgeRequest previous, PurgeRequest next) {
+      Set<String> disabledComponentUuids = new HashSet<>(previous.disabledComponentUuids);
+      disabledComponentUuids.addAll(next.disabledComponentUuids);
+      return new PurgeRequest(next.rootUuid, next.projectUuid, next.projectConfig, disabledComponentUuids,
+        Math.max(previous.analysisDate, next.analysisDate), Math.min(previous.requestedAt, next.requestedAt));
+    }
+  }
+}
@@ -27,6 +27,7 @@ import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.TimeUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.PurgeConfiguration;
 import org.sonar.db.purge.PurgeDao;
@@ -40,6 +41,7 @@ import static org.sonar.db.purge.PurgeConfiguration.newDefaultPurgeConfiguration
 @ComputeEngineSide
 public class ProjectCleaner {
   private static final Logger LOG = Loggers.get(ProjectCleaner.class);
+  private static final long DEFAULT_HOUSEKEEPING_BUDGET_IN_SECONDS = 300L;
 
   private final PurgeProfiler profiler;
   private final PurgeListener purgeListener;
@@ -53,13 +55,18 @@ public class ProjectCleaner {
     this.purgeListener = purgeListener;
   }
 
-  public ProjectCleaner purge(DbSession session, String rootUuid, String projectUuid, Configuration projectConfig, Set<String> disabledComponentUuids) {
+  /**
+   * @param analysesCreatedBefore aborted analyses are deleted and history is purged only among the analyses created
+   *                              strictly before this date
+   */
+  public ProjectCleaner purge(DbSession session, String rootUuid, String projectUuid, Configuration projectConfig, Set<String> disabledComponentUuids,
+    long analysesCreatedBefore) {
     long start = System.currentTimeMillis();
     profiler.reset();
 
     periodCleaner.clean(session, rootUuid, projectConfig);
 
-    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectConfig, rootUuid, projectUuid, disabledComponentUuids);
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectConfig, rootUuid, projectUuid, disabledComponentUuids, analysesCreatedBefore);
     purgeDao.purge(session, configuration, purgeListener, profiler);
 
     session.commit();
@@ -67,12 +74,23 @@ public class ProjectCleaner {
     return this;
   }
 
+  /**
+   * Per-table durations are logged when profiling is enabled, or when the purge takes longer than the budget set by
+   * {@link PurgeConstants#HOUSEKEEPING_BUDGET_IN_SECONDS}.
+   */
   private void logProfiling(long start, Configuration config) {
+    long duration = System.currentTimeMillis() - start;
     if (config.getBoolean(CoreProperties.PROFILING_LOG_PROPERTY).orElse(false)) {
-      long duration = System.currentTimeMillis() - start;
       LOG.info("\n -------- Profiling for purge: " + TimeUtils.formatDuration(duration) + " --------\n");
       profiler.dump(duration, LOG);
       LOG.info("\n -------- End of profiling for purge --------\n");
+      return;
+    }
+    long budgetInSeconds = config.getLong(PurgeConstants.HOUSEKEEPING_BUDGET_IN_SECONDS).orElse(DEFAULT_HOUSEKEEPING_BUDGET_IN_SECONDS);
+    if (duration > budgetInSeconds * 1_000L) {
+      LOG.warn("Purge took {}, more than the {} seconds set by {}. Durations of the slowest tables:",
+        TimeUtils.formatDuration(duration), budgetInSeconds, PurgeConstants.HOUSEKEEPING_BUDGET_IN_SECONDS);
+      profiler.dump(duration, LOG);
     }
   }
 }
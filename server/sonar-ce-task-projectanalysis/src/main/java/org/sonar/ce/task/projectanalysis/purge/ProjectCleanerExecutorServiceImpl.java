@@ -17,38 +17,25 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.ce.task.projectanalysis.util.cache;
+package org.sonar.ce.task.projectanalysis.purge;
 
-import com.google.common.base.Throwables;
-import org.apache.commons.io.IOUtils;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.server.util.AbstractStoppableScheduledExecutorServiceImpl;
 
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import org.sonar.core.util.CloseableIterator;
+@ComputeEngineSide
+public class ProjectCleanerExecutorServiceImpl
+  extends AbstractStoppableScheduledExecutorServiceImpl<ScheduledExecutorService>
+  implements ProjectCleanerExecutorService {
 
-public class ObjectInputStreamIterator<E> extends CloseableIterator<E> {
-
-  private ObjectInputStream stream;
-
-  public ObjectInputStreamIterator(InputStream stream) throws IOException {
-    this.stream = new ObjectInputStream(stream);
-  }
-
-  @Override
-  protected E doNext() {
-    try {
-      return (E) stream.readObject();
-    } catch (EOFException e) {
-      return null;
-    } catch (Exception e) {
-      throw Throwables.propagate(e);
-    }
-  }
-
-  @Override
-  protected void doClose() {
-    IOUtils.closeQuietly(stream);
+  public ProjectCleanerExecutorServiceImpl() {
+    super(Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setDaemon(false)
+        .setPriority(Thread.MIN_PRIORITY)
+        .setNameFormat("ProjectCleaner-%d")
+        .build()));
   }
 }
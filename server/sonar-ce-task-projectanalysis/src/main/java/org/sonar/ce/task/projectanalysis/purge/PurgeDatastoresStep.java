@@ -27,8 +27,6 @@ import org.sonar.ce.task.projectanalysis.component.DisabledComponentsHolder;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.ce.task.step.ComputationStep;
-import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
 
 import static org.sonar.ce.task.projectanalysis.component.Component.Type.PROJECT;
 import static org.sonar.ce.task.projectanalysis.component.Component.Type.VIEW;
@@ -37,17 +35,15 @@ import static org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit.repo
 
 public class PurgeDatastoresStep implements ComputationStep {
 
-  private final ProjectCleaner projectCleaner;
-  private final DbClient dbClient;
+  private final DeferredProjectCleaner projectCleaner;
   private final TreeRootHolder treeRootHolder;
   private final ConfigurationRepository configRepository;
   private final DisabledComponentsHolder disabledComponentsHolder;
   private final AnalysisMetadataHolder analysisMetadataHolder;
 
-  public PurgeDatastoresStep(DbClient dbClient, ProjectCleaner projectCleaner, TreeRootHolder treeRootHolder,
+  public PurgeDatastoresStep(DeferredProjectCleaner projectCleaner, TreeRootHolder treeRootHolder,
     ConfigurationRepository configRepository, DisabledComponentsHolder disabledComponentsHolder, AnalysisMetadataHolder analysisMetadataHolder) {
     this.projectCleaner = projectCleaner;
-    this.dbClient = dbClient;
     this.treeRootHolder = treeRootHolder;
     this.configRepository = configRepository;
     this.disabledComponentsHolder = disabledComponentsHolder;
@@ -71,11 +67,10 @@ public class PurgeDatastoresStep implements ComputationStep {
   }
 
   private void execute(Component root) {
-    try (DbSession dbSession = dbClient.openSession(true)) {
-      String projectUuid = analysisMetadataHolder.getProject().getUuid();
-      projectCleaner.purge(dbSession, root.getUuid(), projectUuid, configRepository.getConfiguration(), disabledComponentsHolder.getUuids());
-      dbSession.commit();
-    }
+    // purge is executed once the analysis is completed, out of the CE worker
+    String projectUuid = analysisMetadataHolder.getProject().getUuid();
+    projectCleaner.schedule(root.getUuid(), projectUuid, configRepository.getConfiguration(), disabledComponentsHolder.getUuids(),
+      analysisMetadataHolder.getAnalysisDate());
   }
 
   @Override
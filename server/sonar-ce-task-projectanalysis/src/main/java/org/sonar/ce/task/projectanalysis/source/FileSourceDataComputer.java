@@ -19,9 +19,12 @@
  */
 package org.sonar.ce.task.projectanalysis.source;
 
+import java.security.MessageDigest;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.scm.Changeset;
 import org.sonar.core.hash.SourceHashComputer;
@@ -69,6 +72,30 @@ public class FileSourceDataComputer {
     }
   }
 
+  /**
+   * Hash of the {@link DbFileSources.Data} which would be returned by {@link #compute(Component, FileSourceDataWarnings)},
+   * computed line by line, without keeping the lines in memory nor computing the line hashes.
+   */
+  public DataHash computeDataHash(Component file, FileSourceDataWarnings fileSourceDataWarnings) {
+    try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
+      SourceLineReadersFactory.LineReaders lineReaders = sourceLineReadersFactory.getLineReaders(file)) {
+      MessageDigest md5 = DigestUtils.getMd5Digest();
+      int currentLine = 0;
+
+      while (linesIterator.hasNext()) {
+        currentLine++;
+        DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder()
+          .setSource(linesIterator.next())
+          .setLine(currentLine);
+        lineReaders.read(lineBuilder, readError -> fileSourceDataWarnings.addWarning(file, readError));
+        // lines is the only field of Data, so Data is serialized as the concatenation of the Data of each of its lines
+        md5.update(DbFileSources.Data.newBuilder().addLines(lineBuilder).build().toByteArray());
+      }
+
+      return new DataHash(Hex.encodeHexString(md5.digest()), lineReaders.getLatestChangeWithRevision());
+    }
+  }
+
   public static class Data {
     private final DbFileSources.Data fileSourceData;
     private final List<String> lineHashes;
@@ -100,4 +127,23 @@ public class FileSourceDataComputer {
     }
   }
 
+  public static class DataHash {
+    private final String hash;
+    private final Changeset latestChangeWithRevision;
+
+    public DataHash(String hash, @Nullable Changeset latestChangeWithRevision) {
+      this.hash = hash;
+      this.latestChangeWithRevision = latestChangeWithRevision;
+    }
+
+    public String getHash() {
+      return hash;
+    }
+
+    @CheckForNull
+    public Changeset getLatestChangeWithRevision() {
+      return latestChangeWithRevision;
+    }
+  }
+
 }
@@ -20,13 +20,29 @@
 package org.sonar.ce.task.projectanalysis.source;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang.ObjectUtils;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
@@ -40,47 +56,92 @@ import org.sonar.db.DbSession;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 
+import static java.lang.String.format;
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
+/**
+ * Sources of files are computed one after the other, as line readers are not thread-safe. When property
+ * {@value #THREADS_PROPERTY} is greater than 1, hashing and compression of the sources are done by a pool of threads,
+ * while the sources of the next files are computed.
+ * <p>
+ * When the source and the line hashes version of a file did not change, the hash of its sources is first computed line
+ * by line. Its sources are computed, compressed and written only if this hash or the revision does not match the row.
+ * Rows of changed files are written in batches.
+ */
 public class PersistFileSourcesStep implements ComputationStep {
+  public static final String THREADS_PROPERTY = "sonar.ce.persistSources.threads";
+  // limits the memory used by the compressed sources waiting to be written to DB
+  private static final long MAX_BATCH_BYTES = 16L * 1024 * 1024;
+
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
   private final SourceLinesHashRepository sourceLinesHash;
+  private final SourceHashRepository sourceHashRepository;
   private final FileSourceDataComputer fileSourceDataComputer;
   private final FileSourceDataWarnings fileSourceDataWarnings;
+  private final int threads;
 
   public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder,
-    SourceLinesHashRepository sourceLinesHash, FileSourceDataComputer fileSourceDataComputer,
-    FileSourceDataWarnings fileSourceDataWarnings) {
+    SourceLinesHashRepository sourceLinesHash, SourceHashRepository sourceHashRepository, FileSourceDataComputer fileSourceDataComputer,
+    FileSourceDataWarnings fileSourceDataWarnings, Configuration config) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
     this.sourceLinesHash = sourceLinesHash;
+    this.sourceHashRepository = sourceHashRepository;
     this.fileSourceDataComputer = fileSourceDataComputer;
     this.fileSourceDataWarnings = fileSourceDataWarnings;
+    this.threads = config.getInt(THREADS_PROPERTY).orElse(1);
+    if (threads < 1) {
+      throw MessageException.of(format("Property %s must be a positive integer. Got: %d", THREADS_PROPERTY, threads));
+    }
   }
 
   @Override
   public void execute(ComputationStep.Context context) {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(dbSession))
+    ExecutorService executor = threads == 1 ? MoreExecutors.newDirectExecutorService() : Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("PersistFileSources-%d")
+      .setDaemon(true)
+      .build());
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      FileSourceVisitor visitor = new FileSourceVisitor(dbSession, executor);
+      new DepthTraversalTypeAwareCrawler(visitor)
         .visit(treeRootHolder.getRoot());
+      visitor.writePendingSources(0);
+      dbSession.commit();
     } finally {
+      executor.shutdownNow();
       fileSourceDataWarnings.commitWarnings();
     }
   }
 
+  /**
+   * MD5 of the serialized, but not compressed, {@link DbFileSources.Data}
+   */
+  static String computeDataHash(DbFileSources.Data data) {
+    MessageDigest md5 = DigestUtils.getMd5Digest();
+    try (OutputStream output = new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, md5)) {
+      data.writeTo(output);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to serialize source data", e);
+    }
+    return Hex.encodeHexString(md5.digest());
+  }
+
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
     private final DbSession session;
+    private final ExecutorService executor;
+    private final Deque<PendingSource> pendingSources = new ArrayDeque<>();
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
+    private long batchBytes = 0;
 
-    private FileSourceVisitor(DbSession session) {
+    private FileSourceVisitor(DbSession session, ExecutorService executor) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
       this.session = session;
+      this.executor = executor;
     }
 
     @Override
@@ -95,59 +156,107 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
+      FileSourceDto previousDto = previousFileSourcesByUuid.remove(file.getUuid());
+      FileSourceDataComputer.Data fileSourceData;
+      int lineHashesVersion;
       try {
-        FileSourceDataComputer.Data fileSourceData = fileSourceDataComputer.compute(file, fileSourceDataWarnings);
-        persistSource(fileSourceData, file);
+        lineHashesVersion = sourceLinesHash.getLineHashesVersion(file);
+        if (previousDto != null && isUpToDate(file, lineHashesVersion, previousDto)) {
+          return;
+        }
+        fileSourceData = fileSourceDataComputer.compute(file, fileSourceDataWarnings);
       } catch (Exception e) {
-        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getDbKey()), e);
+        throw new IllegalStateException(format("Cannot persist sources of %s", file.getDbKey()), e);
+      }
+      pendingSources.add(new PendingSource(file, executor.submit(() -> toDtoToPersist(fileSourceData, file, lineHashesVersion, previousDto))));
+      writePendingSources(threads * 2);
+    }
+
+    /**
+     * Lines also hold coverage, SCM, highlighting, symbols, duplications and new lines, which are not hashed separately
+     * in the row. So when the source hash and the line hashes version match, the hash of the sources is computed line
+     * by line, which is cheaper than computing the sources, and compared with the row.
+     */
+    private boolean isUpToDate(Component file, int lineHashesVersion, FileSourceDto previousDto) {
+      if (previousDto.getLineHashesVersion() != lineHashesVersion || previousDto.getDataHash() == null || previousDto.getSrcHash() == null
+        || !previousDto.getSrcHash().equals(sourceHashRepository.getRawSourceHash(file))) {
+        return false;
+      }
+      FileSourceDataComputer.DataHash dataHash = fileSourceDataComputer.computeDataHash(file, fileSourceDataWarnings);
+      return dataHash.getHash().equals(previousDto.getDataHash())
+        && ObjectUtils.equals(computeRevision(dataHash.getLatestChangeWithRevision()), previousDto.getRevision());
+    }
+
+    /**
+     * Writes to DB the oldest pending sources, until at most {@code maxPendingSources} remain
+     */
+    private void writePendingSources(int maxPendingSources) {
+      while (pendingSources.size() > maxPendingSources) {
+        PendingSource pendingSource = pendingSources.poll();
+        FileSourceDto dto = pendingSource.getDto();
+        if (dto != null) {
+          write(dto);
+        }
+      }
+    }
+
+    private void write(FileSourceDto dto) {
+      if (dto.getId() == null) {
+        dbClient.fileSourceDao().insert(session, dto);
+      } else {
+        dbClient.fileSourceDao().update(session, dto);
+      }
+      batchBytes += dto.getBinaryData().length;
+      if (batchBytes >= MAX_BATCH_BYTES) {
+        session.commit();
+        batchBytes = 0;
       }
     }
 
-    private void persistSource(FileSourceDataComputer.Data fileSourceData, Component file) {
+    /**
+     * Called by the pool of threads
+     *
+     * @return the row to insert or to update, or {@code null} if the row of the file is up-to-date
+     */
+    @CheckForNull
+    private FileSourceDto toDtoToPersist(FileSourceDataComputer.Data fileSourceData, Component file, int lineHashesVersion, @Nullable FileSourceDto previousDto) {
       DbFileSources.Data lineData = fileSourceData.getLineData();
 
-      byte[] binaryData = FileSourceDto.encodeSourceData(lineData);
-      String dataHash = DigestUtils.md5Hex(binaryData);
+      String dataHash = computeDataHash(lineData);
       String srcHash = fileSourceData.getSrcHash();
       List<String> lineHashes = fileSourceData.getLineHashes();
-      Changeset latestChangeWithRevision = fileSourceData.getLatestChangeWithRevision();
-      int lineHashesVersion = sourceLinesHash.getLineHashesVersion(file);
-      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      String revision = computeRevision(fileSourceData.getLatestChangeWithRevision());
 
       if (previousDto == null) {
-        FileSourceDto dto = new FileSourceDto()
+        return new FileSourceDto()
           .setProjectUuid(projectUuid)
           .setFileUuid(file.getUuid())
-          .setBinaryData(binaryData)
+          .setBinaryData(FileSourceDto.encodeSourceData(lineData))
           .setSrcHash(srcHash)
           .setDataHash(dataHash)
           .setLineHashes(lineHashes)
           .setLineHashesVersion(lineHashesVersion)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
-          .setRevision(computeRevision(latestChangeWithRevision));
-        dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
-      } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
-        boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
-        boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
-        String revision = computeRevision(latestChangeWithRevision);
-        boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        boolean lineHashesVersionUpdated = previousDto.getLineHashesVersion() != lineHashesVersion;
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated || lineHashesVersionUpdated) {
-          previousDto
-            .setBinaryData(binaryData)
-            .setDataHash(dataHash)
-            .setSrcHash(srcHash)
-            .setLineHashes(lineHashes)
-            .setLineHashesVersion(lineHashesVersion)
-            .setRevision(revision)
-            .setUpdatedAt(system2.now());
-          dbClient.fileSourceDao().update(session, previousDto);
-          session.commit();
-        }
+          .setRevision(revision);
+      }
+
+      // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+      boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
+      boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
+      boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
+      boolean lineHashesVersionUpdated = previousDto.getLineHashesVersion() != lineHashesVersion;
+      if (binaryDataUpdated || srcHashUpdated || revisionUpdated || lineHashesVersionUpdated) {
+        return previousDto
+          .setBinaryData(FileSourceDto.encodeSourceData(lineData))
+          .setDataHash(dataHash)
+          .setSrcHash(srcHash)
+          .setLineHashes(lineHashes)
+          .setLineHashesVersion(lineHashesVersion)
+          .setRevision(revision)
+          .setUpdatedAt(system2.now());
       }
+      return null;
     }
 
     @CheckForNull
@@ -159,6 +268,28 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  private static class PendingSource {
+    private final Component file;
+    private final Future<FileSourceDto> dto;
+
+    private PendingSource(Component file, Future<FileSourceDto> dto) {
+      this.file = file;
+      this.dto = dto;
+    }
+
+    @CheckForNull
+    private FileSourceDto getDto() {
+      try {
+        return dto.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(format("Interrupted while persisting sources of %s", file.getDbKey()), e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(format("Cannot persist sources of %s", file.getDbKey()), e.getCause());
+      }
+    }
+  }
+
   @Override
   public String getDescription() {
     return "Persist sources";
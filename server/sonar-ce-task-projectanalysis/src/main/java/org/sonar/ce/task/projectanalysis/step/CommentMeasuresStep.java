@@ -21,9 +21,10 @@ package org.sonar.ce.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableList;
 import java.util.Optional;
+import org.sonar.api.config.Configuration;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
-import org.sonar.ce.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.ce.task.projectanalysis.component.VisitorsCrawler;
 import org.sonar.ce.task.projectanalysis.formula.Counter;
 import org.sonar.ce.task.projectanalysis.formula.CounterInitializationContext;
 import org.sonar.ce.task.projectanalysis.formula.CreateMeasureContext;
@@ -52,12 +53,14 @@ public class CommentMeasuresStep implements ComputationStep {
   private final TreeRootHolder treeRootHolder;
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
+  private final Configuration config;
   private final ImmutableList<Formula> formulas;
 
-  public CommentMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository) {
+  public CommentMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository, Configuration config) {
     this.treeRootHolder = treeRootHolder;
     this.metricRepository = metricRepository;
     this.measureRepository = measureRepository;
+    this.config = config;
     this.formulas = ImmutableList.of(
       new DocumentationFormula(),
       new CommentDensityFormula());
@@ -65,8 +68,9 @@ public class CommentMeasuresStep implements ComputationStep {
 
   @Override
   public void execute(ComputationStep.Context context) {
-    new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(formulas))
+    new VisitorsCrawler(
+      ImmutableList.of(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildThreadSafeFor(formulas)),
+      false, VisitorsCrawler.threads(config))
       .visit(treeRootHolder.getRoot());
   }
 
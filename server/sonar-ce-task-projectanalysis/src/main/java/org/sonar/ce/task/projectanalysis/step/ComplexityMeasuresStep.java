@@ -20,8 +20,9 @@
 package org.sonar.ce.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableList;
-import org.sonar.ce.task.projectanalysis.component.PathAwareCrawler;
+import org.sonar.api.config.Configuration;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.ce.task.projectanalysis.component.VisitorsCrawler;
 import org.sonar.ce.task.projectanalysis.formula.AverageFormula;
 import org.sonar.ce.task.projectanalysis.formula.DistributionFormula;
 import org.sonar.ce.task.projectanalysis.formula.Formula;
@@ -72,17 +73,20 @@ public class ComplexityMeasuresStep implements ComputationStep {
   private final TreeRootHolder treeRootHolder;
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
+  private final Configuration config;
 
-  public ComplexityMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository) {
+  public ComplexityMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository, Configuration config) {
     this.treeRootHolder = treeRootHolder;
     this.metricRepository = metricRepository;
     this.measureRepository = measureRepository;
+    this.config = config;
   }
 
   @Override
   public void execute(ComputationStep.Context context) {
-    new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(FORMULAS))
+    new VisitorsCrawler(
+      ImmutableList.of(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildThreadSafeFor(FORMULAS)),
+      false, VisitorsCrawler.threads(config))
       .visit(treeRootHolder.getRoot());
   }
 
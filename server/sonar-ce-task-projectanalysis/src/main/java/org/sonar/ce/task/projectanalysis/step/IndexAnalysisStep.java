@@ -19,21 +19,36 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.ce.task.projectanalysis.issue.ChangedIssuesRepository;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.db.es.EsQueueDto;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
 
 public class IndexAnalysisStep implements ComputationStep {
 
   private static final Logger LOGGER = Loggers.get(IndexAnalysisStep.class);
 
   private final TreeRootHolder treeRootHolder;
+  private final ChangedIssuesRepository changedIssuesRepository;
+  private final IssueIndexer issueIndexer;
   private final ProjectIndexer[] indexers;
 
-  public IndexAnalysisStep(TreeRootHolder treeRootHolder, ProjectIndexer... indexers) {
+  /**
+   * @param indexers all the {@link ProjectIndexer}s of the container. {@code issueIndexer} is one of them, it is
+   *                 called with the issues changed by the analysis.
+   */
+  public IndexAnalysisStep(TreeRootHolder treeRootHolder, ChangedIssuesRepository changedIssuesRepository, IssueIndexer issueIndexer,
+    ProjectIndexer... indexers) {
     this.treeRootHolder = treeRootHolder;
+    this.changedIssuesRepository = changedIssuesRepository;
+    this.issueIndexer = issueIndexer;
     this.indexers = indexers;
   }
 
@@ -41,8 +56,32 @@ public class IndexAnalysisStep implements ComputationStep {
   public void execute(ComputationStep.Context context) {
     String branchUuid = treeRootHolder.getRoot().getUuid();
     for (ProjectIndexer indexer : indexers) {
-      LOGGER.debug("Call {}", indexer);
-      indexer.indexOnAnalysis(branchUuid);
+      if (indexer != issueIndexer) {
+        LOGGER.debug("Call {}", indexer);
+        indexer.indexOnAnalysis(branchUuid);
+      }
+    }
+    LOGGER.debug("Call {}", issueIndexer);
+    indexIssues(branchUuid);
+  }
+
+  /**
+   * Only the issues changed by the analysis are indexed, unless there are too many of them. The es_queue items
+   * inserted by {@link PersistIssuesStep} are deleted once indexing succeeds, or right away if no issue changed.
+   */
+  private void indexIssues(String branchUuid) {
+    Collection<EsQueueDto> recoveryItems = changedIssuesRepository.getRecoveryItems();
+    if (!changedIssuesRepository.hasChangedIssues()) {
+      if (!recoveryItems.isEmpty()) {
+        issueIndexer.cancelRecoveryOnAnalysis(recoveryItems);
+      }
+      return;
+    }
+    Optional<Set<String>> changedIssueKeys = changedIssuesRepository.getChangedIssueKeys();
+    if (changedIssueKeys.isPresent()) {
+      issueIndexer.indexIssuesOnAnalysis(changedIssueKeys.get(), recoveryItems);
+    } else {
+      issueIndexer.indexOnAnalysis(branchUuid, recoveryItems);
     }
   }
 
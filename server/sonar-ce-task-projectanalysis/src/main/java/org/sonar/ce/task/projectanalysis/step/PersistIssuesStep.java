@@ -19,10 +19,17 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import com.google.common.collect.Lists;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import org.apache.ibatis.executor.BatchResult;
 import org.sonar.api.utils.System2;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.ce.task.projectanalysis.issue.ChangedIssuesRepository;
 import org.sonar.ce.task.projectanalysis.issue.IssueCache;
 import org.sonar.ce.task.projectanalysis.issue.RuleRepository;
 import org.sonar.ce.task.projectanalysis.issue.UpdateConflictResolver;
@@ -36,6 +43,7 @@ import org.sonar.db.issue.IssueChangeMapper;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
 import org.sonar.server.issue.IssueStorage;
+import org.sonar.server.issue.index.IssueIndexer;
 
 import static org.sonar.core.util.stream.MoreCollectors.toList;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
@@ -44,6 +52,12 @@ public class PersistIssuesStep implements ComputationStep {
   // holding up to 1000 DefaultIssue (max size of addedIssues and updatedIssues at any given time) in memory should not
   // be a problem while making sure we leverage extensively the batch feature to speed up persistence
   private static final int ISSUE_BATCHING_SIZE = BatchSession.MAX_BATCH_SIZE * 2;
+  // Mappers of a BatchSession are bound to it, so each update counts towards its MAX_BATCH_SIZE statements, at which
+  // BatchSession commits on its own and the update counts of the pending statements are lost. Updates are executed by
+  // partitions of at most UPDATES_PER_FLUSH statements, between two explicit flushes, so that the counts of a partition
+  // are always returned by the second flush.
+  private static final int UPDATES_PER_FLUSH = BatchSession.MAX_BATCH_SIZE - 1;
+  private static final String UPDATE_STATEMENT_ID = IssueMapper.class.getName() + ".updateIfBeforeSelectedDate";
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -51,19 +65,27 @@ public class PersistIssuesStep implements ComputationStep {
   private final RuleRepository ruleRepository;
   private final IssueCache issueCache;
   private final IssueStorage issueStorage;
+  private final ChangedIssuesRepository changedIssuesRepository;
+  private final IssueIndexer issueIndexer;
+  private final TreeRootHolder treeRootHolder;
 
   public PersistIssuesStep(DbClient dbClient, System2 system2, UpdateConflictResolver conflictResolver,
-    RuleRepository ruleRepository, IssueCache issueCache, IssueStorage issueStorage) {
+    RuleRepository ruleRepository, IssueCache issueCache, IssueStorage issueStorage, ChangedIssuesRepository changedIssuesRepository,
+    IssueIndexer issueIndexer, TreeRootHolder treeRootHolder) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.conflictResolver = conflictResolver;
     this.ruleRepository = ruleRepository;
     this.issueCache = issueCache;
     this.issueStorage = issueStorage;
+    this.changedIssuesRepository = changedIssuesRepository;
+    this.issueIndexer = issueIndexer;
+    this.treeRootHolder = treeRootHolder;
   }
 
   @Override
   public void execute(ComputationStep.Context context) {
+    prepareForIndexing();
     IssueStatistics statistics = new IssueStatistics();
     try (DbSession dbSession = dbClient.openSession(true);
       CloseableIterator<DefaultIssue> issues = issueCache.traverse()) {
@@ -83,7 +105,7 @@ public class PersistIssuesStep implements ComputationStep {
         } else if (issue.isChanged()) {
           updatedIssues.add(issue);
           if (updatedIssues.size() >= ISSUE_BATCHING_SIZE) {
-            persistUpdatedIssues(statistics, updatedIssues, mapper, changeMapper);
+            persistUpdatedIssues(statistics, updatedIssues, dbSession, mapper, changeMapper);
             updatedIssues.clear();
           }
         } else {
@@ -91,7 +113,7 @@ public class PersistIssuesStep implements ComputationStep {
         }
       }
       persistNewIssues(statistics, addedIssues, mapper, changeMapper);
-      persistUpdatedIssues(statistics, updatedIssues, mapper, changeMapper);
+      persistUpdatedIssues(statistics, updatedIssues, dbSession, mapper, changeMapper);
       flushSession(dbSession);
     } finally {
       statistics.dumpTo(context);
@@ -104,42 +126,89 @@ public class PersistIssuesStep implements ComputationStep {
     }
 
     long now = system2.now();
-    addedIssues.forEach(i -> {
-      int ruleId = ruleRepository.getByKey(i.ruleKey()).getId();
-      IssueDto dto = IssueDto.toDtoForComputationInsert(i, ruleId, now);
-      mapper.insert(dto);
-      statistics.inserts++;
-    });
-
-    addedIssues.forEach(i -> issueStorage.insertChanges(changeMapper, i));
+    List<IssueDto> dtos = addedIssues.stream()
+      .map(i -> IssueDto.toDtoForComputationInsert(i, ruleRepository.getByKey(i.ruleKey()).getId(), now))
+      .collect(toList(addedIssues.size()));
+    Lists.partition(dtos, IssueMapper.MAX_INSERTED_ROWS).forEach(mapper::insertMultiple);
+    statistics.inserts += dtos.size();
+    addedIssues.forEach(i -> changedIssuesRepository.add(i.key()));
+
+    issueStorage.insertChanges(changeMapper, addedIssues);
   }
 
-  private void persistUpdatedIssues(IssueStatistics statistics, List<DefaultIssue> updatedIssues, IssueMapper mapper, IssueChangeMapper changeMapper) {
+  private void persistUpdatedIssues(IssueStatistics statistics, List<DefaultIssue> updatedIssues, DbSession dbSession, IssueMapper mapper,
+    IssueChangeMapper changeMapper) {
     if (updatedIssues.isEmpty()) {
       return;
     }
 
     long now = system2.now();
-    updatedIssues.forEach(i -> {
-      IssueDto dto = IssueDto.toDtoForUpdate(i, now);
-      mapper.updateIfBeforeSelectedDate(dto);
-      statistics.updates++;
-    });
+    for (List<DefaultIssue> partition : Lists.partition(updatedIssues, UPDATES_PER_FLUSH)) {
+      // statements pending in the session are flushed so that the batch executed below only contains the updates
+      dbSession.flushStatements();
+      partition.forEach(i -> {
+        IssueDto dto = IssueDto.toDtoForUpdate(i, now);
+        mapper.updateIfBeforeSelectedDate(dto);
+        changedIssuesRepository.add(i.key());
+        statistics.updates++;
+      });
+      Set<String> updatedIssueKeys = updatedIssueKeys(dbSession.flushStatements());
+
+      // retrieve those of the issues which may not have been updated and apply conflictResolver on them
+      List<String> notUpdatedIssueKeys = partition.stream()
+        .map(DefaultIssue::key)
+        .filter(key -> !updatedIssueKeys.contains(key))
+        .collect(toList());
+      if (!notUpdatedIssueKeys.isEmpty()) {
+        resolveConflicts(statistics, partition, mapper.selectByKeysIfNotUpdatedAt(notUpdatedIssueKeys, now), mapper);
+      }
+    }
 
-    // retrieve those of the updatedIssues which have not been updated and apply conflictResolver on them
-    List<String> updatedIssueKeys = updatedIssues.stream().map(DefaultIssue::key).collect(toList(updatedIssues.size()));
-    List<IssueDto> conflictIssueKeys = mapper.selectByKeysIfNotUpdatedAt(updatedIssueKeys, now);
-    if (!conflictIssueKeys.isEmpty()) {
-      Map<String, DefaultIssue> issuesByKeys = updatedIssues.stream().collect(uniqueIndex(DefaultIssue::key, updatedIssues.size()));
-      conflictIssueKeys
-        .forEach(dbIssue -> {
-          DefaultIssue updatedIssue = issuesByKeys.get(dbIssue.getKey());
-          conflictResolver.resolve(updatedIssue, dbIssue, mapper);
-          statistics.merged++;
-        });
+    issueStorage.insertChanges(changeMapper, updatedIssues);
+  }
+
+  /**
+   * Keys of the issues reported as updated by the JDBC batch. Drivers which do not report the number of updated rows
+   * ({@link Statement#SUCCESS_NO_INFO}) are supported: the conflicts are then searched among all the issues.
+   */
+  private static Set<String> updatedIssueKeys(List<BatchResult> batchResults) {
+    Set<String> keys = new HashSet<>();
+    for (BatchResult batchResult : batchResults) {
+      if (UPDATE_STATEMENT_ID.equals(batchResult.getMappedStatement().getId())) {
+        List<Object> dtos = batchResult.getParameterObjects();
+        int[] updateCounts = batchResult.getUpdateCounts();
+        for (int i = 0; i < updateCounts.length && i < dtos.size(); i++) {
+          if (updateCounts[i] > 0) {
+            keys.add(((IssueDto) dtos.get(i)).getKey());
+          }
+        }
+      }
+    }
+    return keys;
+  }
+
+  private void resolveConflicts(IssueStatistics statistics, List<DefaultIssue> updatedIssues, List<IssueDto> conflictIssues, IssueMapper mapper) {
+    if (conflictIssues.isEmpty()) {
+      return;
     }
+    Map<String, DefaultIssue> issuesByKeys = updatedIssues.stream().collect(uniqueIndex(DefaultIssue::key, updatedIssues.size()));
+    conflictIssues.forEach(dbIssue -> {
+      DefaultIssue updatedIssue = issuesByKeys.get(dbIssue.getKey());
+      conflictResolver.resolve(updatedIssue, dbIssue, mapper);
+      statistics.merged++;
+    });
+  }
 
-    updatedIssues.forEach(i -> issueStorage.insertChanges(changeMapper, i));
+  /**
+   * Only the changed issues are indexed by {@link IndexAnalysisStep}. The branch is inserted in es_queue, and committed,
+   * before any issue is written, because {@link BatchSession} commits the issues by batches. The recovery daemon then
+   * indexes the whole branch if the analysis fails before {@link IndexAnalysisStep}, even after some issues are committed.
+   */
+  private void prepareForIndexing() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      changedIssuesRepository.setRecoveryItems(issueIndexer.prepareForRecoveryOnAnalysis(dbSession, treeRootHolder.getRoot().getUuid()));
+      dbSession.commit();
+    }
   }
 
   private static void flushSession(DbSession dbSession) {
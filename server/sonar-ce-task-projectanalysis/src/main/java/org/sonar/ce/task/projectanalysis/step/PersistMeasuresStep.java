@@ -19,9 +19,14 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 import javax.annotation.Nonnull;
+import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.ce.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
@@ -35,26 +40,42 @@ import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.step.ComputationStep;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.component.SnapshotQuery;
 import org.sonar.db.measure.MeasureDao;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureSeries;
+import org.sonar.db.measure.MeasureSeriesDao;
+import org.sonar.db.measure.MeasureSeriesDto;
+import org.sonar.db.measure.PastMeasureQuery;
+import org.sonar.db.metric.MetricDto;
 
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
+import static org.sonar.db.component.SnapshotDto.STATUS_PROCESSED;
 
 public class PersistMeasuresStep implements ComputationStep {
 
+  private static final int MAX_SERIES_UPDATE_ATTEMPTS = 10;
+
   private final DbClient dbClient;
   private final MetricRepository metricRepository;
   private final MeasureToMeasureDto measureToMeasureDto;
   private final TreeRootHolder treeRootHolder;
   private final MeasureRepository measureRepository;
+  private final AnalysisMetadataHolder analysisMetadataHolder;
 
   public PersistMeasuresStep(DbClient dbClient, MetricRepository metricRepository, MeasureToMeasureDto measureToMeasureDto, TreeRootHolder treeRootHolder,
-    MeasureRepository measureRepository) {
+    MeasureRepository measureRepository, AnalysisMetadataHolder analysisMetadataHolder) {
     this.dbClient = dbClient;
     this.metricRepository = metricRepository;
     this.measureToMeasureDto = measureToMeasureDto;
     this.treeRootHolder = treeRootHolder;
     this.measureRepository = measureRepository;
+    this.analysisMetadataHolder = analysisMetadataHolder;
   }
 
   @Override
@@ -74,11 +95,23 @@ public class PersistMeasuresStep implements ComputationStep {
 
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
     private final DbSession session;
+    private final MeasureSeriesDao measureSeriesDao;
+    private final String rootUuid;
+    private final long analysisDate;
+    private final List<Integer> metricIds;
+    private final Set<Integer> metricIdsWithoutHistory;
+    private Map<String, Long> pastAnalysisDatesByUuid;
     private int inserts = 0;
 
     private MeasureVisitor(DbSession session) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
       this.session = session;
+      this.measureSeriesDao = dbClient.measureSeriesDao();
+      this.rootUuid = treeRootHolder.getRoot().getUuid();
+      this.analysisDate = analysisMetadataHolder.getAnalysisDate();
+      List<MetricDto> metrics = dbClient.metricDao().selectAll(session);
+      this.metricIds = metrics.stream().map(MetricDto::getId).collect(toList());
+      this.metricIdsWithoutHistory = metrics.stream().filter(MetricDto::isDeleteHistoricalData).map(MetricDto::getId).collect(toSet());
     }
 
     @Override
@@ -109,6 +142,7 @@ public class PersistMeasuresStep implements ComputationStep {
     private void persistMeasures(Component component) {
       Map<String, Measure> measures = measureRepository.getRawMeasures(component);
       MeasureDao measureDao = dbClient.measureDao();
+      Map<Integer, MeasureSeries.Point> newPointsByMetricId = new HashMap<>();
 
       for (Map.Entry<String, Measure> e : measures.entrySet()) {
         Measure measure = e.getValue();
@@ -120,7 +154,111 @@ public class PersistMeasuresStep implements ComputationStep {
         MeasureDto measureDto = measureToMeasureDto.toMeasureDto(measure, metric, component);
         measureDao.insert(session, measureDto);
         inserts++;
+        newPointsByMetricId.put(metric.getId(),
+          new MeasureSeries.Point(analysisDate, measureDto.getValue(), measureDto.getVariation(), measureDto.getData()));
+      }
+
+      persistSeries(component, newPointsByMetricId);
+    }
+
+    private void persistSeries(Component component, Map<Integer, MeasureSeries.Point> newPointsByMetricId) {
+      Map<Integer, MeasureSeriesDto> persistedSeriesByMetricId = measureSeriesDao.selectByComponentUuid(session, component.getUuid()).stream()
+        .collect(uniqueIndex(MeasureSeriesDto::getMetricId));
+      if (persistedSeriesByMetricId.isEmpty()) {
+        Map<Integer, MeasureSeries> seriesByMetricId = loadPastMeasures(component);
+        newPointsByMetricId.forEach((metricId, point) -> addPoint(seriesByMetricId.computeIfAbsent(metricId, id -> new MeasureSeries()),
+          metricId, point));
+        seriesByMetricId.forEach((metricId, series) -> insertSeries(component, metricId, series));
+        return;
+      }
+
+      List<MeasureSeriesDto> seriesToUpdate = new ArrayList<>();
+      newPointsByMetricId.forEach((metricId, point) -> {
+        MeasureSeriesDto persisted = persistedSeriesByMetricId.get(metricId);
+        if (persisted == null) {
+          insertSeries(component, metricId, addPoint(new MeasureSeries(), metricId, point));
+        } else {
+          seriesToUpdate.add(persisted.setSeries(addPoint(persisted.getSeries(), metricId, point)));
+        }
+      });
+      updateSeries(component, seriesToUpdate, newPointsByMetricId);
+    }
+
+    /**
+     * Series of the component are updated together. Series are also updated by purges, which can run during the
+     * analysis. Only the series which have been updated since they were read are read again, and updated again.
+     */
+    private void updateSeries(Component component, List<MeasureSeriesDto> seriesToUpdate,
+      Map<Integer, MeasureSeries.Point> newPointsByMetricId) {
+      List<MeasureSeriesDto> dtos = seriesToUpdate;
+      for (int attempt = 1; attempt <= MAX_SERIES_UPDATE_ATTEMPTS && !dtos.isEmpty(); attempt++) {
+        List<Integer> notUpdatedMetricIds = measureSeriesDao.update(session, dtos).stream()
+          .map(MeasureSeriesDto::getMetricId)
+          .collect(toList());
+        if (notUpdatedMetricIds.isEmpty()) {
+          return;
+        }
+        Map<Integer, MeasureSeriesDto> reloadedByMetricId = measureSeriesDao
+          .selectByComponentUuidAndMetricIds(session, component.getUuid(), notUpdatedMetricIds)
+          .stream()
+          .collect(uniqueIndex(MeasureSeriesDto::getMetricId));
+        dtos = new ArrayList<>(reloadedByMetricId.size());
+        for (Integer metricId : notUpdatedMetricIds) {
+          MeasureSeries.Point point = newPointsByMetricId.get(metricId);
+          MeasureSeriesDto reloaded = reloadedByMetricId.get(metricId);
+          if (reloaded == null) {
+            insertSeries(component, metricId, addPoint(new MeasureSeries(), metricId, point));
+          } else {
+            dtos.add(reloaded.setSeries(addPoint(reloaded.getSeries(), metricId, point)));
+          }
+        }
+      }
+      if (!dtos.isEmpty()) {
+        throw new IllegalStateException(format(
+          "Failed to update the measure series of component %s and metrics %s, concurrently updated %s times",
+          component.getUuid(), dtos.stream().map(MeasureSeriesDto::getMetricId).collect(toList()), MAX_SERIES_UPDATE_ATTEMPTS));
+      }
+    }
+
+    private MeasureSeries addPoint(MeasureSeries series, int metricId, MeasureSeries.Point point) {
+      if (metricIdsWithoutHistory.contains(metricId)) {
+        series.clear();
+      }
+      series.add(point);
+      return series;
+    }
+
+    private void insertSeries(Component component, int metricId, MeasureSeries series) {
+      measureSeriesDao.insert(session, new MeasureSeriesDto()
+        .setComponentUuid(component.getUuid())
+        .setProjectUuid(rootUuid)
+        .setMetricId(metricId)
+        .setSeries(series));
+    }
+
+    /**
+     * Series are created lazily: the first time a component is analyzed after the upgrade, its history
+     * is copied from PROJECT_MEASURES.
+     */
+    private Map<Integer, MeasureSeries> loadPastMeasures(Component component) {
+      if (pastAnalysisDatesByUuid == null) {
+        pastAnalysisDatesByUuid = dbClient.snapshotDao().selectAnalysesByQuery(session, new SnapshotQuery().setComponentUuid(rootUuid).setStatus(STATUS_PROCESSED))
+          .stream()
+          .collect(uniqueIndex(SnapshotDto::getUuid, SnapshotDto::getCreatedAt));
+      }
+      Map<Integer, MeasureSeries> seriesByMetricId = new HashMap<>();
+      if (pastAnalysisDatesByUuid.isEmpty()) {
+        return seriesByMetricId;
+      }
+      List<MeasureDto> pastMeasures = dbClient.measureDao().selectPastMeasures(session, new PastMeasureQuery(component.getUuid(), metricIds, null, null));
+      for (MeasureDto pastMeasure : pastMeasures) {
+        Long date = pastAnalysisDatesByUuid.get(pastMeasure.getAnalysisUuid());
+        if (date != null) {
+          seriesByMetricId.computeIfAbsent(pastMeasure.getMetricId(), id -> new MeasureSeries())
+            .add(new MeasureSeries.Point(date, pastMeasure.getValue(), pastMeasure.getVariation(), pastMeasure.getData()));
+        }
       }
+      return seriesByMetricId;
     }
 
   }
@@ -23,11 +23,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import org.sonar.api.config.Configuration;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.ce.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.ce.task.projectanalysis.component.PathAwareVisitorAdapter;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.ce.task.projectanalysis.component.VisitorsCrawler;
 import org.sonar.ce.task.projectanalysis.formula.Formula;
 import org.sonar.ce.task.projectanalysis.formula.FormulaExecutorComponentVisitor;
 import org.sonar.ce.task.projectanalysis.measure.Measure;
@@ -64,11 +66,13 @@ public class SizeMeasuresStep implements ComputationStep {
   private final TreeRootHolder treeRootHolder;
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
+  private final Configuration config;
 
-  public SizeMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository) {
+  public SizeMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository, Configuration config) {
     this.treeRootHolder = treeRootHolder;
     this.metricRepository = metricRepository;
     this.measureRepository = measureRepository;
+    this.config = config;
   }
 
   @Override
@@ -77,8 +81,10 @@ public class SizeMeasuresStep implements ComputationStep {
       metricRepository.getByKey(FILES_KEY),
       metricRepository.getByKey(LINES_KEY)))
       .visit(treeRootHolder.getRoot());
-    new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
-      .buildFor(AGGREGATED_SIZE_MEASURE_FORMULAS))
+    new VisitorsCrawler(
+      Collections.singletonList(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
+        .buildThreadSafeFor(AGGREGATED_SIZE_MEASURE_FORMULAS)),
+      false, VisitorsCrawler.threads(config))
       .visit(treeRootHolder.getRoot());
   }
 
@@ -19,72 +19,73 @@
  */
 package org.sonar.ce.task.projectanalysis.util.cache;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.io.Serializable;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import javax.annotation.CheckForNull;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
- * Serialize and deserialize objects on disk. No search capabilities, only traversal (full scan).
+ * Serialize and deserialize objects on disk, as length-delimited protobuf messages. No search capabilities, only
+ * traversal (full scan).
  */
-public class DiskCache<O extends Serializable> {
+public abstract class DiskCache<O, M extends Message> {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
 
   private final File file;
   private final System2 system2;
+  private final Parser<M> parser;
 
-  public DiskCache(File file, System2 system2) {
+  protected DiskCache(File file, System2 system2, Parser<M> parser) {
     this.system2 = system2;
     this.file = file;
-    OutputStream output = null;
-    boolean threw = true;
+    this.parser = parser;
     try {
-      // writes the serialization stream header required when calling "traverse()"
-      // on empty stream. Moreover it allows to call multiple times "newAppender()"
-      output = new ObjectOutputStream(new FileOutputStream(file));
-      output.flush();
-      threw = false;
+      // create the file, or truncate it, so that it can be traversed before anything is appended
+      FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING).close();
     } catch (IOException e) {
       throw new IllegalStateException("Fail to write into file: " + file, e);
-    } finally {
-      if (threw) {
-        // do not hide initial exception
-        IOUtils.closeQuietly(output);
-      } else {
-        // raise an exception if can't close
-        system2.close(output);
-      }
     }
   }
 
+  protected abstract M toMessage(O object);
+
+  protected abstract O fromMessage(M message);
+
   public DiskAppender newAppender() {
     return new DiskAppender();
   }
 
   public CloseableIterator<O> traverse() {
     try {
-      return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      return new ObjectIterator(Protobuf.readStream(new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE), parser));
     } catch (IOException e) {
       throw new IllegalStateException("Fail to traverse file: " + file, e);
     }
   }
 
   public class DiskAppender implements AutoCloseable {
-    private final ObjectOutputStream output;
+    private final OutputStream output;
 
     private DiskAppender() {
       try {
-        this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
-          @Override
-          protected void writeStreamHeader() {
-            // do not write stream headers as it's already done in constructor of DiskCache
-          }
-        };
+        FileChannel channel = FileChannel.open(file.toPath(), WRITE, APPEND);
+        this.output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
       } catch (IOException e) {
         throw new IllegalStateException("Fail to open file " + file, e);
       }
@@ -92,8 +93,7 @@ public class DiskCache<O extends Serializable> {
 
     public DiskAppender append(O object) {
       try {
-        output.writeObject(object);
-        output.reset();
+        toMessage(object).writeDelimitedTo(output);
         return this;
       } catch (IOException e) {
         throw new IllegalStateException("Fail to write into file " + file, e);
@@ -105,4 +105,23 @@ public class DiskCache<O extends Serializable> {
       system2.close(output);
     }
   }
+
+  private class ObjectIterator extends CloseableIterator<O> {
+    private final CloseableIterator<M> messages;
+
+    private ObjectIterator(CloseableIterator<M> messages) {
+      this.messages = messages;
+    }
+
+    @CheckForNull
+    @Override
+    protected O doNext() {
+      return messages.hasNext() ? fromMessage(messages.next()) : null;
+    }
+
+    @Override
+    protected void doClose() {
+      messages.close();
+    }
+  }
 }
@@ -20,10 +20,16 @@
 package org.sonar.ce.task.projectanalysis.component;
 
 import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.MessageException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -121,6 +127,62 @@ public class ReportVisitorsCrawlerTest {
     new VisitorsCrawler(Arrays.asList(componentVisitor));
   }
 
+  @Test
+  public void visit_files_concurrently_when_visitors_are_thread_safe() {
+    Component tree = treeWithFiles(50);
+    CountingVisitor visitor = new CountingVisitor();
+    ThreadRecordingVisitor threadRecordingVisitor = new ThreadRecordingVisitor();
+
+    new VisitorsCrawler(Arrays.asList(threadRecordingVisitor, visitor), false, 4).visit(tree);
+
+    assertThat(visitor.countByRef).containsEntry(1, 50).containsEntry(2, 25).containsEntry(3, 25);
+    assertThat(threadRecordingVisitor.fileThreads).doesNotContain(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void visit_files_sequentially_when_a_visitor_is_not_thread_safe() {
+    Component tree = treeWithFiles(10);
+    CountingVisitor visitor = new CountingVisitor();
+    ThreadRecordingVisitor threadRecordingVisitor = new ThreadRecordingVisitor();
+
+    new VisitorsCrawler(Arrays.asList(threadRecordingVisitor, visitor, spyPreOrderTypeAwareVisitor), false, 4).visit(tree);
+
+    assertThat(visitor.countByRef).containsEntry(1, 10).containsEntry(2, 5).containsEntry(3, 5);
+    assertThat(threadRecordingVisitor.fileThreads).containsOnly(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void threads_are_defined_by_property() {
+    MapSettings settings = new MapSettings();
+    assertThat(VisitorsCrawler.threads(settings.asConfig())).isEqualTo(1);
+
+    settings.setProperty("sonar.ce.visitors.threads", 4);
+    assertThat(VisitorsCrawler.threads(settings.asConfig())).isEqualTo(4);
+  }
+
+  @Test
+  public void fail_if_threads_property_is_not_positive() {
+    MapSettings settings = new MapSettings().setProperty("sonar.ce.visitors.threads", 0);
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Property sonar.ce.visitors.threads must be a positive integer. Got: 0");
+
+    VisitorsCrawler.threads(settings.asConfig());
+  }
+
+  /**
+   * Project 1 with directories 2 and 3, each one containing half of the files
+   */
+  private static Component treeWithFiles(int files) {
+    Component[] dir2Files = new Component[files / 2];
+    Component[] dir3Files = new Component[files / 2];
+    for (int i = 0; i < files / 2; i++) {
+      dir2Files[i] = component(FILE, 100 + i);
+      dir3Files[i] = component(FILE, 1000 + i);
+    }
+    return component(PROJECT, 1, component(DIRECTORY, 2, dir2Files), component(DIRECTORY, 3, dir3Files));
+  }
+
   private static Component component(final Component.Type type, final int ref, final Component... children) {
     return ReportComponent.builder(type, ref).addChildren(children).build();
   }
@@ -144,4 +206,48 @@ public class ReportVisitorsCrawlerTest {
     }
   }
 
+  /**
+   * Counts the files of each directory and of the project
+   */
+  private static class CountingVisitor extends PathAwareVisitorAdapter<AtomicInteger> implements ThreadSafeVisitor {
+    private final Map<Integer, Integer> countByRef = new ConcurrentHashMap<>();
+
+    CountingVisitor() {
+      super(CrawlerDepthLimit.FILE, POST_ORDER, new SimpleStackElementFactory<AtomicInteger>() {
+        @Override
+        public AtomicInteger createForAny(Component component) {
+          return new AtomicInteger();
+        }
+      });
+    }
+
+    @Override
+    public void visitFile(Component file, Path<AtomicInteger> path) {
+      path.parent().incrementAndGet();
+    }
+
+    @Override
+    public void visitDirectory(Component directory, Path<AtomicInteger> path) {
+      countByRef.put(directory.getReportAttributes().getRef(), path.current().get());
+      path.parent().addAndGet(path.current().get());
+    }
+
+    @Override
+    public void visitProject(Component project, Path<AtomicInteger> path) {
+      countByRef.put(project.getReportAttributes().getRef(), path.current().get());
+    }
+  }
+
+  private static class ThreadRecordingVisitor extends TypeAwareVisitorAdapter implements ThreadSafeVisitor {
+    private final Set<String> fileThreads = ConcurrentHashMap.newKeySet();
+
+    ThreadRecordingVisitor() {
+      super(CrawlerDepthLimit.FILE, PRE_ORDER);
+    }
+
+    @Override
+    public void visitFile(Component file) {
+      fileThreads.add(Thread.currentThread().getName());
+    }
+  }
 }
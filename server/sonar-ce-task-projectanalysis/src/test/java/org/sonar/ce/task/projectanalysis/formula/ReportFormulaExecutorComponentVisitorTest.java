@@ -20,6 +20,8 @@
 package org.sonar.ce.task.projectanalysis.formula;
 
 import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import org.junit.Rule;
 import org.junit.Test;
@@ -28,8 +30,11 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+import org.sonar.ce.task.projectanalysis.component.ThreadSafeVisitor;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.ce.task.projectanalysis.component.VisitorsCrawler;
 import org.sonar.ce.task.projectanalysis.formula.counter.IntValue;
+import org.sonar.ce.task.projectanalysis.measure.MapBasedRawMeasureRepository;
 import org.sonar.ce.task.projectanalysis.measure.Measure;
 import org.sonar.ce.task.projectanalysis.measure.MeasureRepositoryRule;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
@@ -38,6 +43,7 @@ import org.sonar.ce.task.projectanalysis.metric.MetricRepositoryRule;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.api.measures.CoreMetrics.LINES_KEY;
 import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_LANGUAGE_DISTRIBUTION_KEY;
 import static org.sonar.api.measures.CoreMetrics.NEW_COVERAGE_KEY;
 import static org.sonar.api.measures.CoreMetrics.NEW_LINES_TO_COVER_KEY;
 import static org.sonar.ce.task.projectanalysis.component.Component.Type.DIRECTORY;
@@ -78,7 +84,8 @@ public class ReportFormulaExecutorComponentVisitorTest {
     .add(CoreMetrics.LINES)
     .add(CoreMetrics.NCLOC)
     .add(CoreMetrics.NEW_LINES_TO_COVER)
-    .add(CoreMetrics.NEW_COVERAGE);
+    .add(CoreMetrics.NEW_COVERAGE)
+    .add(CoreMetrics.NCLOC_LANGUAGE_DISTRIBUTION);
   @Rule
   public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
 
@@ -242,6 +249,29 @@ public class ReportFormulaExecutorComponentVisitorTest {
       .visit(root);
   }
 
+  @Test
+  public void aggregate_files_visited_concurrently_in_order_of_children() {
+    ReportComponent.Builder directory = ReportComponent.builder(DIRECTORY, DIRECTORY_1_REF);
+    List<String> fileRefs = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      directory.addChildren(builder(Component.Type.FILE, FILE_1_REF + i).build());
+      fileRefs.add(String.valueOf(FILE_1_REF + i));
+    }
+    ReportComponent root = builder(PROJECT, ROOT_REF).addChildren(directory.build()).build();
+    MapBasedRawMeasureRepository<String> threadSafeMeasureRepository = new MapBasedRawMeasureRepository<>(Component::getUuid);
+    FormulaExecutorComponentVisitor visitor = FormulaExecutorComponentVisitor.newBuilder(metricRepository, threadSafeMeasureRepository)
+      .buildThreadSafeFor(ImmutableList.of(new FileRefsFormula()));
+
+    new VisitorsCrawler(ImmutableList.of(visitor), false, 4).visit(root);
+
+    Metric metric = metricRepository.getByKey(NCLOC_LANGUAGE_DISTRIBUTION_KEY);
+    assertThat(visitor).isInstanceOf(ThreadSafeVisitor.class);
+    assertThat(threadSafeMeasureRepository.getRawMeasure(root.getChildren().get(0), metric).get().getStringValue())
+      .isEqualTo(String.join(",", fileRefs));
+    assertThat(threadSafeMeasureRepository.getRawMeasure(root, metric).get().getStringValue())
+      .isEqualTo(String.join(",", fileRefs));
+  }
+
   private FormulaExecutorComponentVisitor formulaExecutorComponentVisitor(Formula formula) {
     return FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
       .buildFor(ImmutableList.of(formula));
@@ -335,6 +365,41 @@ public class ReportFormulaExecutorComponentVisitorTest {
     }
   }
 
+  /**
+   * Lists the refs of the files, in the order in which they are aggregated
+   */
+  private static class FileRefsFormula implements Formula<FileRefsCounter> {
+
+    @Override
+    public FileRefsCounter createNewCounter() {
+      return new FileRefsCounter();
+    }
+
+    @Override
+    public Optional<Measure> createMeasure(FileRefsCounter counter, CreateMeasureContext context) {
+      return Optional.of(newMeasureBuilder().create(String.join(",", counter.refs)));
+    }
+
+    @Override
+    public String[] getOutputMetricKeys() {
+      return new String[] {NCLOC_LANGUAGE_DISTRIBUTION_KEY};
+    }
+  }
+
+  private static class FileRefsCounter implements Counter<FileRefsCounter> {
+    private final List<String> refs = new ArrayList<>();
+
+    @Override
+    public void aggregate(FileRefsCounter counter) {
+      refs.addAll(counter.refs);
+    }
+
+    @Override
+    public void initialize(CounterInitializationContext context) {
+      refs.add(String.valueOf(context.getLeaf().getReportAttributes().getRef()));
+    }
+  }
+
   private class FakeVariationFormula implements Formula<FakeVariationCounter> {
 
     @Override
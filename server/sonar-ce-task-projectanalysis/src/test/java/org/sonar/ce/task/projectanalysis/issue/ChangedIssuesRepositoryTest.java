@@ -0,0 +1,62 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangedIssuesRepositoryTest {
+
+  @Test
+  public void no_changed_issues_by_default() {
+    ChangedIssuesRepository underTest = new ChangedIssuesRepository();
+
+    assertThat(underTest.getChangedIssueKeys()).hasValueSatisfying(keys -> assertThat(keys).isEmpty());
+    assertThat(underTest.hasChangedIssues()).isFalse();
+    assertThat(underTest.getRecoveryItems()).isEmpty();
+  }
+
+  @Test
+  public void keep_keys_of_changed_issues() {
+    ChangedIssuesRepository underTest = new ChangedIssuesRepository();
+
+    underTest.add("ISSUE_1");
+    underTest.add("ISSUE_2");
+    underTest.add("ISSUE_1");
+
+    assertThat(underTest.getChangedIssueKeys()).hasValueSatisfying(keys -> assertThat(keys).containsOnly("ISSUE_1", "ISSUE_2"));
+    assertThat(underTest.hasChangedIssues()).isTrue();
+  }
+
+  @Test
+  public void drop_keys_when_too_many_issues_changed() {
+    ChangedIssuesRepository underTest = new ChangedIssuesRepository(2);
+
+    underTest.add("ISSUE_1");
+    underTest.add("ISSUE_2");
+    assertThat(underTest.getChangedIssueKeys()).isPresent();
+
+    underTest.add("ISSUE_3");
+    underTest.add("ISSUE_4");
+    assertThat(underTest.getChangedIssueKeys()).isEmpty();
+    assertThat(underTest.hasChangedIssues()).isTrue();
+  }
+}
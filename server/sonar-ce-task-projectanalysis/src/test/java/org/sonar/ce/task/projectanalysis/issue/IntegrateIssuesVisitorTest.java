@@ -155,7 +155,8 @@ public class IntegrateIssuesVisitorTest {
     treeRootHolder.setRoot(PROJECT);
     issueCache = new IssueCache(temp.newFile(), System2.INSTANCE);
     when(issueFilter.accept(any(DefaultIssue.class), eq(FILE))).thenReturn(true);
-    underTest = new IntegrateIssuesVisitor(issueCache, issueLifecycle, issueVisitors, trackingDelegator, issueStatusCopier, mergeAndTargetBranchComponentUuids);
+    PipelinedIssueTracking issueTracking = new PipelinedIssueTracking(treeRootHolder, trackingDelegator, rawInputFactory, new MapSettings().asConfig());
+    underTest = new IntegrateIssuesVisitor(issueCache, issueLifecycle, issueVisitors, issueTracking, issueStatusCopier, mergeAndTargetBranchComponentUuids);
   }
 
   @Test
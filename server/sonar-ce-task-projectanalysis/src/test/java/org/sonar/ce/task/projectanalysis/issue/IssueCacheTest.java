@@ -0,0 +1,162 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Date;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssueCacheTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void write_and_read_all_fields() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(3).setEndLine(4))
+      .build();
+    FieldDiffs previousChange = new FieldDiffs()
+      .setIssueKey("ISSUE")
+      .setUserUuid("john_uuid")
+      .setDiff("assignee", "old|assignee", "new,assignee")
+      .setCreationDate(new Date(NOW - 1_000));
+    FieldDiffs currentChange = new FieldDiffs()
+      .setIssueKey("ISSUE")
+      .setDiff("technicalDebt", 10L, 20L)
+      .setDiff("type", RuleType.CODE_SMELL, RuleType.BUG)
+      .setDiff("line", 12, null)
+      .setDiff("status", null, "CLOSED")
+      .setCreationDate(new Date(NOW));
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE")
+      .setType(RuleType.BUG)
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setRuleKey(RuleKey.of("java", "S001"))
+      .setLanguage("java")
+      .setSeverity("BLOCKER")
+      .setManualSeverity(true)
+      .setMessage("message")
+      .setLine(12)
+      .setGap(1.5)
+      .setEffort(Duration.create(20L))
+      .setStatus("CLOSED")
+      .setResolution("FIXED")
+      .setAssigneeUuid("john_uuid")
+      .setChecksum("checksum")
+      .setAttributes(ImmutableMap.of("jira", "FOO-123"))
+      .setAuthorLogin("john")
+      .addComment(new DefaultIssueComment()
+        .setKey("COMMENT")
+        .setIssueKey("ISSUE")
+        .setUserUuid("john_uuid")
+        .setMarkdownText("Some text")
+        .setCreatedAt(new Date(NOW))
+        .setNew(true))
+      .setTags(asList("tag1", "tag2"))
+      .setLocations(locations)
+      .setIsFromExternalRuleEngine(true)
+      .setCreationDate(new Date(NOW - 10_000))
+      .setUpdateDate(new Date(NOW - 5_000))
+      .setCloseDate(new Date(NOW))
+      .setIsFromHotspot(true)
+      .addChange(previousChange)
+      .setCurrentChange(currentChange)
+      .setNew(false)
+      .setCopied(true)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setSelectedAt(NOW);
+
+    underTest.newAppender().append(issue).close();
+
+    DefaultIssue read = readSingle(underTest);
+    assertThat(read).isEqualToComparingOnlyGivenFields(issue,
+      "key", "type", "componentUuid", "componentKey", "moduleUuid", "moduleUuidPath", "projectUuid", "projectKey", "ruleKey",
+      "language", "severity", "manualSeverity", "message", "line", "gap", "effort", "status", "resolution", "assigneeUuid",
+      "checksum", "attributes", "authorLogin", "tags", "isFromExternalRuleEngine", "creationDate", "updateDate", "closeDate",
+      "isFromHotspot", "isNew", "isCopied", "beingClosed", "onDisabledRule", "isChanged", "sendNotifications", "selectedAt");
+    assertThat((DbIssues.Locations) read.getLocations()).isEqualTo(locations);
+    assertThat(read.defaultIssueComments()).hasSize(1);
+    assertThat(read.defaultIssueComments().get(0)).isEqualToComparingFieldByField(issue.defaultIssueComments().get(0));
+    assertThat(read.changes()).extracting(FieldDiffs::toEncodedString)
+      .containsExactly(previousChange.toEncodedString(), currentChange.toEncodedString());
+    assertThat(read.currentChange()).isSameAs(read.changes().get(1));
+    assertThat(read.currentChange().get("type").newValue()).isEqualTo(RuleType.BUG);
+    assertThat(read.currentChange().get("technicalDebt").newValue()).isEqualTo(20L);
+    assertThat(read.currentChange().get("line").oldValue()).isEqualTo(12);
+    assertThat(read.changes().get(0).get("assignee").newValue()).isEqualTo("new,assignee");
+  }
+
+  @Test
+  public void write_and_read_issue_with_only_mandatory_fields() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    DefaultIssue issue = new DefaultIssue().setKey("ISSUE");
+
+    underTest.newAppender().append(issue).close();
+
+    DefaultIssue read = readSingle(underTest);
+    assertThat(read.key()).isEqualTo("ISSUE");
+    assertThat(read.type()).isNull();
+    assertThat(read.ruleKey()).isNull();
+    assertThat(read.line()).isNull();
+    assertThat(read.effort()).isNull();
+    assertThat(read.status()).isNull();
+    assertThat(read.creationDate()).isNull();
+    assertThat((Object) read.getLocations()).isNull();
+    assertThat(read.tags()).isEmpty();
+    assertThat(read.changes()).isEmpty();
+    assertThat(read.currentChange()).isNull();
+    assertThat(read.isNew()).isTrue();
+  }
+
+  private static DefaultIssue readSingle(IssueCache underTest) {
+    try (CloseableIterator<DefaultIssue> issues = underTest.traverse()) {
+      DefaultIssue read = issues.next();
+      assertThat(issues.hasNext()).isFalse();
+      return read;
+    }
+  }
+}
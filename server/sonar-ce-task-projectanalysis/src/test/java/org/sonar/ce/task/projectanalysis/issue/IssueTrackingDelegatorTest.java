@@ -27,9 +27,11 @@ import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.analysis.Branch;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.db.component.BranchType;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -115,4 +117,32 @@ public class IssueTrackingDelegatorTest {
     verifyZeroInteractions(tracker);
     verifyZeroInteractions(mergeBranchTracker);
   }
+
+  @Test
+  public void can_track_concurrently_regular_analyses() {
+    when(analysisMetadataHolder.getBranch()).thenReturn(mock(Branch.class));
+
+    assertThat(underTest.canTrackConcurrently()).isTrue();
+  }
+
+  @Test
+  public void can_not_track_concurrently_short_branches_and_pull_requests() {
+    when(analysisMetadataHolder.getBranch()).thenReturn(mock(Branch.class));
+    when(analysisMetadataHolder.isSLBorPR()).thenReturn(true);
+
+    assertThat(underTest.canTrackConcurrently()).isFalse();
+  }
+
+  @Test
+  public void delegate_regular_tracker_with_raw_input() {
+    when(analysisMetadataHolder.getBranch()).thenReturn(mock(Branch.class));
+    Input<DefaultIssue> rawInput = mock(Input.class);
+    when(tracker.track(component, rawInput)).thenReturn(trackingResult);
+
+    underTest.track(component, rawInput);
+
+    verify(tracker).track(component, rawInput);
+    verifyZeroInteractions(shortBranchTracker);
+    verifyZeroInteractions(mergeBranchTracker);
+  }
 }
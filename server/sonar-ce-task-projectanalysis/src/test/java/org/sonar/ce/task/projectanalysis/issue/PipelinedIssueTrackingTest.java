@@ -0,0 +1,157 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.test.ExceptionCauseMatcher.hasType;
+
+public class PipelinedIssueTrackingTest {
+
+  private static final Component FILE_1 = ReportComponent.builder(Component.Type.FILE, 3).build();
+  private static final Component FILE_2 = ReportComponent.builder(Component.Type.FILE, 4).build();
+  private static final Component FILE_3 = ReportComponent.builder(Component.Type.FILE, 6).build();
+  private static final Component DIRECTORY_1 = ReportComponent.builder(Component.Type.DIRECTORY, 2).addChildren(FILE_1, FILE_2).build();
+  private static final Component DIRECTORY_2 = ReportComponent.builder(Component.Type.DIRECTORY, 5).addChildren(FILE_3).build();
+  private static final Component PROJECT = ReportComponent.builder(Component.Type.PROJECT, 1).addChildren(DIRECTORY_1, DIRECTORY_2).build();
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(PROJECT);
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private IssueTrackingDelegator issueTracking = mock(IssueTrackingDelegator.class);
+  private TrackerRawInputFactory rawInputFactory = mock(TrackerRawInputFactory.class);
+  private MapSettings settings = new MapSettings();
+
+  private PipelinedIssueTracking underTest = new PipelinedIssueTracking(treeRootHolder, issueTracking, rawInputFactory, settings.asConfig());
+
+  @Before
+  public void setUp() {
+    when(issueTracking.canTrackConcurrently()).thenReturn(true);
+    for (Component component : Arrays.asList(PROJECT, DIRECTORY_1, DIRECTORY_2, FILE_1, FILE_2, FILE_3)) {
+      TrackingResult result = mock(TrackingResult.class);
+      when(issueTracking.track(component)).thenReturn(result);
+      Input<DefaultIssue> rawInput = mockRawInput();
+      when(rawInputFactory.create(component)).thenReturn(rawInput);
+      when(issueTracking.track(component, rawInput)).thenReturn(result);
+    }
+  }
+
+  @Test
+  public void track_on_calling_thread_by_default() {
+    assertThat(underTest.track(FILE_1)).isSameAs(issueTracking.track(FILE_1));
+
+    verify(issueTracking, never()).track(any(Component.class), any());
+  }
+
+  @Test
+  public void track_files_ahead_when_threads_property_is_greater_than_1() {
+    settings.setProperty(PipelinedIssueTracking.THREADS_PROPERTY, 2);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(issueTracking.track(FILE_1, rawInputFactory.create(FILE_1)));
+
+    // next files are read from the report before being visited
+    verify(rawInputFactory).create(FILE_2);
+    verify(rawInputFactory).create(FILE_3);
+    assertThat(underTest.track(FILE_2)).isSameAs(issueTracking.track(FILE_2, rawInputFactory.create(FILE_2)));
+    assertThat(underTest.track(DIRECTORY_1)).isSameAs(issueTracking.track(DIRECTORY_1));
+    assertThat(underTest.track(FILE_3)).isSameAs(issueTracking.track(FILE_3, rawInputFactory.create(FILE_3)));
+    assertThat(underTest.track(DIRECTORY_2)).isSameAs(issueTracking.track(DIRECTORY_2));
+    assertThat(underTest.track(PROJECT)).isSameAs(issueTracking.track(PROJECT));
+  }
+
+  @Test
+  public void track_on_calling_thread_when_tracking_can_not_be_concurrent() {
+    settings.setProperty(PipelinedIssueTracking.THREADS_PROPERTY, 2);
+    when(issueTracking.canTrackConcurrently()).thenReturn(false);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(issueTracking.track(FILE_1));
+
+    verify(rawInputFactory, never()).create(any(Component.class));
+    verify(issueTracking, never()).track(any(Component.class), any());
+  }
+
+  @Test
+  public void track_on_calling_thread_files_which_are_not_in_the_tree() {
+    settings.setProperty(PipelinedIssueTracking.THREADS_PROPERTY, 2);
+    Component otherFile = ReportComponent.builder(Component.Type.FILE, 7).build();
+    TrackingResult result = mock(TrackingResult.class);
+    when(issueTracking.track(otherFile)).thenReturn(result);
+
+    assertThat(underTest.track(otherFile)).isSameAs(result);
+
+    verify(issueTracking, never()).track(eq(otherFile), any());
+  }
+
+  @Test
+  public void fail_with_the_cause_of_a_tracking_failure() {
+    settings.setProperty(PipelinedIssueTracking.THREADS_PROPERTY, 2);
+    when(issueTracking.track(FILE_1, rawInputFactory.create(FILE_1))).thenThrow(new IllegalArgumentException("boom"));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to track issues of component '" + FILE_1.getDbKey() + "'");
+    expectedException.expectCause(hasType(IllegalArgumentException.class).andMessage("boom"));
+
+    underTest.track(FILE_1);
+  }
+
+  @Test
+  public void fail_if_threads_property_is_not_positive() {
+    settings.setProperty(PipelinedIssueTracking.THREADS_PROPERTY, 0);
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Property sonar.ce.issueTracking.threads must be a positive integer. Got: 0");
+
+    underTest.track(FILE_1);
+  }
+
+  @Test
+  public void stop_does_not_fail_if_no_file_was_tracked() {
+    underTest.start();
+    underTest.stop();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Input<DefaultIssue> mockRawInput() {
+    Input<DefaultIssue> rawInput = mock(Input.class);
+    when(rawInput.getIssues()).thenReturn(Collections.singletonList(new DefaultIssue()));
+    return rawInput;
+  }
+}
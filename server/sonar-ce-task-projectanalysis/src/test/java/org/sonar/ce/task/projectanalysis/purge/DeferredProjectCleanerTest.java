@@ -0,0 +1,197 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.purge;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.impl.utils.TestSystem2;
+import org.sonar.api.utils.MessageException;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.util.Collections.emptySet;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.sonar.ce.task.projectanalysis.purge.DeferredProjectCleaner.DB_TIME_PERCENT_PROPERTY;
+import static org.sonar.ce.task.projectanalysis.purge.DeferredProjectCleaner.MAX_POSTPONE_DURATION_MS;
+import static org.sonar.ce.task.projectanalysis.purge.DeferredProjectCleaner.POSTPONE_DELAY_MS;
+import static org.sonar.db.ce.CeQueueTesting.newCeQueueDto;
+
+public class DeferredProjectCleanerTest {
+
+  private static final long ANALYSIS_DATE = 500L;
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+
+  @Rule
+  public DbTester db = DbTester.create(system2);
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ProjectCleanerExecutorService executorService = mock(ProjectCleanerExecutorService.class);
+  private ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
+  private MapSettings settings = new MapSettings().setProperty(DB_TIME_PERCENT_PROPERTY, 100);
+  private Configuration projectConfig = new MapSettings().asConfig();
+
+  @Before
+  public void setUp() {
+    // execute submitted tasks synchronously
+    doAnswer(invocation -> {
+      ((Runnable) invocation.getArgument(0)).run();
+      return null;
+    }).when(executorService).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void purge_is_executed_by_the_executor() {
+    DeferredProjectCleaner underTest = newDeferredProjectCleaner();
+
+    underTest.schedule("ROOT", "PROJECT", projectConfig, ImmutableSet.of("DISABLED"), ANALYSIS_DATE);
+
+    verify(projectCleaner).purge(any(), eq("ROOT"), eq("PROJECT"), eq(projectConfig), eq(ImmutableSet.of("DISABLED")), eq(ANALYSIS_DATE));
+    assertThat(underTest.getPendingCount()).isZero();
+    assertThat(underTest.getSuccessCount()).isEqualTo(1);
+    assertThat(underTest.getErrorCount()).isZero();
+  }
+
+  @Test
+  public void purge_is_postponed_while_a_task_of_the_project_is_in_progress() {
+    CeQueueDto task = insertInProgressTask("PROJECT");
+    DeferredProjectCleaner underTest = newDeferredProjectCleaner();
+
+    underTest.schedule("ROOT", "PROJECT", projectConfig, emptySet(), ANALYSIS_DATE);
+
+    verifyZeroInteractions(projectCleaner);
+    assertThat(underTest.getPendingCount()).isEqualTo(1);
+    Runnable retry = captureScheduledRetry();
+
+    db.getDbClient().ceQueueDao().deleteByUuid(db.getSession(), task.getUuid());
+    db.commit();
+    retry.run();
+
+    verify(projectCleaner).purge(any(), eq("ROOT"), eq("PROJECT"), eq(projectConfig), eq(emptySet()), eq(ANALYSIS_DATE));
+    assertThat(underTest.getPendingCount()).isZero();
+  }
+
+  @Test
+  public void pending_requests_of_the_same_root_are_coalesced() {
+    CeQueueDto task = insertInProgressTask("PROJECT");
+    DeferredProjectCleaner underTest = newDeferredProjectCleaner();
+    Configuration newerProjectConfig = new MapSettings().asConfig();
+
+    underTest.schedule("ROOT", "PROJECT", projectConfig, ImmutableSet.of("DISABLED_1"), ANALYSIS_DATE);
+    underTest.schedule("ROOT", "PROJECT", newerProjectConfig, ImmutableSet.of("DISABLED_2"), ANALYSIS_DATE + 100L);
+
+    assertThat(underTest.getPendingCount()).isEqualTo(1);
+    Runnable retry = captureScheduledRetry();
+
+    db.getDbClient().ceQueueDao().deleteByUuid(db.getSession(), task.getUuid());
+    db.commit();
+    retry.run();
+
+    verify(projectCleaner, times(1)).purge(any(), eq("ROOT"), eq("PROJECT"), eq(newerProjectConfig), eq(ImmutableSet.of("DISABLED_1", "DISABLED_2")),
+      eq(ANALYSIS_DATE + 100L));
+    assertThat(underTest.getPendingCount()).isZero();
+  }
+
+  @Test
+  public void purge_is_not_postponed_for_longer_than_max_duration() {
+    insertInProgressTask("PROJECT");
+    DeferredProjectCleaner underTest = newDeferredProjectCleaner();
+
+    underTest.schedule("ROOT", "PROJECT", projectConfig, emptySet(), ANALYSIS_DATE);
+    Runnable retry = captureScheduledRetry();
+
+    system2.setNow(system2.now() + MAX_POSTPONE_DURATION_MS);
+    retry.run();
+
+    verify(projectCleaner).purge(any(), eq("ROOT"), eq("PROJECT"), eq(projectConfig), eq(emptySet()), eq(ANALYSIS_DATE));
+    assertThat(underTest.getPendingCount()).isZero();
+  }
+
+  @Test
+  public void purge_of_other_projects_is_not_postponed() {
+    insertInProgressTask("OTHER_PROJECT");
+    DeferredProjectCleaner underTest = newDeferredProjectCleaner();
+
+    underTest.schedule("ROOT", "PROJECT", projectConfig, emptySet(), ANALYSIS_DATE);
+
+    verify(projectCleaner).purge(any(), eq("ROOT"), eq("PROJECT"), eq(projectConfig), eq(emptySet()), eq(ANALYSIS_DATE));
+  }
+
+  @Test
+  public void failure_of_purge_is_counted_and_does_not_stop_next_purges() {
+    DeferredProjectCleaner underTest = newDeferredProjectCleaner();
+    doThrow(new IllegalStateException("faking a failure of purge"))
+      .when(projectCleaner).purge(any(), eq("ROOT_1"), any(), any(), any(), anyLong());
+
+    underTest.schedule("ROOT_1", "PROJECT_1", projectConfig, emptySet(), ANALYSIS_DATE);
+    underTest.schedule("ROOT_2", "PROJECT_2", projectConfig, emptySet(), ANALYSIS_DATE);
+
+    verify(projectCleaner).purge(any(), eq("ROOT_2"), eq("PROJECT_2"), eq(projectConfig), eq(emptySet()), eq(ANALYSIS_DATE));
+    assertThat(underTest.getSuccessCount()).isEqualTo(1);
+    assertThat(underTest.getErrorCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void fail_if_db_time_percent_is_out_of_range() {
+    settings.setProperty(DB_TIME_PERCENT_PROPERTY, 0);
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Property sonar.ce.purge.maxDbTimePercent must be an integer between 1 and 100. Got: 0");
+
+    newDeferredProjectCleaner();
+  }
+
+  private DeferredProjectCleaner newDeferredProjectCleaner() {
+    return new DeferredProjectCleaner(executorService, projectCleaner, db.getDbClient(), system2, settings.asConfig());
+  }
+
+  private CeQueueDto insertInProgressTask(String projectUuid) {
+    CeQueueDto task = newCeQueueDto("TASK_" + projectUuid)
+      .setMainComponentUuid(projectUuid)
+      .setStatus(CeQueueDto.Status.IN_PROGRESS)
+      .setWorkerUuid("WORKER");
+    db.getDbClient().ceQueueDao().insert(db.getSession(), task);
+    db.commit();
+    return task;
+  }
+
+  private Runnable captureScheduledRetry() {
+    ArgumentCaptor<Runnable> retryCaptor = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorService).schedule(retryCaptor.capture(), eq(POSTPONE_DELAY_MS), eq(MILLISECONDS));
+    return retryCaptor.getValue();
+  }
+}
@@ -20,10 +20,13 @@
 package org.sonar.ce.task.projectanalysis.purge;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.config.PurgeConstants;
 import org.sonar.core.config.PurgeProperties;
 import org.sonar.db.DbSession;
@@ -33,14 +36,19 @@ import org.sonar.db.purge.PurgeProfiler;
 import org.sonar.db.purge.period.DefaultPeriodCleaner;
 
 import static java.util.Collections.emptySet;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 public class ProjectCleanerTest {
 
+  @Rule
+  public LogTester logTester = new LogTester();
+
   private ProjectCleaner underTest;
   private PurgeDao dao = mock(PurgeDao.class);
   private PurgeProfiler profiler = mock(PurgeProfiler.class);
@@ -57,7 +65,7 @@ public class ProjectCleanerTest {
   public void no_profiling_when_property_is_false() {
     settings.setProperty(CoreProperties.PROFILING_LOG_PROPERTY, false);
 
-    underTest.purge(mock(DbSession.class), "root", "project", settings.asConfig(), emptySet());
+    underTest.purge(mock(DbSession.class), "root", "project", settings.asConfig(), emptySet(), 1_000L);
 
     verify(profiler, never()).dump(anyLong(), any());
   }
@@ -66,16 +74,40 @@ public class ProjectCleanerTest {
   public void profiling_when_property_is_true() {
     settings.setProperty(CoreProperties.PROFILING_LOG_PROPERTY, true);
 
-    underTest.purge(mock(DbSession.class), "root", "project", settings.asConfig(), emptySet());
+    underTest.purge(mock(DbSession.class), "root", "project", settings.asConfig(), emptySet(), 1_000L);
+
+    verify(profiler).dump(anyLong(), any());
+  }
+
+  @Test
+  public void no_profiling_when_purge_is_within_budget() {
+    underTest.purge(mock(DbSession.class), "root", "project", settings.asConfig(), emptySet(), 1_000L);
+
+    verify(profiler, never()).dump(anyLong(), any());
+    assertThat(logTester.logs(LoggerLevel.WARN)).isEmpty();
+  }
+
+  @Test
+  public void warn_and_dump_profiling_when_purge_exceeds_budget() {
+    settings.setProperty(PurgeConstants.HOUSEKEEPING_BUDGET_IN_SECONDS, 0);
+    doAnswer(invocation -> {
+      Thread.sleep(10L);
+      return null;
+    }).when(dao).purge(any(), any(), any(), any());
+
+    underTest.purge(mock(DbSession.class), "root", "project", settings.asConfig(), emptySet(), 1_000L);
 
     verify(profiler).dump(anyLong(), any());
+    assertThat(logTester.logs(LoggerLevel.WARN))
+      .hasSize(1)
+      .allMatch(log -> log.contains("more than the 0 seconds set by sonar.dbcleaner.housekeepingBudgetInSeconds"));
   }
 
   @Test
   public void call_period_cleaner_index_client_and_purge_dao() {
     settings.setProperty(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES, 5);
 
-    underTest.purge(mock(DbSession.class), "root", "project", settings.asConfig(), emptySet());
+    underTest.purge(mock(DbSession.class), "root", "project", settings.asConfig(), emptySet(), 1_000L);
 
     verify(periodCleaner).clean(any(), any(), any());
     verify(dao).purge(any(), any(), any(), any());
@@ -30,7 +30,6 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.Mockito;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
 import org.sonar.ce.task.projectanalysis.component.Component;
@@ -42,13 +41,13 @@ import org.sonar.ce.task.projectanalysis.component.ViewsComponent;
 import org.sonar.ce.task.projectanalysis.step.BaseStepTest;
 import org.sonar.ce.task.step.ComputationStep;
 import org.sonar.ce.task.step.TestComputationStepContext;
-import org.sonar.db.DbClient;
 import org.sonar.server.project.Project;
 import org.sonar.ce.task.projectanalysis.util.WrapInSingleElementArray;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -66,16 +65,17 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
   @Rule
   public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule();
 
-  private ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
+  private DeferredProjectCleaner projectCleaner = mock(DeferredProjectCleaner.class);
   private ConfigurationRepository settingsRepository = mock(ConfigurationRepository.class);
   private MutableDisabledComponentsHolder disabledComponentsHolder = mock(MutableDisabledComponentsHolder.class, RETURNS_DEEP_STUBS);
 
-  private PurgeDatastoresStep underTest = new PurgeDatastoresStep(mock(DbClient.class, Mockito.RETURNS_DEEP_STUBS), projectCleaner, treeRootHolder,
-    settingsRepository, disabledComponentsHolder, analysisMetadataHolder);
+  private PurgeDatastoresStep underTest = new PurgeDatastoresStep(projectCleaner, treeRootHolder, settingsRepository, disabledComponentsHolder,
+    analysisMetadataHolder);
 
   @Before
   public void before() {
-    analysisMetadataHolder.setProject(new Project("uuid", "key", "name", null, Collections.emptyList()));
+    analysisMetadataHolder.setProject(new Project("uuid", "key", "name", null, Collections.emptyList()))
+      .setAnalysisDate(1_000L);
   }
 
   @Test
@@ -133,7 +133,7 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
     underTest.execute(new TestComputationStepContext());
 
     ArgumentCaptor<String> argumentCaptor = ArgumentCaptor.forClass(String.class);
-    verify(projectCleaner).purge(any(), argumentCaptor.capture(), anyString(), any(), any());
+    verify(projectCleaner).schedule(argumentCaptor.capture(), anyString(), any(), any(), eq(1_000L));
     assertThat(argumentCaptor.getValue()).isEqualTo(PROJECT_UUID);
   }
 
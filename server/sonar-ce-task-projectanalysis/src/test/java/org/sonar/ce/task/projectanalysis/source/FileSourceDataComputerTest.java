@@ -152,6 +152,27 @@ public class FileSourceDataComputerTest {
     verify(lineReaders).close();
   }
 
+  @Test
+  public void computeDataHash_is_hash_of_data_built_by_compute() {
+    List<String> lines = IntStream.range(0, 1 + new Random().nextInt(10)).mapToObj(i -> "line" + i).collect(toList());
+    Changeset changeset = Changeset.newChangesetBuilder().setDate(1L).setRevision("rev-1").build();
+    when(sourceLinesRepository.readLines(FILE)).thenAnswer(invocation -> CloseableIterator.from(lines.iterator()));
+    when(sourceLineReadersFactory.getLineReaders(FILE)).thenReturn(lineReaders);
+    when(lineReaders.getLatestChangeWithRevision()).thenReturn(changeset);
+    doAnswer(invocation -> {
+      DbFileSources.Line.Builder lineBuilder = invocation.getArgument(0);
+      lineBuilder.setLineHits(lineBuilder.getLine() * 2).setScmAuthor("author" + lineBuilder.getLine());
+      return null;
+    }).when(lineReaders).read(any(), any());
+
+    FileSourceDataComputer.Data data = underTest.compute(FILE, fileSourceDataWarnings);
+    FileSourceDataComputer.DataHash dataHash = underTest.computeDataHash(FILE, fileSourceDataWarnings);
+
+    assertThat(dataHash.getHash()).isEqualTo(PersistFileSourcesStep.computeDataHash(data.getLineData()));
+    assertThat(dataHash.getLatestChangeWithRevision()).isSameAs(changeset);
+    verify(lineReaders, times(2)).close();
+  }
+
   private static String computeSrcHash(List<String> lines) {
     SourceHashComputer computer = new SourceHashComputer();
     Iterator<String> iterator = lines.iterator();
@@ -23,12 +23,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.FileAttributes;
@@ -46,7 +47,9 @@ import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.LineHashVersion;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -69,6 +72,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
 
   private SourceLinesHashRepository sourceLinesHashRepository = mock(SourceLinesHashRepository.class);
+  private SourceHashRepository sourceHashRepository = mock(SourceHashRepository.class);
   private SourceLinesHashRepositoryImpl.LineHashesComputer lineHashesComputer = mock(SourceLinesHashRepositoryImpl.LineHashesComputer.class);
   private FileSourceDataComputer fileSourceDataComputer = mock(FileSourceDataComputer.class);
   private FileSourceDataWarnings fileSourceDataWarnings = mock(FileSourceDataWarnings.class);
@@ -76,13 +80,14 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   private DbClient dbClient = dbTester.getDbClient();
   private DbSession session = dbTester.getSession();
 
+  private MapSettings settings = new MapSettings();
   private PersistFileSourcesStep underTest;
 
   @Before
   public void setup() {
     when(system2.now()).thenReturn(NOW);
     when(sourceLinesHashRepository.getLineHashesComputerToPersist(Mockito.any(Component.class))).thenReturn(lineHashesComputer);
-    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, sourceLinesHashRepository, fileSourceDataComputer, fileSourceDataWarnings);
+    underTest = newStep();
     initBasicReport(1);
   }
 
@@ -91,6 +96,11 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     return underTest;
   }
 
+  private PersistFileSourcesStep newStep() {
+    return new PersistFileSourcesStep(dbClient, system2, treeRootHolder, sourceLinesHashRepository, sourceHashRepository, fileSourceDataComputer,
+      fileSourceDataWarnings, settings.asConfig());
+  }
+
   @Test
   public void persist_sources() {
     List<String> lineHashes = Arrays.asList("137f72c3708c6bd0de00a0e5a69c699b", "e6251bcf1a7dc3ba5e7933e325bbe605");
@@ -323,6 +333,99 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     verify(fileSourceDataWarnings).commitWarnings();
   }
 
+  @Test
+  public void not_compute_sources_when_hash_of_sources_has_not_changed() {
+    dbClient.fileSourceDao().insert(dbTester.getSession(), createDto());
+    dbTester.getSession().commit();
+
+    Changeset changeset = Changeset.newChangesetBuilder().setDate(1L).setRevision("rev-1").build();
+    String dataHash = PersistFileSourcesStep.computeDataHash(DbFileSources.Data.newBuilder().build());
+    when(sourceHashRepository.getRawSourceHash(fileComponent().build())).thenReturn("sourceHash");
+    when(fileSourceDataComputer.computeDataHash(fileComponent().build(), fileSourceDataWarnings))
+      .thenReturn(new FileSourceDataComputer.DataHash(dataHash, changeset));
+
+    underTest.execute(new TestComputationStepContext());
+
+    verify(fileSourceDataComputer, never()).compute(any(), any());
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(PAST);
+    verify(fileSourceDataWarnings).commitWarnings();
+  }
+
+  @Test
+  public void update_sources_when_hash_of_sources_has_changed() {
+    dbClient.fileSourceDao().insert(dbTester.getSession(), createDto());
+    dbTester.getSession().commit();
+
+    Changeset changeset = Changeset.newChangesetBuilder().setDate(1L).setRevision("rev-1").build();
+    DbFileSources.Data sourceData = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder().setLine(1).setSource("line").setLineHits(1).build())
+      .build();
+    when(sourceHashRepository.getRawSourceHash(fileComponent().build())).thenReturn("sourceHash");
+    when(fileSourceDataComputer.computeDataHash(fileComponent().build(), fileSourceDataWarnings))
+      .thenReturn(new FileSourceDataComputer.DataHash(PersistFileSourcesStep.computeDataHash(sourceData), changeset));
+    setComputedData(sourceData, Collections.singletonList("lineHash"), "sourceHash", changeset);
+
+    underTest.execute(new TestComputationStepContext());
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getSourceData()).isEqualTo(sourceData);
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(PersistFileSourcesStep.computeDataHash(sourceData));
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+    verify(fileSourceDataWarnings).commitWarnings();
+  }
+
+  @Test
+  public void persist_sources_of_many_files_with_many_threads() {
+    settings.setProperty(PersistFileSourcesStep.THREADS_PROPERTY, 3);
+    underTest = newStep();
+    ReportComponent.Builder project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY);
+    for (int i = 0; i < 20; i++) {
+      project.addChildren(ReportComponent.builder(Component.Type.FILE, 10 + i).setUuid("FILE_" + i).setKey(PROJECT_KEY + ":src/Foo" + i + ".java").build());
+    }
+    treeRootHolder.setRoots(project.build(), project.build());
+    // one of the files is already up-to-date
+    DbFileSources.Data sourceData = DbFileSources.Data.newBuilder().addLines(DbFileSources.Line.newBuilder().setLine(1).setSource("line").build()).build();
+    dbClient.fileSourceDao().insert(dbTester.getSession(), createDto(dto -> dto.setFileUuid("FILE_0").setRevision(null).setSourceData(sourceData)
+      .setDataHash(PersistFileSourcesStep.computeDataHash(sourceData))));
+    dbTester.getSession().commit();
+    when(fileSourceDataComputer.compute(Mockito.any(Component.class), Mockito.eq(fileSourceDataWarnings)))
+      .thenReturn(new FileSourceDataComputer.Data(sourceData, Collections.singletonList("lineHash"), "sourceHash", null));
+
+    underTest.execute(new TestComputationStepContext());
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(20);
+    for (int i = 0; i < 20; i++) {
+      FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectByFileUuid(session, "FILE_" + i);
+      assertThat(fileSourceDto.getSourceData().getLines(0).getSource()).isEqualTo("line");
+      assertThat(fileSourceDto.getDataHash()).isEqualTo(PersistFileSourcesStep.computeDataHash(sourceData));
+    }
+    assertThat(dbClient.fileSourceDao().selectByFileUuid(session, "FILE_0").getUpdatedAt()).isEqualTo(PAST);
+    assertThat(dbClient.fileSourceDao().selectByFileUuid(session, "FILE_1").getUpdatedAt()).isEqualTo(NOW);
+    verify(fileSourceDataWarnings).commitWarnings();
+  }
+
+  @Test
+  public void fail_with_file_key_if_sources_can_not_be_computed() {
+    when(fileSourceDataComputer.compute(fileComponent().build(), fileSourceDataWarnings)).thenThrow(new IllegalArgumentException("error"));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Cannot persist sources of PROJECT_KEY:src/Foo.java");
+
+    underTest.execute(new TestComputationStepContext());
+  }
+
+  @Test
+  public void fail_if_threads_property_is_not_positive() {
+    settings.setProperty(PersistFileSourcesStep.THREADS_PROPERTY, 0);
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Property sonar.ce.persistSources.threads must be a positive integer. Got: 0");
+
+    newStep();
+  }
+
   @Test
   public void update_sources_when_source_updated() {
     // Existing sources
@@ -417,8 +520,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
 
   private FileSourceDto createDto(Consumer<FileSourceDto> modifier) {
     DbFileSources.Data sourceData = DbFileSources.Data.newBuilder().build();
-    byte[] data = FileSourceDto.encodeSourceData(sourceData);
-    String dataHash = DigestUtils.md5Hex(data);
+    String dataHash = PersistFileSourcesStep.computeDataHash(sourceData);
 
     FileSourceDto dto = new FileSourceDto()
       .setProjectUuid(PROJECT_UUID)
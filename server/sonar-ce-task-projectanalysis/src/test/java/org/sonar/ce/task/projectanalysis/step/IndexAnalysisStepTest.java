@@ -19,6 +19,8 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReaderRule;
@@ -26,12 +28,20 @@ import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ReportComponent;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.ce.task.projectanalysis.component.ViewsComponent;
+import org.sonar.ce.task.projectanalysis.issue.ChangedIssuesRepository;
 import org.sonar.ce.task.step.ComputationStep;
 import org.sonar.ce.task.step.TestComputationStepContext;
+import org.sonar.db.es.EsQueueDto;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
 
+import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.ce.task.projectanalysis.component.Component.Type.PROJECT;
 import static org.sonar.ce.task.projectanalysis.component.Component.Type.VIEW;
 
@@ -45,8 +55,11 @@ public class IndexAnalysisStepTest extends BaseStepTest {
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
 
+  private ChangedIssuesRepository changedIssuesRepository = new ChangedIssuesRepository(2);
   private ProjectIndexer componentIndexer = mock(ProjectIndexer.class);
-  private IndexAnalysisStep underTest = new IndexAnalysisStep(treeRootHolder, componentIndexer);
+  private IssueIndexer issueIndexer = mock(IssueIndexer.class);
+  private List<EsQueueDto> recoveryItems = singletonList(EsQueueDto.create("issues/issue", PROJECT_UUID, "projectUuid", PROJECT_UUID));
+  private IndexAnalysisStep underTest = new IndexAnalysisStep(treeRootHolder, changedIssuesRepository, issueIndexer, componentIndexer, issueIndexer);
 
   @Test
   public void call_indexByProjectUuid_of_indexer_for_project() {
@@ -68,6 +81,60 @@ public class IndexAnalysisStepTest extends BaseStepTest {
     verify(componentIndexer).indexOnAnalysis(PROJECT_UUID);
   }
 
+  @Test
+  public void index_only_changed_issues() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    changedIssuesRepository.add("ISSUE_1");
+    changedIssuesRepository.add("ISSUE_2");
+    changedIssuesRepository.setRecoveryItems(recoveryItems);
+
+    underTest.execute(new TestComputationStepContext());
+
+    verify(issueIndexer).indexIssuesOnAnalysis(ImmutableSet.of("ISSUE_1", "ISSUE_2"), recoveryItems);
+    verify(issueIndexer, never()).indexOnAnalysis(anyString());
+    verify(issueIndexer, never()).indexOnAnalysis(anyString(), anyCollection());
+  }
+
+  @Test
+  public void index_all_issues_of_branch_if_too_many_changed_issues() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    changedIssuesRepository.add("ISSUE_1");
+    changedIssuesRepository.add("ISSUE_2");
+    changedIssuesRepository.add("ISSUE_3");
+    changedIssuesRepository.setRecoveryItems(recoveryItems);
+
+    underTest.execute(new TestComputationStepContext());
+
+    verify(issueIndexer).indexOnAnalysis(PROJECT_UUID, recoveryItems);
+    verify(issueIndexer, never()).indexOnAnalysis(anyString());
+  }
+
+  @Test
+  public void do_not_index_issues_if_no_issue_changed() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+
+    underTest.execute(new TestComputationStepContext());
+
+    verify(componentIndexer).indexOnAnalysis(PROJECT_UUID);
+    verifyZeroInteractions(issueIndexer);
+  }
+
+  @Test
+  public void delete_es_queue_items_if_no_issue_changed() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    changedIssuesRepository.setRecoveryItems(recoveryItems);
+
+    underTest.execute(new TestComputationStepContext());
+
+    verify(issueIndexer).cancelRecoveryOnAnalysis(recoveryItems);
+    verify(issueIndexer, never()).indexOnAnalysis(anyString(), anyCollection());
+    verify(issueIndexer, never()).indexIssuesOnAnalysis(anyCollection(), anyCollection());
+  }
+
   @Override
   protected ComputationStep step() {
     return underTest;
@@ -33,8 +33,12 @@ import org.sonar.api.rules.RuleType;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReaderRule;
+import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.ce.task.projectanalysis.issue.AdHocRuleCreator;
+import org.sonar.ce.task.projectanalysis.issue.ChangedIssuesRepository;
 import org.sonar.ce.task.projectanalysis.issue.IssueCache;
+import org.sonar.ce.task.projectanalysis.issue.ProtobufIssueCache;
 import org.sonar.ce.task.projectanalysis.issue.RuleRepositoryImpl;
 import org.sonar.ce.task.projectanalysis.issue.UpdateConflictResolver;
 import org.sonar.ce.task.projectanalysis.util.cache.DiskCache;
@@ -43,10 +47,12 @@ import org.sonar.ce.task.step.TestComputationStepContext;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.BatchSession;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.es.EsQueueDto;
 import org.sonar.db.issue.IssueChangeDto;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
@@ -54,10 +60,14 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.rule.RuleTesting;
 import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.server.es.EsClient;
 import org.sonar.server.issue.IssueStorage;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.issue.index.IssueIteratorFactory;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.data.MapEntry.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -68,11 +78,13 @@ import static org.sonar.api.issue.Issue.RESOLUTION_FIXED;
 import static org.sonar.api.issue.Issue.STATUS_CLOSED;
 import static org.sonar.api.issue.Issue.STATUS_OPEN;
 import static org.sonar.api.rule.Severity.BLOCKER;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.PROJECT;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 
 public class PersistIssuesStepTest extends BaseStepTest {
 
   private static final long NOW = 1_400_000_000_000L;
+  private static final String BRANCH_UUID = "BRANCH_UUID";
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
@@ -81,6 +93,9 @@ public class PersistIssuesStepTest extends BaseStepTest {
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
   @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule()
+    .setRoot(ReportComponent.builder(PROJECT, 1).setUuid(BRANCH_UUID).build());
+  @Rule
   public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule()
     .setOrganizationUuid("org-1", "qg-uuid-1");
 
@@ -89,6 +104,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
   private DbClient dbClient = db.getDbClient();
   private UpdateConflictResolver conflictResolver = mock(UpdateConflictResolver.class);
   private IssueCache issueCache;
+  private ChangedIssuesRepository changedIssuesRepository = new ChangedIssuesRepository();
   private ComputationStep underTest;
 
   private AdHocRuleCreator adHocRuleCreator = mock(AdHocRuleCreator.class);
@@ -104,7 +120,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
     reportReader.setMetadata(ScannerReport.Metadata.getDefaultInstance());
 
     underTest = new PersistIssuesStep(dbClient, system2, conflictResolver, new RuleRepositoryImpl(adHocRuleCreator, dbClient, analysisMetadataHolder), issueCache,
-      new IssueStorage());
+      new IssueStorage(), changedIssuesRepository, new IssueIndexer(mock(EsClient.class), dbClient, mock(IssueIteratorFactory.class)), treeRootHolder);
   }
 
   @After
@@ -233,7 +249,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
         // simulate the issue has been updated after the analysis ran
         .setUpdatedAt(NOW + 1_000_000_000L));
     issue = dbClient.issueDao().selectByKey(db.getSession(), issue.getKey()).get();
-    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender issueCacheAppender = issueCache.newAppender();
     when(system2.now()).thenReturn(NOW);
 
     DefaultIssue defaultIssue = issue.toDefaultIssue()
@@ -255,6 +271,45 @@ public class PersistIssuesStepTest extends BaseStepTest {
 
   }
 
+  @Test
+  public void update_conflicting_issue_among_more_issues_than_batch_size() {
+    RuleDefinitionDto rule = RuleTesting.newRule(RuleKey.of("xoo", "S01"));
+    db.rules().insert(rule);
+    OrganizationDto organizationDto = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(organizationDto);
+    ComponentDto file = db.components().insertComponent(newFileDto(project, null));
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    when(system2.now()).thenReturn(NOW);
+    int issueCount = BatchSession.MAX_BATCH_SIZE + 10;
+    DefaultIssue conflictingIssue = null;
+    for (int i = 0; i < issueCount; i++) {
+      boolean conflicting = i == issueCount - 1;
+      IssueDto issue = db.issues().insert(rule, project, file,
+        dto -> dto.setStatus(STATUS_OPEN)
+          .setResolution(null)
+          .setCreatedAt(NOW - 1_000_000_000L)
+          .setUpdatedAt(conflicting ? (NOW + 1_000_000_000L) : (NOW - 1_000_000_000L)));
+      DefaultIssue defaultIssue = issue.toDefaultIssue()
+        .setStatus(STATUS_CLOSED)
+        .setResolution(RESOLUTION_FIXED)
+        .setSelectedAt(NOW)
+        .setNew(false)
+        .setChanged(true);
+      issueCacheAppender.append(defaultIssue);
+      if (conflicting) {
+        conflictingIssue = defaultIssue;
+      }
+    }
+    issueCacheAppender.close();
+
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.execute(context);
+
+    verify(conflictResolver).resolve(eq(conflictingIssue), any(IssueDto.class), any(IssueMapper.class));
+    assertThat(context.getStatistics().getAll()).containsOnly(
+      entry("inserts", "0"), entry("updates", String.valueOf(issueCount)), entry("merged", "1"), entry("untouched", "0"));
+  }
+
   @Test
   public void insert_new_issue() {
     RuleDefinitionDto rule = RuleTesting.newRule(RuleKey.of("xoo", "S01"));
@@ -288,6 +343,56 @@ public class PersistIssuesStepTest extends BaseStepTest {
     assertThat(result.getType()).isEqualTo(RuleType.BUG.getDbConstant());
     assertThat(context.getStatistics().getAll()).containsOnly(
       entry("inserts", "1"), entry("updates", "0"), entry("merged", "0"), entry("untouched", "0"));
+    assertThat(changedIssuesRepository.getChangedIssueKeys()).hasValueSatisfying(keys -> assertThat(keys).containsOnly("ISSUE"));
+    // branch is recovered by es_queue if the analysis fails before indexing the changed issues
+    assertThat(changedIssuesRepository.getRecoveryItems()).extracting(EsQueueDto::getDocId).containsExactly(BRANCH_UUID);
+    assertThat(db.countRowsOfTable("es_queue")).isEqualTo(1);
+  }
+
+  @Test
+  public void insert_branch_in_es_queue_even_when_no_issue_changed() {
+    underTest.execute(new TestComputationStepContext());
+
+    assertThat(changedIssuesRepository.hasChangedIssues()).isFalse();
+    assertThat(changedIssuesRepository.getRecoveryItems()).extracting(EsQueueDto::getDocId).containsExactly(BRANCH_UUID);
+    assertThat(db.countRowsOfTable("es_queue")).isEqualTo(1);
+  }
+
+  @Test
+  public void branch_is_in_es_queue_when_persistence_fails_after_issues_are_committed() {
+    RuleDefinitionDto rule = RuleTesting.newRule(RuleKey.of("xoo", "S01"));
+    db.rules().insert(rule);
+    OrganizationDto organizationDto = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(organizationDto);
+    ComponentDto file = db.components().insertComponent(newFileDto(project, null));
+    session.commit();
+    when(system2.now()).thenReturn(NOW);
+    // as many multi-row inserts as the statements of a BatchSession, so that it commits the issues on its own
+    int issueCount = BatchSession.MAX_BATCH_SIZE * IssueMapper.MAX_INSERTED_ROWS;
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    for (int i = 0; i <= issueCount; i++) {
+      issueCacheAppender.append(new DefaultIssue()
+        .setKey("ISSUE_" + i)
+        .setType(RuleType.CODE_SMELL)
+        // persistence fails on the last issue, which references an unknown rule
+        .setRuleKey(i == issueCount ? RuleKey.of("xoo", "unknown") : rule.getKey())
+        .setComponentUuid(file.uuid())
+        .setProjectUuid(project.uuid())
+        .setSeverity(BLOCKER)
+        .setStatus(STATUS_OPEN)
+        .setNew(true));
+    }
+    issueCacheAppender.close();
+
+    try {
+      underTest.execute(new TestComputationStepContext());
+      fail("An IllegalArgumentException should have been raised");
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessageContaining("xoo:unknown");
+    }
+
+    assertThat(db.countRowsOfTable("issues")).isGreaterThan(0);
+    assertThat(db.countRowsOfTable("es_queue")).isEqualTo(1);
   }
 
   @Test
@@ -300,7 +405,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
         .setResolution(null)
         .setCreatedAt(NOW - 1_000_000_000L)
         .setUpdatedAt(NOW - 1_000_000_000L));
-    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender issueCacheAppender = issueCache.newAppender();
 
     issueCacheAppender.append(
       issue.toDefaultIssue()
@@ -319,6 +424,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
     assertThat(issueReloaded.getResolution()).isEqualTo(RESOLUTION_FIXED);
     assertThat(context.getStatistics().getAll()).containsOnly(
       entry("inserts", "0"), entry("updates", "1"), entry("merged", "0"), entry("untouched", "0"));
+    assertThat(changedIssuesRepository.getChangedIssueKeys()).hasValueSatisfying(keys -> assertThat(keys).containsOnly(issue.getKey()));
   }
 
   @Test
@@ -331,7 +437,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
         .setResolution(null)
         .setCreatedAt(NOW - 1_000_000_000L)
         .setUpdatedAt(NOW - 1_000_000_000L));
-    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender issueCacheAppender = issueCache.newAppender();
 
     issueCacheAppender.append(
       issue.toDefaultIssue()
@@ -371,7 +477,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
         .setResolution(null)
         .setCreatedAt(NOW - 1_000_000_000L)
         .setUpdatedAt(NOW - 1_000_000_000L));
-    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender issueCacheAppender = issueCache.newAppender();
 
     issueCacheAppender.append(
       issue.toDefaultIssue()
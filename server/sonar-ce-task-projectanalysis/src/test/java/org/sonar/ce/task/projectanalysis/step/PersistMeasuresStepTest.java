@@ -38,9 +38,13 @@ import org.sonar.ce.task.step.TestComputationStepContext;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureSeries;
+import org.sonar.db.measure.MeasureSeriesDto;
 import org.sonar.db.metric.MetricDto;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.ce.task.projectanalysis.component.Component.Type.DIRECTORY;
 import static org.sonar.ce.task.projectanalysis.component.Component.Type.FILE;
@@ -56,6 +60,7 @@ public class PersistMeasuresStepTest extends BaseStepTest {
   private static final Metric INT_METRIC = new Metric.Builder("int-metric", "int metric", Metric.ValueType.INT).create();
 
   private static final String ANALYSIS_UUID = "a1";
+  private static final long ANALYSIS_DATE = 1_500_000_000_000L;
 
   private static final int REF_1 = 1;
   private static final int REF_2 = 2;
@@ -78,8 +83,11 @@ public class PersistMeasuresStepTest extends BaseStepTest {
   @Before
   public void setUp() {
     analysisMetadataHolder.setUuid(ANALYSIS_UUID);
-    MetricDto stringMetricDto = db.measures().insertMetric(m -> m.setKey(STRING_METRIC.getKey()).setValueType(Metric.ValueType.STRING.name()));
-    MetricDto intMetricDto = db.measures().insertMetric(m -> m.setKey(INT_METRIC.getKey()).setValueType(Metric.ValueType.INT.name()));
+    analysisMetadataHolder.setAnalysisDate(ANALYSIS_DATE);
+    MetricDto stringMetricDto = db.measures().insertMetric(m -> m.setKey(STRING_METRIC.getKey()).setValueType(Metric.ValueType.STRING.name())
+      .setDeleteHistoricalData(false));
+    MetricDto intMetricDto = db.measures().insertMetric(m -> m.setKey(INT_METRIC.getKey()).setValueType(Metric.ValueType.INT.name())
+      .setDeleteHistoricalData(false));
     metricRepository.add(stringMetricDto.getId(), STRING_METRIC);
     metricRepository.add(intMetricDto.getId(), INT_METRIC);
   }
@@ -146,7 +154,98 @@ public class PersistMeasuresStepTest extends BaseStepTest {
     assertNbOfInserts(context, 2);
   }
 
-  private void prepareProject() {
+  @Test
+  public void append_measures_to_series_of_project() {
+    prepareProject();
+    measureRepository.addRawMeasure(REF_1, STRING_METRIC.getKey(), newMeasureBuilder().create("project-value"));
+    measureRepository.addRawMeasure(REF_1, INT_METRIC.getKey(), newMeasureBuilder().setVariation(2.0).create(12));
+    measureRepository.addRawMeasure(REF_4, INT_METRIC.getKey(), newMeasureBuilder().create(5));
+
+    execute();
+
+    assertThat(db.countRowsOfTable("measure_series")).isEqualTo(2);
+    assertThat(selectSeries("project-uuid", STRING_METRIC).getPoints())
+      .containsExactly(new MeasureSeries.Point(ANALYSIS_DATE, null, null, "project-value"));
+    assertThat(selectSeries("project-uuid", INT_METRIC).getPoints())
+      .containsExactly(new MeasureSeries.Point(ANALYSIS_DATE, 12.0, 2.0, null));
+  }
+
+  @Test
+  public void series_are_initialized_with_measures_of_past_analyses() {
+    ComponentDto project = prepareProject();
+    MetricDto intMetricDto = dbClient.metricDao().selectByKey(db.getSession(), INT_METRIC.getKey());
+    SnapshotDto pastAnalysis = db.components().insertSnapshot(project, s -> s.setUuid("past").setCreatedAt(1_000L).setLast(false));
+    db.measures().insertMeasure(project, pastAnalysis, intMetricDto, m -> m.setValue(10.0).setVariation(null).setData(null));
+    measureRepository.addRawMeasure(REF_1, INT_METRIC.getKey(), newMeasureBuilder().create(12));
+
+    execute();
+
+    assertThat(selectSeries("project-uuid", INT_METRIC).getPoints()).containsExactly(
+      new MeasureSeries.Point(1_000L, 10.0, null, null),
+      new MeasureSeries.Point(ANALYSIS_DATE, 12.0, null, null));
+  }
+
+  @Test
+  public void existing_series_are_updated() {
+    prepareProject();
+    measureRepository.addRawMeasure(REF_1, INT_METRIC.getKey(), newMeasureBuilder().create(12));
+    MetricDto intMetricDto = dbClient.metricDao().selectByKey(db.getSession(), INT_METRIC.getKey());
+    dbClient.measureSeriesDao().insert(db.getSession(), new MeasureSeriesDto()
+      .setComponentUuid("project-uuid")
+      .setProjectUuid("project-uuid")
+      .setMetricId(intMetricDto.getId())
+      .setSeries(new MeasureSeries().add(new MeasureSeries.Point(1_000L, 3.0, null, null))));
+    db.commit();
+
+    execute();
+
+    assertThat(db.countRowsOfTable("measure_series")).isEqualTo(1);
+    assertThat(selectSeries("project-uuid", INT_METRIC).getPoints()).containsExactly(
+      new MeasureSeries.Point(1_000L, 3.0, null, null),
+      new MeasureSeries.Point(ANALYSIS_DATE, 12.0, null, null));
+  }
+
+  @Test
+  public void series_of_metrics_without_history_only_keep_last_point() {
+    Metric metricWithoutHistory = new Metric.Builder("without-history", "Without history", Metric.ValueType.INT).create();
+    MetricDto metricWithoutHistoryDto = db.measures().insertMetric(m -> m.setKey(metricWithoutHistory.getKey()).setValueType(Metric.ValueType.INT.name())
+      .setDeleteHistoricalData(true));
+    metricRepository.add(metricWithoutHistoryDto.getId(), metricWithoutHistory);
+    prepareProject();
+    dbClient.measureSeriesDao().insert(db.getSession(), new MeasureSeriesDto()
+      .setComponentUuid("project-uuid")
+      .setProjectUuid("project-uuid")
+      .setMetricId(metricWithoutHistoryDto.getId())
+      .setSeries(new MeasureSeries().add(new MeasureSeries.Point(1_000L, 3.0, null, null))));
+    db.commit();
+    measureRepository.addRawMeasure(REF_1, metricWithoutHistory.getKey(), newMeasureBuilder().create(12));
+
+    execute();
+
+    assertThat(selectSeries("project-uuid", metricWithoutHistory).getPoints())
+      .containsExactly(new MeasureSeries.Point(ANALYSIS_DATE, 12.0, null, null));
+  }
+
+  @Test
+  public void persist_series_of_portfolio_analysis() {
+    preparePortfolio();
+    measureRepository.addRawMeasure(REF_1, STRING_METRIC.getKey(), newMeasureBuilder().create("view-value"));
+    measureRepository.addRawMeasure(REF_2, STRING_METRIC.getKey(), newMeasureBuilder().create("subview-value"));
+    measureRepository.addRawMeasure(REF_3, STRING_METRIC.getKey(), newMeasureBuilder().create("project-value"));
+
+    execute();
+
+    assertThat(db.countRowsOfTable("measure_series")).isEqualTo(2);
+    assertThat(selectSeries("view-uuid", STRING_METRIC).getPoints())
+      .containsExactly(new MeasureSeries.Point(ANALYSIS_DATE, null, null, "view-value"));
+    assertThat(selectSeries("subview-uuid", STRING_METRIC).getPoints())
+      .containsExactly(new MeasureSeries.Point(ANALYSIS_DATE, null, null, "subview-value"));
+    assertThat(db.select("select project_uuid as \"projectUuid\" from measure_series"))
+      .extracting(row -> row.get("projectUuid"))
+      .containsOnly("view-uuid");
+  }
+
+  private ComponentDto prepareProject() {
     // tree of components as defined by scanner report
     Component project = ReportComponent.builder(PROJECT, REF_1).setUuid("project-uuid")
       .addChildren(
@@ -162,7 +261,8 @@ public class PersistMeasuresStepTest extends BaseStepTest {
     ComponentDto projectDto = insertComponent("project-key", "project-uuid");
     ComponentDto dirDto = insertComponent("dir-key", "dir-uuid");
     ComponentDto fileDto = insertComponent("file-key", "file-uuid");
-    db.components().insertSnapshot(projectDto, s -> s.setUuid(ANALYSIS_UUID));
+    db.components().insertSnapshot(projectDto, s -> s.setUuid(ANALYSIS_UUID).setCreatedAt(ANALYSIS_DATE));
+    return projectDto;
   }
 
   private void preparePortfolio() {
@@ -181,7 +281,7 @@ public class PersistMeasuresStepTest extends BaseStepTest {
     ComponentDto viewDto = insertComponent("view-key", "view-uuid");
     ComponentDto subViewDto = insertComponent("subview-key", "subview-uuid");
     ComponentDto projectDto = insertComponent("project-key", "project-uuid");
-    db.components().insertSnapshot(viewDto, s -> s.setUuid(ANALYSIS_UUID));
+    db.components().insertSnapshot(viewDto, s -> s.setUuid(ANALYSIS_UUID).setCreatedAt(ANALYSIS_DATE));
   }
 
   private void assertThatMeasureIsNotPersisted(String componentUuid, Metric metric) {
@@ -195,11 +295,17 @@ public class PersistMeasuresStepTest extends BaseStepTest {
 
   private TestComputationStepContext execute() {
     TestComputationStepContext context = new TestComputationStepContext();
-    new PersistMeasuresStep(dbClient, metricRepository, new MeasureToMeasureDto(analysisMetadataHolder, treeRootHolder), treeRootHolder, measureRepository)
-      .execute(context);
+    step().execute(context);
     return context;
   }
 
+  private MeasureSeries selectSeries(String componentUuid, Metric metric) {
+    MetricDto metricDto = dbClient.metricDao().selectByKey(db.getSession(), metric.getKey());
+    return dbClient.measureSeriesDao().selectByComponentUuidAndMetricIds(db.getSession(), componentUuid, singletonList(metricDto.getId()))
+      .get(0)
+      .getSeries();
+  }
+
   private Optional<MeasureDto> selectMeasure(String componentUuid, Metric metric) {
     return dbClient.measureDao().selectMeasure(db.getSession(), ANALYSIS_UUID, componentUuid, metric.getKey());
   }
@@ -222,6 +328,7 @@ public class PersistMeasuresStepTest extends BaseStepTest {
 
   @Override
   protected ComputationStep step() {
-    return new PersistMeasuresStep(dbClient, metricRepository, new MeasureToMeasureDto(analysisMetadataHolder, treeRootHolder), treeRootHolder, measureRepository);
+    return new PersistMeasuresStep(dbClient, metricRepository, new MeasureToMeasureDto(analysisMetadataHolder, treeRootHolder), treeRootHolder, measureRepository,
+      analysisMetadataHolder);
   }
 }
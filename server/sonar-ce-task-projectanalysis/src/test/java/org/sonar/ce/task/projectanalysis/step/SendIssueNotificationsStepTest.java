@@ -51,6 +51,7 @@ import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.DefaultBranchImpl;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.ce.task.projectanalysis.issue.IssueCache;
+import org.sonar.ce.task.projectanalysis.issue.ProtobufIssueCache;
 import org.sonar.ce.task.projectanalysis.notification.NotificationFactory;
 import org.sonar.ce.task.projectanalysis.util.cache.DiskCache;
 import org.sonar.ce.task.step.ComputationStep;
@@ -209,7 +210,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
           .setCreationDate(new Date(ANALYSE_DATE - FIVE_MINUTES_IN_MS))))
             .collect(toList());
     shuffle(issues);
-    DiskCache<DefaultIssue>.DiskAppender issueCache = this.issueCache.newAppender();
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender issueCache = this.issueCache.newAppender();
     issues.forEach(issueCache::append);
     analysisMetadataHolder.setProject(new Project(PROJECT.getUuid(), PROJECT.getKey(), PROJECT.getName(), null, emptyList()));
     when(notificationService.hasProjectSubscribersForTypes(PROJECT.getUuid(), NOTIF_TYPES)).thenReturn(true);
@@ -366,7 +367,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
             .collect(toList());
     shuffle(issues);
     IssueCache issueCache = new IssueCache(temp.newFile(), System2.INSTANCE);
-    DiskCache<DefaultIssue>.DiskAppender newIssueCache = issueCache.newAppender();
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender newIssueCache = issueCache.newAppender();
     issues.forEach(newIssueCache::append);
 
     analysisMetadataHolder.setProject(new Project(PROJECT.getUuid(), PROJECT.getKey(), PROJECT.getName(), null, emptyList()));
@@ -438,7 +439,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
           .setCreationDate(new Date(ANALYSE_DATE - FIVE_MINUTES_IN_MS))))
             .collect(toList());
     shuffle(issues);
-    DiskCache<DefaultIssue>.DiskAppender issueCache = this.issueCache.newAppender();
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender issueCache = this.issueCache.newAppender();
     issues.forEach(issueCache::append);
     analysisMetadataHolder.setProject(new Project(PROJECT.getUuid(), PROJECT.getKey(), PROJECT.getName(), null, emptyList()));
     when(notificationService.hasProjectSubscribersForTypes(PROJECT.getUuid(), NOTIF_TYPES)).thenReturn(true);
@@ -617,7 +618,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
       .mapToObj(i -> newIssue(ruleDefinitionDto, project, file).setKee("uuid_" + i).setType(randomTypeExceptHotspot).toDefaultIssue()
         .setNew(false).setChanged(true).setSendNotifications(true).setAssigneeUuid(user.getUuid()))
       .collect(toList());
-    DiskCache<DefaultIssue>.DiskAppender diskAppender = issueCache.newAppender();
+    DiskCache<DefaultIssue, ProtobufIssueCache.Issue>.DiskAppender diskAppender = issueCache.newAppender();
     issues.forEach(diskAppender::append);
     diskAppender.close();
     analysisMetadataHolder.setProject(Project.from(project));
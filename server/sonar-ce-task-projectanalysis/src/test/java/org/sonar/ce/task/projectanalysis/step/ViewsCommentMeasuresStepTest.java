@@ -22,6 +22,7 @@ package org.sonar.ce.task.projectanalysis.step;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.ce.task.projectanalysis.measure.MeasureRepositoryRule;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepositoryRule;
@@ -72,7 +73,7 @@ public class ViewsCommentMeasuresStepTest {
   @Rule
   public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
 
-  ComputationStep underTest = new CommentMeasuresStep(treeRootHolder, metricRepository, measureRepository);
+  ComputationStep underTest = new CommentMeasuresStep(treeRootHolder, metricRepository, measureRepository, new MapSettings().asConfig());
 
   @Before
   public void setUp() throws Exception {
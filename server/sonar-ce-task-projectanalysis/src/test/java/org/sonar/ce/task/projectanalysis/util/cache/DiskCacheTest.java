@@ -19,15 +19,14 @@
  */
 package org.sonar.ce.task.projectanalysis.util.cache;
 
+import com.google.protobuf.StringValue;
+import java.io.File;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
@@ -38,7 +37,7 @@ public class DiskCacheTest {
 
   @Test
   public void write_and_read() throws Exception {
-    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE);
+    DiskCache<String, StringValue> cache = new StringCache(temp.newFile());
     try (CloseableIterator<String> traverse = cache.traverse()) {
       assertThat(traverse).isExhausted();
     }
@@ -55,7 +54,7 @@ public class DiskCacheTest {
   @Test
   public void fail_if_file_is_not_writable() throws Exception {
     try {
-      new DiskCache<>(temp.newFolder(), System2.INSTANCE);
+      new StringCache(temp.newFolder());
       fail();
     } catch (IllegalStateException e) {
       assertThat(e).hasMessageContaining("Fail to write into file");
@@ -64,17 +63,33 @@ public class DiskCacheTest {
 
   @Test
   public void fail_to_serialize() throws Exception {
-    class Unserializable implements Serializable {
-      private void writeObject(ObjectOutputStream out) {
+    DiskCache<String, StringValue> cache = new StringCache(temp.newFile()) {
+      @Override
+      protected StringValue toMessage(String object) {
         throw new UnsupportedOperationException("expected error");
       }
-    }
-    DiskCache<Serializable> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE);
+    };
     try {
-      cache.newAppender().append(new Unserializable());
+      cache.newAppender().append("foo");
       fail();
     } catch (UnsupportedOperationException e) {
       assertThat(e).hasMessage("expected error");
     }
   }
+
+  private static class StringCache extends DiskCache<String, StringValue> {
+    StringCache(File file) {
+      super(file, System2.INSTANCE, StringValue.parser());
+    }
+
+    @Override
+    protected StringValue toMessage(String object) {
+      return StringValue.newBuilder().setValue(object).build();
+    }
+
+    @Override
+    protected String fromMessage(StringValue message) {
+      return message.getValue();
+    }
+  }
 }
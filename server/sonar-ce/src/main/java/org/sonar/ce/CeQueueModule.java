@@ -21,6 +21,7 @@ package org.sonar.ce;
 
 import org.sonar.ce.monitoring.CeTasksMBeanImpl;
 import org.sonar.ce.queue.CeQueueInitializer;
+import org.sonar.ce.queue.CeQueueSignal;
 import org.sonar.ce.queue.InternalCeQueueImpl;
 import org.sonar.core.platform.Module;
 
@@ -30,6 +31,7 @@ public class CeQueueModule extends Module {
     add(
       // queue state
       InternalCeQueueImpl.class,
+      CeQueueSignal.class,
 
       // queue monitoring
       CeTasksMBeanImpl.class,
@@ -19,8 +19,10 @@
  */
 package org.sonar.ce;
 
+import org.sonar.ce.task.projectanalysis.purge.DeferredProjectCleaner;
 import org.sonar.ce.task.projectanalysis.purge.IndexPurgeListener;
 import org.sonar.ce.task.projectanalysis.purge.ProjectCleaner;
+import org.sonar.ce.task.projectanalysis.purge.ProjectCleanerExecutorServiceImpl;
 import org.sonar.core.platform.Module;
 import org.sonar.db.purge.period.DefaultPeriodCleaner;
 
@@ -33,6 +35,8 @@ public class CeTaskCommonsModule extends Module {
     add(
       DefaultPeriodCleaner.class,
       ProjectCleaner.class,
+      ProjectCleanerExecutorServiceImpl.class,
+      DeferredProjectCleaner.class,
       IndexPurgeListener.class);
   }
 }
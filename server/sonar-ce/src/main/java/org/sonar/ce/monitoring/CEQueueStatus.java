@@ -65,6 +65,31 @@ public interface CEQueueStatus {
    */
   long addError(long processingTime);
 
+  /**
+   * Adds 1 to the count of polls of the queue in database which returned a task. Adds the specified time to the
+   * queue time counter.
+   *
+   * @param queueTime duration, in ms, the task waited in the queue before being picked by a worker
+   *
+   * @return the new count of polls of the queue in database
+   *
+   * @see #getPollCount()
+   * @see #getQueueTime()
+   *
+   * @throws IllegalArgumentException if queueTime is < 0
+   */
+  long addPoll(long queueTime);
+
+  /**
+   * Adds 1 to the count of polls of the queue in database which returned no task.
+   *
+   * @return the new count of polls of the queue in database
+   *
+   * @see #getPollCount()
+   * @see #getEmptyPollCount()
+   */
+  long addEmptyPoll();
+
   /**
    * Number of pending tasks, including tasks received before instance startup.
    */
@@ -95,5 +120,20 @@ public interface CEQueueStatus {
    */
   long getProcessingTime();
 
+  /**
+   * Count of polls of the queue in database since instance startup.
+   */
+  long getPollCount();
+
+  /**
+   * Count of polls of the queue in database which returned no task since instance startup.
+   */
+  long getEmptyPollCount();
+
+  /**
+   * Time spent in the queue by the tasks picked since startup, in milliseconds.
+   */
+  long getQueueTime();
+
   boolean areWorkersPaused();
 }
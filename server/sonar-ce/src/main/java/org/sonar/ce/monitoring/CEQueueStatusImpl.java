@@ -37,6 +37,9 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final AtomicLong polls = new AtomicLong(0);
+  private final AtomicLong emptyPolls = new AtomicLong(0);
+  private final AtomicLong queueTime = new AtomicLong(0);
 
   public CEQueueStatusImpl(DbClient dbClient, System2 system) {
     this.dbClient = dbClient;
@@ -67,6 +70,19 @@ public class CEQueueStatusImpl implements CEQueueStatus {
     processingTime.addAndGet(ms);
   }
 
+  @Override
+  public long addPoll(long queueTimeInMs) {
+    checkArgument(queueTimeInMs >= 0, "Queue time can not be < 0");
+    queueTime.addAndGet(queueTimeInMs);
+    return polls.incrementAndGet();
+  }
+
+  @Override
+  public long addEmptyPoll() {
+    emptyPolls.incrementAndGet();
+    return polls.incrementAndGet();
+  }
+
   @Override
   public long getPendingCount() {
     try (DbSession dbSession = dbClient.openSession(false)) {
@@ -109,4 +125,19 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   public long getProcessingTime() {
     return processingTime.get();
   }
+
+  @Override
+  public long getPollCount() {
+    return polls.get();
+  }
+
+  @Override
+  public long getEmptyPollCount() {
+    return emptyPolls.get();
+  }
+
+  @Override
+  public long getQueueTime() {
+    return queueTime.get();
+  }
 }
@@ -56,6 +56,21 @@ public interface CeTasksMBean {
    */
   long getProcessingTime();
 
+  /**
+   * Count of polls of the queue in database since instance startup.
+   */
+  long getPollCount();
+
+  /**
+   * Count of polls of the queue in database which returned no task since instance startup.
+   */
+  long getEmptyPollCount();
+
+  /**
+   * Time spent in the queue by the tasks picked by workers since startup, in milliseconds.
+   */
+  long getQueueTime();
+
   /**
    * Configured maximum number of workers.
    */
@@ -69,4 +84,24 @@ public interface CeTasksMBean {
   List<String> getWorkerUuids();
 
   List<String> getEnabledWorkerUuids();
+
+  /**
+   * Number of purges of project history waiting to be executed.
+   */
+  long getPendingPurgeCount();
+
+  /**
+   * Count of purges of project history which ended successfully since instance startup.
+   */
+  long getPurgeSuccessCount();
+
+  /**
+   * Count of purges of project history which ended with an error since instance startup.
+   */
+  long getPurgeErrorCount();
+
+  /**
+   * Time spent purging project history since startup, in milliseconds.
+   */
+  long getPurgeProcessingTime();
 }
@@ -25,6 +25,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import org.picocontainer.Startable;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.task.projectanalysis.purge.DeferredProjectCleaner;
 import org.sonar.ce.taskprocessor.CeWorker;
 import org.sonar.ce.taskprocessor.CeWorkerController;
 import org.sonar.ce.taskprocessor.CeWorkerFactory;
@@ -37,12 +38,15 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
   private final CeConfiguration ceConfiguration;
   private final CeWorkerFactory ceWorkerFactory;
   private final CeWorkerController ceWorkerController;
+  private final DeferredProjectCleaner deferredProjectCleaner;
 
-  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration, CeWorkerFactory ceWorkerFactory, CeWorkerController CeWorkerController) {
+  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration, CeWorkerFactory ceWorkerFactory, CeWorkerController CeWorkerController,
+    DeferredProjectCleaner deferredProjectCleaner) {
     this.queueStatus = queueStatus;
     this.ceConfiguration = ceConfiguration;
     this.ceWorkerFactory = ceWorkerFactory;
     this.ceWorkerController = CeWorkerController;
+    this.deferredProjectCleaner = deferredProjectCleaner;
   }
 
   @Override
@@ -88,6 +92,21 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return queueStatus.getProcessingTime();
   }
 
+  @Override
+  public long getPollCount() {
+    return queueStatus.getPollCount();
+  }
+
+  @Override
+  public long getEmptyPollCount() {
+    return queueStatus.getEmptyPollCount();
+  }
+
+  @Override
+  public long getQueueTime() {
+    return queueStatus.getQueueTime();
+  }
+
   @Override
   public int getWorkerMaxCount() {
     return ceConfiguration.getWorkerMaxCount();
@@ -117,6 +136,26 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
       .collect(Collectors.toList());
   }
 
+  @Override
+  public long getPendingPurgeCount() {
+    return deferredProjectCleaner.getPendingCount();
+  }
+
+  @Override
+  public long getPurgeSuccessCount() {
+    return deferredProjectCleaner.getSuccessCount();
+  }
+
+  @Override
+  public long getPurgeErrorCount() {
+    return deferredProjectCleaner.getErrorCount();
+  }
+
+  @Override
+  public long getPurgeProcessingTime() {
+    return deferredProjectCleaner.getProcessingTime();
+  }
+
   @Override
   public ProtobufSystemInfo.Section toProtobuf() {
     ProtobufSystemInfo.Section.Builder builder = ProtobufSystemInfo.Section.newBuilder();
@@ -127,9 +166,16 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     builder.addAttributesBuilder().setKey("Processed With Error").setLongValue(getErrorCount()).build();
     builder.addAttributesBuilder().setKey("Processed With Success").setLongValue(getSuccessCount()).build();
     builder.addAttributesBuilder().setKey("Processing Time (ms)").setLongValue(getProcessingTime()).build();
+    builder.addAttributesBuilder().setKey("Queue Polls").setLongValue(getPollCount()).build();
+    builder.addAttributesBuilder().setKey("Empty Queue Polls").setLongValue(getEmptyPollCount()).build();
+    builder.addAttributesBuilder().setKey("Queue Time (ms)").setLongValue(getQueueTime()).build();
     builder.addAttributesBuilder().setKey("Worker Count").setLongValue(getWorkerCount()).build();
     builder.addAttributesBuilder().setKey("Max Worker Count").setLongValue(getWorkerMaxCount()).build();
     builder.addAttributesBuilder().setKey("Workers Paused").setBooleanValue(queueStatus.areWorkersPaused()).build();
+    builder.addAttributesBuilder().setKey("Pending Purges").setLongValue(getPendingPurgeCount()).build();
+    builder.addAttributesBuilder().setKey("Purges With Success").setLongValue(getPurgeSuccessCount()).build();
+    builder.addAttributesBuilder().setKey("Purges With Error").setLongValue(getPurgeErrorCount()).build();
+    builder.addAttributesBuilder().setKey("Purge Processing Time (ms)").setLongValue(getPurgeProcessingTime()).build();
     return builder.build();
   }
 }
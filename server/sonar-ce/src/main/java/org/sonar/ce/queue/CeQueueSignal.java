@@ -0,0 +1,111 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.spi.exception.RetryableHazelcastException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_QUEUE_SUBMITS;
+
+/**
+ * Wakes up the workers waiting for their next poll of the queue as soon as tasks are submitted, whether they are
+ * submitted by this Compute Engine, by the Web Server of the same node (see {@link WakeUpWorkersHttpAction}) or,
+ * in a cluster, by any other node (see {@link org.sonar.process.cluster.hz.HazelcastObjects#CE_QUEUE_SUBMITS}).
+ */
+@ComputeEngineSide
+public class CeQueueSignal implements CeQueueListener, Startable {
+  private static final Logger LOGGER = Loggers.get(CeQueueSignal.class);
+
+  @CheckForNull
+  private final HazelcastMember hazelcastMember;
+  private final List<Runnable> wakeUpListeners = new CopyOnWriteArrayList<>();
+  @CheckForNull
+  private String registrationId;
+
+  public CeQueueSignal(@Nullable HazelcastMember hazelcastMember) {
+    this.hazelcastMember = hazelcastMember;
+  }
+
+  public CeQueueSignal() {
+    this(null);
+  }
+
+  @Override
+  public void start() {
+    if (hazelcastMember != null) {
+      registrationId = getTopic().addMessageListener(this::onClusterSubmit);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (hazelcastMember != null && registrationId != null) {
+      try {
+        getTopic().removeMessageListener(registrationId);
+      } catch (RetryableHazelcastException e) {
+        LOGGER.debug("Unable to unregister from the topic of submitted tasks", e);
+      }
+      registrationId = null;
+    }
+  }
+
+  /**
+   * Registers a listener which is called, possibly concurrently, each time the workers must be woken up.
+   */
+  public void addWakeUpListener(Runnable listener) {
+    wakeUpListeners.add(listener);
+  }
+
+  /**
+   * Called when tasks are submitted by this Compute Engine.
+   */
+  @Override
+  public void onSubmit() {
+    wakeUp();
+    if (hazelcastMember != null) {
+      getTopic().publish(hazelcastMember.getUuid());
+    }
+  }
+
+  public void wakeUp() {
+    wakeUpListeners.forEach(Runnable::run);
+  }
+
+  private void onClusterSubmit(Message<String> message) {
+    // local workers have already been woken up when this node is the one which submitted the tasks
+    if (!hazelcastMember.getUuid().equals(message.getMessageObject())) {
+      wakeUp();
+    }
+  }
+
+  private ITopic<String> getTopic() {
+    return hazelcastMember.getTopic(CE_QUEUE_SUBMITS);
+  }
+}
@@ -60,13 +60,15 @@ import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue {
   private static final Logger LOG = Loggers.get(InternalCeQueueImpl.class);
 
+  private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
   private final ComputeEngineStatus computeEngineStatus;
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
-    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus) {
-    super(system2, dbClient, uuidFactory, defaultOrganizationProvider);
+    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus, CeQueueListener[] listeners) {
+    super(system2, dbClient, uuidFactory, defaultOrganizationProvider, listeners);
+    this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
     this.computeEngineStatus = computeEngineStatus;
@@ -96,9 +98,12 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
         CeTask task = convertToTask(dbSession, taskDto, characteristics,
           ofNullable(taskDto.getComponentUuid()).map(componentsByUuid::get).orElse(null),
           ofNullable(taskDto.getMainComponentUuid()).map(componentsByUuid::get).orElse(null));
+        // creation date is set by the node which submitted the task, clocks of the nodes of a cluster may differ a bit
+        queueStatus.addPoll(Math.max(0L, system2.now() - taskDto.getCreatedAt()));
         queueStatus.addInProgress();
         return Optional.of(task);
       }
+      queueStatus.addEmptyPoll();
       return Optional.empty();
     }
   }
@@ -25,12 +25,15 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.queue.CeQueueSignal;
 
 import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -39,6 +42,8 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
   // 30 seconds
   private static final long DELAY_BETWEEN_DISABLED_TASKS = 30 * 1000L;
+  // delay between polls of an idle worker is doubled after each empty poll, up to 8 times the polling delay
+  private static final int MAX_BACKOFF_SHIFT = 3;
 
   private final CeProcessingSchedulerExecutorService executorService;
   private final long delayBetweenEnabledTasks;
@@ -46,11 +51,13 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private final ChainingCallback[] chainingCallbacks;
   private final CeWorkerController ceWorkerController;
   private final long gracefulStopTimeoutInMs;
+  private final CeQueueSignal ceQueueSignal;
 
   public CeProcessingSchedulerImpl(CeConfiguration ceConfiguration,
     CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerFactory ceCeWorkerFactory,
-    CeWorkerController ceWorkerController) {
+    CeWorkerController ceWorkerController, CeQueueSignal ceQueueSignal) {
     this.executorService = processingExecutorService;
+    this.ceQueueSignal = ceQueueSignal;
 
     this.delayBetweenEnabledTasks = ceConfiguration.getQueuePollingDelay();
     this.gracefulStopTimeoutInMs = ceConfiguration.getGracefulStopTimeoutInMs();
@@ -71,6 +78,15 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
       ListenableScheduledFuture<CeWorker.Result> future = executorService.schedule(chainingCallback.worker, delayBetweenEnabledTasks, timeUnit);
       addCallback(future, chainingCallback, MoreExecutors.directExecutor());
     }
+    ceQueueSignal.addWakeUpListener(this::wakeUpWorkers);
+  }
+
+  /**
+   * Workers waiting for their next poll of the queue poll it right away. Workers processing a task, or which are
+   * disabled, are not affected.
+   */
+  void wakeUpWorkers() {
+    Arrays.stream(chainingCallbacks).forEach(ChainingCallback::wakeUp);
   }
 
   /**
@@ -146,9 +162,13 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
     private volatile boolean keepRunning = true;
     private volatile boolean interrupted = false;
     private final CeWorker worker;
+    // callbacks of a worker are called one at a time, each once the previous run of the worker is done
+    private int emptyPollCount = 0;
 
     @CheckForNull
     private ListenableFuture<CeWorker.Result> workerFuture;
+    @CheckForNull
+    private volatile DelayedPoll delayedPoll;
 
     public ChainingCallback(CeWorker worker) {
       this.worker = worker;
@@ -180,17 +200,24 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
       if (t instanceof Error) {
         LOG.error("Compute Engine execution failed. Scheduled processing interrupted.", t);
       } else if (keepRunning) {
+        // also the case of a delayed poll cancelled by wakeUp()
         chainWithoutDelay();
       }
     }
 
     private void chainWithoutDelay() {
+      emptyPollCount = 0;
       workerFuture = executorService.submit(worker);
       addCallback();
     }
 
     private void chainWithEnabledTaskDelay() {
-      workerFuture = executorService.schedule(worker, delayBetweenEnabledTasks, timeUnit);
+      long delay = delayBetweenEnabledTasks << Math.min(emptyPollCount, MAX_BACKOFF_SHIFT);
+      emptyPollCount++;
+      DelayedPoll poll = new DelayedPoll(worker);
+      workerFuture = executorService.schedule(poll, delay, timeUnit);
+      poll.future = workerFuture;
+      delayedPoll = poll;
       addCallback();
     }
 
@@ -205,6 +232,16 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
       }
     }
 
+    /**
+     * Cancels the pending delayed poll, if any, so that the worker is chained without delay by {@link #onFailure(Throwable)}.
+     */
+    public void wakeUp() {
+      DelayedPoll poll = delayedPoll;
+      if (keepRunning && poll != null && poll.cancel()) {
+        poll.future.cancel(false);
+      }
+    }
+
     public void stop(boolean interrupt) {
       keepRunning = false;
       if (workerFuture != null) {
@@ -217,4 +254,38 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
       return interrupted;
     }
   }
+
+  /**
+   * Poll of the queue by a worker which has been delayed because the previous poll returned no task.
+   * <p>
+   * Either the poll starts or it is cancelled (see {@link #cancel()}), never both, so that the worker never runs
+   * twice concurrently when a wake-up races with the end of the delay.
+   * </p>
+   */
+  static final class DelayedPoll implements Callable<CeWorker.Result> {
+    private final CeWorker worker;
+    private final AtomicBoolean pending = new AtomicBoolean(true);
+    private ListenableFuture<CeWorker.Result> future;
+
+    private DelayedPoll(CeWorker worker) {
+      this.worker = worker;
+    }
+
+    CeWorker getWorker() {
+      return worker;
+    }
+
+    @Override
+    public CeWorker.Result call() throws Exception {
+      if (pending.compareAndSet(true, false)) {
+        return worker.call();
+      }
+      // cancelled by a wake-up while starting: the worker must poll the queue again right away
+      return CeWorker.Result.TASK_PROCESSED;
+    }
+
+    private boolean cancel() {
+      return pending.compareAndSet(true, false);
+    }
+  }
 }
@@ -106,14 +106,14 @@ public class ComputeEngineContainerImplTest {
             + 63 // level 4
             + 7 // content of IssuesChangesNotificationModule
             + 6 // content of CeConfigurationModule
-            + 4 // content of CeQueueModule
-            + 3 // content of CeHttpModule
-            + 3 // content of CeTaskCommonsModule
+            + 5 // content of CeQueueModule
+            + 4 // content of CeHttpModule
+            + 5 // content of CeTaskCommonsModule
             + 4 // content of ProjectAnalysisTaskModule
             + 9 // content of CeTaskProcessorModule
             + 3 // content of ReportAnalysisFailureNotificationModule
             + 3 // CeCleaningModule + its content
-            + 4 // WebhookModule
+            + 5 // WebhookModule
             + 1 // CeDistributedInformation
         );
       assertThat(picoContainer.getParent().getComponentAdapters()).hasSize(
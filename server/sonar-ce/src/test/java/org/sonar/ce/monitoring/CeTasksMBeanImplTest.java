@@ -35,6 +35,7 @@ import javax.management.ObjectName;
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Test;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.task.projectanalysis.purge.DeferredProjectCleaner;
 import org.sonar.ce.taskprocessor.CeWorker;
 import org.sonar.ce.taskprocessor.CeWorkerController;
 import org.sonar.ce.taskprocessor.CeWorkerFactory;
@@ -52,8 +53,15 @@ public class CeTasksMBeanImplTest {
   private static final long ERROR_COUNT = 10;
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
+  private static final long POLL_COUNT = 215;
+  private static final long EMPTY_POLL_COUNT = 197;
+  private static final long QUEUE_TIME = 4_321;
   private static final int WORKER_MAX_COUNT = 666;
   private static final int WORKER_COUNT = 56;
+  private static final long PENDING_PURGE_COUNT = 3;
+  private static final long PURGE_SUCCESS_COUNT = 24;
+  private static final long PURGE_ERROR_COUNT = 1;
+  private static final long PURGE_PROCESSING_TIME = 6_543;
   private static final Set<CeWorker> WORKERS = IntStream.range(0, 2 + new Random().nextInt(10))
     .mapToObj(i -> RandomStringUtils.randomAlphabetic(15))
     .map(uuid -> {
@@ -64,7 +72,9 @@ public class CeTasksMBeanImplTest {
     .collect(MoreCollectors.toSet());
 
   private CeWorkerController ceWorkerController = mock(CeWorkerController.class);
-  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration(), new DumbCeWorkerFactory(), ceWorkerController);
+  private DeferredProjectCleaner deferredProjectCleaner = mock(DeferredProjectCleaner.class);
+  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration(), new DumbCeWorkerFactory(), ceWorkerController,
+    deferredProjectCleaner);
 
   @Test
   public void register_and_unregister() throws Exception {
@@ -98,6 +108,22 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getPollCount()).isEqualTo(POLL_COUNT);
+    assertThat(underTest.getEmptyPollCount()).isEqualTo(EMPTY_POLL_COUNT);
+    assertThat(underTest.getQueueTime()).isEqualTo(QUEUE_TIME);
+  }
+
+  @Test
+  public void purge_get_methods_delegate_to_the_DeferredProjectCleaner_instance() {
+    when(deferredProjectCleaner.getPendingCount()).thenReturn(PENDING_PURGE_COUNT);
+    when(deferredProjectCleaner.getSuccessCount()).thenReturn(PURGE_SUCCESS_COUNT);
+    when(deferredProjectCleaner.getErrorCount()).thenReturn(PURGE_ERROR_COUNT);
+    when(deferredProjectCleaner.getProcessingTime()).thenReturn(PURGE_PROCESSING_TIME);
+
+    assertThat(underTest.getPendingPurgeCount()).isEqualTo(PENDING_PURGE_COUNT);
+    assertThat(underTest.getPurgeSuccessCount()).isEqualTo(PURGE_SUCCESS_COUNT);
+    assertThat(underTest.getPurgeErrorCount()).isEqualTo(PURGE_ERROR_COUNT);
+    assertThat(underTest.getPurgeProcessingTime()).isEqualTo(PURGE_PROCESSING_TIME);
   }
 
   @Test
@@ -145,7 +171,7 @@ public class CeTasksMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(9);
+    assertThat(section.getAttributesCount()).isEqualTo(16);
   }
 
   private static class DumbCEQueueStatus implements CEQueueStatus {
@@ -195,6 +221,31 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public long addPoll(long queueTime) {
+      return methodNotImplemented();
+    }
+
+    @Override
+    public long addEmptyPoll() {
+      return methodNotImplemented();
+    }
+
+    @Override
+    public long getPollCount() {
+      return POLL_COUNT;
+    }
+
+    @Override
+    public long getEmptyPollCount() {
+      return EMPTY_POLL_COUNT;
+    }
+
+    @Override
+    public long getQueueTime() {
+      return QUEUE_TIME;
+    }
+
     @Override
     public boolean areWorkersPaused() {
       return false;
@@ -35,6 +35,7 @@ import static org.mockito.Mockito.when;
 public abstract class CommonCEQueueStatusImplTest {
   private static final int SOME_RANDOM_MAX = 96535;
   private static final int SOME_PROCESSING_TIME = 8723;
+  private static final int SOME_QUEUE_TIME = 1234;
 
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
@@ -57,6 +58,9 @@ public abstract class CommonCEQueueStatusImplTest {
     assertThat(getUnderTest().getErrorCount()).isEqualTo(0);
     assertThat(getUnderTest().getSuccessCount()).isEqualTo(0);
     assertThat(getUnderTest().getProcessingTime()).isEqualTo(0);
+    assertThat(getUnderTest().getPollCount()).isEqualTo(0);
+    assertThat(getUnderTest().getEmptyPollCount()).isEqualTo(0);
+    assertThat(getUnderTest().getQueueTime()).isEqualTo(0);
   }
 
   @Test
@@ -140,6 +144,34 @@ public abstract class CommonCEQueueStatusImplTest {
     assertThat(getUnderTest().getProcessingTime()).isEqualTo(calls);
   }
 
+  @Test
+  public void addPoll_throws_IAE_if_time_is_less_than_0() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Queue time can not be < 0");
+
+    getUnderTest().addPoll(-1);
+  }
+
+  @Test
+  public void addPoll_increases_Poll_and_QueueTime() {
+    getUnderTest().addPoll(SOME_QUEUE_TIME);
+    getUnderTest().addPoll(SOME_QUEUE_TIME);
+
+    assertThat(getUnderTest().getPollCount()).isEqualTo(2);
+    assertThat(getUnderTest().getEmptyPollCount()).isEqualTo(0);
+    assertThat(getUnderTest().getQueueTime()).isEqualTo(2 * SOME_QUEUE_TIME);
+  }
+
+  @Test
+  public void addEmptyPoll_increases_Poll_and_EmptyPoll() {
+    getUnderTest().addPoll(SOME_QUEUE_TIME);
+    getUnderTest().addEmptyPoll();
+
+    assertThat(getUnderTest().getPollCount()).isEqualTo(2);
+    assertThat(getUnderTest().getEmptyPollCount()).isEqualTo(1);
+    assertThat(getUnderTest().getQueueTime()).isEqualTo(SOME_QUEUE_TIME);
+  }
+
   @Test
   public void workers_pause_is_loaded_from_db() {
     when(dbClient.internalPropertiesDao().selectByKey(any(), eq(InternalProperties.COMPUTE_ENGINE_PAUSE))).thenReturn(Optional.of("true"));
@@ -0,0 +1,131 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_QUEUE_SUBMITS;
+
+public class CeQueueSignalTest {
+
+  private static final String LOCAL_UUID = "local_uuid";
+
+  private Runnable wakeUpListener = mock(Runnable.class);
+  private HazelcastMember hazelcastMember = mock(HazelcastMember.class);
+  private ITopic<String> topic = mock(ITopic.class);
+
+  @Test
+  public void wakeUp_calls_all_listeners() {
+    Runnable otherListener = mock(Runnable.class);
+    CeQueueSignal underTest = new CeQueueSignal();
+    underTest.addWakeUpListener(wakeUpListener);
+    underTest.addWakeUpListener(otherListener);
+
+    underTest.wakeUp();
+
+    verify(wakeUpListener).run();
+    verify(otherListener).run();
+  }
+
+  @Test
+  public void onSubmit_wakes_up_local_workers_in_standalone_mode() {
+    CeQueueSignal underTest = new CeQueueSignal();
+    underTest.addWakeUpListener(wakeUpListener);
+    underTest.start();
+
+    underTest.onSubmit();
+
+    verify(wakeUpListener).run();
+  }
+
+  @Test
+  public void onSubmit_wakes_up_local_workers_and_publishes_to_topic_in_cluster_mode() {
+    CeQueueSignal underTest = newClusteredSignal();
+    underTest.start();
+
+    underTest.onSubmit();
+
+    verify(wakeUpListener).run();
+    verify(topic).publish(LOCAL_UUID);
+  }
+
+  @Test
+  public void wakes_up_local_workers_when_tasks_are_submitted_by_another_node() {
+    CeQueueSignal underTest = newClusteredSignal();
+    underTest.start();
+    MessageListener<String> messageListener = captureMessageListener();
+
+    messageListener.onMessage(newMessage("other_uuid"));
+
+    verify(wakeUpListener).run();
+  }
+
+  @Test
+  public void ignores_message_published_by_itself() {
+    CeQueueSignal underTest = newClusteredSignal();
+    underTest.start();
+    MessageListener<String> messageListener = captureMessageListener();
+
+    messageListener.onMessage(newMessage(LOCAL_UUID));
+
+    verifyZeroInteractions(wakeUpListener);
+  }
+
+  @Test
+  public void stop_unregisters_from_topic() {
+    when(topic.addMessageListener(any())).thenReturn("registration_id");
+    CeQueueSignal underTest = newClusteredSignal();
+    underTest.start();
+
+    underTest.stop();
+    underTest.stop();
+
+    verify(topic, times(1)).removeMessageListener("registration_id");
+  }
+
+  private CeQueueSignal newClusteredSignal() {
+    when(hazelcastMember.<String>getTopic(CE_QUEUE_SUBMITS)).thenReturn(topic);
+    when(hazelcastMember.getUuid()).thenReturn(LOCAL_UUID);
+    CeQueueSignal underTest = new CeQueueSignal(hazelcastMember);
+    underTest.addWakeUpListener(wakeUpListener);
+    return underTest;
+  }
+
+  private MessageListener<String> captureMessageListener() {
+    ArgumentCaptor<MessageListener<String>> captor = ArgumentCaptor.forClass(MessageListener.class);
+    verify(topic).addMessageListener(captor.capture());
+    return captor.getValue();
+  }
+
+  private Message<String> newMessage(String publisherUuid) {
+    return new Message<>(CE_QUEUE_SUBMITS, publisherUuid, 0L, null);
+  }
+}
@@ -83,7 +83,8 @@ public class InternalCeQueueImplTest {
   private CEQueueStatus queueStatus = new CEQueueStatusImpl(db.getDbClient(), mock(System2.class));
   private DefaultOrganizationProvider defaultOrganizationProvider = mock(DefaultOrganizationProvider.class);
   private ComputeEngineStatus computeEngineStatus = mock(ComputeEngineStatus.class);
-  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, db.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus);
+  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, db.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus,
+    new CeQueueListener[0]);
 
   @Before
   public void setUp() {
@@ -259,7 +260,7 @@ public class InternalCeQueueImplTest {
     db.getDbClient().ceQueueDao().deleteByUuid(db.getSession(), task.getUuid());
     db.commit();
 
-    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatus, null, null);
+    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatus, null, null, new CeQueueListener[0]);
 
     try {
       underTest.remove(task, CeActivityDto.Status.SUCCESS, null, null);
@@ -276,7 +277,7 @@ public class InternalCeQueueImplTest {
     CeTask task = submit(CeTaskTypes.REPORT, newProjectDto("PROJECT_1"));
     db.getDbClient().ceQueueDao().deleteByUuid(db.getSession(), task.getUuid());
     db.commit();
-    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatusMock, null, null);
+    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatusMock, null, null, new CeQueueListener[0]);
 
     try {
       underTest.remove(task, CeActivityDto.Status.FAILED, null, null);
@@ -293,7 +294,7 @@ public class InternalCeQueueImplTest {
     CeTask task = submit(CeTaskTypes.REPORT, newProjectDto("PROJECT_1"));
     db.executeUpdateSql("update ce_queue set status = 'PENDING', started_at = 123 where uuid = '" + task.getUuid() + "'");
     db.commit();
-    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatusMock, null, null);
+    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatusMock, null, null, new CeQueueListener[0]);
 
     underTest.cancelWornOuts();
 
@@ -413,6 +414,29 @@ public class InternalCeQueueImplTest {
     assertThat(peek.isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_counts_polls_of_the_queue_and_time_spent_in_queue() {
+    submit(CeTaskTypes.REPORT, newProjectDto("PROJECT_1"));
+
+    assertThat(underTest.peek(WORKER_UUID_1)).isPresent();
+    assertThat(queueStatus.getPollCount()).isEqualTo(1);
+    assertThat(queueStatus.getEmptyPollCount()).isEqualTo(0);
+    assertThat(queueStatus.getQueueTime()).isPositive();
+
+    assertThat(underTest.peek(WORKER_UUID_2)).isEmpty();
+    assertThat(queueStatus.getPollCount()).isEqualTo(2);
+    assertThat(queueStatus.getEmptyPollCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void peek_does_not_count_polls_if_application_status_stopping() {
+    submit(CeTaskTypes.REPORT, newProjectDto("PROJECT_1"));
+    when(computeEngineStatus.getStatus()).thenReturn(STOPPING);
+
+    assertThat(underTest.peek(WORKER_UUID_1)).isEmpty();
+    assertThat(queueStatus.getPollCount()).isEqualTo(0);
+  }
+
   @Test
   public void peek_peeks_pending_task() {
     db.getDbClient().ceQueueDao().insert(session, new CeQueueDto()
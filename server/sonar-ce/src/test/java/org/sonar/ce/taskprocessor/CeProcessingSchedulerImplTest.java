@@ -48,6 +48,7 @@ import org.junit.rules.DisableOnDebug;
 import org.junit.rules.TestRule;
 import org.junit.rules.Timeout;
 import org.sonar.ce.configuration.CeConfigurationRule;
+import org.sonar.ce.queue.CeQueueSignal;
 
 import static com.google.common.collect.ImmutableList.copyOf;
 import static java.util.Collections.emptySet;
@@ -77,10 +78,15 @@ public class CeProcessingSchedulerImplTest {
   private StubCeProcessingSchedulerExecutorService processingExecutorService = new StubCeProcessingSchedulerExecutorService();
   private SchedulerCall regularDelayedPoll = new SchedulerCall(ceWorker, 2000L, MILLISECONDS);
   private SchedulerCall extendedDelayedPoll = new SchedulerCall(ceWorker, 30000L, MILLISECONDS);
+  private SchedulerCall doubleDelayedPoll = new SchedulerCall(ceWorker, 4000L, MILLISECONDS);
+  private SchedulerCall quadrupleDelayedPoll = new SchedulerCall(ceWorker, 8000L, MILLISECONDS);
+  private SchedulerCall maxDelayedPoll = new SchedulerCall(ceWorker, 16000L, MILLISECONDS);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorker);
   private CeWorkerController ceWorkerController = new CeWorkerControllerImpl(ceConfiguration);
+  private CeQueueSignal ceQueueSignal = new CeQueueSignal();
 
-  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController);
+  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController,
+    ceQueueSignal);
 
   @Test
   public void polls_without_delay_when_CeWorkerCallable_returns_TASK_PROCESSED() throws Exception {
@@ -159,6 +165,89 @@ public class CeProcessingSchedulerImplTest {
       regularDelayedPoll,
       notDelayedPoll,
       regularDelayedPoll,
+      doubleDelayedPoll,
+      quadrupleDelayedPoll);
+  }
+
+  @Test
+  public void delay_between_empty_polls_doubles_up_to_8_times_the_polling_delay() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(TASK_PROCESSED)
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      doubleDelayedPoll,
+      quadrupleDelayedPoll,
+      maxDelayedPoll,
+      maxDelayedPoll,
+      notDelayedPoll,
+      regularDelayedPoll);
+  }
+
+  @Test
+  public void wakeUp_polls_without_delay_when_worker_waits_for_delayed_poll() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(TASK_PROCESSED)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    // initial poll, followed by a delayed poll
+    processingExecutorService.futures.poll().get();
+    // second poll, followed by a doubly delayed poll which is cancelled by the wake-up
+    processingExecutorService.futures.poll().get();
+    ceQueueSignal.wakeUp();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      doubleDelayedPoll,
+      notDelayedPoll,
+      notDelayedPoll);
+    verify(ceWorker, times(4)).call();
+  }
+
+  @Test
+  public void wakeUp_has_no_effect_on_disabled_worker() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(DISABLED)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    processingExecutorService.futures.poll().get();
+    ceQueueSignal.wakeUp();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      extendedDelayedPoll);
+  }
+
+  @Test
+  public void wakeUp_has_no_effect_once_scheduling_is_stopped() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    processingExecutorService.futures.poll().get();
+    underTest.hardStopScheduling();
+    ceQueueSignal.wakeUp();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
       regularDelayedPoll);
   }
@@ -257,7 +346,8 @@ public class CeProcessingSchedulerImplTest {
     when(processingExecutorService.schedule(any(CeWorker.class), any(Long.class), any(TimeUnit.class))).thenReturn(listenableScheduledFuture);
 
     CeWorkerFactory ceWorkerFactory = spy(new TestCeWorkerFactory(workers));
-    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController,
+      ceQueueSignal);
     when(processingExecutorService.schedule(ceWorker, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
       .thenReturn(listenableScheduledFuture);
 
@@ -595,7 +685,7 @@ public class CeProcessingSchedulerImplTest {
     private final TimeUnit unit;
 
     private SchedulerCall(Callable<?> callable, long delay, TimeUnit unit) {
-      this.callable = callable;
+      this.callable = callable instanceof CeProcessingSchedulerImpl.DelayedPoll ? ((CeProcessingSchedulerImpl.DelayedPoll) callable).getWorker() : callable;
       this.delay = delay;
       this.unit = unit;
     }
@@ -77,6 +77,7 @@ public final class SqTables {
     "issue_changes",
     "live_measures",
     "manual_measures",
+    "measure_series",
     "metrics",
     "new_code_periods",
     "notifications",
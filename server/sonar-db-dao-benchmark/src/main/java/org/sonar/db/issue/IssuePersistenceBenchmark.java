@@ -0,0 +1,283 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.issue;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.ibatis.executor.BatchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.core.util.Uuids;
+import org.sonar.db.BatchSession;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+
+/**
+ * Persistence of the issues of an analysis, as done by PersistIssuesStep of the Compute Engine: insertion of new
+ * issues and of their changes (multi-row statements, {@code insert*}) and update of existing issues (JDBC batch
+ * flushed by partitions, so that only the issues not updated are searched for conflicts, {@code update*}). The
+ * previous implementation, row by row, is measured by the {@code *RowByRow} benchmarks.
+ * <p>
+ * The database is the one of the tests of sonar-db-dao: H2 in memory by default, or the one configured by the
+ * system properties {@code orchestrator.configUrl} or {@code sonar.jdbc.*}. Setup fails if both implementations
+ * do not persist the same rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IssuePersistenceBenchmark {
+
+  private static final int ISSUE_BATCHING_SIZE = BatchSession.MAX_BATCH_SIZE * 2;
+  private static final int UPDATES_PER_FLUSH = BatchSession.MAX_BATCH_SIZE - 1;
+  private static final String UPDATE_STATEMENT_ID = IssueMapper.class.getName() + ".updateIfBeforeSelectedDate";
+  private static final int CHANGES_PER_NEW_ISSUE = 2;
+  // one issue out of CONFLICT_INTERVAL is modified by someone else during the analysis
+  private static final int CONFLICT_INTERVAL = 20;
+  private static final long ANALYSIS_DATE = 1_500_000_000_000L;
+
+  @State(Scope.Benchmark)
+  public static class Issues {
+    @Param({"1000", "10000"})
+    public int issues;
+
+    private DbTester db;
+    private ComponentDto project;
+    private List<IssueDto> issueDtos;
+    private List<IssueChangeDto> newIssueChanges;
+    private List<IssueChangeDto> updateChanges;
+
+    @Setup
+    public void setUp() {
+      db = DbTester.create();
+      project = db.components().insertPrivateProject(db.organizations().insert());
+      ComponentDto file = db.components().insertComponent(newFileDto(project));
+      RuleDefinitionDto rule = db.rules().insert();
+      issueDtos = new ArrayList<>(issues);
+      newIssueChanges = new ArrayList<>(issues * CHANGES_PER_NEW_ISSUE);
+      updateChanges = new ArrayList<>(issues);
+      for (int i = 0; i < issues; i++) {
+        IssueDto issue = IssueTesting.newIssue(rule, project, file)
+          .setKee(Uuids.createFast())
+          .setCreatedAt(ANALYSIS_DATE)
+          .setUpdatedAt(ANALYSIS_DATE)
+          .setSelectedAt(ANALYSIS_DATE);
+        issueDtos.add(issue);
+        for (int c = 0; c < CHANGES_PER_NEW_ISSUE; c++) {
+          newIssueChanges.add(IssueTesting.newIssuechangeDto(issue));
+        }
+        updateChanges.add(IssueTesting.newIssuechangeDto(issue));
+      }
+
+      deleteIssues();
+      insertMultiRow();
+      int insertedRows = countRows();
+      deleteIssues();
+      insertRowByRow();
+      if (insertedRows != countRows()) {
+        throw new IllegalStateException("Both implementations do not insert the same rows");
+      }
+
+      prepareUpdates();
+      Set<String> conflicts = updateBatched();
+      int updatedRows = countRows();
+      prepareUpdates();
+      if (conflicts.size() != (issues + CONFLICT_INTERVAL - 1) / CONFLICT_INTERVAL
+        || !conflicts.equals(updateRowByRow()) || updatedRows != countRows()) {
+        throw new IllegalStateException("Both implementations do not update the same rows");
+      }
+    }
+
+    @TearDown
+    public void tearDown() {
+      deleteIssues();
+    }
+
+    private void deleteIssues() {
+      db.executeUpdateSql("delete from issue_changes where issue_key in (select kee from issues where project_uuid=?)", project.uuid());
+      db.executeUpdateSql("delete from issues where project_uuid=?", project.uuid());
+    }
+
+    private int countRows() {
+      return db.countSql("select count(1) from issues where project_uuid='" + project.uuid() + "'")
+        + db.countSql("select count(1) from issue_changes where issue_key in (select kee from issues where project_uuid='" + project.uuid() + "')");
+    }
+
+    /**
+     * All the issues exist in the database. Some of them have been modified since they were loaded by the analysis.
+     */
+    private void prepareUpdates() {
+      deleteIssues();
+      issueDtos.forEach(i -> i.setUpdatedAt(ANALYSIS_DATE));
+      insertMultiRow();
+      db.executeUpdateSql("delete from issue_changes where issue_key in (select kee from issues where project_uuid=?)", project.uuid());
+      for (int i = 0; i < issueDtos.size(); i += CONFLICT_INTERVAL) {
+        db.executeUpdateSql("update issues set updated_at=? where kee=?", ANALYSIS_DATE + 1, issueDtos.get(i).getKey());
+      }
+    }
+
+    private void insertMultiRow() {
+      try (DbSession dbSession = db.myBatis().openSession(true)) {
+        IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
+        IssueChangeMapper changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+        Lists.partition(issueDtos, IssueMapper.MAX_INSERTED_ROWS).forEach(mapper::insertMultiple);
+        Lists.partition(newIssueChanges, IssueChangeMapper.MAX_INSERTED_ROWS).forEach(changeMapper::insertMultiple);
+        dbSession.flushStatements();
+        dbSession.commit();
+      }
+    }
+
+    private void insertRowByRow() {
+      try (DbSession dbSession = db.myBatis().openSession(true)) {
+        IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
+        IssueChangeMapper changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+        issueDtos.forEach(mapper::insert);
+        newIssueChanges.forEach(changeMapper::insert);
+        dbSession.flushStatements();
+        dbSession.commit();
+      }
+    }
+
+    /**
+     * Updates by partitions of {@code UPDATES_PER_FLUSH} issues. Only the issues whose update count is 0 are
+     * searched for conflicts.
+     *
+     * @return keys of the issues in conflict
+     */
+    private Set<String> updateBatched() {
+      long now = ANALYSIS_DATE + 2;
+      Set<String> conflicts = new HashSet<>();
+      try (DbSession dbSession = db.myBatis().openSession(true)) {
+        IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
+        IssueChangeMapper changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+        for (List<IssueDto> partition : Lists.partition(issueDtos, UPDATES_PER_FLUSH)) {
+          dbSession.flushStatements();
+          partition.forEach(i -> mapper.updateIfBeforeSelectedDate(i.setUpdatedAt(now)));
+          Set<String> updatedKeys = updatedIssueKeys(dbSession.flushStatements());
+          List<String> notUpdatedKeys = new ArrayList<>();
+          partition.stream().map(IssueDto::getKey).filter(key -> !updatedKeys.contains(key)).forEach(notUpdatedKeys::add);
+          if (!notUpdatedKeys.isEmpty()) {
+            mapper.selectByKeysIfNotUpdatedAt(notUpdatedKeys, now).forEach(i -> conflicts.add(i.getKey()));
+          }
+        }
+        Lists.partition(updateChanges, IssueChangeMapper.MAX_INSERTED_ROWS).forEach(changeMapper::insertMultiple);
+        dbSession.flushStatements();
+        dbSession.commit();
+      }
+      return conflicts;
+    }
+
+    /**
+     * Updates by chunks of {@code ISSUE_BATCHING_SIZE} issues, then searches all the issues of the chunk for conflicts.
+     *
+     * @return keys of the issues in conflict
+     */
+    private Set<String> updateRowByRow() {
+      long now = ANALYSIS_DATE + 2;
+      Set<String> conflicts = new HashSet<>();
+      try (DbSession dbSession = db.myBatis().openSession(true)) {
+        IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
+        IssueChangeMapper changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+        for (List<IssueDto> chunk : Lists.partition(issueDtos, ISSUE_BATCHING_SIZE)) {
+          chunk.forEach(i -> mapper.updateIfBeforeSelectedDate(i.setUpdatedAt(now)));
+          List<String> keys = new ArrayList<>(chunk.size());
+          chunk.forEach(i -> keys.add(i.getKey()));
+          mapper.selectByKeysIfNotUpdatedAt(keys, now).forEach(i -> conflicts.add(i.getKey()));
+        }
+        updateChanges.forEach(changeMapper::insert);
+        dbSession.flushStatements();
+        dbSession.commit();
+      }
+      return conflicts;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class NewIssues {
+    @Setup(Level.Invocation)
+    public void setUp(Issues issues) {
+      issues.deleteIssues();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class UpdatedIssues {
+    @Setup(Level.Invocation)
+    public void setUp(Issues issues) {
+      issues.prepareUpdates();
+    }
+  }
+
+  @Benchmark
+  public void insertMultiRow(Issues issues, NewIssues newIssues) {
+    issues.insertMultiRow();
+  }
+
+  @Benchmark
+  public void insertRowByRow(Issues issues, NewIssues newIssues) {
+    issues.insertRowByRow();
+  }
+
+  @Benchmark
+  public Set<String> updateBatched(Issues issues, UpdatedIssues updatedIssues) {
+    return issues.updateBatched();
+  }
+
+  @Benchmark
+  public Set<String> updateRowByRow(Issues issues, UpdatedIssues updatedIssues) {
+    return issues.updateRowByRow();
+  }
+
+  private static Set<String> updatedIssueKeys(List<BatchResult> batchResults) {
+    Set<String> keys = new HashSet<>();
+    for (BatchResult batchResult : batchResults) {
+      if (UPDATE_STATEMENT_ID.equals(batchResult.getMappedStatement().getId())) {
+        List<Object> dtos = batchResult.getParameterObjects();
+        int[] updateCounts = batchResult.getUpdateCounts();
+        for (int i = 0; i < updateCounts.length && i < dtos.size(); i++) {
+          if (updateCounts[i] > 0) {
+            keys.add(((IssueDto) dtos.get(i)).getKey());
+          }
+        }
+      }
+    }
+    return keys;
+  }
+}
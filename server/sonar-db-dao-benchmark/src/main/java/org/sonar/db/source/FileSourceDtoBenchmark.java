@@ -0,0 +1,115 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.db.protobuf.DbFileSources;
+
+/**
+ * Reading of the sources of a synthetic file, stored by blocks of lines or in the legacy format.
+ * Setup fails if both formats do not return the same lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileSourceDtoBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"1000", "10000", "50000"})
+  public int lines;
+
+  private FileSourceDto blocks;
+  private FileSourceDto legacy;
+  private int from;
+  private int to;
+
+  @Setup
+  public void setUp() throws IOException {
+    DbFileSources.Data data = generate(lines, 42L);
+    blocks = new FileSourceDto().setSourceData(data);
+    legacy = new FileSourceDto().setBinaryData(SourceDataBlocks.compress(data));
+    from = lines / 2;
+    to = from + PAGE_SIZE - 1;
+    if (!blocks.getSourceLines(from, to).equals(legacy.getSourceLines(from, to)) || !blocks.getSourceData().equals(legacy.getSourceData())) {
+      throw new IllegalStateException("Both formats do not return the same lines");
+    }
+  }
+
+  @Benchmark
+  public List<DbFileSources.Line> pageBlocks() {
+    return blocks.getSourceLines(from, to);
+  }
+
+  @Benchmark
+  public List<DbFileSources.Line> pageLegacy() {
+    return legacy.getSourceLines(from, to);
+  }
+
+  @Benchmark
+  public DbFileSources.Data allBlocks() {
+    return blocks.getSourceData();
+  }
+
+  @Benchmark
+  public DbFileSources.Data allLegacy() {
+    return legacy.getSourceData();
+  }
+
+  private static DbFileSources.Data generate(int lines, long seed) {
+    Random random = new Random(seed);
+    DbFileSources.Data.Builder data = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= lines; i++) {
+      int length = 10 + random.nextInt(80);
+      StringBuilder source = new StringBuilder(length);
+      for (int c = 0; c < length; c++) {
+        source.append((char) ('a' + random.nextInt(26)));
+      }
+      DbFileSources.Line.Builder line = data.addLinesBuilder()
+        .setLine(i)
+        .setSource(source.toString())
+        .setHighlighting("0," + (length / 2) + ",k;" + (length / 2) + "," + length + ",c")
+        .setScmRevision("rev-" + random.nextInt(100))
+        .setScmAuthor("author" + random.nextInt(10))
+        .setScmDate(1_500_000_000_000L + random.nextInt(1_000_000));
+      if (random.nextBoolean()) {
+        line.setLineHits(random.nextInt(5));
+      }
+    }
+    return data.build();
+  }
+}
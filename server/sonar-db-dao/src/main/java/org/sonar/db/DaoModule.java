@@ -49,6 +49,7 @@ import org.sonar.db.issue.IssueDao;
 import org.sonar.db.mapping.ProjectMappingsDao;
 import org.sonar.db.measure.LiveMeasureDao;
 import org.sonar.db.measure.MeasureDao;
+import org.sonar.db.measure.MeasureSeriesDao;
 import org.sonar.db.measure.custom.CustomMeasureDao;
 import org.sonar.db.metric.MetricDao;
 import org.sonar.db.newcodeperiod.NewCodePeriodDao;
@@ -126,6 +127,7 @@ public class DaoModule extends Module {
     IssueDao.class,
     LiveMeasureDao.class,
     MeasureDao.class,
+    MeasureSeriesDao.class,
     MetricDao.class,
     NewCodePeriodDao.class,
     NotificationQueueDao.class,
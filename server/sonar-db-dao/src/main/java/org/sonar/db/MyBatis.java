@@ -79,6 +79,7 @@ import org.sonar.db.mapping.ProjectMappingsMapper;
 import org.sonar.db.measure.LiveMeasureMapper;
 import org.sonar.db.measure.MeasureDto;
 import org.sonar.db.measure.MeasureMapper;
+import org.sonar.db.measure.MeasureSeriesMapper;
 import org.sonar.db.measure.custom.CustomMeasureDto;
 import org.sonar.db.measure.custom.CustomMeasureMapper;
 import org.sonar.db.metric.MetricMapper;
@@ -255,6 +256,7 @@ public class MyBatis implements Startable {
       IssueChangeMapper.class,
       IssueMapper.class,
       MeasureMapper.class,
+      MeasureSeriesMapper.class,
       MetricMapper.class,
       NewCodePeriodMapper.class,
       NotificationQueueMapper.class,
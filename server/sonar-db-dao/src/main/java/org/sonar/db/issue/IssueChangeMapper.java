@@ -26,8 +26,19 @@ import org.apache.ibatis.session.ResultHandler;
 
 public interface IssueChangeMapper {
 
+  /**
+   * Maximum number of changes inserted by {@link #insertMultiple(List)}. It keeps the number of parameters
+   * of the statement below the limit of SQL Server (2100).
+   */
+  int MAX_INSERTED_ROWS = 200;
+
   void insert(IssueChangeDto dto);
 
+  /**
+   * Inserts the changes with a single statement. Size of {@code changes} must not exceed {@link #MAX_INSERTED_ROWS}.
+   */
+  void insertMultiple(@Param("changes") List<IssueChangeDto> changes);
+
   int delete(String key);
 
   int update(IssueChangeDto change);
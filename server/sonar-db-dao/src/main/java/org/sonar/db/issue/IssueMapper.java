@@ -28,6 +28,12 @@ import org.sonar.db.component.ComponentDto;
 
 public interface IssueMapper {
 
+  /**
+   * Maximum number of issues inserted by {@link #insertMultiple(List)}. It keeps the number of parameters
+   * of the statement below the limit of SQL Server (2100).
+   */
+  int MAX_INSERTED_ROWS = 50;
+
   IssueDto selectByKey(String key);
 
   Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(String projectUuid);
@@ -42,6 +48,11 @@ public interface IssueMapper {
 
   void insert(IssueDto issue);
 
+  /**
+   * Inserts the issues with a single statement. Size of {@code issues} must not exceed {@link #MAX_INSERTED_ROWS}.
+   */
+  void insertMultiple(@Param("issues") List<IssueDto> issues);
+
   int update(IssueDto issue);
 
   int updateIfBeforeSelectedDate(IssueDto issue);
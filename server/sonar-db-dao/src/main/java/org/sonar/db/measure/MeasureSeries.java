@@ -0,0 +1,273 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static java.lang.String.format;
+
+/**
+ * Values of a metric on a component over time, one {@link Point} per analysis, sorted by date of analysis. Dates of
+ * analyses of a project are unique and increasing, they identify the analyses.
+ * <p>
+ * The series is stored in a single row of table MEASURE_SERIES (see {@link MeasureSeriesDto}) with the following
+ * binary format:
+ * <ul>
+ *   <li>a version byte</li>
+ *   <li>the number of points</li>
+ *   <li>for each point: the delta with the date of the previous point, a byte of flags telling which fields are
+ *   present, then these fields. Integral numbers are written as the delta with the previous integral number of the
+ *   same field, other numbers as doubles. Data is omitted when it is the same as the data of the previous point.</li>
+ * </ul>
+ * Integers are written as varints, so a point which value did not change since the previous analysis usually takes
+ * less than 10 bytes.
+ * </p>
+ */
+public class MeasureSeries {
+
+  private static final byte VERSION = 1;
+  private static final int VALUE_INTEGRAL = 1;
+  private static final int VALUE_DOUBLE = 1 << 1;
+  private static final int VARIATION_INTEGRAL = 1 << 2;
+  private static final int VARIATION_DOUBLE = 1 << 3;
+  private static final int DATA = 1 << 4;
+  private static final int SAME_DATA = 1 << 5;
+  // greatest integer such that all the smaller integers can be represented as a double
+  private static final double MAX_EXACT_INTEGRAL = 1L << 53;
+
+  private final List<Point> points = new ArrayList<>();
+
+  /**
+   * Points sorted by date
+   */
+  public List<Point> getPoints() {
+    return Collections.unmodifiableList(points);
+  }
+
+  public boolean isEmpty() {
+    return points.isEmpty();
+  }
+
+  /**
+   * Adds a point, replacing the existing point of the same date if any.
+   */
+  public MeasureSeries add(Point point) {
+    // points are generally added in chronological order
+    int index = points.size();
+    while (index > 0 && points.get(index - 1).getDate() > point.getDate()) {
+      index--;
+    }
+    if (index > 0 && points.get(index - 1).getDate() == point.getDate()) {
+      points.set(index - 1, point);
+    } else {
+      points.add(index, point);
+    }
+    return this;
+  }
+
+  /**
+   * @return {@code true} if at least one point has been removed
+   */
+  public boolean removeIf(Predicate<Point> predicate) {
+    return points.removeIf(predicate);
+  }
+
+  public MeasureSeries clear() {
+    points.clear();
+    return this;
+  }
+
+  public byte[] encode() {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+      output.writeRawByte(VERSION);
+      output.writeUInt32NoTag(points.size());
+      long previousDate = 0L;
+      long previousValue = 0L;
+      long previousVariation = 0L;
+      String previousData = null;
+      for (Point point : points) {
+        Double value = point.getValue();
+        Double variation = point.getVariation();
+        String data = point.getData();
+        int flags = flagOf(value, VALUE_INTEGRAL, VALUE_DOUBLE) | flagOf(variation, VARIATION_INTEGRAL, VARIATION_DOUBLE);
+        if (data != null) {
+          flags |= data.equals(previousData) ? SAME_DATA : DATA;
+        }
+
+        output.writeUInt64NoTag(point.getDate() - previousDate);
+        output.writeRawByte(flags);
+        previousValue = writeNumber(output, value, previousValue);
+        previousVariation = writeNumber(output, variation, previousVariation);
+        if ((flags & DATA) != 0) {
+          output.writeStringNoTag(data);
+        }
+        previousDate = point.getDate();
+        previousData = data;
+      }
+      output.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to serialize measure series", e);
+    }
+  }
+
+  public static MeasureSeries decode(byte[] bytes) {
+    try {
+      CodedInputStream input = CodedInputStream.newInstance(bytes);
+      byte version = input.readRawByte();
+      if (version != VERSION) {
+        throw new IllegalStateException(format("Unsupported version of measure series: %d", version));
+      }
+      MeasureSeries series = new MeasureSeries();
+      int size = input.readUInt32();
+      long date = 0L;
+      long previousValue = 0L;
+      long previousVariation = 0L;
+      String data = null;
+      for (int i = 0; i < size; i++) {
+        date += input.readUInt64();
+        int flags = input.readRawByte();
+        Double value = null;
+        if ((flags & VALUE_INTEGRAL) != 0) {
+          previousValue += input.readSInt64();
+          value = (double) previousValue;
+        } else if ((flags & VALUE_DOUBLE) != 0) {
+          value = input.readDouble();
+        }
+        Double variation = null;
+        if ((flags & VARIATION_INTEGRAL) != 0) {
+          previousVariation += input.readSInt64();
+          variation = (double) previousVariation;
+        } else if ((flags & VARIATION_DOUBLE) != 0) {
+          variation = input.readDouble();
+        }
+        if ((flags & DATA) != 0) {
+          data = input.readString();
+        }
+        series.points.add(new Point(date, value, variation, (flags & (DATA | SAME_DATA)) != 0 ? data : null));
+      }
+      return series;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to deserialize measure series", e);
+    }
+  }
+
+  private static int flagOf(@Nullable Double d, int integralFlag, int doubleFlag) {
+    if (d == null) {
+      return 0;
+    }
+    return isIntegral(d) ? integralFlag : doubleFlag;
+  }
+
+  private static boolean isIntegral(double d) {
+    return Math.abs(d) <= MAX_EXACT_INTEGRAL && d == Math.rint(d);
+  }
+
+  private static long writeNumber(CodedOutputStream output, @Nullable Double d, long previousIntegral) throws IOException {
+    if (d == null) {
+      return previousIntegral;
+    }
+    if (isIntegral(d)) {
+      long l = d.longValue();
+      output.writeSInt64NoTag(l - previousIntegral);
+      return l;
+    }
+    output.writeDoubleNoTag(d);
+    return previousIntegral;
+  }
+
+  public static final class Point {
+    private final long date;
+    private final Double value;
+    private final Double variation;
+    private final String data;
+
+    public Point(long date, @Nullable Double value, @Nullable Double variation, @Nullable String data) {
+      this.date = date;
+      this.value = value;
+      this.variation = variation;
+      this.data = data;
+    }
+
+    /**
+     * Date of the analysis
+     */
+    public long getDate() {
+      return date;
+    }
+
+    @CheckForNull
+    public Double getValue() {
+      return value;
+    }
+
+    @CheckForNull
+    public Double getVariation() {
+      return variation;
+    }
+
+    @CheckForNull
+    public String getData() {
+      return data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Point point = (Point) o;
+      return date == point.date &&
+        Objects.equals(value, point.value) &&
+        Objects.equals(variation, point.variation) &&
+        Objects.equals(data, point.data);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(date, value, variation, data);
+    }
+
+    @Override
+    public String toString() {
+      return "Point{" +
+        "date=" + date +
+        ", value=" + value +
+        ", variation=" + variation +
+        ", data='" + data + '\'' +
+        '}';
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+import com.google.common.collect.Lists;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.Uuids;
+import org.sonar.db.BatchSession;
+import org.sonar.db.Dao;
+import org.sonar.db.DbSession;
+
+import static java.lang.String.format;
+import static java.util.Collections.singletonList;
+import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+
+/**
+ * History of measures, stored as one {@link MeasureSeries} per component and metric. It is maintained along with the
+ * rows of PROJECT_MEASURES (see {@link MeasureDao}) so that history is read with one row per metric instead of one
+ * row per metric and analysis.
+ */
+public class MeasureSeriesDao implements Dao {
+  // BatchSession commits, and drops the update counts, once it holds MAX_BATCH_SIZE statements
+  private static final int UPDATES_PER_FLUSH = BatchSession.MAX_BATCH_SIZE - 1;
+  private static final String UPDATE_STATEMENT_ID = MeasureSeriesMapper.class.getName() + ".update";
+
+  private final System2 system2;
+
+  public MeasureSeriesDao(System2 system2) {
+    this.system2 = system2;
+  }
+
+  public List<MeasureSeriesDto> selectByComponentUuid(DbSession dbSession, String componentUuid) {
+    return mapper(dbSession).selectByComponentUuid(componentUuid);
+  }
+
+  public List<MeasureSeriesDto> selectByComponentUuidAndMetricIds(DbSession dbSession, String componentUuid, Collection<Integer> metricIds) {
+    return executeLargeInputs(metricIds, ids -> mapper(dbSession).selectByComponentUuidAndMetricIds(componentUuid, ids));
+  }
+
+  public void insert(DbSession dbSession, MeasureSeriesDto dto) {
+    long now = system2.now();
+    mapper(dbSession).insert(dto, Uuids.create(), now);
+    dto.setUpdatedAt(now);
+  }
+
+  /**
+   * Replaces the series of the component and metric of {@code dto}, unless it has been updated or deleted since
+   * {@code dto} was read. Series are updated by both analyses and purges, so in this case {@code false} is returned
+   * and the caller must read the series again before retrying.
+   */
+  public boolean update(DbSession dbSession, MeasureSeriesDto dto) {
+    return update(dbSession, singletonList(dto)).isEmpty();
+  }
+
+  /**
+   * Same as {@link #update(DbSession, MeasureSeriesDto)} for many series. In a batch session, the updates are flushed
+   * together instead of one by one.
+   *
+   * @return the series which have not been updated, because they have been updated or deleted since they were read
+   * @throws IllegalStateException if the JDBC driver does not report the number of updated rows
+   *         ({@link Statement#SUCCESS_NO_INFO}), as concurrent updates could not be detected
+   */
+  public List<MeasureSeriesDto> update(DbSession dbSession, List<MeasureSeriesDto> dtos) {
+    MeasureSeriesMapper mapper = mapper(dbSession);
+    List<MeasureSeriesDto> notUpdated = new ArrayList<>();
+    for (List<MeasureSeriesDto> partition : Lists.partition(dtos, UPDATES_PER_FLUSH)) {
+      // statements pending in the session are flushed so that the batch executed below only contains the updates
+      dbSession.flushStatements();
+      long[] nows = new long[partition.size()];
+      int[] updateCounts = new int[partition.size()];
+      boolean batched = false;
+      for (int i = 0; i < partition.size(); i++) {
+        MeasureSeriesDto dto = partition.get(i);
+        // updated_at must change even if the series was updated during the same millisecond
+        nows[i] = Math.max(system2.now(), dto.getUpdatedAt() + 1);
+        updateCounts[i] = mapper.update(dto, nows[i]);
+        batched |= updateCounts[i] == BatchExecutor.BATCH_UPDATE_RETURN_VALUE;
+      }
+      if (batched) {
+        updateCounts = updateCounts(dbSession.flushStatements(), partition.size());
+      }
+      for (int i = 0; i < partition.size(); i++) {
+        MeasureSeriesDto dto = partition.get(i);
+        if (updateCounts[i] == 0) {
+          notUpdated.add(dto);
+        } else {
+          dto.setUpdatedAt(nows[i]);
+        }
+      }
+    }
+    return notUpdated;
+  }
+
+  private static int[] updateCounts(List<BatchResult> batchResults, int expectedSize) {
+    int[] updateCounts = batchResults.stream()
+      .filter(batchResult -> UPDATE_STATEMENT_ID.equals(batchResult.getMappedStatement().getId()))
+      .flatMapToInt(batchResult -> Arrays.stream(batchResult.getUpdateCounts()))
+      .toArray();
+    if (updateCounts.length != expectedSize) {
+      throw new IllegalStateException(format("Expected %s update counts of measure series, got %s", expectedSize, updateCounts.length));
+    }
+    for (int updateCount : updateCounts) {
+      if (updateCount < 0) {
+        throw new IllegalStateException(format("The JDBC driver did not report the number of updated measure series (%s). " +
+          "Concurrent updates of the series can not be detected.", updateCount));
+      }
+    }
+    return updateCounts;
+  }
+
+  private static MeasureSeriesMapper mapper(DbSession dbSession) {
+    return dbSession.getMapper(MeasureSeriesMapper.class);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+public class MeasureSeriesDto {
+
+  private String componentUuid;
+  private String projectUuid;
+  private int metricId;
+  private byte[] data;
+  private long updatedAt;
+
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  public MeasureSeriesDto setComponentUuid(String s) {
+    this.componentUuid = s;
+    return this;
+  }
+
+  public String getProjectUuid() {
+    return projectUuid;
+  }
+
+  public MeasureSeriesDto setProjectUuid(String s) {
+    this.projectUuid = s;
+    return this;
+  }
+
+  public int getMetricId() {
+    return metricId;
+  }
+
+  public MeasureSeriesDto setMetricId(int i) {
+    this.metricId = i;
+    return this;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  public MeasureSeriesDto setData(byte[] data) {
+    this.data = data;
+    return this;
+  }
+
+  public long getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public MeasureSeriesDto setUpdatedAt(long l) {
+    this.updatedAt = l;
+    return this;
+  }
+
+  public MeasureSeries getSeries() {
+    return MeasureSeries.decode(data);
+  }
+
+  public MeasureSeriesDto setSeries(MeasureSeries series) {
+    this.data = series.encode();
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "MeasureSeriesDto{" +
+      "componentUuid='" + componentUuid + '\'' +
+      ", projectUuid='" + projectUuid + '\'' +
+      ", metricId=" + metricId +
+      ", updatedAt=" + updatedAt +
+      '}';
+  }
+}
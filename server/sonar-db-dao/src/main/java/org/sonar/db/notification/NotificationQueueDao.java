@@ -62,6 +62,24 @@ public class NotificationQueueDao implements Dao {
     }
   }
 
+  /**
+   * Selects the {@code count} oldest notifications and deletes them from the queue, in a single transaction.
+   */
+  public List<NotificationQueueDto> dequeueOldest(int count) {
+    if (count < 1) {
+      return Collections.emptyList();
+    }
+    try (DbSession session = mybatis.openSession(true)) {
+      NotificationQueueMapper mapper = session.getMapper(NotificationQueueMapper.class);
+      List<NotificationQueueDto> dtos = mapper.findOldest(count);
+      for (NotificationQueueDto dto : dtos) {
+        mapper.delete(dto.getId());
+      }
+      session.commit();
+      return dtos;
+    }
+  }
+
   public long count() {
     try (DbSession session = mybatis.openSession(false)) {
       return session.getMapper(NotificationQueueMapper.class).count();
@@ -24,30 +24,42 @@ import com.google.common.collect.Lists;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
-
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.measure.MeasureSeries;
+import org.sonar.db.measure.MeasureSeriesDao;
+import org.sonar.db.measure.MeasureSeriesDto;
+import org.sonar.db.measure.MeasureSeriesMapper;
+
+import static java.lang.String.format;
+import static java.util.Collections.singletonList;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 class PurgeCommands {
 
   private static final int MAX_SNAPSHOTS_PER_QUERY = 1000;
   private static final int MAX_RESOURCES_PER_QUERY = 1000;
+  private static final int MAX_MEASURE_SERIES_UPDATE_ATTEMPTS = 10;
   private static final String[] UNPROCESSED_STATUS = new String[] {"U"};
 
   private final DbSession session;
   private final PurgeMapper purgeMapper;
   private final PurgeProfiler profiler;
   private final System2 system2;
+  private final MeasureSeriesDao measureSeriesDao;
 
   PurgeCommands(DbSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, System2 system2) {
     this.session = session;
     this.purgeMapper = purgeMapper;
     this.profiler = profiler;
     this.system2 = system2;
+    this.measureSeriesDao = new MeasureSeriesDao(system2);
   }
 
   @VisibleForTesting
@@ -63,6 +75,12 @@ class PurgeCommands {
     return purgeMapper.selectAnalysisIdsAndUuids(query);
   }
 
+  /**
+   * All the analyses of the root component are deleted, so rows are deleted with a subquery on snapshots rather than
+   * by partitions of analysis uuids. Analyses deleted by the other methods are chosen in Java, for example by
+   * {@link org.sonar.db.purge.period.DefaultPeriodCleaner}, and are interleaved with the analyses which are kept, so
+   * they can't be deleted by a subquery nor by a range of uuids.
+   */
   void deleteAnalyses(String rootComponentUuid) {
     profiler.start("deleteAnalyses (event_component_changes)");
     purgeMapper.deleteEventComponentChangesByComponentUuid(rootComponentUuid);
@@ -74,31 +92,32 @@ class PurgeCommands {
     session.commit();
     profiler.stop();
 
-    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(
-      purgeMapper.selectAnalysisIdsAndUuids(new PurgeSnapshotQuery(rootComponentUuid))), MAX_SNAPSHOTS_PER_QUERY);
-
-    deleteAnalysisDuplications(analysisUuidsPartitions);
+    profiler.start("deleteAnalysisDuplications (duplications_index)");
+    purgeMapper.deleteAnalysisDuplicationsByComponentUuid(rootComponentUuid);
+    session.commit();
+    profiler.stop();
 
     profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
+    purgeMapper.deleteAnalysisMeasuresByComponentUuid(rootComponentUuid);
     session.commit();
     profiler.stop();
 
     profiler.start("deleteAnalyses (analysis_properties)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisProperties);
+    purgeMapper.deleteAnalysisPropertiesByComponentUuid(rootComponentUuid);
     session.commit();
     profiler.stop();
 
     profiler.start("deleteAnalyses (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalyses);
+    purgeMapper.deleteAnalysesByComponentUuid(rootComponentUuid);
     session.commit();
     profiler.stop();
   }
 
-  void deleteAbortedAnalyses(String rootUuid) {
+  void deleteAbortedAnalyses(String rootUuid, @Nullable Long createdBefore) {
     PurgeSnapshotQuery query = new PurgeSnapshotQuery(rootUuid)
       .setIslast(false)
-      .setStatus(UNPROCESSED_STATUS);
+      .setStatus(UNPROCESSED_STATUS)
+      .setCreatedBefore(createdBefore);
     deleteAnalyses(purgeMapper.selectAnalysisIdsAndUuids(query));
   }
 
@@ -128,12 +147,61 @@ class PurgeCommands {
     session.commit();
     profiler.stop();
 
+    profiler.start("deleteAnalyses (measure_series)");
+    deleteMeasureSeriesPoints(analysisUuidsPartitions);
+    session.commit();
+    profiler.stop();
+
     profiler.start("deleteAnalyses (snapshots)");
     analysisUuidsPartitions.forEach(purgeMapper::deleteAnalyses);
     session.commit();
     profiler.stop();
   }
 
+  /**
+   * Points of {@link MeasureSeries} are identified by the date of their analysis. Must be called before the analyses
+   * are deleted.
+   * <p>
+   * Series can be concurrently updated by an analysis of the project. Each series is committed as soon as it is
+   * updated, so that no lock is held on a series while waiting for another one, and is read again when it has been
+   * updated in the meantime.
+   */
+  private void deleteMeasureSeriesPoints(List<List<String>> analysisUuidsPartitions) {
+    Map<String, Set<Long>> analysisDatesByRootUuid = analysisUuidsPartitions.stream()
+      .flatMap(partition -> purgeMapper.selectAnalysesByUuids(partition).stream())
+      .collect(Collectors.groupingBy(SnapshotDto::getComponentUuid, Collectors.mapping(SnapshotDto::getCreatedAt, Collectors.toSet())));
+    MeasureSeriesMapper measureSeriesMapper = session.getMapper(MeasureSeriesMapper.class);
+    analysisDatesByRootUuid.forEach((rootUuid, analysisDates) -> {
+      for (MeasureSeriesDto dto : measureSeriesMapper.selectByProjectUuid(rootUuid)) {
+        deleteMeasureSeriesPoints(dto, analysisDates);
+      }
+    });
+  }
+
+  private void deleteMeasureSeriesPoints(MeasureSeriesDto dto, Set<Long> analysisDates) {
+    MeasureSeriesDto current = dto;
+    for (int attempt = 1; attempt <= MAX_MEASURE_SERIES_UPDATE_ATTEMPTS; attempt++) {
+      MeasureSeries series = current.getSeries();
+      if (!series.removeIf(point -> analysisDates.contains(point.getDate()))) {
+        return;
+      }
+      if (measureSeriesDao.update(session, current.setSeries(series))) {
+        session.commit();
+        return;
+      }
+      Optional<MeasureSeriesDto> reloaded = measureSeriesDao
+        .selectByComponentUuidAndMetricIds(session, dto.getComponentUuid(), singletonList(dto.getMetricId()))
+        .stream()
+        .findFirst();
+      if (!reloaded.isPresent()) {
+        return;
+      }
+      current = reloaded.get();
+    }
+    throw new IllegalStateException(format("Failed to delete points of the measure series of component %s and metric %s, concurrently updated %s times",
+      dto.getComponentUuid(), dto.getMetricId(), MAX_MEASURE_SERIES_UPDATE_ATTEMPTS));
+  }
+
   void purgeAnalyses(List<IdUuidPair> analysisUuids) {
     List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisUuids), MAX_SNAPSHOTS_PER_QUERY);
 
@@ -228,6 +296,22 @@ class PurgeCommands {
     profiler.stop();
   }
 
+  void deleteIssues(List<String> issueKeys) {
+    if (issueKeys.isEmpty()) {
+      return;
+    }
+
+    profiler.start("deleteIssues (issue_changes)");
+    Lists.partition(issueKeys, MAX_RESOURCES_PER_QUERY).forEach(purgeMapper::deleteIssueChangesFromIssueKeys);
+    session.commit();
+    profiler.stop();
+
+    profiler.start("deleteIssues (issues)");
+    Lists.partition(issueKeys, MAX_RESOURCES_PER_QUERY).forEach(purgeMapper::deleteIssuesFromKeys);
+    session.commit();
+    profiler.stop();
+  }
+
   void deleteLinks(String rootUuid) {
     profiler.start("deleteLinks (project_links)");
     purgeMapper.deleteProjectLinksByProjectUuid(rootUuid);
@@ -303,6 +387,11 @@ class PurgeCommands {
     Lists.partition(componentUuids, MAX_RESOURCES_PER_QUERY).forEach(purgeMapper::fullDeleteComponentMeasures);
     session.commit();
     profiler.stop();
+
+    profiler.start("deleteComponentMeasures (measure_series)");
+    Lists.partition(componentUuids, MAX_RESOURCES_PER_QUERY).forEach(purgeMapper::deleteMeasureSeriesByComponentUuids);
+    session.commit();
+    profiler.stop();
   }
 
   void deleteComponentMeasures(List<String> analysisUuids, List<String> componentUuids) {
@@ -381,6 +470,7 @@ class PurgeCommands {
     profiler.start("deleteCeScannerContextBefore");
     purgeMapper.deleteCeScannerContextOfCeActivityByRootUuidOrBefore(rootUuid, createdAt);
     session.commit();
+    profiler.stop();
   }
 
   void deleteCeQueue(String rootUuid) {
@@ -441,6 +531,13 @@ class PurgeCommands {
     profiler.stop();
   }
 
+  void deleteMeasureSeries(String rootUuid) {
+    profiler.start("deleteMeasureSeries (measure_series)");
+    purgeMapper.deleteMeasureSeriesByProjectUuid(rootUuid);
+    session.commit();
+    profiler.stop();
+  }
+
   void deleteLiveMeasures(String rootUuid) {
     profiler.start("deleteLiveMeasures (live_measures)");
     purgeMapper.deleteLiveMeasuresByProjectUuid(rootUuid);
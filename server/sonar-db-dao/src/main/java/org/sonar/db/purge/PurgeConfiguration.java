@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.Optional;
 import java.util.Set;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.utils.DateUtils;
@@ -41,9 +42,17 @@ public class PurgeConfiguration {
   private final Optional<Integer> maxAgeInDaysOfInactiveShortLivingBranches;
   private final System2 system2;
   private final Set<String> disabledComponentUuids;
+  private final Long analysesCreatedBefore;
 
   public PurgeConfiguration(String rootUuid, String projectUuid, Collection<String> scopesWithoutHistoricalData, int maxAgeInDaysOfClosedIssues,
     Optional<Integer> maxAgeInDaysOfInactiveShortLivingBranches, System2 system2, Set<String> disabledComponentUuids) {
+    this(rootUuid, projectUuid, scopesWithoutHistoricalData, maxAgeInDaysOfClosedIssues, maxAgeInDaysOfInactiveShortLivingBranches, system2,
+      disabledComponentUuids, null);
+  }
+
+  public PurgeConfiguration(String rootUuid, String projectUuid, Collection<String> scopesWithoutHistoricalData, int maxAgeInDaysOfClosedIssues,
+    Optional<Integer> maxAgeInDaysOfInactiveShortLivingBranches, System2 system2, Set<String> disabledComponentUuids,
+    @Nullable Long analysesCreatedBefore) {
     this.rootUuid = rootUuid;
     this.projectUuid = projectUuid;
     this.scopesWithoutHistoricalData = scopesWithoutHistoricalData;
@@ -51,11 +60,13 @@ public class PurgeConfiguration {
     this.system2 = system2;
     this.disabledComponentUuids = disabledComponentUuids;
     this.maxAgeInDaysOfInactiveShortLivingBranches = maxAgeInDaysOfInactiveShortLivingBranches;
+    this.analysesCreatedBefore = analysesCreatedBefore;
   }
 
-  public static PurgeConfiguration newDefaultPurgeConfiguration(Configuration config, String rootUuid, String projectUuid, Set<String> disabledComponentUuids) {
+  public static PurgeConfiguration newDefaultPurgeConfiguration(Configuration config, String rootUuid, String projectUuid, Set<String> disabledComponentUuids,
+    @Nullable Long analysesCreatedBefore) {
     return new PurgeConfiguration(rootUuid, projectUuid, Arrays.asList(Scopes.DIRECTORY, Scopes.FILE), config.getInt(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES).get(),
-      config.getInt(PurgeConstants.DAYS_BEFORE_DELETING_INACTIVE_SHORT_LIVING_BRANCHES), System2.INSTANCE, disabledComponentUuids);
+      config.getInt(PurgeConstants.DAYS_BEFORE_DELETING_INACTIVE_SHORT_LIVING_BRANCHES), System2.INSTANCE, disabledComponentUuids, analysesCreatedBefore);
   }
 
   /**
@@ -82,6 +93,15 @@ public class PurgeConfiguration {
     return disabledComponentUuids;
   }
 
+  /**
+   * When not {@code null}, aborted analyses are deleted and history is purged only among the analyses created
+   * strictly before this date. Analyses which started after the purge was requested are then never touched.
+   */
+  @CheckForNull
+  public Long analysesCreatedBefore() {
+    return analysesCreatedBefore;
+  }
+
   @CheckForNull
   public Date maxLiveDateOfClosedIssues() {
     return maxLiveDateOfClosedIssues(new Date(system2.now()));
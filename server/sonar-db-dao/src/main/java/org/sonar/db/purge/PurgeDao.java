@@ -20,11 +20,17 @@
 package org.sonar.db.purge;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.DateUtils;
@@ -34,47 +40,62 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
+import org.sonar.db.MyBatis;
 import org.sonar.db.component.BranchMapper;
 import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTreeQuery;
 import org.sonar.db.component.ComponentTreeQuery.Strategy;
 
-import static java.util.Collections.emptyList;
 import static org.sonar.api.utils.DateUtils.dateToLong;
-import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class PurgeDao implements Dao {
   private static final Logger LOG = Loggers.get(PurgeDao.class);
   private static final Set<String> QUALIFIERS_PROJECT_VIEW = ImmutableSet.of("TRK", "VW");
   private static final Set<String> QUALIFIERS_MODULE_SUBVIEW = ImmutableSet.of("BRC", "SVW");
   private static final String SCOPE_PROJECT = "PRJ";
+  /**
+   * Maximum number of tables (or groups of tables) deleted at the same time, each one on its own connection
+   */
+  private static final int MAX_CONCURRENT_DELETIONS = 4;
 
   private final ComponentDao componentDao;
   private final System2 system2;
+  private final MyBatis myBatis;
 
-  public PurgeDao(ComponentDao componentDao, System2 system2) {
+  public PurgeDao(ComponentDao componentDao, System2 system2, MyBatis myBatis) {
     this.componentDao = componentDao;
     this.system2 = system2;
+    this.myBatis = myBatis;
   }
 
   public void purge(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
     PurgeMapper mapper = session.getMapper(PurgeMapper.class);
     PurgeCommands commands = new PurgeCommands(session, mapper, profiler, system2);
     String rootUuid = conf.rootUuid();
-    deleteAbortedAnalyses(rootUuid, commands);
-    deleteDataOfComponentsWithoutHistoricalData(session, rootUuid, conf.getScopesWithoutHistoricalData(), commands);
-    purgeAnalyses(commands, rootUuid);
-    purgeDisabledComponents(commands, conf, listener);
-    deleteOldClosedIssues(conf, mapper, listener);
-    purgeOldCeActivities(rootUuid, commands);
-    purgeOldCeScannerContexts(rootUuid, commands);
+    List<String> oldClosedIssueKeys = mapper.selectOldClosedIssueKeys(rootUuid, dateToLong(conf.maxLiveDateOfClosedIssues()));
+
+    // analyses, issues and CE activity do not share any table, they can be purged concurrently
+    executeConcurrently(session, profiler,
+      (dbSession, purgeCommands) -> {
+        deleteAbortedAnalyses(rootUuid, conf.analysesCreatedBefore(), purgeCommands);
+        deleteDataOfComponentsWithoutHistoricalData(dbSession, conf, purgeCommands);
+        purgeAnalyses(purgeCommands, rootUuid, conf.analysesCreatedBefore());
+      },
+      (dbSession, purgeCommands) -> purgeCommands.deleteIssues(oldClosedIssueKeys),
+      (dbSession, purgeCommands) -> {
+        purgeOldCeActivities(rootUuid, purgeCommands);
+        purgeOldCeScannerContexts(rootUuid, purgeCommands);
+      });
+    listener.onIssuesRemoval(rootUuid, oldClosedIssueKeys);
 
+    purgeDisabledComponents(commands, conf, listener);
     deleteOldDisabledComponents(commands, mapper, rootUuid);
-    purgeStaleBranches(commands, conf, mapper, rootUuid);
+    purgeStaleBranches(session, profiler, commands, conf, mapper, rootUuid);
   }
 
-  private static void purgeStaleBranches(PurgeCommands commands, PurgeConfiguration conf, PurgeMapper mapper, String rootUuid) {
+  private void purgeStaleBranches(DbSession session, PurgeProfiler profiler, PurgeCommands commands, PurgeConfiguration conf, PurgeMapper mapper,
+    String rootUuid) {
     Optional<Date> maxDate = conf.maxLiveDateOfInactiveShortLivingBranches();
     if (!maxDate.isPresent()) {
       // not available if branch plugin is not installed
@@ -86,16 +107,17 @@ public class PurgeDao implements Dao {
 
     for (String branchUuid : branchUuids) {
       if (!rootUuid.equals(branchUuid)) {
-        deleteRootComponent(branchUuid, mapper, commands);
+        deleteRootComponent(session, profiler, branchUuid, mapper, commands);
       }
     }
   }
 
-  private static void purgeAnalyses(PurgeCommands commands, String rootUuid) {
+  private static void purgeAnalyses(PurgeCommands commands, String rootUuid, @Nullable Long analysesCreatedBefore) {
     List<IdUuidPair> analysisUuids = commands.selectSnapshotIdUuids(
       new PurgeSnapshotQuery(rootUuid)
         .setIslast(false)
-        .setNotPurged(true));
+        .setNotPurged(true)
+        .setCreatedBefore(analysesCreatedBefore));
     commands.purgeAnalyses(analysisUuids);
   }
 
@@ -105,35 +127,23 @@ public class PurgeDao implements Dao {
     commands.purgeDisabledComponents(rootUuid, conf.getDisabledComponentUuids(), listener);
   }
 
-  private static void deleteOldClosedIssues(PurgeConfiguration conf, PurgeMapper mapper, PurgeListener listener) {
-    Date toDate = conf.maxLiveDateOfClosedIssues();
-    String rootUuid = conf.rootUuid();
-    List<String> issueKeys = mapper.selectOldClosedIssueKeys(rootUuid, dateToLong(toDate));
-    executeLargeInputs(issueKeys, input -> {
-      mapper.deleteIssueChangesFromIssueKeys(input);
-      return emptyList();
-    });
-    executeLargeInputs(issueKeys, input -> {
-      mapper.deleteIssuesFromKeys(input);
-      return emptyList();
-    });
-    listener.onIssuesRemoval(rootUuid, issueKeys);
-  }
-
-  private static void deleteAbortedAnalyses(String rootUuid, PurgeCommands commands) {
+  private static void deleteAbortedAnalyses(String rootUuid, @Nullable Long analysesCreatedBefore, PurgeCommands commands) {
     LOG.debug("<- Delete aborted builds");
-    commands.deleteAbortedAnalyses(rootUuid);
+    commands.deleteAbortedAnalyses(rootUuid, analysesCreatedBefore);
   }
 
-  private void deleteDataOfComponentsWithoutHistoricalData(DbSession dbSession, String rootUuid, Collection<String> scopesWithoutHistoricalData, PurgeCommands purgeCommands) {
+  private void deleteDataOfComponentsWithoutHistoricalData(DbSession dbSession, PurgeConfiguration conf, PurgeCommands purgeCommands) {
+    Collection<String> scopesWithoutHistoricalData = conf.getScopesWithoutHistoricalData();
     if (scopesWithoutHistoricalData.isEmpty()) {
       return;
     }
 
+    String rootUuid = conf.rootUuid();
     List<String> analysisUuids = purgeCommands.selectSnapshotUuids(
       new PurgeSnapshotQuery(rootUuid)
         .setIslast(false)
-        .setNotPurged(true));
+        .setNotPurged(true)
+        .setCreatedBefore(conf.analysesCreatedBefore()));
     List<String> componentWithoutHistoricalDataUuids = componentDao
       .selectDescendants(
         dbSession,
@@ -201,7 +211,7 @@ public class PurgeDao implements Dao {
     PurgeProfiler profiler = new PurgeProfiler();
     PurgeMapper purgeMapper = mapper(session);
     PurgeCommands purgeCommands = new PurgeCommands(session, profiler, system2);
-    deleteRootComponent(uuid, purgeMapper, purgeCommands);
+    deleteRootComponent(session, profiler, uuid, purgeMapper, purgeCommands);
   }
 
   public void deleteProject(DbSession session, String uuid) {
@@ -212,36 +222,107 @@ public class PurgeDao implements Dao {
     session.getMapper(BranchMapper.class).selectByProjectUuid(uuid)
       .stream()
       .filter(branch -> !uuid.equals(branch.getUuid()))
-      .forEach(branch -> deleteRootComponent(branch.getUuid(), purgeMapper, purgeCommands));
+      .forEach(branch -> deleteRootComponent(session, profiler, branch.getUuid(), purgeMapper, purgeCommands));
 
-    deleteRootComponent(uuid, purgeMapper, purgeCommands);
+    deleteRootComponent(session, profiler, uuid, purgeMapper, purgeCommands);
   }
 
-  private static void deleteRootComponent(String rootUuid, PurgeMapper mapper, PurgeCommands commands) {
+  private void deleteRootComponent(DbSession session, PurgeProfiler profiler, String rootUuid, PurgeMapper mapper, PurgeCommands commands) {
     List<IdUuidPair> rootAndModulesOrSubviews = mapper.selectRootAndModulesOrSubviewsByProjectUuid(rootUuid);
     long rootId = rootAndModulesOrSubviews.stream()
       .filter(pair -> pair.getUuid().equals(rootUuid))
       .map(IdUuidPair::getId)
       .findFirst()
       .orElseThrow(() -> new IllegalArgumentException("Couldn't find root component with uuid " + rootUuid));
-    commands.deleteLinks(rootUuid);
-    commands.deleteAnalyses(rootUuid);
-    commands.deleteByRootAndModulesOrSubviews(rootAndModulesOrSubviews);
-    commands.deleteIssues(rootUuid);
-    commands.deleteFileSources(rootUuid);
-    commands.deleteCeActivity(rootUuid);
-    commands.deleteCeQueue(rootUuid);
-    commands.deleteWebhooks(rootUuid);
-    commands.deleteWebhookDeliveries(rootUuid);
-    commands.deleteLiveMeasures(rootUuid);
-    commands.deleteProjectMappings(rootUuid);
-    commands.deleteProjectAlmBindings(rootUuid);
-    commands.deletePermissions(rootId);
-    commands.deleteNewCodePeriods(rootUuid);
+    executeConcurrently(session, profiler,
+      (dbSession, purgeCommands) -> purgeCommands.deleteAnalyses(rootUuid),
+      (dbSession, purgeCommands) -> {
+        purgeCommands.deleteLinks(rootUuid);
+        purgeCommands.deleteByRootAndModulesOrSubviews(rootAndModulesOrSubviews);
+        purgeCommands.deletePermissions(rootId);
+      },
+      (dbSession, purgeCommands) -> purgeCommands.deleteIssues(rootUuid),
+      (dbSession, purgeCommands) -> purgeCommands.deleteFileSources(rootUuid),
+      (dbSession, purgeCommands) -> {
+        purgeCommands.deleteCeActivity(rootUuid);
+        purgeCommands.deleteCeQueue(rootUuid);
+      },
+      (dbSession, purgeCommands) -> {
+        purgeCommands.deleteWebhooks(rootUuid);
+        purgeCommands.deleteWebhookDeliveries(rootUuid);
+        purgeCommands.deleteProjectMappings(rootUuid);
+        purgeCommands.deleteProjectAlmBindings(rootUuid);
+        purgeCommands.deleteNewCodePeriods(rootUuid);
+      },
+      (dbSession, purgeCommands) -> {
+        purgeCommands.deleteLiveMeasures(rootUuid);
+        purgeCommands.deleteMeasureSeries(rootUuid);
+      });
+
+    // component and branch rows are deleted last, once all their child data is gone
     commands.deleteBranch(rootUuid);
     commands.deleteComponents(rootUuid);
   }
 
+  /**
+   * Executes the specified deletions concurrently, each one with its own {@link DbSession}, and waits for all of them
+   * to be completed. The deletions must not delete rows from the same tables.
+   * <p>
+   * Pending changes of {@code session} are committed before, so that its locks are released. Durations recorded by the
+   * deletions are added to {@code profiler}.
+   * </p>
+   */
+  private void executeConcurrently(DbSession session, PurgeProfiler profiler, Deletion... deletions) {
+    session.commit();
+
+    ExecutorService executor = Executors.newFixedThreadPool(
+      Math.min(MAX_CONCURRENT_DELETIONS, deletions.length),
+      new ThreadFactoryBuilder()
+        .setNameFormat("PurgeDao-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      List<Future<PurgeProfiler>> futures = new ArrayList<>(deletions.length);
+      for (Deletion deletion : deletions) {
+        PurgeProfiler deletionProfiler = profiler.newChild();
+        futures.add(executor.submit(() -> execute(deletion, deletionProfiler)));
+      }
+
+      // wait for all deletions, even when one of them fails, so that no deletion is still running on return
+      RuntimeException failure = null;
+      for (Future<PurgeProfiler> future : futures) {
+        try {
+          profiler.add(future.get());
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException("Purge failed", e.getCause());
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Purge was interrupted", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private PurgeProfiler execute(Deletion deletion, PurgeProfiler profiler) {
+    try (DbSession dbSession = myBatis.openSession(false)) {
+      deletion.execute(dbSession, new PurgeCommands(dbSession, profiler, system2));
+      dbSession.commit();
+    }
+    return profiler;
+  }
+
+  @FunctionalInterface
+  private interface Deletion {
+    void execute(DbSession dbSession, PurgeCommands purgeCommands);
+  }
+
   /**
    * Delete the non root components (ie. sub-view, application or project copy) from the specified collection of {@link ComponentDto}
    * and data from their child tables.
@@ -24,6 +24,7 @@ import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
+import org.sonar.db.component.SnapshotDto;
 
 public interface PurgeMapper {
 
@@ -40,6 +41,11 @@ public interface PurgeMapper {
 
   Set<String> selectDisabledComponentsWithLiveMeasures(@Param("projectUuid") String projectUuid);
 
+  /**
+   * Returns only the uuid, component uuid and date of the analyses.
+   */
+  List<SnapshotDto> selectAnalysesByUuids(@Param("analysisUuids") List<String> analysisUuids);
+
   void deleteAnalyses(@Param("analysisUuids") List<String> analysisUuids);
 
   void deleteAnalysisProperties(@Param("analysisUuids") List<String> analysisUuids);
@@ -86,6 +92,14 @@ public interface PurgeMapper {
 
   void deleteEventComponentChangesByComponentUuid(@Param("componentUuid") String componentUuid);
 
+  void deleteAnalysisMeasuresByComponentUuid(@Param("componentUuid") String componentUuid);
+
+  void deleteAnalysisDuplicationsByComponentUuid(@Param("componentUuid") String componentUuid);
+
+  void deleteAnalysisPropertiesByComponentUuid(@Param("componentUuid") String componentUuid);
+
+  void deleteAnalysesByComponentUuid(@Param("componentUuid") String componentUuid);
+
   List<PurgeableAnalysisDto> selectPurgeableAnalyses(@Param("componentUuid") String componentUuid);
 
   void deleteIssueChangesByProjectUuid(@Param("projectUuid") String projectUuid);
@@ -151,6 +165,10 @@ public interface PurgeMapper {
 
   void deleteLiveMeasuresByComponentUuids(@Param("componentUuids") List<String> componentUuids);
 
+  void deleteMeasureSeriesByProjectUuid(@Param("projectUuid") String projectUuid);
+
+  void deleteMeasureSeriesByComponentUuids(@Param("componentUuids") List<String> componentUuids);
+
   void deleteNewCodePeriodsByRootUuid(String rootUuid);
 
 }
@@ -64,6 +64,18 @@ public class PurgeProfiler {
     durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
   }
 
+  /**
+   * Creates a new profiler sharing the clock of this profiler, to be used by another thread. Its durations
+   * are merged back with {@link #add(PurgeProfiler)}.
+   */
+  PurgeProfiler newChild() {
+    return new PurgeProfiler(clock);
+  }
+
+  void add(PurgeProfiler other) {
+    other.durations.forEach((table, duration) -> durations.merge(table, duration, Long::sum));
+  }
+
   public void dump(long totalTime, Logger logger) {
     List<Entry<String, Long>> data = new ArrayList<>(durations.entrySet());
     Collections.sort(data, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
@@ -32,6 +32,10 @@ public final class PurgeSnapshotQuery {
    * If {@code true}, selects only analysis which have not been purged from historical and duplication data before.
    */
   private Boolean notPurged;
+  /**
+   * If not {@code null}, selects only analyses created strictly before this date.
+   */
+  private Long createdBefore;
 
   public PurgeSnapshotQuery(String componentUuid) {
     this.componentUuid = requireNonNull(componentUuid, "componentUuid can't be null");
@@ -70,4 +74,14 @@ public final class PurgeSnapshotQuery {
     return this;
   }
 
+  @CheckForNull
+  public Long getCreatedBefore() {
+    return createdBefore;
+  }
+
+  public PurgeSnapshotQuery setCreatedBefore(@Nullable Long createdBefore) {
+    this.createdBefore = createdBefore;
+    return this;
+  }
+
 }
@@ -21,18 +21,11 @@ package org.sonar.db.source;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
-import com.google.protobuf.CodedInputStream;
-import com.google.protobuf.InvalidProtocolBufferException;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import net.jpountz.lz4.LZ4BlockInputStream;
-import net.jpountz.lz4.LZ4BlockOutputStream;
-import org.apache.commons.io.IOUtils;
 import org.sonar.db.protobuf.DbFileSources;
 
 import static com.google.common.base.Splitter.on;
@@ -40,8 +33,6 @@ import static java.lang.String.format;
 
 public class FileSourceDto {
 
-  private static final String SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE = "Protocol message was too large.  May be malicious.  " +
-    "Use CodedInputStream.setSizeLimit() to increase the size limit.";
   private static final Joiner LINE_RETURN_JOINER = Joiner.on('\n');
   public static final Splitter LINES_HASHES_SPLITTER = on('\n');
   public static final int LINE_COUNT_NOT_POPULATED = -1;
@@ -122,7 +113,7 @@ public class FileSourceDto {
 
   public DbFileSources.Data decodeSourceData(byte[] binaryData) {
     try {
-      return decodeRegularSourceData(binaryData);
+      return SourceDataBlocks.decode(binaryData);
     } catch (IOException e) {
       throw new IllegalStateException(
         format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
@@ -130,40 +121,15 @@ public class FileSourceDto {
     }
   }
 
-  private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData) throws IOException {
-    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
-      return DbFileSources.Data.parseFrom(lz4Input);
-    } catch (InvalidProtocolBufferException e) {
-      if (SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE.equals(e.getMessage())) {
-        return decodeHugeSourceData(binaryData);
-      }
-      throw e;
-    }
-  }
-
-  private static DbFileSources.Data decodeHugeSourceData(byte[] binaryData) throws IOException {
-    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
-      CodedInputStream input = CodedInputStream.newInstance(lz4Input);
-      input.setSizeLimit(Integer.MAX_VALUE);
-      return DbFileSources.Data.parseFrom(input);
-    }
-  }
-
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
-   * in the column BINARY_DATA.
+   * in the column BINARY_DATA. Lines are compressed by blocks, see {@link SourceDataBlocks}.
    */
   public static byte[] encodeSourceData(DbFileSources.Data data) {
-    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
-    LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
     try {
-      data.writeTo(compressedOutput);
-      compressedOutput.close();
-      return byteOutput.toByteArray();
+      return SourceDataBlocks.encode(data);
     } catch (IOException e) {
       throw new IllegalStateException("Fail to serialize and compress source data", e);
-    } finally {
-      IOUtils.closeQuietly(compressedOutput);
     }
   }
 
@@ -189,6 +155,20 @@ public class FileSourceDto {
     return decodeSourceData(binaryData);
   }
 
+  /**
+   * Lines of {@link #getSourceData()} numbered from {@code from} to {@code toInclusive}. Only the blocks
+   * containing these lines are decompressed.
+   */
+  public List<DbFileSources.Line> getSourceLines(int from, int toInclusive) {
+    try {
+      return SourceDataBlocks.decodeLines(binaryData, from, toInclusive);
+    } catch (IOException e) {
+      throw new IllegalStateException(
+        format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+        e);
+    }
+  }
+
   public FileSourceDto setSourceData(DbFileSources.Data data) {
     this.binaryData = encodeSourceData(data);
     return this;
@@ -0,0 +1,192 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Format of column FILE_SOURCES.BINARY_DATA in which lines are split into blocks of {@link #LINES_PER_BLOCK} lines,
+ * compressed independently of each other, so that a range of lines can be read without decompressing the whole file:
+ * <pre>
+ * magic number              8 bytes
+ * number of blocks          int
+ * for each block            int number of the first line, int size of the compressed block
+ * compressed blocks
+ * </pre>
+ * A compressed block is the protobuf message {@link DbFileSources.Data} of its lines, compressed with LZ4. This is
+ * also the legacy format of the whole column, which is still supported when reading.
+ */
+final class SourceDataBlocks {
+
+  static final int LINES_PER_BLOCK = 250;
+  private static final byte[] MAGIC = "SQBlocks".getBytes(US_ASCII);
+  private static final String SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE = "Protocol message was too large.  May be malicious.  " +
+    "Use CodedInputStream.setSizeLimit() to increase the size limit.";
+
+  private SourceDataBlocks() {
+    // only static methods
+  }
+
+  static byte[] encode(DbFileSources.Data data) throws IOException {
+    List<DbFileSources.Line> lines = data.getLinesList();
+    int blockCount = (lines.size() + LINES_PER_BLOCK - 1) / LINES_PER_BLOCK;
+    List<byte[]> blocks = new ArrayList<>(blockCount);
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(byteOutput);
+    output.write(MAGIC);
+    output.writeInt(blockCount);
+    for (int start = 0; start < lines.size(); start += LINES_PER_BLOCK) {
+      List<DbFileSources.Line> blockLines = lines.subList(start, Math.min(start + LINES_PER_BLOCK, lines.size()));
+      byte[] block = compress(DbFileSources.Data.newBuilder().addAllLines(blockLines).build());
+      blocks.add(block);
+      output.writeInt(lineNumber(blockLines.get(0), start));
+      output.writeInt(block.length);
+    }
+    for (byte[] block : blocks) {
+      output.write(block);
+    }
+    output.close();
+    return byteOutput.toByteArray();
+  }
+
+  static DbFileSources.Data decode(byte[] binaryData) throws IOException {
+    if (!hasBlocks(binaryData)) {
+      return decompress(binaryData, 0, binaryData.length);
+    }
+    Header header = Header.read(binaryData);
+    DbFileSources.Data.Builder builder = DbFileSources.Data.newBuilder();
+    for (int i = 0; i < header.firstLines.length; i++) {
+      builder.addAllLines(decompress(binaryData, header.offsets[i], header.sizes[i]).getLinesList());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Lines numbered from {@code from} to {@code toInclusive}. Only the blocks containing these lines are decompressed.
+   */
+  static List<DbFileSources.Line> decodeLines(byte[] binaryData, int from, int toInclusive) throws IOException {
+    List<DbFileSources.Line> result = new ArrayList<>();
+    if (!hasBlocks(binaryData)) {
+      addLines(decompress(binaryData, 0, binaryData.length), from, toInclusive, result);
+      return result;
+    }
+    Header header = Header.read(binaryData);
+    int blockCount = header.firstLines.length;
+    for (int i = 0; i < blockCount && header.firstLines[i] <= toInclusive; i++) {
+      boolean lastBlock = i == blockCount - 1;
+      if (lastBlock || header.firstLines[i + 1] > from) {
+        addLines(decompress(binaryData, header.offsets[i], header.sizes[i]), from, toInclusive, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Legacy format of the whole column, which is the format of each block
+   */
+  static byte[] compress(DbFileSources.Data data) throws IOException {
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput)) {
+      data.writeTo(compressedOutput);
+    }
+    return byteOutput.toByteArray();
+  }
+
+  private static DbFileSources.Data decompress(byte[] binaryData, int offset, int length) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offset, length))) {
+      return DbFileSources.Data.parseFrom(lz4Input);
+    } catch (InvalidProtocolBufferException e) {
+      if (SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE.equals(e.getMessage())) {
+        return decompressHuge(binaryData, offset, length);
+      }
+      throw e;
+    }
+  }
+
+  private static DbFileSources.Data decompressHuge(byte[] binaryData, int offset, int length) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offset, length))) {
+      CodedInputStream input = CodedInputStream.newInstance(lz4Input);
+      input.setSizeLimit(Integer.MAX_VALUE);
+      return DbFileSources.Data.parseFrom(input);
+    }
+  }
+
+  private static void addLines(DbFileSources.Data data, int from, int toInclusive, List<DbFileSources.Line> result) {
+    for (DbFileSources.Line line : data.getLinesList()) {
+      if (line.hasLine() && line.getLine() >= from && line.getLine() <= toInclusive) {
+        result.add(line);
+      }
+    }
+  }
+
+  private static int lineNumber(DbFileSources.Line line, int index) {
+    return line.hasLine() ? line.getLine() : (index + 1);
+  }
+
+  private static boolean hasBlocks(byte[] binaryData) {
+    return binaryData.length >= MAGIC.length && Arrays.equals(MAGIC, Arrays.copyOf(binaryData, MAGIC.length));
+  }
+
+  private static class Header {
+    private final int[] firstLines;
+    private final int[] offsets;
+    private final int[] sizes;
+
+    private Header(int blockCount) {
+      this.firstLines = new int[blockCount];
+      this.offsets = new int[blockCount];
+      this.sizes = new int[blockCount];
+    }
+
+    private static Header read(byte[] binaryData) throws IOException {
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(binaryData, MAGIC.length, binaryData.length - MAGIC.length));
+      int blockCount = input.readInt();
+      if (blockCount < 0 || MAGIC.length + 4 + blockCount * 8L > binaryData.length) {
+        throw new IOException("Invalid number of blocks of source data: " + blockCount);
+      }
+      Header header = new Header(blockCount);
+      int offset = MAGIC.length + 4 + blockCount * 8;
+      for (int i = 0; i < blockCount; i++) {
+        header.firstLines[i] = input.readInt();
+        header.sizes[i] = input.readInt();
+        header.offsets[i] = offset;
+        offset += header.sizes[i];
+      }
+      if (offset != binaryData.length) {
+        throw new IOException("Invalid blocks of source data. Expected size is " + offset + " bytes, got " + binaryData.length);
+      }
+      return header;
+    }
+  }
+}
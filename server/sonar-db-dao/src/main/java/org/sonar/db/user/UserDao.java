@@ -127,6 +127,13 @@ public class UserDao implements Dao {
     return dto;
   }
 
+  /**
+   * Updates only the date of last connection of an active user, so that it can't overwrite concurrent changes.
+   */
+  public void updateLastConnectionDate(DbSession session, String userUuid, long lastConnectionDate) {
+    mapper(session).updateLastConnectionDate(userUuid, lastConnectionDate);
+  }
+
   public void setRoot(DbSession session, String login, boolean root) {
     mapper(session).setRoot(login, root, system2.now());
   }
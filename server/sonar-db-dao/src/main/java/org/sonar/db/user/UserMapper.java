@@ -78,6 +78,8 @@ public interface UserMapper {
 
   void update(@Param("user") UserDto userDto);
 
+  void updateLastConnectionDate(@Param("uuid") String uuid, @Param("lastConnectionDate") long lastConnectionDate);
+
   void setRoot(@Param("login") String login, @Param("root") boolean root, @Param("now") long now);
 
   void deactivateUser(@Param("login") String login, @Param("now") long now);
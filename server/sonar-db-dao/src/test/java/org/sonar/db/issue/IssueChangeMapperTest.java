@@ -19,6 +19,7 @@
  */
 package org.sonar.db.issue;
 
+import java.util.Arrays;
 import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
@@ -77,6 +78,33 @@ public class IssueChangeMapperTest {
     assertEquals(dto, issueChangeDto);
   }
 
+  @Test
+  public void insertMultiple() {
+    IssueChangeDto diff = new IssueChangeDto();
+    diff.setUserUuid("user_uuid");
+    diff.setIssueKey("ABCDE");
+    diff.setChangeType(IssueChangeDto.TYPE_FIELD_CHANGE);
+    diff.setChangeData("severity=INFO|BLOCKER");
+    diff.setCreatedAt(1_500_000_000_000L);
+    diff.setUpdatedAt(1_500_000_000_000L);
+    diff.setIssueChangeCreationDate(1_500_000_000_000L);
+    IssueChangeDto comment = new IssueChangeDto();
+    comment.setKey("COMMENT-1234");
+    comment.setUserUuid("user_uuid");
+    comment.setIssueKey("FGHIJ");
+    comment.setChangeType(IssueChangeDto.TYPE_COMMENT);
+    comment.setChangeData("the comment");
+    comment.setCreatedAt(1_500_000_000_000L);
+    comment.setUpdatedAt(1_500_000_000_000L);
+    comment.setIssueChangeCreationDate(1_500_000_000_000L);
+
+    underTest.insertMultiple(Arrays.asList(diff, comment));
+    dbTester.getSession().commit();
+
+    assertEquals(diff, underTest.selectByIssues(singletonList("ABCDE")).get(0));
+    assertEquals(comment, underTest.selectByIssues(singletonList("FGHIJ")).get(0));
+  }
+
   private void assertEquals(IssueChangeDto expected, IssueChangeDto actual) {
     assertThat(actual.getKey()).isEqualTo(expected.getKey());
     assertThat(actual.getUserUuid()).isEqualTo(expected.getUserUuid());
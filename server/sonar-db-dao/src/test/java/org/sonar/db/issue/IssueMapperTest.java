@@ -117,6 +117,20 @@ public class IssueMapperTest {
     assertThat(result.getUpdatedAt()).isEqualTo(1_500_000_000_000L);
   }
 
+  @Test
+  public void insertMultiple() {
+    IssueDto issue1 = newIssue();
+    IssueDto issue2 = newIssue().setKee("FGHIJ").setComponentUuid(file2.uuid()).setLine(null).setGap(null);
+    underTest.insertMultiple(Arrays.asList(issue1, issue2));
+    dbTester.getSession().commit();
+
+    assertThat(underTest.selectByKeys(Arrays.asList("ABCDE", "FGHIJ")))
+      .extracting(IssueDto::getKey, IssueDto::getComponentUuid, IssueDto::getLine, IssueDto::getGap, IssueDto::getMessage)
+      .containsOnly(
+        tuple("ABCDE", file.uuid(), 500, 3.14d, "the message"),
+        tuple("FGHIJ", file2.uuid(), null, null, "the message"));
+  }
+
   @Test
   public void update() {
     underTest.insert(newIssue());
@@ -0,0 +1,197 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+import java.sql.Statement;
+import java.util.List;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.impl.utils.TestSystem2;
+import org.sonar.db.BatchSession;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.measure.MeasureSeries.Point;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MeasureSeriesDaoTest {
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+
+  @Rule
+  public DbTester db = DbTester.create(system2);
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private DbSession dbSession = db.getSession();
+  private MeasureSeriesDao underTest = db.getDbClient().measureSeriesDao();
+
+  @Test
+  public void insert_and_select_by_component_uuid() {
+    MeasureSeries series = new MeasureSeries().add(new Point(10L, 2.0, 1.0, "foo"));
+    underTest.insert(dbSession, newDto("C1", 1).setSeries(series));
+    underTest.insert(dbSession, newDto("C1", 2));
+    underTest.insert(dbSession, newDto("C2", 1));
+
+    assertThat(underTest.selectByComponentUuid(dbSession, "C1"))
+      .extracting(MeasureSeriesDto::getComponentUuid, MeasureSeriesDto::getProjectUuid, MeasureSeriesDto::getMetricId)
+      .containsExactlyInAnyOrder(
+        tuple("C1", "P1", 1),
+        tuple("C1", "P1", 2));
+    assertThat(underTest.selectByComponentUuidAndMetricIds(dbSession, "C1", singletonList(1)))
+      .extracting(dto -> dto.getSeries().getPoints())
+      .containsExactly(series.getPoints());
+    assertThat(underTest.selectByComponentUuid(dbSession, "unknown")).isEmpty();
+  }
+
+  @Test
+  public void select_by_component_uuid_and_metric_ids() {
+    underTest.insert(dbSession, newDto("C1", 1));
+    underTest.insert(dbSession, newDto("C1", 2));
+    underTest.insert(dbSession, newDto("C1", 3));
+    underTest.insert(dbSession, newDto("C2", 1));
+
+    assertThat(underTest.selectByComponentUuidAndMetricIds(dbSession, "C1", asList(1, 3, 4)))
+      .extracting(MeasureSeriesDto::getMetricId)
+      .containsExactlyInAnyOrder(1, 3);
+  }
+
+  @Test
+  public void update_replaces_series() {
+    MeasureSeriesDto dto = newDto("C1", 1);
+    underTest.insert(dbSession, dto);
+    system2.setNow(2_000L);
+
+    boolean updated = underTest.update(dbSession, dto.setSeries(new MeasureSeries().add(new Point(10L, 5.0, null, null))));
+
+    assertThat(updated).isTrue();
+    assertThat(dto.getUpdatedAt()).isEqualTo(2_000L);
+    assertThat(underTest.selectByComponentUuid(dbSession, "C1"))
+      .extracting(d -> d.getSeries().getPoints())
+      .containsExactly(singletonList(new Point(10L, 5.0, null, null)));
+    assertThat(db.selectFirst("select created_at as \"createdAt\", updated_at as \"updatedAt\" from measure_series"))
+      .containsEntry("createdAt", 1_000L)
+      .containsEntry("updatedAt", 2_000L);
+  }
+
+  @Test
+  public void update_does_nothing_if_series_has_been_updated_since_it_was_read() {
+    underTest.insert(dbSession, newDto("C1", 1));
+    MeasureSeriesDto read = underTest.selectByComponentUuid(dbSession, "C1").get(0);
+    MeasureSeriesDto concurrentlyRead = underTest.selectByComponentUuid(dbSession, "C1").get(0);
+    underTest.update(dbSession, concurrentlyRead.setSeries(new MeasureSeries().add(new Point(10L, 5.0, null, null))));
+
+    boolean updated = underTest.update(dbSession, read.setSeries(new MeasureSeries().add(new Point(20L, 6.0, null, null))));
+
+    assertThat(updated).isFalse();
+    assertThat(underTest.selectByComponentUuid(dbSession, "C1"))
+      .extracting(d -> d.getSeries().getPoints())
+      .containsExactly(singletonList(new Point(10L, 5.0, null, null)));
+  }
+
+  @Test
+  public void update_changes_updated_at_of_series_updated_during_the_same_millisecond() {
+    underTest.insert(dbSession, newDto("C1", 1));
+    MeasureSeriesDto read = underTest.selectByComponentUuid(dbSession, "C1").get(0);
+    MeasureSeriesDto concurrentlyRead = underTest.selectByComponentUuid(dbSession, "C1").get(0);
+
+    assertThat(underTest.update(dbSession, concurrentlyRead)).isTrue();
+    assertThat(underTest.update(dbSession, read)).isFalse();
+    assertThat(concurrentlyRead.getUpdatedAt()).isEqualTo(1_001L);
+  }
+
+  @Test
+  public void update_reports_conflicts_in_batch_session() {
+    underTest.insert(dbSession, newDto("C1", 1));
+    db.commit();
+    try (DbSession batchSession = db.getDbClient().openSession(true)) {
+      MeasureSeriesDto read = underTest.selectByComponentUuid(batchSession, "C1").get(0);
+      MeasureSeriesDto concurrentlyRead = underTest.selectByComponentUuid(batchSession, "C1").get(0);
+
+      assertThat(underTest.update(batchSession, concurrentlyRead)).isTrue();
+      assertThat(underTest.update(batchSession, read)).isFalse();
+    }
+  }
+
+  @Test
+  public void update_many_series_in_batch_session_returns_those_updated_concurrently() {
+    int count = BatchSession.MAX_BATCH_SIZE + 50;
+    for (int metricId = 1; metricId <= count; metricId++) {
+      underTest.insert(dbSession, newDto("C1", metricId));
+    }
+    db.commit();
+    system2.setNow(2_000L);
+    try (DbSession batchSession = db.myBatis().openSession(true)) {
+      List<MeasureSeriesDto> read = underTest.selectByComponentUuid(batchSession, "C1");
+      MeasureSeriesDto concurrentlyRead = underTest.selectByComponentUuidAndMetricIds(batchSession, "C1", singletonList(count)).get(0);
+      assertThat(underTest.update(batchSession, concurrentlyRead)).isTrue();
+      read.forEach(dto -> dto.setSeries(new MeasureSeries().add(new Point(20L, 6.0, null, null))));
+
+      List<MeasureSeriesDto> notUpdated = underTest.update(batchSession, read);
+      batchSession.commit();
+
+      assertThat(notUpdated).extracting(MeasureSeriesDto::getMetricId).containsExactly(count);
+      assertThat(read).filteredOn(dto -> dto.getMetricId() != count).extracting(MeasureSeriesDto::getUpdatedAt).containsOnly(2_000L);
+    }
+    assertThat(db.countSql("select count(1) from measure_series where updated_at = 2000")).isEqualTo(count);
+    assertThat(underTest.selectByComponentUuidAndMetricIds(dbSession, "C1", singletonList(count)))
+      .extracting(d -> d.getSeries().getPoints())
+      .containsExactly(emptyList());
+  }
+
+  @Test
+  public void update_fails_if_driver_does_not_report_number_of_updated_rows() {
+    MeasureSeriesDto dto = newDto("C1", 1);
+    DbSession batchSession = mock(DbSession.class);
+    MeasureSeriesMapper mapper = mock(MeasureSeriesMapper.class);
+    when(batchSession.getMapper(MeasureSeriesMapper.class)).thenReturn(mapper);
+    when(mapper.update(any(), anyLong())).thenReturn(BatchExecutor.BATCH_UPDATE_RETURN_VALUE);
+    MappedStatement update = dbSession.getConfiguration().getMappedStatement(MeasureSeriesMapper.class.getName() + ".update");
+    BatchResult batchResult = new BatchResult(update, "update");
+    batchResult.addParameterObject(dto);
+    batchResult.setUpdateCounts(new int[] {Statement.SUCCESS_NO_INFO});
+    when(batchSession.flushStatements()).thenReturn(emptyList(), singletonList(batchResult));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("The JDBC driver did not report the number of updated measure series (-2)");
+
+    underTest.update(batchSession, dto);
+  }
+
+  private static MeasureSeriesDto newDto(String componentUuid, int metricId) {
+    return new MeasureSeriesDto()
+      .setComponentUuid(componentUuid)
+      .setProjectUuid("P1")
+      .setMetricId(metricId)
+      .setSeries(new MeasureSeries());
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.db.measure.MeasureSeries.Point;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MeasureSeriesTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void encode_and_decode_empty_series() {
+    MeasureSeries decoded = MeasureSeries.decode(new MeasureSeries().encode());
+
+    assertThat(decoded.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void encode_and_decode_points() {
+    MeasureSeries series = new MeasureSeries()
+      .add(new Point(1_000L, 10.0, null, null))
+      .add(new Point(2_000L, 12.0, -3.0, null))
+      .add(new Point(3_000L, 85.4, 0.25, null))
+      .add(new Point(4_000L, -7.0, 2.0, "foo"))
+      .add(new Point(5_000L, null, null, "foo"))
+      .add(new Point(6_000L, null, 1.5, null))
+      .add(new Point(7_000L, (double) Long.MAX_VALUE, Double.NaN, "bar"));
+
+    MeasureSeries decoded = MeasureSeries.decode(series.encode());
+
+    assertThat(decoded.getPoints()).containsExactlyElementsOf(series.getPoints());
+  }
+
+  @Test
+  public void unchanged_values_are_compact() {
+    MeasureSeries series = new MeasureSeries();
+    for (long date = 1_500_000_000_000L; date < 1_500_000_000_000L + 100 * 86_400_000L; date += 86_400_000L) {
+      series.add(new Point(date, 1_234_567.0, 0.0, "a long data value which is repeated on every analysis"));
+    }
+
+    byte[] bytes = series.encode();
+
+    assertThat(bytes.length).isLessThan(100 * 10);
+    assertThat(MeasureSeries.decode(bytes).getPoints()).containsExactlyElementsOf(series.getPoints());
+  }
+
+  @Test
+  public void add_keeps_points_sorted_by_date() {
+    MeasureSeries series = new MeasureSeries()
+      .add(new Point(3_000L, 3.0, null, null))
+      .add(new Point(1_000L, 1.0, null, null))
+      .add(new Point(2_000L, 2.0, null, null));
+
+    assertThat(series.getPoints()).extracting(Point::getDate).containsExactly(1_000L, 2_000L, 3_000L);
+  }
+
+  @Test
+  public void add_replaces_point_of_same_date() {
+    MeasureSeries series = new MeasureSeries()
+      .add(new Point(1_000L, 1.0, null, null))
+      .add(new Point(2_000L, 2.0, null, null))
+      .add(new Point(1_000L, 10.0, null, null));
+
+    assertThat(series.getPoints()).containsExactly(
+      new Point(1_000L, 10.0, null, null),
+      new Point(2_000L, 2.0, null, null));
+  }
+
+  @Test
+  public void removeIf_returns_whether_points_have_been_removed() {
+    MeasureSeries series = new MeasureSeries()
+      .add(new Point(1_000L, 1.0, null, null))
+      .add(new Point(2_000L, 2.0, null, null));
+
+    assertThat(series.removeIf(p -> p.getDate() == 3_000L)).isFalse();
+    assertThat(series.removeIf(p -> p.getDate() == 1_000L)).isTrue();
+    assertThat(series.getPoints()).extracting(Point::getDate).containsExactly(2_000L);
+  }
+
+  @Test
+  public void fail_to_decode_unsupported_version() {
+    byte[] bytes = new MeasureSeries().add(new Point(1_000L, 1.0, null, null)).encode();
+    bytes[0] = 42;
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Unsupported version of measure series: 42");
+
+    MeasureSeries.decode(bytes);
+  }
+}
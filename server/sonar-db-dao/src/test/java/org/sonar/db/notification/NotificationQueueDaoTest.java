@@ -95,6 +95,28 @@ public class NotificationQueueDaoTest {
       .containsOnly(ids.toArray(new Long[0]));
   }
 
+  @Test
+  public void should_dequeueOldest() {
+    List<NotificationQueueDto> notifs = IntStream.range(0, 20)
+      .mapToObj(i -> toNotificationQueueDto(new Notification("foo_" + i)))
+      .collect(toList());
+    dao.insert(notifs);
+    db.commit();
+
+    List<Long> ids = selectAllIds();
+
+    assertThat(dao.dequeueOldest(3))
+      .extracting(NotificationQueueDto::getId)
+      .containsOnly(ids.stream().limit(3).toArray(Long[]::new));
+    assertThat(selectAllIds()).containsOnly(ids.stream().skip(3).toArray(Long[]::new));
+
+    assertThat(dao.dequeueOldest(22))
+      .extracting(NotificationQueueDto::getId)
+      .containsOnly(ids.stream().skip(3).toArray(Long[]::new));
+    assertThat(dao.count()).isZero();
+    assertThat(dao.dequeueOldest(0)).isEmpty();
+  }
+
   private List<Long> selectAllIds() {
     return db.select("select id as \"ID\" from notifications").stream()
       .map(t -> (Long) t.get("ID"))
@@ -44,6 +44,9 @@ import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.dialect.Dialect;
 import org.sonar.db.duplication.DuplicationUnitDto;
 import org.sonar.db.issue.IssueDto;
+import org.sonar.db.measure.MeasureSeries;
+import org.sonar.db.measure.MeasureSeriesDao;
+import org.sonar.db.measure.MeasureSeriesDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.newcodeperiod.NewCodePeriodType;
 import org.sonar.db.organization.OrganizationDto;
@@ -54,6 +57,8 @@ import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -315,6 +320,28 @@ public class PurgeCommandsTest {
     assertThat(countMeasuresOf(otherAnalysis2)).isEqualTo(count * 2);
   }
 
+  @Test
+  @UseDataProvider("projectsAndViews")
+  public void deleteAnalyses_by_rootUuid_deletes_duplications(ComponentDto projectOrView) {
+    dbTester.components().insertComponent(projectOrView);
+    SnapshotDto analysis1 = dbTester.components().insertSnapshot(projectOrView);
+    SnapshotDto analysis2 = dbTester.components().insertSnapshot(projectOrView);
+    ComponentDto otherProject = dbTester.components().insertPrivateProject();
+    SnapshotDto otherAnalysis = dbTester.components().insertSnapshot(otherProject);
+    int count = 1 + random.nextInt(12);
+    IntStream.range(0, count).forEach(i -> {
+      insertDuplication(projectOrView, analysis1);
+      insertDuplication(projectOrView, analysis2);
+      insertDuplication(otherProject, otherAnalysis);
+    });
+
+    underTest.deleteAnalyses(projectOrView.uuid());
+
+    assertThat(countDuplications(analysis1)).isZero();
+    assertThat(countDuplications(analysis2)).isZero();
+    assertThat(countDuplications(otherAnalysis)).isEqualTo(count);
+  }
+
   @Test
   @UseDataProvider("projectsAndViews")
   public void deleteAnalyses_by_rootUuid_deletes_analysis_properties(ComponentDto projectOrView) {
@@ -354,7 +381,7 @@ public class PurgeCommandsTest {
         dbTester.components().insertSnapshot(p, t -> t.setStatus(STATUS_UNPROCESSED).setLast(true));
       });
 
-    underTest.deleteAbortedAnalyses(projectOrView.uuid());
+    underTest.deleteAbortedAnalyses(projectOrView.uuid(), null);
 
     assertThat(countAnalysesOfRoot(projectOrView, STATUS_UNPROCESSED, true)).isEqualTo(1);
     assertThat(countAnalysesOfRoot(projectOrView, STATUS_UNPROCESSED, false)).isZero();
@@ -386,6 +413,42 @@ public class PurgeCommandsTest {
     assertThat(uuidsOfAnalysesOfRoot(projectOrView)).isEmpty();
   }
 
+  @Test
+  @UseDataProvider("projectsAndViews")
+  public void deleteAnalyses_by_analyses_deletes_points_of_measure_series(ComponentDto projectOrView) {
+    dbTester.components().insertComponent(projectOrView);
+    SnapshotDto analysis1 = dbTester.components().insertSnapshot(projectOrView, s -> s.setCreatedAt(1_000L));
+    SnapshotDto analysis2 = dbTester.components().insertSnapshot(projectOrView, s -> s.setCreatedAt(2_000L));
+    SnapshotDto analysis3 = dbTester.components().insertSnapshot(projectOrView, s -> s.setCreatedAt(3_000L));
+    MeasureSeries series = new MeasureSeries();
+    Stream.of(analysis1, analysis2, analysis3).forEach(a -> series.add(new MeasureSeries.Point(a.getCreatedAt(), 1.0, null, null)));
+    MeasureSeriesDao measureSeriesDao = dbTester.getDbClient().measureSeriesDao();
+    measureSeriesDao.insert(dbTester.getSession(), new MeasureSeriesDto()
+      .setComponentUuid(projectOrView.uuid())
+      .setProjectUuid(projectOrView.uuid())
+      .setMetricId(1)
+      .setSeries(series));
+    dbTester.commit();
+
+    underTest.deleteAnalyses(toIdUuidPairs(Stream.of(analysis1, analysis3)));
+
+    assertThat(measureSeriesDao.selectByComponentUuid(dbTester.getSession(), projectOrView.uuid()))
+      .flatExtracting(dto -> dto.getSeries().getPoints())
+      .extracting(MeasureSeries.Point::getDate)
+      .containsExactly(2_000L);
+  }
+
+  @Test
+  public void deleteAbortedAnalyses_deletes_only_analyses_created_before_the_given_date() {
+    ComponentDto project = dbTester.components().insertPrivateProject();
+    SnapshotDto oldAnalysis = dbTester.components().insertSnapshot(project, t -> t.setStatus(STATUS_UNPROCESSED).setLast(false).setCreatedAt(1_000L));
+    SnapshotDto recentAnalysis = dbTester.components().insertSnapshot(project, t -> t.setStatus(STATUS_UNPROCESSED).setLast(false).setCreatedAt(2_000L));
+
+    underTest.deleteAbortedAnalyses(project.uuid(), 2_000L);
+
+    assertThat(uuidsOfAnalysesOfRoot(project)).containsOnly(recentAnalysis.getUuid());
+  }
+
   private Stream<String> uuidsOfAnalysesOfRoot(ComponentDto rootComponent) {
     return dbTester.select("select uuid as \"UUID\" from snapshots where component_uuid='" + rootComponent.uuid() + "'")
       .stream()
@@ -513,6 +576,35 @@ public class PurgeCommandsTest {
     assertThat(dbTester.countRowsOfTable("ISSUE_CHANGES")).isZero();
   }
 
+  @Test
+  public void deleteIssues_by_keys_deletes_specified_issues_and_their_changes() {
+    RuleDefinitionDto rule = dbTester.rules().insert();
+    ComponentDto project = dbTester.components().insertPrivateProject();
+    IssueDto issue1 = dbTester.issues().insertIssue(t -> t.setRule(rule).setProject(project).setComponent(project));
+    dbTester.issues().insertChange(issue1);
+    IssueDto issue2 = dbTester.issues().insertIssue(t -> t.setRule(rule).setProject(project).setComponent(project));
+    dbTester.issues().insertChange(issue2);
+    IssueDto otherIssue = dbTester.issues().insertIssue(t -> t.setRule(rule).setProject(project).setComponent(project));
+    dbTester.issues().insertChange(otherIssue);
+
+    underTest.deleteIssues(asList(issue1.getKey(), issue2.getKey()));
+
+    assertThat(dbTester.countRowsOfTable("issues")).isEqualTo(1);
+    assertThat(dbTester.countSql("select count(*) from issues where kee='" + otherIssue.getKey() + "'")).isEqualTo(1);
+    assertThat(dbTester.countRowsOfTable("issue_changes")).isEqualTo(1);
+  }
+
+  @Test
+  public void deleteIssues_by_keys_does_nothing_if_no_keys() {
+    RuleDefinitionDto rule = dbTester.rules().insert();
+    ComponentDto project = dbTester.components().insertPrivateProject();
+    dbTester.issues().insertIssue(t -> t.setRule(rule).setProject(project).setComponent(project));
+
+    underTest.deleteIssues(emptyList());
+
+    assertThat(dbTester.countRowsOfTable("issues")).isEqualTo(1);
+  }
+
   @Test
   public void deletePermissions_deletes_permissions_of_public_project() {
     OrganizationDto organization = dbTester.organizations().insert();
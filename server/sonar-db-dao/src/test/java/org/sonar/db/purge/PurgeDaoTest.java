@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -43,6 +44,7 @@ import org.junit.rules.ExpectedException;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.UuidFactoryFast;
 import org.sonar.core.util.Uuids;
@@ -70,6 +72,8 @@ import org.sonar.db.issue.IssueChangeDto;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureSeries;
+import org.sonar.db.measure.MeasureSeriesDto;
 import org.sonar.db.measure.custom.CustomMeasureDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.newcodeperiod.NewCodePeriodDto;
@@ -90,6 +94,7 @@ import static java.util.Collections.singletonList;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -136,6 +141,42 @@ public class PurgeDaoTest {
     assertThat(uuidsOfAnalysesOfRoot(project)).containsOnly(pastAnalysis.getUuid(), lastAnalysis.getUuid());
   }
 
+  @Test
+  public void purge_does_not_touch_analyses_created_after_the_given_date() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto abortedAnalysis = db.components().insertSnapshot(project, t -> t.setStatus(STATUS_UNPROCESSED).setLast(false).setCreatedAt(1_000L));
+    SnapshotDto lastAnalysis = db.components().insertSnapshot(project, t -> t.setStatus(STATUS_PROCESSED).setLast(true).setCreatedAt(2_000L));
+    // analysis which started after the purge was requested
+    SnapshotDto runningAnalysis = db.components().insertSnapshot(project, t -> t.setStatus(STATUS_UNPROCESSED).setLast(false).setCreatedAt(3_000L));
+    PurgeConfiguration conf = new PurgeConfiguration(project.uuid(), project.uuid(), emptyList(), 30, Optional.of(30), System2.INSTANCE, emptySet(),
+      lastAnalysis.getCreatedAt());
+
+    underTest.purge(dbSession, conf, PurgeListener.EMPTY, new PurgeProfiler());
+    dbSession.commit();
+
+    assertThat(uuidsOfAnalysesOfRoot(project)).containsOnly(lastAnalysis.getUuid(), runningAnalysis.getUuid());
+  }
+
+  @Test
+  public void purge_records_durations_of_concurrent_deletions_in_profiler() {
+    ComponentDto project = db.components().insertPrivateProject();
+    db.components().insertSnapshot(project, t -> t.setStatus(STATUS_UNPROCESSED).setLast(false));
+    AtomicLong now = new AtomicLong();
+    PurgeProfiler profiler = new PurgeProfiler(new PurgeProfiler.Clock() {
+      @Override
+      public long now() {
+        return now.incrementAndGet();
+      }
+    });
+    Logger logger = mock(Logger.class);
+
+    underTest.purge(dbSession, newConfigurationWith30Days(project.uuid()), PurgeListener.EMPTY, profiler);
+    profiler.dump(100, logger);
+
+    verify(logger).info(contains("deleteAnalyses (snapshots)"));
+    verify(logger).info(contains("deleteCeActivityBefore (ce_activity)"));
+  }
+
   @Test
   public void purge_inactive_short_living_branches() {
     when(system2.now()).thenReturn(new Date().getTime());
@@ -1370,6 +1411,28 @@ public class PurgeDaoTest {
     assertThat(dbClient.liveMeasureDao().selectByComponentUuidsAndMetricIds(dbSession, asList(project2.uuid(), module2.uuid()), asList(metric.getId()))).hasSize(2);
   }
 
+  @Test
+  public void delete_measure_series_when_deleting_project() {
+    ComponentDto project1 = db.components().insertPublicProject();
+    ComponentDto project2 = db.components().insertPublicProject();
+    insertMeasureSeries(project1);
+    insertMeasureSeries(project2);
+
+    underTest.deleteProject(dbSession, project1.uuid());
+
+    assertThat(dbClient.measureSeriesDao().selectByComponentUuid(dbSession, project1.uuid())).isEmpty();
+    assertThat(dbClient.measureSeriesDao().selectByComponentUuid(dbSession, project2.uuid())).hasSize(1);
+  }
+
+  private void insertMeasureSeries(ComponentDto project) {
+    dbClient.measureSeriesDao().insert(dbSession, new MeasureSeriesDto()
+      .setComponentUuid(project.uuid())
+      .setProjectUuid(project.uuid())
+      .setMetricId(1)
+      .setSeries(new MeasureSeries().add(new MeasureSeries.Point(1_000L, 1.0, null, null))));
+    dbSession.commit();
+  }
+
   private void verifyNoEffect(ComponentDto firstRoot, ComponentDto... otherRoots) {
     DbSession dbSession = mock(DbSession.class);
 
@@ -80,6 +80,27 @@ public class PurgeProfilerTest {
     verify(logger).info(contains("bar: 5ms"));
   }
 
+  @Test
+  public void add_durations_of_child_profiler() {
+    profiler.start("foo");
+    clock.sleep(10);
+    profiler.stop();
+
+    PurgeProfiler child = profiler.newChild();
+    child.start("foo");
+    clock.sleep(3);
+    child.stop();
+    child.start("bar");
+    clock.sleep(5);
+    child.stop();
+
+    profiler.add(child);
+
+    profiler.dump(50, logger);
+    verify(logger).info(contains("foo: 13ms"));
+    verify(logger).info(contains("bar: 5ms"));
+  }
+
   private class MockedClock extends PurgeProfiler.Clock {
     private long now = 0;
 
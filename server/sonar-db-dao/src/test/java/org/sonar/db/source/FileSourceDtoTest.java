@@ -68,6 +68,48 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void getSourceData_reads_legacy_Data_object_bigger_than_default_size_limit() throws Exception {
+    DbFileSources.Data build = createOver64MBDataStructure();
+    byte[] bytes = SourceDataBlocks.compress(build);
+
+    DbFileSources.Data data = new FileSourceDto().decodeSourceData(bytes);
+    assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
+  }
+
+  @Test
+  public void getSourceLines_returns_lines_of_range() {
+    FileSourceDto underTest = new FileSourceDto().setSourceData(createData(1_000));
+
+    assertThat(underTest.getSourceLines(240, 260))
+      .extracting(DbFileSources.Line::getLine)
+      .containsExactlyElementsOf(IntStream.rangeClosed(240, 260).boxed().collect(Collectors.toList()));
+    assertThat(underTest.getSourceLines(999, 1_200)).extracting(DbFileSources.Line::getLine).containsExactly(999, 1_000);
+    assertThat(underTest.getSourceLines(1_001, 1_200)).isEmpty();
+  }
+
+  @Test
+  public void getSourceLines_throws_ISE_with_id_fileUuid_and_projectUuid_in_message_when_data_cant_be_read() {
+    FileSourceDto underTest = new FileSourceDto()
+      .setBinaryData(new byte[] {1, 2, 3, 4, 5})
+      .setId(12L)
+      .setFileUuid("file uuid")
+      .setProjectUuid("project uuid");
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to decompress and deserialize source data [id=12,fileUuid=file uuid,projectUuid=project uuid]");
+
+    underTest.getSourceLines(1, 10);
+  }
+
+  private static DbFileSources.Data createData(int lines) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= lines; i++) {
+      dataBuilder.addLinesBuilder().setSource("line " + i).setLine(i);
+    }
+    return dataBuilder.build();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
@@ -0,0 +1,107 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.source.SourceDataBlocks.LINES_PER_BLOCK;
+
+public class SourceDataBlocksTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void encode_and_decode_lines_of_many_blocks() throws IOException {
+    DbFileSources.Data data = createData(3 * LINES_PER_BLOCK + 7);
+
+    assertThat(SourceDataBlocks.decode(SourceDataBlocks.encode(data))).isEqualTo(data);
+  }
+
+  @Test
+  public void encode_and_decode_no_lines() throws IOException {
+    DbFileSources.Data data = DbFileSources.Data.getDefaultInstance();
+
+    byte[] bytes = SourceDataBlocks.encode(data);
+
+    assertThat(SourceDataBlocks.decode(bytes)).isEqualTo(data);
+    assertThat(SourceDataBlocks.decodeLines(bytes, 1, 10)).isEmpty();
+  }
+
+  @Test
+  public void decode_legacy_format() throws IOException {
+    DbFileSources.Data data = createData(LINES_PER_BLOCK + 10);
+
+    byte[] bytes = SourceDataBlocks.compress(data);
+
+    assertThat(SourceDataBlocks.decode(bytes)).isEqualTo(data);
+    assertThat(SourceDataBlocks.decodeLines(bytes, LINES_PER_BLOCK, LINES_PER_BLOCK + 1))
+      .extracting(DbFileSources.Line::getLine)
+      .containsExactly(LINES_PER_BLOCK, LINES_PER_BLOCK + 1);
+  }
+
+  @Test
+  public void decodeLines_returns_lines_of_range_only() throws IOException {
+    byte[] bytes = SourceDataBlocks.encode(createData(2 * LINES_PER_BLOCK));
+
+    assertThat(SourceDataBlocks.decodeLines(bytes, 3, 5)).extracting(DbFileSources.Line::getLine).containsExactly(3, 4, 5);
+    assertThat(SourceDataBlocks.decodeLines(bytes, LINES_PER_BLOCK, LINES_PER_BLOCK + 1))
+      .extracting(DbFileSources.Line::getSource)
+      .containsExactly("line " + LINES_PER_BLOCK, "line " + (LINES_PER_BLOCK + 1));
+    assertThat(SourceDataBlocks.decodeLines(bytes, 2 * LINES_PER_BLOCK + 1, 3 * LINES_PER_BLOCK)).isEmpty();
+  }
+
+  @Test
+  public void decodeLines_ignores_lines_without_number() throws IOException {
+    DbFileSources.Data data = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder().setSource("no number"))
+      .addLines(DbFileSources.Line.newBuilder().setSource("line 2").setLine(2))
+      .build();
+
+    List<DbFileSources.Line> lines = SourceDataBlocks.decodeLines(SourceDataBlocks.encode(data), 1, 2);
+
+    assertThat(lines).extracting(DbFileSources.Line::getSource).containsExactly("line 2");
+  }
+
+  @Test
+  public void fail_to_decode_truncated_blocks() throws IOException {
+    byte[] bytes = SourceDataBlocks.encode(createData(LINES_PER_BLOCK + 1));
+
+    expectedException.expect(IOException.class);
+    expectedException.expectMessage("Invalid blocks of source data");
+
+    SourceDataBlocks.decode(Arrays.copyOf(bytes, bytes.length - 1));
+  }
+
+  private static DbFileSources.Data createData(int lines) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= lines; i++) {
+      dataBuilder.addLinesBuilder().setSource("line " + i).setLine(i).setScmAuthor("author");
+    }
+    return dataBuilder.build();
+  }
+}
@@ -428,6 +428,22 @@ public class UserDaoTest {
     assertThat(reloaded.getLastConnectionDate()).isEqualTo(10_000_000_000L);
   }
 
+  @Test
+  public void updateLastConnectionDate_updates_only_the_date_of_last_connection_of_active_users() {
+    UserDto user = db.users().insertUser(u -> u.setName("John").setLastConnectionDate(null));
+    UserDto disabledUser = db.users().insertDisabledUser(u -> u.setLastConnectionDate(null));
+
+    underTest.updateLastConnectionDate(session, user.getUuid(), 10_000_000_000L);
+    underTest.updateLastConnectionDate(session, disabledUser.getUuid(), 10_000_000_000L);
+    session.commit();
+
+    UserDto reloaded = underTest.selectByUuid(session, user.getUuid());
+    assertThat(reloaded.getLastConnectionDate()).isEqualTo(10_000_000_000L);
+    assertThat(reloaded.getName()).isEqualTo("John");
+    assertThat(reloaded.getUpdatedAt()).isEqualTo(user.getUpdatedAt());
+    assertThat(underTest.selectByUuid(session, disabledUser.getUuid()).getLastConnectionDate()).isNull();
+  }
+
   @Test
   public void deactivate_user() {
     UserDto user = insertActiveUser();
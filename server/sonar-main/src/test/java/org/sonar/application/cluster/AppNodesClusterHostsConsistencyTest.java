@@ -21,6 +21,7 @@ package org.sonar.application.cluster;
 
 import com.hazelcast.core.Cluster;
 import com.hazelcast.core.IAtomicReference;
+import com.hazelcast.core.ITopic;
 import com.hazelcast.core.Member;
 import com.hazelcast.core.MemberSelector;
 import com.hazelcast.nio.Address;
@@ -163,6 +164,11 @@ public class AppNodesClusterHostsConsistencyTest {
       throw new IllegalStateException("not expected to be called");
     }
 
+    @Override
+    public <E> ITopic<E> getTopic(String name) {
+      throw new IllegalStateException("not expected to be called");
+    }
+
     @Override
     public String getUuid() {
       throw new IllegalStateException("not expected to be called");
@@ -53,6 +53,18 @@ public final class HazelcastObjects {
    * {@link CeCleaningSchedulerImpl}
    */
   public static final String CE_CLEANING_JOB_LOCK = "CE_CLEANING_JOB_LOCK";
+  /**
+   * The key of the topic notified each time tasks are submitted to the Compute Engine queue
+   */
+  public static final String CE_QUEUE_SUBMITS = "CE_QUEUE_SUBMITS";
+  /**
+   * The key of the topic notified each time the permission caches of the Web Servers must be invalidated
+   */
+  public static final String PERMISSION_CACHE_INVALIDATIONS = "PERMISSION_CACHE_INVALIDATIONS";
+  /**
+   * The key of the topic notified with the uuid of users whose tokens must be evicted from the caches of the Web Servers
+   */
+  public static final String USER_TOKEN_EVICTIONS = "USER_TOKEN_EVICTIONS";
   /**
    * THe key of the replicated map holding the health state information of all SQ nodes.
    */
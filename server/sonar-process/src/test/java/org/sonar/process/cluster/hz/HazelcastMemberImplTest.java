@@ -26,6 +26,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -109,6 +111,17 @@ public class HazelcastMemberImplTest {
     assertThat(failures.get(0)).hasMessageContaining("BOOM");
   }
 
+  @Test
+  public void messages_published_to_topic_are_delivered_to_all_members() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(2);
+    member2.<String>getTopic("test_topic").addMessageListener(message -> latch.countDown());
+    member3.<String>getTopic("test_topic").addMessageListener(message -> latch.countDown());
+
+    member1.<String>getTopic("test_topic").publish(member1.getUuid());
+
+    assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+  }
+
   private static HazelcastMember newHzMember(int port, int... otherPorts) {
     return new HazelcastMemberBuilder()
       .setProcessId(ProcessId.COMPUTE_ENGINE)
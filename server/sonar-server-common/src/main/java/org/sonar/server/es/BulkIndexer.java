@@ -332,6 +332,17 @@ public class BulkIndexer {
       SizeHandler createHandler(Runtime2 runtime2) {
         return new LargeSizeHandler(runtime2);
       }
+    },
+
+    /**
+     * Same as {@link #LARGE}, when documents are added concurrently by several threads. Bulk requests are
+     * sent concurrently, so that adding documents blocks only when Elasticsearch does not keep up.
+     */
+    LARGE_CONCURRENT {
+      @Override
+      SizeHandler createHandler(Runtime2 runtime2) {
+        return new LargeConcurrentSizeHandler(runtime2);
+      }
     };
 
     abstract SizeHandler createHandler(Runtime2 runtime2);
@@ -367,7 +378,7 @@ public class BulkIndexer {
   static class LargeSizeHandler extends SizeHandler {
 
     private final Map<String, Object> initialSettings = new HashMap<>();
-    private final Runtime2 runtime2;
+    protected final Runtime2 runtime2;
     private ProgressLogger progress;
 
     LargeSizeHandler(Runtime2 runtime2) {
@@ -423,4 +434,17 @@ public class BulkIndexer {
       req.get();
     }
   }
+
+  static class LargeConcurrentSizeHandler extends LargeSizeHandler {
+
+    LargeConcurrentSizeHandler(Runtime2 runtime2) {
+      super(runtime2);
+    }
+
+    @Override
+    int getConcurrentRequests() {
+      // bulk requests are built under the lock of the BulkProcessor, they must not be sent synchronously
+      return Math.max(1, runtime2.getCores() / 2);
+    }
+  }
 }
@@ -19,6 +19,10 @@
  */
 package org.sonar.server.issue;
 
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
@@ -27,21 +31,33 @@ import org.sonar.db.issue.IssueChangeMapper;
 
 public class IssueStorage {
   public void insertChanges(IssueChangeMapper mapper, DefaultIssue issue) {
+    toChangeDtos(issue).forEach(mapper::insert);
+  }
+
+  /**
+   * Inserts the changes of all the issues with multi-row statements
+   */
+  public void insertChanges(IssueChangeMapper mapper, Collection<DefaultIssue> issues) {
+    List<IssueChangeDto> changeDtos = new ArrayList<>();
+    issues.forEach(issue -> changeDtos.addAll(toChangeDtos(issue)));
+    Lists.partition(changeDtos, IssueChangeMapper.MAX_INSERTED_ROWS).forEach(mapper::insertMultiple);
+  }
+
+  private static List<IssueChangeDto> toChangeDtos(DefaultIssue issue) {
+    List<IssueChangeDto> changeDtos = new ArrayList<>();
     for (DefaultIssueComment comment : issue.defaultIssueComments()) {
       if (comment.isNew()) {
-        IssueChangeDto changeDto = IssueChangeDto.of(comment);
-        mapper.insert(changeDto);
+        changeDtos.add(IssueChangeDto.of(comment));
       }
     }
     FieldDiffs diffs = issue.currentChange();
     if (issue.isCopied()) {
       for (FieldDiffs d : issue.changes()) {
-        IssueChangeDto changeDto = IssueChangeDto.of(issue.key(), d);
-        mapper.insert(changeDto);
+        changeDtos.add(IssueChangeDto.of(issue.key(), d));
       }
     } else if (!issue.isNew() && diffs != null) {
-      IssueChangeDto changeDto = IssueChangeDto.of(issue.key(), diffs);
-      mapper.insert(changeDto);
+      changeDtos.add(IssueChangeDto.of(issue.key(), diffs));
     }
+    return changeDtos;
   }
 }
@@ -23,18 +23,29 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.es.EsQueueDto;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.server.es.BulkIndexer;
@@ -50,7 +61,10 @@ import org.sonar.server.permission.index.AuthorizationDoc;
 import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.NeedAuthorizationIndexer;
 
+import static java.lang.String.format;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID;
@@ -58,6 +72,13 @@ import static org.sonar.server.issue.index.IssueIndexDefinition.TYPE_ISSUE;
 
 public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
 
+  /**
+   * Number of threads reading issues from DB when the index is fully populated at startup. Each thread
+   * loads the issues of one project or branch at a time.
+   */
+  public static final String STARTUP_INDEXING_THREADS_PROPERTY = "sonar.search.issues.startupIndexingThreads";
+  private static final int DEFAULT_STARTUP_INDEXING_THREADS = 4;
+
   /**
    * Indicates that es_queue.doc_id references an issue. Only this issue must be indexed.
    */
@@ -73,11 +94,24 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
   private final EsClient esClient;
   private final DbClient dbClient;
   private final IssueIteratorFactory issueIteratorFactory;
+  private final int startupIndexingThreads;
+
+  public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, Configuration config) {
+    this(esClient, dbClient, issueIteratorFactory, config.getInt(STARTUP_INDEXING_THREADS_PROPERTY).orElse(DEFAULT_STARTUP_INDEXING_THREADS));
+  }
 
   public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory) {
+    this(esClient, dbClient, issueIteratorFactory, 1);
+  }
+
+  private IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, int startupIndexingThreads) {
+    if (startupIndexingThreads < 1) {
+      throw MessageException.of(format("Property %s must be a positive integer. Got: %d", STARTUP_INDEXING_THREADS_PROPERTY, startupIndexingThreads));
+    }
     this.esClient = esClient;
     this.dbClient = dbClient;
     this.issueIteratorFactory = issueIteratorFactory;
+    this.startupIndexingThreads = startupIndexingThreads;
   }
 
   @Override
@@ -92,8 +126,63 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
 
   @Override
   public void indexOnStartup(Set<IndexType> uninitializedIndexTypes) {
-    try (IssueIterator issues = issueIteratorFactory.createForAll()) {
-      doIndex(issues, Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+    if (startupIndexingThreads == 1) {
+      try (IssueIterator issues = issueIteratorFactory.createForAll()) {
+        doIndex(issues, Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+      }
+    } else {
+      doConcurrentIndexOnStartup();
+    }
+  }
+
+  /**
+   * Issues are loaded project by project (branches included) by {@link #startupIndexingThreads} threads, which all feed
+   * the same {@link BulkIndexer}. The latter sends bulk requests concurrently, so that the loading of issues slows
+   * down only when Elasticsearch does not keep up.
+   */
+  private void doConcurrentIndexOnStartup() {
+    Queue<String> projectUuids = new ConcurrentLinkedQueue<>();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.componentDao().selectComponentsByQualifiers(dbSession, singleton(Qualifiers.PROJECT))
+        .stream()
+        .map(ComponentDto::uuid)
+        .forEach(projectUuids::add);
+    }
+    LOGGER.info("Indexing issues of {} projects and branches with {} threads", projectUuids.size(), startupIndexingThreads);
+
+    BulkIndexer bulk = createBulkIndexer(Size.LARGE_CONCURRENT, IndexingListener.FAIL_ON_ERROR);
+    bulk.start();
+    ExecutorService executor = Executors.newFixedThreadPool(startupIndexingThreads, new ThreadFactoryBuilder()
+      .setNameFormat("IssueIndexer-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(startupIndexingThreads);
+      for (int i = 0; i < startupIndexingThreads; i++) {
+        futures.add(executor.submit(() -> indexProjects(projectUuids, bulk)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing issues", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to index issues", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    bulk.stop();
+  }
+
+  private void indexProjects(Queue<String> projectUuids, BulkIndexer bulk) {
+    String projectUuid;
+    while ((projectUuid = projectUuids.poll()) != null && !Thread.currentThread().isInterrupted()) {
+      try (IssueIterator issues = issueIteratorFactory.createForProject(projectUuid)) {
+        while (issues.hasNext()) {
+          bulk.add(newIndexRequest(issues.next()));
+        }
+      }
     }
   }
 
@@ -104,6 +193,50 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     }
   }
 
+  /**
+   * Inserts the branch in es_queue, without committing. It must be committed before any issue of the analysis is,
+   * so that the recovery daemon indexes all the issues of the branch if the analysis fails before they are indexed
+   * by {@link #indexOnAnalysis(String, Collection)} or {@link #indexIssuesOnAnalysis(Collection, Collection)}.
+   */
+  public Collection<EsQueueDto> prepareForRecoveryOnAnalysis(DbSession dbSession, String branchUuid) {
+    return dbClient.esQueueDao().insert(dbSession, singletonList(createQueueDto(branchUuid, ID_TYPE_PROJECT_UUID, branchUuid)));
+  }
+
+  /**
+   * Deletes the items returned by {@link #prepareForRecoveryOnAnalysis(DbSession, String)} when the analysis did not
+   * change any issue.
+   */
+  public void cancelRecoveryOnAnalysis(Collection<EsQueueDto> recoveryItems) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.esQueueDao().delete(dbSession, recoveryItems);
+      dbSession.commit();
+    }
+  }
+
+  /**
+   * Indexes all the issues of a branch, then deletes the items returned by
+   * {@link #prepareForRecoveryOnAnalysis(DbSession, String)}. This method does not fail on indexing errors, the
+   * recovery daemon indexes the branch later.
+   */
+  public void indexOnAnalysis(String branchUuid, Collection<EsQueueDto> recoveryItems) {
+    try (DbSession dbSession = dbClient.openSession(false);
+      IssueIterator issues = issueIteratorFactory.createForProject(branchUuid)) {
+      doIndex(issues, Size.REGULAR, new OneToManyResilientIndexingListener(dbClient, dbSession, recoveryItems));
+    }
+  }
+
+  /**
+   * Indexes only the given issues of a branch, for example those changed by an analysis, then deletes the items
+   * returned by {@link #prepareForRecoveryOnAnalysis(DbSession, String)}. This method does not fail on indexing
+   * errors, the recovery daemon indexes the whole branch later.
+   */
+  public void indexIssuesOnAnalysis(Collection<String> issueKeys, Collection<EsQueueDto> recoveryItems) {
+    try (DbSession dbSession = dbClient.openSession(false);
+      IssueIterator issues = issueIteratorFactory.createForIssueKeys(issueKeys)) {
+      doIndex(issues, Size.REGULAR, new OneToManyResilientIndexingListener(dbClient, dbSession, recoveryItems));
+    }
+  }
+
   @Override
   public Collection<EsQueueDto> prepareForRecovery(DbSession dbSession, Collection<String> projectUuids, ProjectIndexer.Cause cause) {
     switch (cause) {
@@ -25,6 +25,7 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 import java.io.IOException;
 import java.io.InvalidClassException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -93,6 +94,22 @@ public class DefaultNotificationManager implements NotificationManager {
     return convertToNotification(notificationDtos);
   }
 
+  /**
+   * Removes the {@code batchSize} oldest notifications from the queue, in a single transaction, and returns them.
+   * Notifications which can't be deserialized are ignored.
+   */
+  public List<Notification> getFromQueue(int batchSize) {
+    List<NotificationQueueDto> notificationDtos = dbClient.notificationQueueDao().dequeueOldest(batchSize);
+    List<Notification> notifications = new ArrayList<>(notificationDtos.size());
+    for (NotificationQueueDto notificationDto : notificationDtos) {
+      Notification notification = convertToNotification(singletonList(notificationDto));
+      if (notification != null) {
+        notifications.add(notification);
+      }
+    }
+    return notifications;
+  }
+
   private <T extends Notification> T convertToNotification(List<NotificationQueueDto> notifications) {
     try {
       // If batchSize is increased then we should return a list instead of a single element
@@ -19,10 +19,18 @@
  */
 package org.sonar.server.notification.email;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import javax.annotation.CheckForNull;
 import javax.annotation.concurrent.Immutable;
 import org.apache.commons.lang.StringUtils;
@@ -30,6 +38,7 @@ import org.apache.commons.mail.Email;
 import org.apache.commons.mail.EmailException;
 import org.apache.commons.mail.HtmlEmail;
 import org.apache.commons.mail.SimpleEmail;
+import org.picocontainer.Startable;
 import org.sonar.api.config.EmailSettings;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
@@ -44,6 +53,8 @@ import org.sonar.server.issue.notification.EmailMessage;
 import org.sonar.server.issue.notification.EmailTemplate;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * References:
@@ -55,7 +66,7 @@ import static java.util.Objects.requireNonNull;
  *
  * @since 2.10
  */
-public class EmailNotificationChannel extends NotificationChannel {
+public class EmailNotificationChannel extends NotificationChannel implements Startable {
 
   private static final Logger LOG = Loggers.get(EmailNotificationChannel.class);
 
@@ -65,6 +76,13 @@ public class EmailNotificationChannel extends NotificationChannel {
    */
   private static final int SOCKET_TIMEOUT = 30_000;
 
+  /**
+   * Maximum number of emails sent at the same time by {@link #deliverAll(Set)}
+   */
+  private static final int MAX_CONCURRENT_SENDS = 4;
+  private static final long KEEP_ALIVE_TIME_IN_MINUTES = 1L;
+  private static final long STOP_TIMEOUT_IN_SECONDS = 5L;
+
   /**
    * Email Header Field: "List-ID".
    * Value of this field should contain mailing list identifier as specified in <a href="http://tools.ietf.org/html/rfc2919">RFC 2919</a>.
@@ -95,11 +113,44 @@ public class EmailNotificationChannel extends NotificationChannel {
   private final EmailSettings configuration;
   private final EmailTemplate[] templates;
   private final DbClient dbClient;
+  private final ExecutorService executorService;
 
   public EmailNotificationChannel(EmailSettings configuration, EmailTemplate[] templates, DbClient dbClient) {
     this.configuration = configuration;
     this.templates = templates;
     this.dbClient = dbClient;
+    this.executorService = createExecutorService();
+  }
+
+  private static ExecutorService createExecutorService() {
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+      MAX_CONCURRENT_SENDS, MAX_CONCURRENT_SENDS,
+      KEEP_ALIVE_TIME_IN_MINUTES, MINUTES,
+      new LinkedBlockingQueue<>(),
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("EmailNotificationChannel-%d")
+        .build());
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    return threadPoolExecutor;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do, threads are created on demand
+  }
+
+  @Override
+  public void stop() {
+    executorService.shutdown();
+    try {
+      if (!executorService.awaitTermination(STOP_TIMEOUT_IN_SECONDS, SECONDS)) {
+        executorService.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executorService.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
   }
 
   public boolean isActivated() {
@@ -175,18 +226,47 @@ public class EmailNotificationChannel extends NotificationChannel {
       return 0;
     }
 
-    return (int) deliveries.stream()
-      .filter(t -> !t.getRecipientEmail().trim().isEmpty())
-      .map(t -> {
-        EmailMessage emailMessage = format(t.getNotification());
-        if (emailMessage != null) {
-          emailMessage.setTo(t.getRecipientEmail());
-          return deliver(emailMessage);
+    List<EmailMessage> emailMessages = new ArrayList<>(deliveries.size());
+    for (EmailDeliveryRequest delivery : deliveries) {
+      if (delivery.getRecipientEmail().trim().isEmpty()) {
+        continue;
+      }
+      EmailMessage emailMessage = format(delivery.getNotification());
+      if (emailMessage != null) {
+        emailMessage.setTo(delivery.getRecipientEmail());
+        emailMessages.add(emailMessage);
+      }
+    }
+    if (emailMessages.size() <= 1) {
+      return (int) emailMessages.stream().filter(this::deliver).count();
+    }
+    return deliverConcurrently(emailMessages);
+  }
+
+  /**
+   * Each email is sent over its own SMTP connection, so slow SMTP servers are the bottleneck when sending
+   * notifications to many recipients. An email which fails to be sent is logged and not counted, it does not
+   * prevent the others from being sent.
+   */
+  private int deliverConcurrently(List<EmailMessage> emailMessages) {
+    List<Future<Boolean>> futures = new ArrayList<>(emailMessages.size());
+    for (EmailMessage emailMessage : emailMessages) {
+      futures.add(executorService.submit(() -> deliver(emailMessage)));
+    }
+    int count = 0;
+    for (Future<Boolean> future : futures) {
+      try {
+        if (future.get()) {
+          count++;
         }
-        return false;
-      })
-      .filter(Boolean::booleanValue)
-      .count();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while sending emails", e);
+      } catch (ExecutionException e) {
+        LOG.error("Unable to send email", e.getCause());
+      }
+    }
+    return count;
   }
 
   @CheckForNull
@@ -38,6 +38,7 @@ import static java.lang.String.format;
 import static java.net.HttpURLConnection.HTTP_MOVED_PERM;
 import static java.net.HttpURLConnection.HTTP_MOVED_TEMP;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static okhttp3.internal.http.StatusLine.HTTP_PERM_REDIRECT;
 import static okhttp3.internal.http.StatusLine.HTTP_TEMP_REDIRECT;
 import static org.apache.commons.lang.StringUtils.isNotEmpty;
@@ -48,6 +49,12 @@ public class WebhookCallerImpl implements WebhookCaller {
 
   private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
   private static final String PROJECT_KEY_HEADER = "X-SonarQube-Project";
+  /**
+   * Connect and read timeouts are inherited from the shared client. This one bounds the whole call,
+   * including the redirect, so that a receiver which answers slowly can't hold a thread of
+   * {@link WebhookDispatcher} for long.
+   */
+  private static final long CALL_TIMEOUT_IN_SECONDS = 30L;
 
   private final System2 system;
   private final OkHttpClient okHttpClient;
@@ -143,6 +150,7 @@ public class WebhookCallerImpl implements WebhookCaller {
     return client.newBuilder()
       .followRedirects(false)
       .followSslRedirects(false)
+      .callTimeout(CALL_TIMEOUT_IN_SECONDS, SECONDS)
       .build();
   }
 
@@ -0,0 +1,299 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.webhook;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import okhttp3.HttpUrl;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.Jmx;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Sends webhooks in background, so that a slow receiver does not delay the caller nor the
+ * deliveries to other hosts:
+ * <ul>
+ *   <li>at most {@link #MAX_CONCURRENT_DELIVERIES_PER_HOST} deliveries are sent to the same host at the same time,
+ *   the next ones wait for a slot of their host without holding a thread</li>
+ *   <li>deliveries which failed because of an I/O error or of an HTTP status 429 or 5xx are retried, up to
+ *   {@link #MAX_ATTEMPTS} attempts, with an exponential back-off</li>
+ *   <li>every attempt is persisted by {@link WebhookDeliveryStorage}</li>
+ * </ul>
+ * Deliveries which are still pending or waiting for a retry when server stops are lost.
+ */
+@ServerSide
+@ComputeEngineSide
+public class WebhookDispatcher implements WebhookDispatcherMBean, Startable {
+
+  private static final Logger LOGGER = Loggers.get(WebhookDispatcher.class);
+
+  private static final int MAX_THREAD_COUNT = 10;
+  private static final long KEEP_ALIVE_TIME_IN_MINUTES = 5L;
+  private static final long STOP_TIMEOUT_IN_SECONDS = 10L;
+  static final int MAX_CONCURRENT_DELIVERIES_PER_HOST = 2;
+  static final int MAX_ATTEMPTS = 3;
+  static final long FIRST_RETRY_DELAY_IN_MS = 10_000L;
+
+  private final WebhookCaller caller;
+  private final WebhookDeliveryStorage deliveryStorage;
+  private final ExecutorService executorService;
+  private final ScheduledExecutorService retryExecutorService;
+
+  // guarded by "this"
+  private final Map<String, HostQueue> queuesByHost = new HashMap<>();
+
+  private final AtomicLong deliveryCount = new AtomicLong();
+  private final AtomicLong failureCount = new AtomicLong();
+  private final AtomicLong retryCount = new AtomicLong();
+  private final AtomicLong totalDurationInMs = new AtomicLong();
+  private final LongAccumulator maxDurationInMs = new LongAccumulator(Math::max, 0L);
+
+  public WebhookDispatcher(WebhookCaller caller, WebhookDeliveryStorage deliveryStorage) {
+    this(caller, deliveryStorage, createExecutorService(), Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("Webhook-retry-%d")
+        .build()));
+  }
+
+  @VisibleForTesting
+  WebhookDispatcher(WebhookCaller caller, WebhookDeliveryStorage deliveryStorage, ExecutorService executorService,
+    ScheduledExecutorService retryExecutorService) {
+    this.caller = caller;
+    this.deliveryStorage = deliveryStorage;
+    this.executorService = executorService;
+    this.retryExecutorService = retryExecutorService;
+  }
+
+  private static ExecutorService createExecutorService() {
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+      MAX_THREAD_COUNT, MAX_THREAD_COUNT,
+      KEEP_ALIVE_TIME_IN_MINUTES, MINUTES,
+      new LinkedBlockingQueue<>(),
+      new ThreadFactoryBuilder()
+        .setDaemon(false)
+        .setNameFormat("Webhook-%d")
+        .setUncaughtExceptionHandler((t, e) -> LOGGER.error("Thread " + t + " failed unexpectedly", e))
+        .build());
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    return threadPoolExecutor;
+  }
+
+  @Override
+  public void start() {
+    Jmx.register(OBJECT_NAME, this);
+  }
+
+  @Override
+  public void stop() {
+    retryExecutorService.shutdownNow();
+    executorService.shutdown();
+    try {
+      if (!executorService.awaitTermination(STOP_TIMEOUT_IN_SECONDS, SECONDS)) {
+        executorService.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executorService.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    Jmx.unregister(OBJECT_NAME);
+  }
+
+  /**
+   * Sends the payload to the webhook in background. Does not block.
+   */
+  public void dispatch(Webhook webhook, WebhookPayload payload) {
+    enqueue(new Attempt(webhook, payload, 1));
+  }
+
+  private void enqueue(Attempt attempt) {
+    String host = hostOf(attempt.webhook);
+    synchronized (this) {
+      HostQueue queue = queuesByHost.computeIfAbsent(host, h -> new HostQueue());
+      if (queue.inProgress >= MAX_CONCURRENT_DELIVERIES_PER_HOST) {
+        queue.pending.add(attempt);
+        return;
+      }
+      queue.inProgress++;
+    }
+    submit(host, attempt);
+  }
+
+  private void submit(String host, Attempt attempt) {
+    try {
+      executorService.execute(() -> {
+        try {
+          send(attempt);
+        } finally {
+          release(host);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Webhook '{}' not sent, server is stopping | url={}", attempt.webhook.getName(), attempt.webhook.getUrl());
+    }
+  }
+
+  private void release(String host) {
+    Attempt next;
+    synchronized (this) {
+      HostQueue queue = queuesByHost.get(host);
+      next = queue.pending.poll();
+      if (next == null) {
+        queue.inProgress--;
+        if (queue.inProgress == 0) {
+          queuesByHost.remove(host);
+        }
+        return;
+      }
+    }
+    submit(host, next);
+  }
+
+  private void send(Attempt attempt) {
+    WebhookDelivery delivery = caller.call(attempt.webhook, attempt.payload);
+    log(delivery);
+    record(delivery);
+    deliveryStorage.persist(delivery);
+    if (attempt.number < MAX_ATTEMPTS && isRetryable(delivery)) {
+      long delayInMs = FIRST_RETRY_DELAY_IN_MS << (attempt.number - 1);
+      retryCount.incrementAndGet();
+      try {
+        retryExecutorService.schedule(() -> enqueue(attempt.next()), delayInMs, MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // server is stopping
+      }
+    }
+  }
+
+  private void record(WebhookDelivery delivery) {
+    deliveryCount.incrementAndGet();
+    if (!delivery.isSuccess()) {
+      failureCount.incrementAndGet();
+    }
+    delivery.getDurationInMs().ifPresent(durationInMs -> {
+      totalDurationInMs.addAndGet(durationInMs);
+      maxDurationInMs.accumulate(durationInMs);
+    });
+  }
+
+  private static boolean isRetryable(WebhookDelivery delivery) {
+    Optional<Integer> httpStatus = delivery.getHttpStatus();
+    if (httpStatus.isPresent()) {
+      int status = httpStatus.get();
+      return status == 429 || status >= 500;
+    }
+    return delivery.getError().filter(IOException.class::isInstance).isPresent();
+  }
+
+  private static String hostOf(Webhook webhook) {
+    HttpUrl url = HttpUrl.parse(webhook.getUrl());
+    // invalid URLs are rejected by the caller
+    return url == null ? webhook.getUrl() : url.host();
+  }
+
+  private static void log(WebhookDelivery delivery) {
+    Optional<String> error = delivery.getErrorMessage();
+    if (error.isPresent()) {
+      LOGGER.debug("Failed to send webhook '{}' | url={} | message={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), error.get());
+    } else {
+      LOGGER.debug("Sent webhook '{}' | url={} | time={}ms | status={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), delivery.getDurationInMs().orElse(-1), delivery.getHttpStatus().orElse(-1));
+    }
+  }
+
+  @Override
+  public synchronized long getPendingCount() {
+    return queuesByHost.values().stream().mapToLong(queue -> queue.pending.size()).sum();
+  }
+
+  @Override
+  public synchronized long getInProgressCount() {
+    return queuesByHost.values().stream().mapToLong(queue -> queue.inProgress).sum();
+  }
+
+  @Override
+  public long getDeliveryCount() {
+    return deliveryCount.get();
+  }
+
+  @Override
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  @Override
+  public long getRetryCount() {
+    return retryCount.get();
+  }
+
+  @Override
+  public long getAverageDurationInMs() {
+    long count = deliveryCount.get();
+    return count == 0 ? 0 : (totalDurationInMs.get() / count);
+  }
+
+  @Override
+  public long getMaxDurationInMs() {
+    return maxDurationInMs.get();
+  }
+
+  private static class HostQueue {
+    private final Queue<Attempt> pending = new ArrayDeque<>();
+    private int inProgress = 0;
+  }
+
+  private static class Attempt {
+    private final Webhook webhook;
+    private final WebhookPayload payload;
+    private final int number;
+
+    private Attempt(Webhook webhook, WebhookPayload payload, int number) {
+      this.webhook = webhook;
+      this.payload = payload;
+      this.number = number;
+    }
+
+    private Attempt next() {
+      return new Attempt(webhook, payload, number + 1);
+    }
+  }
+}
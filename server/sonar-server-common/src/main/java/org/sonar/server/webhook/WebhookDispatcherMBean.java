@@ -0,0 +1,54 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.webhook;
+
+public interface WebhookDispatcherMBean {
+
+  String OBJECT_NAME = "SonarQube:name=WebhookDispatcher";
+
+  /**
+   * Number of deliveries waiting for a slot of their host
+   */
+  long getPendingCount();
+
+  /**
+   * Number of deliveries currently being sent
+   */
+  long getInProgressCount();
+
+  /**
+   * Number of HTTP calls made since startup, including retries
+   */
+  long getDeliveryCount();
+
+  /**
+   * Number of HTTP calls which did not succeed since startup
+   */
+  long getFailureCount();
+
+  /**
+   * Number of retries scheduled since startup
+   */
+  long getRetryCount();
+
+  long getAverageDurationInMs();
+
+  long getMaxDurationInMs();
+}
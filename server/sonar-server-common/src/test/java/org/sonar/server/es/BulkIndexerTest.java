@@ -101,6 +101,37 @@ public class BulkIndexerTest {
     assertThat(replicas()).isEqualTo(1);
   }
 
+  @Test
+  public void large_concurrent_indexing() throws InterruptedException {
+    BulkIndexer indexer = new BulkIndexer(es.client(), TYPE_FAKE, Size.LARGE_CONCURRENT);
+    indexer.start();
+
+    // replicas are temporarily disabled
+    assertThat(replicas()).isEqualTo(0);
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < 50; i++) {
+          indexer.add(newIndexRequest(i));
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    IndexingResult result = indexer.stop();
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.getSuccess()).isEqualTo(200);
+    assertThat(result.getTotal()).isEqualTo(200);
+    assertThat(count()).isEqualTo(200);
+    // replicas are re-enabled
+    assertThat(replicas()).isEqualTo(1);
+  }
+
   @Test
   public void bulk_delete() {
     int max = 500;
@@ -31,7 +31,9 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.db.DbSession;
@@ -52,6 +54,7 @@ import org.sonar.server.permission.index.IndexPermissions;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.rules.ExpectedException.none;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
@@ -109,6 +112,40 @@ public class IssueIndexerTest {
     assertThatIndexHasOnly(issue1, issue2);
   }
 
+  @Test
+  public void indexOnStartup_with_many_threads_adds_issues_of_all_projects_and_branches_to_index() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project1 = db.components().insertPrivateProject(organization);
+    ComponentDto branch1 = db.components().insertProjectBranch(project1);
+    ComponentDto project2 = db.components().insertPublicProject(organization);
+    ComponentDto project3 = db.components().insertPrivateProject(organization);
+    IssueDto issue1 = db.issues().insertIssue(IssueTesting.newIssue(rule, project1, db.components().insertComponent(newFileDto(project1))));
+    IssueDto issue2 = db.issues().insertIssue(IssueTesting.newIssue(rule, project1, db.components().insertComponent(newFileDto(project1))));
+    IssueDto issue3 = db.issues().insertIssue(IssueTesting.newIssue(rule, branch1, db.components().insertComponent(newFileDto(branch1))));
+    IssueDto issue4 = db.issues().insertIssue(IssueTesting.newIssue(rule, project2, db.components().insertComponent(newFileDto(project2))));
+    IssueDto issue5 = db.issues().insertIssue(IssueTesting.newIssue(rule, project3, db.components().insertComponent(newFileDto(project3))));
+
+    newIndexerWithStartupThreads(3).indexOnStartup(emptySet());
+
+    assertThatIndexHasOnly(issue1, issue2, issue3, issue4, issue5);
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Indexing issues of 4 projects and branches with 3 threads");
+  }
+
+  @Test
+  public void indexOnStartup_with_many_threads_does_nothing_if_no_projects() {
+    newIndexerWithStartupThreads(2).indexOnStartup(emptySet());
+
+    assertThatIndexHasSize(0);
+  }
+
+  @Test
+  public void fail_if_startup_indexing_threads_is_not_positive() {
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Property sonar.search.issues.startupIndexingThreads must be a positive integer. Got: 0");
+
+    newIndexerWithStartupThreads(0);
+  }
+
   @Test
   public void verify_indexed_fields() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -225,6 +262,79 @@ public class IssueIndexerTest {
     }
   }
 
+  @Test
+  public void indexOnAnalysis_with_issue_keys_indexes_only_these_issues() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto issue1 = db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+    IssueDto issue2 = db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+    db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+
+    Collection<EsQueueDto> recoveryItems = prepareForRecoveryOnAnalysis(project);
+    assertThatEsQueueTableHasSize(1);
+
+    underTest.indexIssuesOnAnalysis(asList(issue1.getKey(), issue2.getKey()), recoveryItems);
+
+    assertThatIndexHasOnly(issue1, issue2);
+    assertThatEsQueueTableHasSize(0);
+  }
+
+  @Test
+  public void indexOnAnalysis_with_recovery_items_indexes_all_issues_of_branch() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto issue1 = db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+    IssueDto issue2 = db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+    Collection<EsQueueDto> recoveryItems = prepareForRecoveryOnAnalysis(project);
+
+    underTest.indexOnAnalysis(project.uuid(), recoveryItems);
+
+    assertThatIndexHasOnly(issue1, issue2);
+    assertThatEsQueueTableHasSize(0);
+  }
+
+  @Test
+  public void indexOnAnalysis_with_issue_keys_recovers_the_whole_branch_on_errors() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto issue1 = db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+    IssueDto issue2 = db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+    Collection<EsQueueDto> recoveryItems = prepareForRecoveryOnAnalysis(project);
+    es.lockWrites(TYPE_ISSUE);
+
+    underTest.indexIssuesOnAnalysis(singletonList(issue1.getKey()), recoveryItems);
+
+    assertThatIndexHasSize(0);
+    assertThatEsQueueTableHasSize(1);
+
+    es.unlockWrites(TYPE_ISSUE);
+    IndexingResult result = recover();
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThatEsQueueTableHasSize(0);
+    assertThatIndexHasOnly(issue1, issue2);
+  }
+
+  @Test
+  public void cancelRecoveryOnAnalysis_deletes_es_queue_items() {
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    Collection<EsQueueDto> recoveryItems = prepareForRecoveryOnAnalysis(project);
+    assertThatEsQueueTableHasSize(1);
+
+    underTest.cancelRecoveryOnAnalysis(recoveryItems);
+
+    assertThatEsQueueTableHasSize(0);
+  }
+
+  private Collection<EsQueueDto> prepareForRecoveryOnAnalysis(ComponentDto branch) {
+    Collection<EsQueueDto> items = underTest.prepareForRecoveryOnAnalysis(db.getSession(), branch.uuid());
+    db.commit();
+    return items;
+  }
+
   @Test
   public void index_is_not_updated_when_creating_project() {
     // it's impossible to already have an issue on a project
@@ -504,6 +614,11 @@ public class IssueIndexerTest {
     assertThat(doc.isMainBranch()).isFalse();
   }
 
+  private IssueIndexer newIndexerWithStartupThreads(int threads) {
+    MapSettings settings = new MapSettings().setProperty(IssueIndexer.STARTUP_INDEXING_THREADS_PROPERTY, threads);
+    return new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), settings.asConfig());
+  }
+
   private void addIssueToIndex(String projectUuid, String issueKey) {
     es.putDocuments(TYPE_ISSUE,
       newDoc().setKey(issueKey).setProjectUuid(projectUuid));
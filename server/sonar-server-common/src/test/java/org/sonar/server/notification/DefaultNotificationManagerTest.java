@@ -142,6 +142,33 @@ public class DefaultNotificationManagerTest {
     verify(underTest, times(1)).logDeserializationIssue();
   }
 
+  @Test
+  public void getFromQueue_dequeues_a_batch_of_notifications() {
+    Notification notification1 = new Notification("test1");
+    Notification notification2 = new Notification("test2");
+    when(notificationQueueDao.dequeueOldest(10)).thenReturn(Arrays.asList(
+      NotificationQueueDto.toNotificationQueueDto(notification1),
+      NotificationQueueDto.toNotificationQueueDto(notification2)));
+
+    assertThat(underTest.getFromQueue(10))
+      .extracting(Notification::getType)
+      .containsExactly("test1", "test2");
+  }
+
+  @Test
+  public void getFromQueue_ignores_notifications_which_can_not_be_deserialized() throws Exception {
+    NotificationQueueDto dto1 = mock(NotificationQueueDto.class);
+    when(dto1.toNotification()).thenThrow(new InvalidClassException("Pouet"));
+    NotificationQueueDto dto2 = NotificationQueueDto.toNotificationQueueDto(new Notification("test"));
+    when(notificationQueueDao.dequeueOldest(10)).thenReturn(Arrays.asList(dto1, dto2));
+
+    underTest = spy(underTest);
+    assertThat(underTest.getFromQueue(10))
+      .extracting(Notification::getType)
+      .containsExactly("test");
+    verify(underTest, times(1)).logDeserializationIssue();
+  }
+
   @Test
   public void shouldFindNoRecipient() {
     assertThat(underTest.findSubscribedRecipientsForDispatcher(dispatcher, "uuid_45", new SubscriberPermissionsOnProject(UserRole.USER)).asMap().entrySet())
@@ -19,7 +19,6 @@
  */
 package org.sonar.server.webhook;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.Rule;
@@ -34,8 +33,8 @@ import org.sonar.db.webhook.WebhookDbTester;
 import org.sonar.server.async.AsyncExecution;
 
 import static java.util.Objects.requireNonNull;
-import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -52,35 +51,28 @@ public class AsynchronousWebHooksImplTest {
   private WebhookDbTester webhookDbTester = db.webhooks();
   private ComponentDbTester componentDbTester = db.components();
 
-  private static final long NOW = 1_500_000_000_000L;
-
-  private final TestWebhookCaller caller = new TestWebhookCaller();
+  private final WebhookDispatcher dispatcher = mock(WebhookDispatcher.class);
   private final WebhookDeliveryStorage deliveryStorage = mock(WebhookDeliveryStorage.class);
   private final WebhookPayload mock = mock(WebhookPayload.class);
   private final RecordingAsyncExecution asyncExecution = new RecordingAsyncExecution();
 
-  private final WebHooksImpl underTest = new WebHooksImpl(caller, deliveryStorage, asyncExecution, db.getDbClient());
+  private final WebHooksImpl underTest = new WebHooksImpl(dispatcher, deliveryStorage, asyncExecution, db.getDbClient());
 
   @Test
-  public void send_global_webhooks() {
+  public void dispatch_webhooks_and_purge_deliveries_in_background() {
 
     OrganizationDto organizationDto = db.getDefaultOrganization();
     ComponentDto project = componentDbTester.insertPrivateProject(componentDto -> componentDto.setOrganizationUuid(organizationDto.getUuid()));
     webhookDbTester.insert(newWebhook(organizationDto).setName("First").setUrl("http://url1"));
     webhookDbTester.insert(newWebhook(organizationDto).setName("Second").setUrl("http://url2"));
 
-    caller.enqueueSuccess(NOW, 200, 1_234);
-    caller.enqueueFailure(NOW, new IOException("Fail to connect"));
-
     underTest.sendProjectAnalysisUpdate(new WebHooks.Analysis(project.uuid(), "1", "#1"), () -> mock, mock(LogStatistics.class));
 
-    assertThat(caller.countSent()).isZero();
+    verify(dispatcher, times(2)).dispatch(any(Webhook.class), same(mock));
     verifyZeroInteractions(deliveryStorage);
 
     asyncExecution.executeRecorded();
 
-    assertThat(caller.countSent()).isEqualTo(2);
-    verify(deliveryStorage, times(2)).persist(any(WebhookDelivery.class));
     verify(deliveryStorage).purge(project.uuid());
   }
 
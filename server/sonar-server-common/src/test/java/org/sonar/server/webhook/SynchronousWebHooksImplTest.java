@@ -21,6 +21,7 @@ package org.sonar.server.webhook;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.ce.posttask.PostProjectAnalysisTask;
@@ -34,6 +35,7 @@ import org.sonar.db.webhook.WebhookDbTester;
 import org.sonar.server.async.AsyncExecution;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -66,7 +68,8 @@ public class SynchronousWebHooksImplTest {
   private final WebhookPayload mock = mock(WebhookPayload.class);
   private final AsyncExecution synchronousAsyncExecution = Runnable::run;
   private final PostProjectAnalysisTask.LogStatistics taskStatistics = mock(PostProjectAnalysisTask.LogStatistics.class);
-  private final WebHooksImpl underTest = new WebHooksImpl(caller, deliveryStorage, synchronousAsyncExecution, dbClient);
+  private final WebhookDispatcher dispatcher = new WebhookDispatcher(caller, deliveryStorage, newDirectExecutorService(), mock(ScheduledExecutorService.class));
+  private final WebHooksImpl underTest = new WebHooksImpl(dispatcher, deliveryStorage, synchronousAsyncExecution, dbClient);
 
   @Test
   public void isEnabled_returns_false_if_no_webhooks() {
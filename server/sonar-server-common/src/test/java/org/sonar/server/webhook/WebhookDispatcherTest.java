@@ -0,0 +1,295 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.webhook;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.management.InstanceNotFoundException;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.DisableOnDebug;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.SonarEdition;
+import org.sonar.api.SonarQubeSide;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.internal.SonarRuntimeImpl;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.Version;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.server.util.OkHttpClientProvider;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.sonar.api.utils.log.LoggerLevel.DEBUG;
+import static org.sonar.server.webhook.WebhookDispatcher.FIRST_RETRY_DELAY_IN_MS;
+import static org.sonar.server.webhook.WebhookDispatcher.MAX_ATTEMPTS;
+import static org.sonar.server.webhook.WebhookDispatcher.MAX_CONCURRENT_DELIVERIES_PER_HOST;
+
+public class WebhookDispatcherTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+  private static final WebhookPayload PAYLOAD = new WebhookPayload("P1", "{\"payload\": {}}");
+
+  @Rule
+  public LogTester logTester = new LogTester();
+  @Rule
+  public MockWebServer server = new MockWebServer();
+  @Rule
+  public TestRule safeguardTimeout = new DisableOnDebug(Timeout.seconds(60));
+
+  private TestWebhookCaller caller = new TestWebhookCaller();
+  private WebhookDeliveryStorage deliveryStorage = mock(WebhookDeliveryStorage.class);
+  private ScheduledExecutorService retryExecutorService = mock(ScheduledExecutorService.class);
+
+  @Test
+  public void send_and_persist_delivery() {
+    WebhookDispatcher underTest = new WebhookDispatcher(caller, deliveryStorage, newDirectExecutorService(), retryExecutorService);
+    caller.enqueueSuccess(NOW, 200, 1_234);
+
+    underTest.dispatch(newWebhook("First", "http://url1"), PAYLOAD);
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(logTester.logs(DEBUG)).contains("Sent webhook 'First' | url=http://url1 | time=1234ms | status=200");
+    verify(deliveryStorage).persist(any(WebhookDelivery.class));
+    verify(retryExecutorService, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    assertThat(underTest.getInProgressCount()).isZero();
+    assertThat(underTest.getPendingCount()).isZero();
+  }
+
+  @Test
+  public void limit_the_number_of_concurrent_deliveries_to_the_same_host() {
+    RecordingExecutorService executorService = new RecordingExecutorService();
+    WebhookDispatcher underTest = new WebhookDispatcher(caller, deliveryStorage, executorService, retryExecutorService);
+    for (int i = 0; i < MAX_CONCURRENT_DELIVERIES_PER_HOST + 2; i++) {
+      underTest.dispatch(newWebhook("slow" + i, "http://slow.host/hook" + i), PAYLOAD);
+    }
+    underTest.dispatch(newWebhook("fast", "http://fast.host/hook"), PAYLOAD);
+
+    // other hosts are not delayed
+    assertThat(executorService.tasks).hasSize(MAX_CONCURRENT_DELIVERIES_PER_HOST + 1);
+    assertThat(underTest.getInProgressCount()).isEqualTo(MAX_CONCURRENT_DELIVERIES_PER_HOST + 1);
+    assertThat(underTest.getPendingCount()).isEqualTo(2);
+
+    // a completed delivery releases a slot to the next pending delivery of the same host
+    caller.enqueueSuccess(NOW, 200, 10);
+    executorService.runFirst();
+    assertThat(executorService.tasks).hasSize(MAX_CONCURRENT_DELIVERIES_PER_HOST + 1);
+    assertThat(underTest.getPendingCount()).isEqualTo(1);
+
+    for (int i = 0; i < MAX_CONCURRENT_DELIVERIES_PER_HOST + 2; i++) {
+      caller.enqueueSuccess(NOW, 200, 10);
+    }
+    executorService.runAll();
+    assertThat(caller.countSent()).isEqualTo(MAX_CONCURRENT_DELIVERIES_PER_HOST + 3);
+    assertThat(underTest.getInProgressCount()).isZero();
+    assertThat(underTest.getPendingCount()).isZero();
+  }
+
+  @Test
+  public void retry_with_back_off_when_host_can_not_be_reached() {
+    WebhookDispatcher underTest = new WebhookDispatcher(caller, deliveryStorage, newDirectExecutorService(), retryExecutorService);
+    for (int i = 0; i < MAX_ATTEMPTS; i++) {
+      caller.enqueueFailure(NOW, new IOException("Fail to connect"));
+    }
+
+    underTest.dispatch(newWebhook("First", "http://url1"), PAYLOAD);
+    long expectedDelay = FIRST_RETRY_DELAY_IN_MS;
+    for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+      runScheduledRetry(expectedDelay);
+      expectedDelay *= 2;
+    }
+
+    assertThat(caller.countSent()).isEqualTo(MAX_ATTEMPTS);
+    verify(deliveryStorage, times(MAX_ATTEMPTS)).persist(any(WebhookDelivery.class));
+    verify(retryExecutorService, times(MAX_ATTEMPTS - 1)).schedule(any(Runnable.class), anyLong(), eq(MILLISECONDS));
+    assertThat(underTest.getRetryCount()).isEqualTo(MAX_ATTEMPTS - 1);
+    assertThat(underTest.getFailureCount()).isEqualTo(MAX_ATTEMPTS);
+  }
+
+  @Test
+  public void retry_when_host_answers_with_server_error() {
+    WebhookDispatcher underTest = new WebhookDispatcher(caller, deliveryStorage, newDirectExecutorService(), retryExecutorService);
+    caller.enqueueSuccess(NOW, 503, 10);
+    caller.enqueueSuccess(NOW, 200, 10);
+
+    underTest.dispatch(newWebhook("First", "http://url1"), PAYLOAD);
+    runScheduledRetry(FIRST_RETRY_DELAY_IN_MS);
+
+    assertThat(caller.countSent()).isEqualTo(2);
+    assertThat(underTest.getRetryCount()).isEqualTo(1);
+    assertThat(underTest.getFailureCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_retry_when_host_rejects_the_payload() {
+    WebhookDispatcher underTest = new WebhookDispatcher(caller, deliveryStorage, newDirectExecutorService(), retryExecutorService);
+    caller.enqueueSuccess(NOW, 400, 10);
+
+    underTest.dispatch(newWebhook("First", "http://url1"), PAYLOAD);
+
+    verify(retryExecutorService, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    assertThat(underTest.getFailureCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_retry_when_url_is_invalid() {
+    WebhookDispatcher underTest = new WebhookDispatcher(caller, deliveryStorage, newDirectExecutorService(), retryExecutorService);
+    caller.enqueueFailure(NOW, new IllegalArgumentException("Webhook URL is not valid: foo"));
+
+    underTest.dispatch(newWebhook("First", "foo"), PAYLOAD);
+
+    verify(retryExecutorService, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+  }
+
+  @Test
+  public void compute_durations_of_deliveries() {
+    WebhookDispatcher underTest = new WebhookDispatcher(caller, deliveryStorage, newDirectExecutorService(), retryExecutorService);
+    assertThat(underTest.getAverageDurationInMs()).isZero();
+
+    caller.enqueueSuccess(NOW, 200, 100);
+    caller.enqueueSuccess(NOW, 200, 300);
+    underTest.dispatch(newWebhook("First", "http://url1"), PAYLOAD);
+    underTest.dispatch(newWebhook("Second", "http://url2"), PAYLOAD);
+
+    assertThat(underTest.getDeliveryCount()).isEqualTo(2);
+    assertThat(underTest.getFailureCount()).isZero();
+    assertThat(underTest.getAverageDurationInMs()).isEqualTo(200);
+    assertThat(underTest.getMaxDurationInMs()).isEqualTo(300);
+  }
+
+  @Test
+  public void send_to_http_server() throws Exception {
+    WebhookCaller httpCaller = new WebhookCallerImpl(System2.INSTANCE, new OkHttpClientProvider().provide(new MapSettings().asConfig(),
+      SonarRuntimeImpl.forSonarQube(Version.parse("6.2"), SonarQubeSide.COMPUTE_ENGINE, SonarEdition.COMMUNITY)));
+    WebhookDispatcher underTest = new WebhookDispatcher(httpCaller, deliveryStorage);
+    server.enqueue(new MockResponse().setResponseCode(200));
+
+    underTest.start();
+    try {
+      underTest.dispatch(newWebhook("First", server.url("/ping").toString()), PAYLOAD);
+
+      RecordedRequest recordedRequest = server.takeRequest();
+      assertThat(recordedRequest.getPath()).isEqualTo("/ping");
+      assertThat(recordedRequest.getBody().readUtf8()).isEqualTo(PAYLOAD.getJson());
+      ArgumentCaptor<WebhookDelivery> deliveryCaptor = ArgumentCaptor.forClass(WebhookDelivery.class);
+      verify(deliveryStorage, timeout(10_000)).persist(deliveryCaptor.capture());
+      assertThat(deliveryCaptor.getValue().getHttpStatus()).hasValue(200);
+    } finally {
+      underTest.stop();
+    }
+  }
+
+  @Test
+  public void register_and_unregister_mbean() throws Exception {
+    WebhookDispatcher underTest = new WebhookDispatcher(caller, deliveryStorage);
+    assertThat(getMBean()).isNull();
+
+    underTest.start();
+    assertThat(getMBean()).isNotNull();
+
+    underTest.stop();
+    assertThat(getMBean()).isNull();
+  }
+
+  private void runScheduledRetry(long expectedDelayInMs) {
+    ArgumentCaptor<Runnable> retryCaptor = ArgumentCaptor.forClass(Runnable.class);
+    verify(retryExecutorService).schedule(retryCaptor.capture(), eq(expectedDelayInMs), eq(MILLISECONDS));
+    retryCaptor.getValue().run();
+  }
+
+  private static Webhook newWebhook(String name, String url) {
+    return new Webhook("WH_UUID", "P_UUID", "CE_UUID", "A_UUID", name, url, null);
+  }
+
+  @CheckForNull
+  private static ObjectInstance getMBean() throws Exception {
+    try {
+      return ManagementFactory.getPlatformMBeanServer().getObjectInstance(new ObjectName(WebhookDispatcherMBean.OBJECT_NAME));
+    } catch (InstanceNotFoundException e) {
+      return null;
+    }
+  }
+
+  private static class RecordingExecutorService extends AbstractExecutorService {
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
+
+    void runFirst() {
+      tasks.remove(0).run();
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        runFirst();
+      }
+    }
+
+    @Override
+    public void shutdown() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return false;
+    }
+  }
+}
@@ -27,4 +27,9 @@ public interface CeHttpClient {
   Optional<ProtobufSystemInfo.SystemInfo> retrieveSystemInfo();
 
   void changeLogLevel(LoggerLevel level);
+
+  /**
+   * Requests the workers of the Compute Engine waiting for their next poll of the queue to poll it right away.
+   */
+  void wakeUpWorkers();
 }
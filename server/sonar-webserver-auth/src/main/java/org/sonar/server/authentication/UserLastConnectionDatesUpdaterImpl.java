@@ -20,25 +20,68 @@
 
 package org.sonar.server.authentication;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
+import org.picocontainer.Startable;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserTokenDto;
 
-public class UserLastConnectionDatesUpdaterImpl implements UserLastConnectionDatesUpdater {
+/**
+ * Dates of last connection are not written by the authenticated requests but recorded in memory, then written by
+ * batches every {@link #FLUSH_DELAY_IN_SECONDS} seconds. Successive connections of a user or of a token before a
+ * flush result in a single write.
+ */
+public class UserLastConnectionDatesUpdaterImpl implements UserLastConnectionDatesUpdater, Startable {
 
+  private static final Logger LOG = Loggers.get(UserLastConnectionDatesUpdaterImpl.class);
   private static final long ONE_HOUR_IN_MILLISECONDS = 60 * 60 * 1000L;
+  static final long FLUSH_DELAY_IN_SECONDS = 10L;
 
   private final DbClient dbClient;
   private final System2 system2;
+  private final Map<String, Long> lastConnectionDateByUserUuid = new ConcurrentHashMap<>();
+  private final Map<String, UserTokenDto> lastConnectionByTokenHash = new ConcurrentHashMap<>();
+  private ScheduledExecutorService executorService;
 
   public UserLastConnectionDatesUpdaterImpl(DbClient dbClient, System2 system2) {
     this.dbClient = dbClient;
     this.system2 = system2;
   }
 
+  @Override
+  public void start() {
+    executorService = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat("LastConnectionDatesUpdater-%d")
+        .setDaemon(true)
+        .build());
+    executorService.scheduleWithFixedDelay(this::flushSafely, FLUSH_DELAY_IN_SECONDS, FLUSH_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      try {
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    flushSafely();
+  }
+
   @Override
   public void updateLastConnectionDateIfNeeded(UserDto user) {
     Long lastConnectionDate = user.getLastConnectionDate();
@@ -46,10 +89,8 @@ public class UserLastConnectionDatesUpdaterImpl implements UserLastConnectionDat
     if (doesNotRequireUpdate(lastConnectionDate, now)) {
       return;
     }
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      dbClient.userDao().update(dbSession, user.setLastConnectionDate(now));
-      dbSession.commit();
-    }
+    user.setLastConnectionDate(now);
+    lastConnectionDateByUserUuid.put(user.getUuid(), now);
   }
 
   @Override
@@ -59,15 +100,48 @@ public class UserLastConnectionDatesUpdaterImpl implements UserLastConnectionDat
     if (doesNotRequireUpdate(lastConnectionDate, now)) {
       return;
     }
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      dbClient.userTokenDao().update(dbSession, userToken.setLastConnectionDate(now));
-      userToken.setLastConnectionDate(now);
-      dbSession.commit();
-    }
+    userToken.setLastConnectionDate(now);
+    lastConnectionByTokenHash.put(userToken.getTokenHash(), new UserTokenDto()
+      .setUserUuid(userToken.getUserUuid())
+      .setName(userToken.getName())
+      .setLastConnectionDate(now));
   }
 
   private static boolean doesNotRequireUpdate(@Nullable Long lastConnectionDate, long now) {
     // Update date only once per hour in order to decrease pressure on DB
     return lastConnectionDate != null && (now - lastConnectionDate) < ONE_HOUR_IN_MILLISECONDS;
   }
+
+  private void flushSafely() {
+    try {
+      flush();
+    } catch (Exception e) {
+      LOG.error("Fail to update dates of last connection", e);
+    }
+  }
+
+  /**
+   * Writes the recorded dates of last connection in a single transaction
+   */
+  @VisibleForTesting
+  void flush() {
+    if (lastConnectionDateByUserUuid.isEmpty() && lastConnectionByTokenHash.isEmpty()) {
+      return;
+    }
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      for (String userUuid : lastConnectionDateByUserUuid.keySet()) {
+        Long date = lastConnectionDateByUserUuid.remove(userUuid);
+        if (date != null) {
+          dbClient.userDao().updateLastConnectionDate(dbSession, userUuid, date);
+        }
+      }
+      for (String tokenHash : lastConnectionByTokenHash.keySet()) {
+        UserTokenDto userToken = lastConnectionByTokenHash.remove(tokenHash);
+        if (userToken != null) {
+          dbClient.userTokenDao().update(dbSession, userToken);
+        }
+      }
+      dbSession.commit();
+    }
+  }
 }
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -50,6 +51,7 @@ import org.sonar.server.organization.MemberUpdater;
 import org.sonar.server.organization.OrganizationFlags;
 import org.sonar.server.user.ExternalIdentity;
 import org.sonar.server.user.NewUser;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.UpdateUser;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.user.UserUpdater;
@@ -57,6 +59,7 @@ import org.sonar.server.usergroups.DefaultGroupFinder;
 
 import static java.lang.String.format;
 import static java.util.Collections.singletonList;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 
 public class UserRegistrarImpl implements UserRegistrar {
@@ -70,15 +73,17 @@ public class UserRegistrarImpl implements UserRegistrar {
   private final OrganizationFlags organizationFlags;
   private final DefaultGroupFinder defaultGroupFinder;
   private final MemberUpdater memberUpdater;
+  private final PermissionCache permissionCache;
 
   public UserRegistrarImpl(DbClient dbClient, UserUpdater userUpdater, DefaultOrganizationProvider defaultOrganizationProvider, OrganizationFlags organizationFlags,
-    DefaultGroupFinder defaultGroupFinder, MemberUpdater memberUpdater) {
+    DefaultGroupFinder defaultGroupFinder, MemberUpdater memberUpdater, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.userUpdater = userUpdater;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.organizationFlags = organizationFlags;
     this.defaultGroupFinder = defaultGroupFinder;
     this.memberUpdater = memberUpdater;
+    this.permissionCache = permissionCache;
   }
 
   @Override
@@ -109,10 +114,16 @@ public class UserRegistrarImpl implements UserRegistrar {
   private UserDto registerNewUser(DbSession dbSession, @Nullable UserDto disabledUser, UserRegistration authenticatorParameters) {
     Optional<UserDto> otherUserToIndex = detectEmailUpdate(dbSession, authenticatorParameters);
     NewUser newUser = createNewUser(authenticatorParameters);
+    AtomicBoolean groupsChanged = new AtomicBoolean();
+    UserDto userDto;
     if (disabledUser == null) {
-      return userUpdater.createAndCommit(dbSession, newUser, beforeCommit(dbSession, true, authenticatorParameters), toArray(otherUserToIndex));
+      userDto = userUpdater.createAndCommit(dbSession, newUser, beforeCommit(dbSession, true, authenticatorParameters, groupsChanged), toArray(otherUserToIndex));
+    } else {
+      userDto = userUpdater.reactivateAndCommit(dbSession, disabledUser, newUser, beforeCommit(dbSession, true, authenticatorParameters, groupsChanged),
+        toArray(otherUserToIndex));
     }
-    return userUpdater.reactivateAndCommit(dbSession, disabledUser, newUser, beforeCommit(dbSession, true, authenticatorParameters), toArray(otherUserToIndex));
+    invalidatePermissionCacheIfGroupsChanged(userDto, groupsChanged);
+    return userDto;
   }
 
   private UserDto registerExistingUser(DbSession dbSession, UserDto userDto, UserRegistration authenticatorParameters) {
@@ -124,17 +135,28 @@ public class UserRegistrarImpl implements UserRegistrar {
         authenticatorParameters.getUserIdentity().getProviderLogin(),
         authenticatorParameters.getUserIdentity().getProviderId()));
     Optional<UserDto> otherUserToIndex = detectEmailUpdate(dbSession, authenticatorParameters);
-    userUpdater.updateAndCommit(dbSession, userDto, update, beforeCommit(dbSession, false, authenticatorParameters), toArray(otherUserToIndex));
+    AtomicBoolean groupsChanged = new AtomicBoolean();
+    userUpdater.updateAndCommit(dbSession, userDto, update, beforeCommit(dbSession, false, authenticatorParameters, groupsChanged), toArray(otherUserToIndex));
+    invalidatePermissionCacheIfGroupsChanged(userDto, groupsChanged);
     return userDto;
   }
 
-  private Consumer<UserDto> beforeCommit(DbSession dbSession, boolean isNewUser, UserRegistration authenticatorParameters) {
+  private Consumer<UserDto> beforeCommit(DbSession dbSession, boolean isNewUser, UserRegistration authenticatorParameters, AtomicBoolean groupsChanged) {
     return user -> {
-      syncGroups(dbSession, authenticatorParameters.getUserIdentity(), user);
+      groupsChanged.set(syncGroups(dbSession, authenticatorParameters.getUserIdentity(), user));
       synchronizeOrganizationMembership(dbSession, user, authenticatorParameters, isNewUser);
     };
   }
 
+  /**
+   * Groups of the user are cached by {@link PermissionCache}, which must be invalidated once the changes are committed.
+   */
+  private void invalidatePermissionCacheIfGroupsChanged(UserDto userDto, AtomicBoolean groupsChanged) {
+    if (groupsChanged.get()) {
+      permissionCache.invalidateUser(userDto);
+    }
+  }
+
   private Optional<UserDto> detectEmailUpdate(DbSession dbSession, UserRegistration authenticatorParameters) {
     String email = authenticatorParameters.getUserIdentity().getEmail();
     if (email == null) {
@@ -174,9 +196,12 @@ public class UserRegistrarImpl implements UserRegistrar {
         || Objects.equals(existingUser.getExternalLogin(), authenticatorParameters.getUserIdentity().getProviderLogin())));
   }
 
-  private void syncGroups(DbSession dbSession, UserIdentity userIdentity, UserDto userDto) {
+  /**
+   * @return whether groups of the user have been changed
+   */
+  private boolean syncGroups(DbSession dbSession, UserIdentity userIdentity, UserDto userDto) {
     if (!userIdentity.shouldSyncGroups()) {
-      return;
+      return false;
     }
     String userLogin = userDto.getLogin();
     Set<String> userGroups = new HashSet<>(dbClient.groupMembershipDao().selectGroupsByLogins(dbSession, singletonList(userLogin)).get(userLogin));
@@ -192,29 +217,33 @@ public class UserRegistrarImpl implements UserRegistrar {
       .stream()
       .collect(uniqueIndex(GroupDto::getName));
 
-    addGroups(dbSession, userDto, groupsToAdd, groupsByName);
-    removeGroups(dbSession, userDto, groupsToRemove, groupsByName);
+    int added = addGroups(dbSession, userDto, groupsToAdd, groupsByName);
+    int removed = removeGroups(dbSession, userDto, groupsToRemove, groupsByName);
+    return added + removed > 0;
   }
 
-  private void addGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToAdd, Map<String, GroupDto> groupsByName) {
-    groupsToAdd.stream().map(groupsByName::get).filter(Objects::nonNull).forEach(
-      groupDto -> {
-        LOGGER.debug("Adding group '{}' to user '{}'", groupDto.getName(), userDto.getLogin());
-        dbClient.userGroupDao().insert(dbSession, new UserGroupDto().setGroupId(groupDto.getId()).setUserId(userDto.getId()));
-      });
+  private int addGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToAdd, Map<String, GroupDto> groupsByName) {
+    List<GroupDto> groups = groupsToAdd.stream().map(groupsByName::get).filter(Objects::nonNull).collect(toList());
+    groups.forEach(groupDto -> {
+      LOGGER.debug("Adding group '{}' to user '{}'", groupDto.getName(), userDto.getLogin());
+      dbClient.userGroupDao().insert(dbSession, new UserGroupDto().setGroupId(groupDto.getId()).setUserId(userDto.getId()));
+    });
+    return groups.size();
   }
 
-  private void removeGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToRemove, Map<String, GroupDto> groupsByName) {
+  private int removeGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToRemove, Map<String, GroupDto> groupsByName) {
     Optional<GroupDto> defaultGroup = getDefaultGroup(dbSession);
-    groupsToRemove.stream().map(groupsByName::get)
+    List<GroupDto> groups = groupsToRemove.stream().map(groupsByName::get)
       .filter(Objects::nonNull)
       // user should be member of default group only when organizations are disabled, as the IdentityProvider API doesn't handle yet
       // organizations
       .filter(group -> !defaultGroup.isPresent() || !group.getId().equals(defaultGroup.get().getId()))
-      .forEach(groupDto -> {
-        LOGGER.debug("Removing group '{}' from user '{}'", groupDto.getName(), userDto.getLogin());
-        dbClient.userGroupDao().delete(dbSession, groupDto.getId(), userDto.getId());
-      });
+      .collect(toList());
+    groups.forEach(groupDto -> {
+      LOGGER.debug("Removing group '{}' from user '{}'", groupDto.getName(), userDto.getLogin());
+      dbClient.userGroupDao().delete(dbSession, groupDto.getId(), userDto.getId());
+    });
+    return groups.size();
   }
 
   private Optional<GroupDto> getDefaultGroup(DbSession dbSession) {
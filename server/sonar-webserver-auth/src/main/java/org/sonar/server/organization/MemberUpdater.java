@@ -31,6 +31,7 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.organization.OrganizationMemberDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupFinder;
 
@@ -49,11 +50,13 @@ public class MemberUpdater {
   private final DbClient dbClient;
   private final DefaultGroupFinder defaultGroupFinder;
   private final UserIndexer userIndexer;
+  private final PermissionCache permissionCache;
 
-  public MemberUpdater(DbClient dbClient, DefaultGroupFinder defaultGroupFinder, UserIndexer userIndexer) {
+  public MemberUpdater(DbClient dbClient, DefaultGroupFinder defaultGroupFinder, UserIndexer userIndexer, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.defaultGroupFinder = defaultGroupFinder;
     this.userIndexer = userIndexer;
+    this.permissionCache = permissionCache;
   }
 
   public void addMember(DbSession dbSession, OrganizationDto organization, UserDto user) {
@@ -71,6 +74,7 @@ public class MemberUpdater {
     }
     usersToAdd.forEach(u -> addMemberInDb(dbSession, organization, u));
     userIndexer.commitAndIndex(dbSession, usersToAdd);
+    permissionCache.invalidateAll();
   }
 
   private void addMemberInDb(DbSession dbSession, OrganizationDto organization, UserDto user) {
@@ -101,6 +105,7 @@ public class MemberUpdater {
 
     usersToRemove.forEach(u -> removeMemberInDb(dbSession, organization, u));
     userIndexer.commitAndIndex(dbSession, usersToRemove);
+    permissionCache.invalidateAll();
   }
 
   /**
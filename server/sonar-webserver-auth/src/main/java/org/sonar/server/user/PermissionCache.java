@@ -0,0 +1,284 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.spi.exception.RetryableHazelcastException;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.Properties;
+import org.sonar.api.Property;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.permission.OrganizationPermission;
+import org.sonar.db.user.GroupDto;
+import org.sonar.db.user.UserDto;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static java.lang.String.format;
+import static org.sonar.process.cluster.hz.HazelcastObjects.PERMISSION_CACHE_INVALIDATIONS;
+
+/**
+ * Groups and permissions of users, shared by the {@link ServerUserSession}s of all the web requests so that
+ * authorization does not require database round trips on each request.
+ * <p>
+ * Entries are evicted after {@link #PROPERTY_TTL} seconds. Changes of permissions, of permission templates and of
+ * group memberships must call {@link #invalidateAll()} once committed, or {@link #invalidateUser(UserDto)} when they
+ * concern a single user. In a cluster, invalidations are propagated
+ * to the other nodes through {@link org.sonar.process.cluster.hz.HazelcastObjects#PERMISSION_CACHE_INVALIDATIONS}.
+ * </p>
+ */
+@Properties({
+  @Property(
+    key = PermissionCache.PROPERTY_MAX_SIZE,
+    defaultValue = "" + PermissionCache.DEFAULT_MAX_SIZE,
+    name = "Maximum number of entries of each cache of permissions",
+    global = false),
+  @Property(
+    key = PermissionCache.PROPERTY_TTL,
+    defaultValue = "" + PermissionCache.DEFAULT_TTL_IN_SECONDS,
+    name = "Time to live of the cached permissions, in seconds. Set to 0 to disable the cache.",
+    global = false)
+})
+@ServerSide
+public class PermissionCache implements Startable {
+  private static final Logger LOGGER = Loggers.get(PermissionCache.class);
+
+  public static final String PROPERTY_MAX_SIZE = "sonar.web.permissionCache.maxSize";
+  public static final String PROPERTY_TTL = "sonar.web.permissionCache.ttlInSeconds";
+  static final int DEFAULT_MAX_SIZE = 10_000;
+  static final int DEFAULT_TTL_IN_SECONDS = 30;
+
+  @CheckForNull
+  private final HazelcastMember hazelcastMember;
+  private final Cache<String, Collection<GroupDto>> groupsByLogin;
+  private final Cache<UserScopedKey, Set<OrganizationPermission>> organizationPermissions;
+  private final Cache<UserScopedKey, Set<String>> projectPermissions;
+  private final Cache<String, String> projectUuidByComponentUuid;
+  /**
+   * Incremented on each invalidation, so that values loaded before an invalidation are not cached
+   */
+  private final AtomicLong generation = new AtomicLong();
+  @CheckForNull
+  private String registrationId;
+
+  public PermissionCache(Configuration config, @Nullable HazelcastMember hazelcastMember) {
+    this.hazelcastMember = hazelcastMember;
+    int maxSize = readNonNegativeInt(config, PROPERTY_MAX_SIZE, DEFAULT_MAX_SIZE);
+    int ttlInSeconds = readNonNegativeInt(config, PROPERTY_TTL, DEFAULT_TTL_IN_SECONDS);
+    this.groupsByLogin = newCache(maxSize, ttlInSeconds);
+    this.organizationPermissions = newCache(maxSize, ttlInSeconds);
+    this.projectPermissions = newCache(maxSize, ttlInSeconds);
+    this.projectUuidByComponentUuid = newCache(maxSize, ttlInSeconds);
+  }
+
+  public PermissionCache(Configuration config) {
+    this(config, null);
+  }
+
+  private static int readNonNegativeInt(Configuration config, String property, int defaultValue) {
+    int value = config.getInt(property).orElse(defaultValue);
+    if (value < 0) {
+      throw MessageException.of(format("Property %s must not be negative. Got: %d", property, value));
+    }
+    return value;
+  }
+
+  private static <K, V> Cache<K, V> newCache(int maxSize, int ttlInSeconds) {
+    return CacheBuilder.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfterWrite(ttlInSeconds, TimeUnit.SECONDS)
+      .recordStats()
+      .build();
+  }
+
+  @Override
+  public void start() {
+    if (hazelcastMember != null) {
+      registrationId = getTopic().addMessageListener(this::onClusterInvalidation);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (hazelcastMember != null && registrationId != null) {
+      try {
+        getTopic().removeMessageListener(registrationId);
+      } catch (RetryableHazelcastException e) {
+        LOGGER.debug("Unable to unregister from the topic of permission cache invalidations", e);
+      }
+      registrationId = null;
+    }
+  }
+
+  Collection<GroupDto> getGroups(String login, Supplier<Collection<GroupDto>> loader) {
+    return get(groupsByLogin, login, loader);
+  }
+
+  Set<OrganizationPermission> getOrganizationPermissions(@Nullable Integer userId, String organizationUuid, Supplier<Set<OrganizationPermission>> loader) {
+    return get(organizationPermissions, new UserScopedKey(userId, organizationUuid), loader);
+  }
+
+  Set<String> getProjectPermissions(@Nullable Integer userId, String projectUuid, Supplier<Set<String>> loader) {
+    return get(projectPermissions, new UserScopedKey(userId, projectUuid), loader);
+  }
+
+  /**
+   * Components which do not exist are not cached, as they may be created later on.
+   */
+  Optional<String> getProjectUuid(String componentUuid, Supplier<Optional<String>> loader) {
+    String projectUuid = projectUuidByComponentUuid.getIfPresent(componentUuid);
+    if (projectUuid != null) {
+      return Optional.of(projectUuid);
+    }
+    long loadGeneration = generation.get();
+    Optional<String> loaded = loader.get();
+    loaded.ifPresent(uuid -> put(projectUuidByComponentUuid, componentUuid, uuid, loadGeneration));
+    return loaded;
+  }
+
+  private <K, V> V get(Cache<K, V> cache, K key, Supplier<V> loader) {
+    V value = cache.getIfPresent(key);
+    if (value == null) {
+      long loadGeneration = generation.get();
+      value = loader.get();
+      put(cache, key, value, loadGeneration);
+    }
+    return value;
+  }
+
+  private <K, V> void put(Cache<K, V> cache, K key, V value, long loadGeneration) {
+    if (generation.get() == loadGeneration) {
+      cache.put(key, value);
+    }
+  }
+
+  /**
+   * Evicts all the cached groups and permissions, on this node and on the other nodes of the cluster.
+   * Must be called once the changes are committed, so that they can't be loaded again from a stale transaction.
+   */
+  public void invalidateAll() {
+    invalidateLocally();
+    if (hazelcastMember != null) {
+      getTopic().publish(hazelcastMember.getUuid());
+    }
+  }
+
+  /**
+   * Evicts the cached groups and permissions of a user, for example when its groups are synchronized at login.
+   * Invalidations are not detailed between nodes, so the other nodes of the cluster evict all their entries.
+   * Must be called once the changes are committed.
+   */
+  public void invalidateUser(UserDto user) {
+    generation.incrementAndGet();
+    groupsByLogin.invalidate(user.getLogin());
+    Predicate<UserScopedKey> isOfUser = key -> Objects.equals(key.userId, user.getId());
+    organizationPermissions.asMap().keySet().removeIf(isOfUser);
+    projectPermissions.asMap().keySet().removeIf(isOfUser);
+    if (hazelcastMember != null) {
+      getTopic().publish(hazelcastMember.getUuid());
+    }
+  }
+
+  private void invalidateLocally() {
+    generation.incrementAndGet();
+    groupsByLogin.invalidateAll();
+    organizationPermissions.invalidateAll();
+    projectPermissions.invalidateAll();
+    projectUuidByComponentUuid.invalidateAll();
+  }
+
+  private void onClusterInvalidation(Message<String> message) {
+    // cache has already been invalidated when this node is the one which published the message
+    if (!hazelcastMember.getUuid().equals(message.getMessageObject())) {
+      invalidateLocally();
+    }
+  }
+
+  private ITopic<String> getTopic() {
+    return hazelcastMember.getTopic(PERMISSION_CACHE_INVALIDATIONS);
+  }
+
+  public long getHitCount() {
+    return stats().mapToLong(CacheStats::hitCount).sum();
+  }
+
+  public long getMissCount() {
+    return stats().mapToLong(CacheStats::missCount).sum();
+  }
+
+  public long getSize() {
+    return Stream.of(groupsByLogin, organizationPermissions, projectPermissions, projectUuidByComponentUuid)
+      .mapToLong(Cache::size)
+      .sum();
+  }
+
+  private Stream<CacheStats> stats() {
+    return Stream.of(groupsByLogin.stats(), organizationPermissions.stats(), projectPermissions.stats(), projectUuidByComponentUuid.stats());
+  }
+
+  /**
+   * Permissions of a user, or of anonymous when user id is {@code null}, on an organization or on a project
+   */
+  private static final class UserScopedKey {
+    @CheckForNull
+    private final Integer userId;
+    private final String uuid;
+
+    private UserScopedKey(@Nullable Integer userId, String uuid) {
+      this.userId = userId;
+      this.uuid = uuid;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      UserScopedKey that = (UserScopedKey) o;
+      return Objects.equals(userId, that.userId) && uuid.equals(that.uuid);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, uuid);
+    }
+  }
+}
@@ -59,7 +59,8 @@ public class ServerUserSession extends AbstractUserSession {
   private final DbClient dbClient;
   private final OrganizationFlags organizationFlags;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
-  private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::loadGroups);
+  private final PermissionCache permissionCache;
+  private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::getCachedGroups);
   private final Supplier<Boolean> isSystemAdministratorSupplier = Suppliers.memoize(this::loadIsSystemAdministrator);
   private final Map<String, String> projectUuidByComponentUuid = new HashMap<>();
   private Map<String, Set<OrganizationPermission>> permissionsByOrganizationUuid;
@@ -67,17 +68,22 @@ public class ServerUserSession extends AbstractUserSession {
   private Set<String> organizationMembership = new HashSet<>();
 
   ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
-    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto) {
+    DefaultOrganizationProvider defaultOrganizationProvider, PermissionCache permissionCache, @Nullable UserDto userDto) {
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.permissionCache = permissionCache;
     this.userDto = userDto;
   }
 
-  private Collection<GroupDto> loadGroups() {
+  private Collection<GroupDto> getCachedGroups() {
     if (this.userDto == null) {
       return Collections.emptyList();
     }
+    return permissionCache.getGroups(userDto.getLogin(), this::loadGroups);
+  }
+
+  private Collection<GroupDto> loadGroups() {
     try (DbSession dbSession = dbClient.openSession(false)) {
       return dbClient.groupDao().selectByUserLogin(dbSession, userDto.getLogin());
     }
@@ -137,7 +143,8 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByOrganizationUuid == null) {
       permissionsByOrganizationUuid = new HashMap<>();
     }
-    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid, this::loadOrganizationPermissions);
+    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid,
+      uuid -> permissionCache.getOrganizationPermissions(getUserId(), uuid, () -> loadOrganizationPermissions(uuid)));
     return permissions.contains(permission);
   }
 
@@ -161,6 +168,12 @@ public class ServerUserSession extends AbstractUserSession {
     if (projectUuid != null) {
       return of(projectUuid);
     }
+    Optional<String> loaded = permissionCache.getProjectUuid(componentUuid, () -> loadProjectUuid(componentUuid));
+    loaded.ifPresent(uuid -> projectUuidByComponentUuid.put(componentUuid, uuid));
+    return loaded;
+  }
+
+  private Optional<String> loadProjectUuid(String componentUuid) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       Optional<ComponentDto> component = dbClient.componentDao().selectByUuid(dbSession, componentUuid);
       if (!component.isPresent()) {
@@ -168,9 +181,7 @@ public class ServerUserSession extends AbstractUserSession {
       }
       // if component is part of a branch, then permissions must be
       // checked on the project (represented by its main branch)
-      projectUuid = defaultIfEmpty(component.get().getMainBranchProjectUuid(), component.get().projectUuid());
-      projectUuidByComponentUuid.put(componentUuid, projectUuid);
-      return of(projectUuid);
+      return of(defaultIfEmpty(component.get().getMainBranchProjectUuid(), component.get().projectUuid()));
     }
   }
 
@@ -179,7 +190,8 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByProjectUuid == null) {
       permissionsByProjectUuid = new HashMap<>();
     }
-    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid, this::loadProjectPermissions);
+    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid,
+      uuid -> permissionCache.getProjectPermissions(getUserId(), uuid, () -> loadProjectPermissions(uuid)));
     return permissions.contains(permission);
   }
 
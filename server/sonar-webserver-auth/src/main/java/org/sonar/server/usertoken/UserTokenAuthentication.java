@@ -20,6 +20,7 @@
 package org.sonar.server.usertoken;
 
 import java.util.Optional;
+import javax.annotation.CheckForNull;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.user.UserTokenDto;
@@ -32,11 +33,14 @@ public class UserTokenAuthentication {
   private final TokenGenerator tokenGenerator;
   private final DbClient dbClient;
   private final UserLastConnectionDatesUpdater userLastConnectionDatesUpdater;
+  private final UserTokenCache userTokenCache;
 
-  public UserTokenAuthentication(TokenGenerator tokenGenerator, DbClient dbClient, UserLastConnectionDatesUpdater userLastConnectionDatesUpdater) {
+  public UserTokenAuthentication(TokenGenerator tokenGenerator, DbClient dbClient, UserLastConnectionDatesUpdater userLastConnectionDatesUpdater,
+    UserTokenCache userTokenCache) {
     this.tokenGenerator = tokenGenerator;
     this.dbClient = dbClient;
     this.userLastConnectionDatesUpdater = userLastConnectionDatesUpdater;
+    this.userTokenCache = userTokenCache;
   }
 
   /**
@@ -46,13 +50,18 @@ public class UserTokenAuthentication {
    */
   public Optional<String> authenticate(String token) {
     String tokenHash = tokenGenerator.hash(token);
+    UserTokenDto userToken = userTokenCache.get(tokenHash, this::loadToken);
+    if (userToken == null) {
+      return empty();
+    }
+    userLastConnectionDatesUpdater.updateLastConnectionDateIfNeeded(userToken);
+    return of(userToken.getUserUuid());
+  }
+
+  @CheckForNull
+  private UserTokenDto loadToken(String tokenHash) {
     try (DbSession dbSession = dbClient.openSession(false)) {
-      UserTokenDto userToken = dbClient.userTokenDao().selectByTokenHash(dbSession, tokenHash);
-      if (userToken == null) {
-        return empty();
-      }
-      userLastConnectionDatesUpdater.updateLastConnectionDateIfNeeded(userToken);
-      return of(userToken.getUserUuid());
+      return dbClient.userTokenDao().selectByTokenHash(dbSession, tokenHash);
     }
   }
 }
@@ -0,0 +1,151 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.usertoken;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.spi.exception.RetryableHazelcastException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.Properties;
+import org.sonar.api.Property;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.user.UserTokenDto;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static java.lang.String.format;
+import static org.sonar.process.cluster.hz.HazelcastObjects.USER_TOKEN_EVICTIONS;
+
+/**
+ * Tokens recently used to authenticate, by hash. Tokens are kept {@link #PROPERTY_TTL} seconds at most and must be
+ * evicted with {@link #evictTokensOf(String)} once deleted from database. In a cluster, evictions are propagated to
+ * the other nodes through {@link org.sonar.process.cluster.hz.HazelcastObjects#USER_TOKEN_EVICTIONS}.
+ */
+@Properties({
+  @Property(
+    key = UserTokenCache.PROPERTY_TTL,
+    defaultValue = "" + UserTokenCache.DEFAULT_TTL_IN_SECONDS,
+    name = "Time to live of the cached user tokens, in seconds. Set to 0 to disable the cache.",
+    global = false)
+})
+@ServerSide
+public class UserTokenCache implements Startable {
+  private static final Logger LOGGER = Loggers.get(UserTokenCache.class);
+
+  public static final String PROPERTY_TTL = "sonar.web.tokenCache.ttlInSeconds";
+  static final int DEFAULT_TTL_IN_SECONDS = 60;
+  private static final int MAX_SIZE = 10_000;
+
+  @CheckForNull
+  private final HazelcastMember hazelcastMember;
+  private final Cache<String, UserTokenDto> tokensByHash;
+  /**
+   * Incremented on each eviction, so that tokens loaded before an eviction are not cached
+   */
+  private final AtomicLong generation = new AtomicLong();
+  @CheckForNull
+  private String registrationId;
+
+  public UserTokenCache(Configuration config, @Nullable HazelcastMember hazelcastMember) {
+    this.hazelcastMember = hazelcastMember;
+    int ttlInSeconds = config.getInt(PROPERTY_TTL).orElse(DEFAULT_TTL_IN_SECONDS);
+    if (ttlInSeconds < 0) {
+      throw MessageException.of(format("Property %s must not be negative. Got: %d", PROPERTY_TTL, ttlInSeconds));
+    }
+    this.tokensByHash = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .expireAfterWrite(ttlInSeconds, TimeUnit.SECONDS)
+      .build();
+  }
+
+  public UserTokenCache(Configuration config) {
+    this(config, null);
+  }
+
+  @Override
+  public void start() {
+    if (hazelcastMember != null) {
+      registrationId = getTopic().addMessageListener(this::onClusterEviction);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (hazelcastMember != null && registrationId != null) {
+      try {
+        getTopic().removeMessageListener(registrationId);
+      } catch (RetryableHazelcastException e) {
+        LOGGER.debug("Unable to unregister from the topic of user token evictions", e);
+      }
+      registrationId = null;
+    }
+  }
+
+  /**
+   * Unknown tokens are not cached, as they may be created later on.
+   */
+  @CheckForNull
+  UserTokenDto get(String tokenHash, Function<String, UserTokenDto> loader) {
+    UserTokenDto userToken = tokensByHash.getIfPresent(tokenHash);
+    if (userToken != null) {
+      return userToken;
+    }
+    long loadGeneration = generation.get();
+    userToken = loader.apply(tokenHash);
+    if (userToken != null && generation.get() == loadGeneration) {
+      tokensByHash.put(tokenHash, userToken);
+    }
+    return userToken;
+  }
+
+  /**
+   * Evicts the tokens of a user, on this node and on the other nodes of the cluster.
+   * Must be called once the deletion of tokens is committed.
+   */
+  public void evictTokensOf(String userUuid) {
+    evictLocally(userUuid);
+    if (hazelcastMember != null) {
+      getTopic().publish(userUuid);
+    }
+  }
+
+  private void evictLocally(String userUuid) {
+    generation.incrementAndGet();
+    tokensByHash.asMap().values().removeIf(t -> userUuid.equals(t.getUserUuid()));
+  }
+
+  private void onClusterEviction(Message<String> message) {
+    evictLocally(message.getMessageObject());
+  }
+
+  private ITopic<String> getTopic() {
+    return hazelcastMember.getTopic(USER_TOKEN_EVICTIONS);
+  }
+}
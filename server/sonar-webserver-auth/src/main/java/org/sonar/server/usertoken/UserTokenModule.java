@@ -26,6 +26,7 @@ public class UserTokenModule extends Module {
   protected void configureModule() {
     add(
       UserTokenAuthentication.class,
+      UserTokenCache.class,
       TokenGeneratorImpl.class);
   }
 }
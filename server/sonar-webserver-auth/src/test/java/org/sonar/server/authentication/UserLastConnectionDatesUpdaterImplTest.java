@@ -22,7 +22,6 @@ package org.sonar.server.authentication;
 
 import org.junit.Rule;
 import org.junit.Test;
-import org.sonar.api.utils.System2;
 import org.sonar.api.impl.utils.TestSystem2;
 import org.sonar.db.DbTester;
 import org.sonar.db.user.UserDto;
@@ -40,7 +39,7 @@ public class UserLastConnectionDatesUpdaterImplTest {
   @Rule
   public DbTester db = DbTester.create();
 
-  private System2 system2 = new TestSystem2().setNow(NOW);
+  private TestSystem2 system2 = new TestSystem2().setNow(NOW);
 
   private UserLastConnectionDatesUpdaterImpl underTest = new UserLastConnectionDatesUpdaterImpl(db.getDbClient(), system2);
 
@@ -50,6 +49,7 @@ public class UserLastConnectionDatesUpdaterImplTest {
     db.users().updateLastConnectionDate(user, NOW - TWO_HOUR);
 
     underTest.updateLastConnectionDateIfNeeded(user);
+    underTest.flush();
 
     UserDto userReloaded = db.getDbClient().userDao().selectByUuid(db.getSession(), user.getUuid());
     assertThat(userReloaded.getLastConnectionDate()).isEqualTo(NOW);
@@ -60,6 +60,7 @@ public class UserLastConnectionDatesUpdaterImplTest {
     UserDto user = db.users().insertUser();
 
     underTest.updateLastConnectionDateIfNeeded(user);
+    underTest.flush();
 
     UserDto userReloaded = db.getDbClient().userDao().selectByUuid(db.getSession(), user.getUuid());
     assertThat(userReloaded.getLastConnectionDate()).isEqualTo(NOW);
@@ -71,6 +72,7 @@ public class UserLastConnectionDatesUpdaterImplTest {
     db.users().updateLastConnectionDate(user, NOW - ONE_MINUTE);
 
     underTest.updateLastConnectionDateIfNeeded(user);
+    underTest.flush();
 
     UserDto userReloaded = db.getDbClient().userDao().selectByUuid(db.getSession(), user.getUuid());
     assertThat(userReloaded.getLastConnectionDate()).isEqualTo(NOW - ONE_MINUTE);
@@ -84,6 +86,7 @@ public class UserLastConnectionDatesUpdaterImplTest {
     db.commit();
 
     underTest.updateLastConnectionDateIfNeeded(userToken);
+    underTest.flush();
 
     UserTokenDto userTokenReloaded = db.getDbClient().userTokenDao().selectByTokenHash(db.getSession(), userToken.getTokenHash());
     assertThat(userTokenReloaded.getLastConnectionDate()).isEqualTo(NOW);
@@ -95,6 +98,7 @@ public class UserLastConnectionDatesUpdaterImplTest {
     UserTokenDto userToken = db.users().insertToken(user);
 
     underTest.updateLastConnectionDateIfNeeded(userToken);
+    underTest.flush();
 
     UserTokenDto userTokenReloaded = db.getDbClient().userTokenDao().selectByTokenHash(db.getSession(), userToken.getTokenHash());
     assertThat(userTokenReloaded.getLastConnectionDate()).isEqualTo(NOW);
@@ -108,8 +112,54 @@ public class UserLastConnectionDatesUpdaterImplTest {
     db.commit();
 
     underTest.updateLastConnectionDateIfNeeded(userToken);
+    underTest.flush();
 
     UserTokenDto userTokenReloaded = db.getDbClient().userTokenDao().selectByTokenHash(db.getSession(), userToken.getTokenHash());
     assertThat(userTokenReloaded.getLastConnectionDate()).isEqualTo(NOW - ONE_MINUTE);
   }
+
+  @Test
+  public void dates_are_written_only_when_flushed() {
+    UserDto user = db.users().insertUser();
+    UserTokenDto userToken = db.users().insertToken(user);
+
+    underTest.updateLastConnectionDateIfNeeded(user);
+    underTest.updateLastConnectionDateIfNeeded(userToken);
+
+    assertThat(user.getLastConnectionDate()).isEqualTo(NOW);
+    assertThat(userToken.getLastConnectionDate()).isEqualTo(NOW);
+    assertThat(db.getDbClient().userDao().selectByUuid(db.getSession(), user.getUuid()).getLastConnectionDate()).isNull();
+    assertThat(db.getDbClient().userTokenDao().selectByTokenHash(db.getSession(), userToken.getTokenHash()).getLastConnectionDate()).isNull();
+
+    underTest.flush();
+
+    assertThat(db.getDbClient().userDao().selectByUuid(db.getSession(), user.getUuid()).getLastConnectionDate()).isEqualTo(NOW);
+    assertThat(db.getDbClient().userTokenDao().selectByTokenHash(db.getSession(), userToken.getTokenHash()).getLastConnectionDate()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void successive_connections_are_written_once_with_the_latest_date() {
+    UserDto user = db.users().insertUser();
+    UserDto sameUserReloaded = db.getDbClient().userDao().selectByUuid(db.getSession(), user.getUuid());
+
+    underTest.updateLastConnectionDateIfNeeded(user);
+    system2.setNow(NOW + ONE_MINUTE);
+    underTest.updateLastConnectionDateIfNeeded(sameUserReloaded);
+    underTest.flush();
+
+    UserDto userReloaded = db.getDbClient().userDao().selectByUuid(db.getSession(), user.getUuid());
+    assertThat(userReloaded.getLastConnectionDate()).isEqualTo(NOW + ONE_MINUTE);
+  }
+
+  @Test
+  public void stop_writes_pending_dates() {
+    UserDto user = db.users().insertUser();
+    underTest.start();
+
+    underTest.updateLastConnectionDateIfNeeded(user);
+    underTest.stop();
+
+    UserDto userReloaded = db.getDbClient().userDao().selectByUuid(db.getSession(), user.getUuid());
+    assertThat(userReloaded.getLastConnectionDate()).isEqualTo(NOW);
+  }
 }
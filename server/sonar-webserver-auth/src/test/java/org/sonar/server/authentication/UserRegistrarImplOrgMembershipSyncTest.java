@@ -45,6 +45,7 @@ import org.sonar.server.organization.TestOrganizationFlags;
 import org.sonar.server.permission.PermissionService;
 import org.sonar.server.permission.PermissionServiceImpl;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupFinder;
@@ -108,7 +109,7 @@ public class UserRegistrarImplOrgMembershipSyncTest {
   private DefaultGroupFinder defaultGroupFinder = new DefaultGroupFinder(db.getDbClient());
 
   private UserRegistrarImpl underTest = new UserRegistrarImpl(db.getDbClient(), userUpdater, defaultOrganizationProvider, organizationFlags,
-    defaultGroupFinder, new MemberUpdater(db.getDbClient(), defaultGroupFinder, userIndexer));
+    defaultGroupFinder, new MemberUpdater(db.getDbClient(), defaultGroupFinder, userIndexer, mock(PermissionCache.class)), mock(PermissionCache.class));
 
   @Test
   public void authenticate_new_github_user_syncs_organization() {
@@ -44,6 +44,7 @@ import org.sonar.server.organization.OrganizationUpdater;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.organization.TestOrganizationFlags;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupFinder;
@@ -51,7 +52,10 @@ import org.sonar.server.usergroups.DefaultGroupFinder;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.stream;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.db.user.UserTesting.newUserDto;
 import static org.sonar.process.ProcessProperties.Property.ONBOARDING_TUTORIAL_SHOW_TO_NEW_USERS;
 import static org.sonar.server.authentication.UserRegistration.ExistingEmailStrategy.FORBID;
@@ -103,8 +107,10 @@ public class UserRegistrarImplTest {
 
   private DefaultGroupFinder defaultGroupFinder = new DefaultGroupFinder(db.getDbClient());
 
+  private PermissionCache permissionCache = mock(PermissionCache.class);
+
   private UserRegistrarImpl underTest = new UserRegistrarImpl(db.getDbClient(), userUpdater, defaultOrganizationProvider, organizationFlags,
-    defaultGroupFinder, new MemberUpdater(db.getDbClient(), defaultGroupFinder, userIndexer));
+    defaultGroupFinder, new MemberUpdater(db.getDbClient(), defaultGroupFinder, userIndexer, mock(PermissionCache.class)), permissionCache);
 
   @Test
   public void authenticate_new_user() {
@@ -691,6 +697,7 @@ public class UserRegistrarImplTest {
     authenticate(USER_IDENTITY.getProviderLogin(), "group1", "group2", "group3");
 
     checkGroupMembership(user, group1, group2);
+    verify(permissionCache).invalidateUser(argThat(u -> u.getLogin().equals(user.getLogin())));
   }
 
   @Test
@@ -709,6 +716,24 @@ public class UserRegistrarImplTest {
     authenticate(USER_IDENTITY.getProviderLogin(), "group1");
 
     checkGroupMembership(user, group1);
+    verify(permissionCache).invalidateUser(argThat(u -> u.getLogin().equals(user.getLogin())));
+  }
+
+  @Test
+  public void do_not_invalidate_permission_cache_when_groups_of_existing_user_are_unchanged() {
+    organizationFlags.setEnabled(true);
+    UserDto user = db.users().insertUser(newUserDto()
+      .setExternalIdentityProvider(IDENTITY_PROVIDER.getKey())
+      .setExternalLogin(USER_IDENTITY.getProviderLogin())
+      .setActive(true)
+      .setName("John"));
+    GroupDto group1 = db.users().insertGroup(db.getDefaultOrganization(), "group1");
+    db.users().insertMember(group1, user);
+
+    authenticate(USER_IDENTITY.getProviderLogin(), "group1");
+
+    checkGroupMembership(user, group1);
+    verifyZeroInteractions(permissionCache);
   }
 
   @Test
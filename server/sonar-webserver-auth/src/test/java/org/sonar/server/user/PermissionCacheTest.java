@@ -0,0 +1,238 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.db.permission.OrganizationPermission;
+import org.sonar.db.user.GroupDto;
+import org.sonar.db.user.UserDto;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.cluster.hz.HazelcastObjects.PERMISSION_CACHE_INVALIDATIONS;
+
+public class PermissionCacheTest {
+
+  private static final String LOCAL_UUID = "local_uuid";
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private MapSettings settings = new MapSettings();
+  private HazelcastMember hazelcastMember = mock(HazelcastMember.class);
+  private ITopic<String> topic = mock(ITopic.class);
+  private Supplier<Set<String>> loader = mock(Supplier.class);
+
+  @Test
+  public void project_permissions_are_loaded_once() {
+    when(loader.get()).thenReturn(singleton("user"));
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+
+    assertThat(underTest.getProjectPermissions(10, "P1", loader)).containsOnly("user");
+    assertThat(underTest.getProjectPermissions(10, "P1", loader)).containsOnly("user");
+
+    verify(loader, times(1)).get();
+    assertThat(underTest.getHitCount()).isEqualTo(1);
+    assertThat(underTest.getMissCount()).isEqualTo(1);
+    assertThat(underTest.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void permissions_are_cached_by_user_and_by_project() {
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+
+    underTest.getProjectPermissions(10, "P1", () -> singleton("user"));
+    underTest.getProjectPermissions(null, "P1", () -> singleton("codeviewer"));
+    underTest.getProjectPermissions(10, "P2", () -> singleton("admin"));
+
+    assertThat(underTest.getProjectPermissions(10, "P1", loader)).containsOnly("user");
+    assertThat(underTest.getProjectPermissions(null, "P1", loader)).containsOnly("codeviewer");
+    assertThat(underTest.getProjectPermissions(10, "P2", loader)).containsOnly("admin");
+    assertThat(underTest.getProjectPermissions(11, "P1", () -> singleton("issueadmin"))).containsOnly("issueadmin");
+  }
+
+  @Test
+  public void organization_permissions_and_groups_are_cached() {
+    GroupDto group = new GroupDto().setName("sonar-users");
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+
+    underTest.getOrganizationPermissions(10, "O1", () -> singleton(OrganizationPermission.SCAN));
+    underTest.getGroups("john", () -> singletonList(group));
+
+    assertThat(underTest.getOrganizationPermissions(10, "O1", mock(Supplier.class))).containsOnly(OrganizationPermission.SCAN);
+    Supplier<Collection<GroupDto>> groupsLoader = mock(Supplier.class);
+    assertThat(underTest.getGroups("john", groupsLoader)).containsOnly(group);
+  }
+
+  @Test
+  public void only_existing_components_are_cached() {
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+
+    assertThat(underTest.getProjectUuid("C1", Optional::empty)).isEmpty();
+    assertThat(underTest.getProjectUuid("C1", () -> Optional.of("P1"))).contains("P1");
+    assertThat(underTest.getProjectUuid("C1", Optional::empty)).contains("P1");
+  }
+
+  @Test
+  public void invalidateAll_evicts_all_entries() {
+    when(loader.get()).thenReturn(singleton("user"));
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+    underTest.getProjectPermissions(10, "P1", loader);
+    underTest.getProjectUuid("C1", () -> Optional.of("P1"));
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.getSize()).isZero();
+    underTest.getProjectPermissions(10, "P1", loader);
+    verify(loader, times(2)).get();
+  }
+
+  @Test
+  public void invalidateUser_evicts_only_entries_of_the_user() {
+    UserDto user = new UserDto().setId(10).setLogin("john");
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+    underTest.getGroups("john", () -> singletonList(new GroupDto().setName("sonar-users")));
+    underTest.getOrganizationPermissions(10, "O1", () -> singleton(OrganizationPermission.SCAN));
+    underTest.getProjectPermissions(10, "P1", () -> singleton("user"));
+    underTest.getProjectPermissions(11, "P1", () -> singleton("admin"));
+    underTest.getProjectPermissions(null, "P1", () -> singleton("codeviewer"));
+
+    underTest.invalidateUser(user);
+
+    assertThat(underTest.getSize()).isEqualTo(2);
+    assertThat(underTest.getProjectPermissions(11, "P1", loader)).containsOnly("admin");
+    assertThat(underTest.getProjectPermissions(null, "P1", loader)).containsOnly("codeviewer");
+  }
+
+  @Test
+  public void invalidateUser_publishes_to_topic_in_cluster_mode() {
+    PermissionCache underTest = newClusteredCache();
+    underTest.start();
+
+    underTest.invalidateUser(new UserDto().setId(10).setLogin("john"));
+
+    verify(topic).publish(LOCAL_UUID);
+  }
+
+  @Test
+  public void value_loaded_during_an_invalidation_is_not_cached() {
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+
+    underTest.getProjectPermissions(10, "P1", () -> {
+      underTest.invalidateAll();
+      return singleton("user");
+    });
+
+    assertThat(underTest.getSize()).isZero();
+  }
+
+  @Test
+  public void nothing_is_cached_when_ttl_is_zero() {
+    settings.setProperty(PermissionCache.PROPERTY_TTL, 0);
+    when(loader.get()).thenReturn(singleton("user"));
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+
+    underTest.getProjectPermissions(10, "P1", loader);
+    underTest.getProjectPermissions(10, "P1", loader);
+
+    verify(loader, times(2)).get();
+  }
+
+  @Test
+  public void fail_if_max_size_is_negative() {
+    settings.setProperty(PermissionCache.PROPERTY_MAX_SIZE, -1);
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Property sonar.web.permissionCache.maxSize must not be negative. Got: -1");
+
+    new PermissionCache(settings.asConfig());
+  }
+
+  @Test
+  public void invalidateAll_publishes_to_topic_in_cluster_mode() {
+    PermissionCache underTest = newClusteredCache();
+    underTest.start();
+
+    underTest.invalidateAll();
+
+    verify(topic).publish(LOCAL_UUID);
+  }
+
+  @Test
+  public void cache_is_invalidated_when_another_node_publishes_an_invalidation() {
+    PermissionCache underTest = newClusteredCache();
+    underTest.start();
+    underTest.getProjectPermissions(10, "P1", () -> singleton("user"));
+    MessageListener<String> messageListener = captureMessageListener();
+
+    messageListener.onMessage(newMessage(LOCAL_UUID));
+    assertThat(underTest.getSize()).isEqualTo(1);
+
+    messageListener.onMessage(newMessage("other_uuid"));
+    assertThat(underTest.getSize()).isZero();
+  }
+
+  @Test
+  public void stop_unregisters_from_topic() {
+    when(topic.addMessageListener(any())).thenReturn("registration_id");
+    PermissionCache underTest = newClusteredCache();
+    underTest.start();
+
+    underTest.stop();
+    underTest.stop();
+
+    verify(topic, times(1)).removeMessageListener("registration_id");
+  }
+
+  private PermissionCache newClusteredCache() {
+    when(hazelcastMember.<String>getTopic(PERMISSION_CACHE_INVALIDATIONS)).thenReturn(topic);
+    when(hazelcastMember.getUuid()).thenReturn(LOCAL_UUID);
+    return new PermissionCache(settings.asConfig(), hazelcastMember);
+  }
+
+  private MessageListener<String> captureMessageListener() {
+    ArgumentCaptor<MessageListener<String>> captor = ArgumentCaptor.forClass(MessageListener.class);
+    verify(topic).addMessageListener(captor.capture());
+    return captor.getValue();
+  }
+
+  private Message<String> newMessage(String publisherUuid) {
+    return new Message<>(PERMISSION_CACHE_INVALIDATIONS, publisherUuid, 0L, null);
+  }
+}
@@ -24,6 +24,7 @@ import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.api.web.UserRole;
 import org.sonar.db.DbClient;
@@ -248,6 +249,30 @@ public class ServerUserSessionTest {
     assertThat(session.hasPermission(SCAN, org.getUuid())).isFalse();
   }
 
+  @Test
+  public void permissions_are_shared_by_the_sessions_using_the_same_cache_until_it_is_invalidated() {
+    OrganizationDto org = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(org);
+    UserDto user = db.users().insertUser();
+    db.users().insertPermissionOnUser(org, user, PROVISIONING);
+    db.users().insertProjectPermissionOnUser(user, UserRole.USER, project);
+    PermissionCache permissionCache = new PermissionCache(new MapSettings().asConfig());
+
+    // feed the cache
+    assertThat(newUserSession(user, permissionCache).hasPermission(PROVISION_PROJECTS, org.getUuid())).isTrue();
+    assertThat(newUserSession(user, permissionCache).hasComponentPermission(UserRole.USER, project)).isTrue();
+
+    // change permissions without invalidating the cache
+    db.users().deletePermissionFromUser(org, user, PROVISION_PROJECTS);
+    db.users().deletePermissionFromUser(project, user, UserRole.USER);
+    assertThat(newUserSession(user, permissionCache).hasPermission(PROVISION_PROJECTS, org.getUuid())).isTrue();
+    assertThat(newUserSession(user, permissionCache).hasComponentPermission(UserRole.USER, project)).isTrue();
+
+    permissionCache.invalidateAll();
+    assertThat(newUserSession(user, permissionCache).hasPermission(PROVISION_PROJECTS, org.getUuid())).isFalse();
+    assertThat(newUserSession(user, permissionCache).hasComponentPermission(UserRole.USER, project)).isFalse();
+  }
+
   @Test
   public void hasPermission_on_organization_keeps_cache_of_permissions_of_anonymous_user() {
     OrganizationDto org = db.organizations().insert();
@@ -695,7 +720,11 @@ public class ServerUserSessionTest {
   }
 
   private ServerUserSession newUserSession(@Nullable UserDto userDto) {
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, userDto);
+    return newUserSession(userDto, new PermissionCache(new MapSettings().asConfig()));
+  }
+
+  private ServerUserSession newUserSession(@Nullable UserDto userDto, PermissionCache permissionCache) {
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, permissionCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
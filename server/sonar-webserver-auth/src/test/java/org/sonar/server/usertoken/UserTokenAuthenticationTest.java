@@ -23,6 +23,7 @@ import java.util.Optional;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.user.UserDto;
@@ -33,6 +34,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -47,7 +49,9 @@ public class UserTokenAuthenticationTest {
   private TokenGenerator tokenGenerator = mock(TokenGenerator.class);
   private UserLastConnectionDatesUpdater userLastConnectionDatesUpdater = mock(UserLastConnectionDatesUpdater.class);
 
-  private UserTokenAuthentication underTest = new UserTokenAuthentication(tokenGenerator, db.getDbClient(), userLastConnectionDatesUpdater);
+  private UserTokenCache userTokenCache = new UserTokenCache(new MapSettings().asConfig());
+
+  private UserTokenAuthentication underTest = new UserTokenAuthentication(tokenGenerator, db.getDbClient(), userLastConnectionDatesUpdater, userTokenCache);
 
   @Test
   public void return_login_when_token_hash_found_in_db() {
@@ -73,4 +77,37 @@ public class UserTokenAuthenticationTest {
     assertThat(login.isPresent()).isFalse();
     verify(userLastConnectionDatesUpdater, never()).updateLastConnectionDateIfNeeded(any(UserTokenDto.class));
   }
+
+  @Test
+  public void token_is_loaded_from_db_only_once() {
+    String token = "known-token";
+    String tokenHash = "123456789";
+    when(tokenGenerator.hash(token)).thenReturn(tokenHash);
+    UserDto user = db.users().insertUser();
+    db.users().insertToken(user, t -> t.setTokenHash(tokenHash));
+    assertThat(underTest.authenticate(token)).contains(user.getUuid());
+
+    // token is deleted without evicting it from the cache
+    db.getDbClient().userTokenDao().deleteByUser(db.getSession(), user);
+    db.commit();
+
+    assertThat(underTest.authenticate(token)).contains(user.getUuid());
+    verify(userLastConnectionDatesUpdater, times(2)).updateLastConnectionDateIfNeeded(any(UserTokenDto.class));
+  }
+
+  @Test
+  public void revoked_token_is_not_authenticated_once_evicted() {
+    String token = "known-token";
+    String tokenHash = "123456789";
+    when(tokenGenerator.hash(token)).thenReturn(tokenHash);
+    UserDto user = db.users().insertUser();
+    db.users().insertToken(user, t -> t.setTokenHash(tokenHash));
+    assertThat(underTest.authenticate(token)).contains(user.getUuid());
+
+    db.getDbClient().userTokenDao().deleteByUser(db.getSession(), user);
+    db.commit();
+    userTokenCache.evictTokensOf(user.getUuid());
+
+    assertThat(underTest.authenticate(token)).isEmpty();
+  }
 }
@@ -0,0 +1,173 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.usertoken;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import java.util.function.Function;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.db.user.UserTokenDto;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.cluster.hz.HazelcastObjects.USER_TOKEN_EVICTIONS;
+
+public class UserTokenCacheTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private MapSettings settings = new MapSettings();
+  private HazelcastMember hazelcastMember = mock(HazelcastMember.class);
+  private ITopic<String> topic = mock(ITopic.class);
+  private Function<String, UserTokenDto> loader = mock(Function.class);
+  private UserTokenDto token1OfUser1 = newToken("U1", "T1");
+  private UserTokenDto token2OfUser1 = newToken("U1", "T2");
+  private UserTokenDto tokenOfUser2 = newToken("U2", "T3");
+
+  @Test
+  public void token_is_loaded_once() {
+    when(loader.apply("H1")).thenReturn(token1OfUser1);
+    UserTokenCache underTest = new UserTokenCache(settings.asConfig());
+
+    assertThat(underTest.get("H1", loader)).isSameAs(token1OfUser1);
+    assertThat(underTest.get("H1", loader)).isSameAs(token1OfUser1);
+
+    verify(loader, times(1)).apply("H1");
+  }
+
+  @Test
+  public void unknown_token_is_not_cached() {
+    UserTokenCache underTest = new UserTokenCache(settings.asConfig());
+
+    assertThat(underTest.get("H1", loader)).isNull();
+    assertThat(underTest.get("H1", h -> token1OfUser1)).isSameAs(token1OfUser1);
+  }
+
+  @Test
+  public void evictTokensOf_evicts_only_the_tokens_of_the_user() {
+    UserTokenCache underTest = new UserTokenCache(settings.asConfig());
+    underTest.get("H1", h -> token1OfUser1);
+    underTest.get("H2", h -> token2OfUser1);
+    underTest.get("H3", h -> tokenOfUser2);
+
+    underTest.evictTokensOf("U1");
+
+    assertThat(underTest.get("H1", loader)).isNull();
+    assertThat(underTest.get("H2", loader)).isNull();
+    assertThat(underTest.get("H3", loader)).isSameAs(tokenOfUser2);
+  }
+
+  @Test
+  public void token_loaded_during_an_eviction_is_not_cached() {
+    UserTokenCache underTest = new UserTokenCache(settings.asConfig());
+
+    underTest.get("H1", h -> {
+      underTest.evictTokensOf("U1");
+      return token1OfUser1;
+    });
+
+    assertThat(underTest.get("H1", loader)).isNull();
+  }
+
+  @Test
+  public void nothing_is_cached_when_ttl_is_zero() {
+    settings.setProperty(UserTokenCache.PROPERTY_TTL, 0);
+    when(loader.apply("H1")).thenReturn(token1OfUser1);
+    UserTokenCache underTest = new UserTokenCache(settings.asConfig());
+
+    underTest.get("H1", loader);
+    underTest.get("H1", loader);
+
+    verify(loader, times(2)).apply("H1");
+  }
+
+  @Test
+  public void fail_if_ttl_is_negative() {
+    settings.setProperty(UserTokenCache.PROPERTY_TTL, -1);
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Property sonar.web.tokenCache.ttlInSeconds must not be negative. Got: -1");
+
+    new UserTokenCache(settings.asConfig());
+  }
+
+  @Test
+  public void evictTokensOf_publishes_to_topic_in_cluster_mode() {
+    UserTokenCache underTest = newClusteredCache();
+    underTest.start();
+
+    underTest.evictTokensOf("U1");
+
+    verify(topic).publish("U1");
+  }
+
+  @Test
+  public void tokens_are_evicted_when_another_node_publishes_an_eviction() {
+    UserTokenCache underTest = newClusteredCache();
+    underTest.start();
+    underTest.get("H1", h -> token1OfUser1);
+    underTest.get("H3", h -> tokenOfUser2);
+    MessageListener<String> messageListener = captureMessageListener();
+
+    messageListener.onMessage(new Message<>(USER_TOKEN_EVICTIONS, "U1", 0L, null));
+
+    assertThat(underTest.get("H1", loader)).isNull();
+    assertThat(underTest.get("H3", loader)).isSameAs(tokenOfUser2);
+  }
+
+  @Test
+  public void stop_unregisters_from_topic() {
+    when(topic.addMessageListener(any())).thenReturn("registration_id");
+    UserTokenCache underTest = newClusteredCache();
+    underTest.start();
+
+    underTest.stop();
+    underTest.stop();
+
+    verify(topic, times(1)).removeMessageListener("registration_id");
+  }
+
+  private UserTokenCache newClusteredCache() {
+    when(hazelcastMember.<String>getTopic(USER_TOKEN_EVICTIONS)).thenReturn(topic);
+    return new UserTokenCache(settings.asConfig(), hazelcastMember);
+  }
+
+  private MessageListener<String> captureMessageListener() {
+    ArgumentCaptor<MessageListener<String>> captor = ArgumentCaptor.forClass(MessageListener.class);
+    verify(topic).addMessageListener(captor.capture());
+    return captor.getValue();
+  }
+
+  private static UserTokenDto newToken(String userUuid, String name) {
+    return new UserTokenDto().setUserUuid(userUuid).setName(name);
+  }
+}
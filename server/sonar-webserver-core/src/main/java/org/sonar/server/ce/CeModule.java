@@ -31,6 +31,7 @@ public class CeModule extends Module {
       CeHttpClientImpl.class,
 
       // Queue
-      CeQueueImpl.class);
+      CeQueueImpl.class,
+      CeWorkersWakeUpNotifier.class);
   }
 }
@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce;
+
+import javax.annotation.Nullable;
+import org.sonar.ce.queue.CeQueueListener;
+import org.sonar.process.cluster.hz.HazelcastMember;
+import org.sonar.server.ce.http.CeHttpClient;
+
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_QUEUE_SUBMITS;
+
+/**
+ * Wakes up the workers of the Compute Engine(s) once tasks are submitted by the Web Server: through the HTTP server
+ * of the Compute Engine in standalone mode, through Hazelcast in cluster mode.
+ */
+public class CeWorkersWakeUpNotifier implements CeQueueListener {
+
+  private final CeHttpClient ceHttpClient;
+  @Nullable
+  private final HazelcastMember hazelcastMember;
+
+  public CeWorkersWakeUpNotifier(CeHttpClient ceHttpClient, @Nullable HazelcastMember hazelcastMember) {
+    this.ceHttpClient = ceHttpClient;
+    this.hazelcastMember = hazelcastMember;
+  }
+
+  public CeWorkersWakeUpNotifier(CeHttpClient ceHttpClient) {
+    this(ceHttpClient, null);
+  }
+
+  @Override
+  public void onSubmit() {
+    if (hazelcastMember == null) {
+      ceHttpClient.wakeUpWorkers();
+    } else {
+      hazelcastMember.getTopic(CE_QUEUE_SUBMITS).publish(hazelcastMember.getUuid());
+    }
+  }
+}
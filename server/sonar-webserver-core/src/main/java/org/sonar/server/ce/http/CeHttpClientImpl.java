@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import org.apache.commons.io.IOUtils;
@@ -42,6 +43,8 @@ public class CeHttpClientImpl implements CeHttpClient {
 
   private static final String PATH_CHANGE_LOG_LEVEL = "changeLogLevel";
   private static final String PATH_SYSTEM_INFO = "systemInfo";
+  private static final String PATH_WAKE_UP_WORKERS = "wakeUpWorkers";
+  private static final long WAKE_UP_TIMEOUT_MS = 1_000L;
 
   private final File ipcSharedDir;
 
@@ -123,6 +126,49 @@ public class CeHttpClientImpl implements CeHttpClient {
     }
   }
 
+  @Override
+  public void wakeUpWorkers() {
+    call(WakeUpWorkersActionClient.INSTANCE);
+  }
+
+  private enum WakeUpWorkersActionClient implements ActionClient<Void> {
+    INSTANCE;
+
+    @Override
+    public String getPath() {
+      return PATH_WAKE_UP_WORKERS;
+    }
+
+    @Override
+    public Void getDefault() {
+      return null;
+    }
+
+    @Override
+    public Void call(String url) throws Exception {
+      okhttp3.Request request = new okhttp3.Request.Builder()
+        .post(RequestBody.create(null, new byte[0]))
+        .url(url)
+        .build();
+      // called when tasks are submitted: don't hold the submitter for long, workers eventually poll the queue anyway
+      OkHttpClient client = new OkHttpClient.Builder()
+        .connectTimeout(WAKE_UP_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        .readTimeout(WAKE_UP_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        .build();
+      try (okhttp3.Response response = client.newCall(request).execute()) {
+        if (response.code() != 200) {
+          throw new IOException(
+            String.format(
+              "Failed to wake up workers of Compute Engine. Code was '%s' and response was '%s' for url '%s'",
+              response.code(),
+              response.body().string(),
+              url));
+        }
+        return null;
+      }
+    }
+  }
+
   private <T> T call(ActionClient<T> actionClient) {
     try (DefaultProcessCommands commands = DefaultProcessCommands.secondary(ipcSharedDir, COMPUTE_ENGINE.getIpcIndex())) {
       if (commands.isUp()) {
@@ -21,19 +21,25 @@ package org.sonar.server.notification;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.picocontainer.Startable;
 import org.sonar.api.Properties;
 import org.sonar.api.Property;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
-import static java.util.Collections.singleton;
+import static java.lang.String.format;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 
 @Properties({
   @Property(
@@ -45,6 +51,11 @@ import static java.util.Collections.singleton;
     key = NotificationDaemon.PROPERTY_DELAY_BEFORE_REPORTING_STATUS,
     defaultValue = "600",
     name = "Delay before reporting notification status, in seconds",
+    global = false),
+  @Property(
+    key = NotificationDaemon.PROPERTY_BATCH_SIZE,
+    defaultValue = "100",
+    name = "Maximum number of notifications dequeued and delivered at once",
     global = false)
 })
 @ServerSide
@@ -55,11 +66,17 @@ public class NotificationDaemon implements Startable {
 
   public static final String PROPERTY_DELAY = "sonar.notifications.delay";
   public static final String PROPERTY_DELAY_BEFORE_REPORTING_STATUS = "sonar.notifications.runningDelayBeforeReportingStatus";
+  public static final String PROPERTY_BATCH_SIZE = "sonar.notifications.batchSize";
+  static final int DEFAULT_BATCH_SIZE = 100;
 
   private final long delayInSeconds;
   private final long delayBeforeReportingStatusInSeconds;
+  private final int batchSize;
   private final DefaultNotificationManager manager;
   private final NotificationService service;
+  private final AtomicLong processedCount = new AtomicLong();
+  private final AtomicLong sentCount = new AtomicLong();
+  private final AtomicLong processingTime = new AtomicLong();
 
   private ScheduledExecutorService executorService;
   private boolean stopping = false;
@@ -67,6 +84,10 @@ public class NotificationDaemon implements Startable {
   public NotificationDaemon(Configuration config, DefaultNotificationManager manager, NotificationService service) {
     this.delayInSeconds = config.getLong(PROPERTY_DELAY).get();
     this.delayBeforeReportingStatusInSeconds = config.getLong(PROPERTY_DELAY_BEFORE_REPORTING_STATUS).get();
+    this.batchSize = config.getInt(PROPERTY_BATCH_SIZE).orElse(DEFAULT_BATCH_SIZE);
+    if (batchSize < 1) {
+      throw MessageException.of(format("Property %s must be a positive integer. Got: %d", PROPERTY_BATCH_SIZE, batchSize));
+    }
     this.manager = manager;
     this.service = service;
   }
@@ -104,27 +125,83 @@ public class NotificationDaemon implements Startable {
   private synchronized void processQueue() {
     long start = now();
     long lastLog = start;
+    long batchStart = start;
     long notifSentCount = 0;
 
-    Notification notifToSend = manager.getFromQueue();
-    while (notifToSend != null) {
-      notifSentCount += service.deliverEmails(singleton(notifToSend));
-      // compatibility with old API
-      notifSentCount += service.deliver(notifToSend);
+    List<Notification> notifsToSend = manager.getFromQueue(batchSize);
+    while (!notifsToSend.isEmpty()) {
+      int batchSentCount = deliver(notifsToSend);
+      notifSentCount += batchSentCount;
+      processedCount.addAndGet(notifsToSend.size());
+      sentCount.addAndGet(batchSentCount);
       if (stopping) {
         break;
       }
       long now = now();
+      processingTime.addAndGet(now - batchStart);
+      batchStart = now;
       if (now - lastLog > delayBeforeReportingStatusInSeconds * 1000) {
         long remainingNotifCount = manager.count();
         lastLog = now;
         long spentTimeInMinutes = (now - start) / (60 * 1000);
         log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
       }
-      notifToSend = manager.getFromQueue();
+      notifsToSend = manager.getFromQueue(batchSize);
     }
   }
 
+  /**
+   * Notifications are already removed from the queue. Failures are logged by type and by notification, so that
+   * one failure does not discard the rest of the batch.
+   */
+  private int deliver(List<Notification> notifications) {
+    int count = 0;
+    // notification handlers resolve the subscribers once per call, and accept notifications of a single type
+    for (List<Notification> notificationsOfType : notifications.stream()
+      .collect(groupingBy(Notification::getClass, LinkedHashMap::new, toList()))
+      .values()) {
+      try {
+        count += service.deliverEmails(notificationsOfType);
+      } catch (Exception e) {
+        LOG.error(format("Unable to deliver %d notifications of type %s", notificationsOfType.size(), notificationsOfType.get(0).getType()), e);
+      }
+    }
+    // compatibility with old API
+    for (Notification notification : notifications) {
+      try {
+        count += service.deliver(notification);
+      } catch (Exception e) {
+        LOG.error(format("Unable to deliver notification %s", notification), e);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Count of notifications removed from the queue since startup
+   */
+  public long getProcessedCount() {
+    return processedCount.get();
+  }
+
+  /**
+   * Count of notifications delivered to recipients since startup
+   */
+  public long getSentCount() {
+    return sentCount.get();
+  }
+
+  /**
+   * Time spent delivering notifications since startup, in milliseconds
+   */
+  public long getProcessingTime() {
+    return processingTime.get();
+  }
+
+  public long getPendingCount() {
+    return manager.count();
+  }
+
   @VisibleForTesting
   void log(long notifSentCount, long remainingNotifCount, long spentTimeInMinutes) {
     LOG.info("{} notifications sent during the past {} minutes and {} still waiting to be sent",
@@ -27,6 +27,8 @@ import org.sonar.server.platform.monitoring.DbSection;
 import org.sonar.server.platform.monitoring.EsIndexesSection;
 import org.sonar.server.platform.monitoring.EsStateSection;
 import org.sonar.server.platform.monitoring.LoggingSection;
+import org.sonar.server.platform.monitoring.NotificationSection;
+import org.sonar.server.platform.monitoring.PermissionCacheSection;
 import org.sonar.server.platform.monitoring.PluginsSection;
 import org.sonar.server.platform.monitoring.SettingsSection;
 import org.sonar.server.platform.monitoring.StandaloneSystemSection;
@@ -57,6 +59,8 @@ public class SystemInfoWriterModule extends Module {
       DbConnectionSection.class,
       EsIndexesSection.class,
       LoggingSection.class,
+      NotificationSection.class,
+      PermissionCacheSection.class,
       PluginsSection.class,
       SettingsSection.class
 
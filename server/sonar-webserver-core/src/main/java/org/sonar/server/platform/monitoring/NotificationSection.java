@@ -0,0 +1,73 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo.Section;
+import org.sonar.server.notification.NotificationDaemon;
+
+import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+
+/**
+ * Information about the queue of notifications and their delivery by this node
+ */
+public class NotificationSection extends BaseSectionMBean implements NotificationSectionMBean {
+
+  private final NotificationDaemon notificationDaemon;
+
+  public NotificationSection(NotificationDaemon notificationDaemon) {
+    this.notificationDaemon = notificationDaemon;
+  }
+
+  @Override
+  public String name() {
+    return "Notifications";
+  }
+
+  @Override
+  public long getPendingCount() {
+    return notificationDaemon.getPendingCount();
+  }
+
+  @Override
+  public long getProcessedCount() {
+    return notificationDaemon.getProcessedCount();
+  }
+
+  @Override
+  public long getSentCount() {
+    return notificationDaemon.getSentCount();
+  }
+
+  @Override
+  public long getProcessingTime() {
+    return notificationDaemon.getProcessingTime();
+  }
+
+  @Override
+  public Section toProtobuf() {
+    Section.Builder protobuf = Section.newBuilder();
+    protobuf.setName("Web Notifications");
+    setAttribute(protobuf, "Pending", getPendingCount());
+    setAttribute(protobuf, "Processed", getProcessedCount());
+    setAttribute(protobuf, "Sent", getSentCount());
+    setAttribute(protobuf, "Processing Time (ms)", getProcessingTime());
+    return protobuf.build();
+  }
+}
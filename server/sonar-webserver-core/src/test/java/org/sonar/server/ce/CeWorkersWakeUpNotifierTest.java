@@ -0,0 +1,59 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce;
+
+import com.hazelcast.core.ITopic;
+import org.junit.Test;
+import org.sonar.process.cluster.hz.HazelcastMember;
+import org.sonar.server.ce.http.CeHttpClient;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_QUEUE_SUBMITS;
+
+public class CeWorkersWakeUpNotifierTest {
+
+  private CeHttpClient ceHttpClient = mock(CeHttpClient.class);
+
+  @Test
+  public void onSubmit_calls_Compute_Engine_in_standalone_mode() {
+    CeWorkersWakeUpNotifier underTest = new CeWorkersWakeUpNotifier(ceHttpClient);
+
+    underTest.onSubmit();
+
+    verify(ceHttpClient).wakeUpWorkers();
+  }
+
+  @Test
+  public void onSubmit_publishes_to_topic_in_cluster_mode() {
+    HazelcastMember hazelcastMember = mock(HazelcastMember.class);
+    ITopic<Object> topic = mock(ITopic.class);
+    when(hazelcastMember.getTopic(CE_QUEUE_SUBMITS)).thenReturn(topic);
+    when(hazelcastMember.getUuid()).thenReturn("web_uuid");
+    CeWorkersWakeUpNotifier underTest = new CeWorkersWakeUpNotifier(ceHttpClient, hazelcastMember);
+
+    underTest.onSubmit();
+
+    verify(topic).publish("web_uuid");
+    verifyZeroInteractions(ceHttpClient);
+  }
+}
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.Optional;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import okio.Buffer;
 import org.junit.Before;
 import org.junit.Rule;
@@ -133,6 +134,39 @@ public class CeHttpClientImplTest {
     underTest.changeLogLevel(LoggerLevel.INFO);
   }
 
+  @Test
+  public void wakeUpWorkers_posts_to_Compute_Engine() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(200));
+
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    underTest.wakeUpWorkers();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getMethod()).isEqualTo("POST");
+    assertThat(request.getPath()).isEqualTo("/wakeUpWorkers");
+  }
+
+  @Test
+  public void wakeUpWorkers_throws_ISE_if_http_error() {
+    server.enqueue(new MockResponse().setResponseCode(500).setBody("blah"));
+
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Failed to call HTTP server of process " + ProcessId.COMPUTE_ENGINE);
+    expectedException.expectCause(hasType(IOException.class)
+      .andMessage(format("Failed to wake up workers of Compute Engine. Code was '500' and response was 'blah' for url " +
+        "'http://%s:%s/wakeUpWorkers'", server.getHostName(), server.getPort())));
+
+    underTest.wakeUpWorkers();
+  }
+
+  @Test
+  public void wakeUpWorkers_does_not_fail_if_process_is_down() {
+    underTest.wakeUpWorkers();
+  }
+
   private void setUpWithHttpUrl(ProcessId processId) {
     try (DefaultProcessCommands processCommands = DefaultProcessCommands.secondary(ipcSharedDir, processId.getIpcIndex())) {
       processCommands.setUp();
@@ -29,8 +29,12 @@ import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.notifications.Notification;
 
-import static java.util.Collections.singleton;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.when;
@@ -38,13 +42,12 @@ import static org.mockito.Mockito.when;
 public class NotificationDaemonTest {
   private DefaultNotificationManager manager = mock(DefaultNotificationManager.class);
   private NotificationService notificationService = mock(NotificationService.class);
+  private MapSettings settings = new MapSettings(new PropertyDefinitions(NotificationDaemon.class)).setProperty("sonar.notifications.delay", 1L);
   private NotificationDaemon underTest;
   private InOrder inOrder;
 
   @Before
   public void setUp() throws Exception {
-    MapSettings settings = new MapSettings(new PropertyDefinitions(NotificationDaemon.class)).setProperty("sonar.notifications.delay", 1L);
-
     underTest = new NotificationDaemon(settings.asConfig(), manager, notificationService);
     inOrder = Mockito.inOrder(notificationService);
   }
@@ -56,7 +59,7 @@ public class NotificationDaemonTest {
 
   @Test
   public void no_effect_when_no_notification() {
-    when(manager.getFromQueue()).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(emptyList());
 
     underTest.start();
     inOrder.verify(notificationService, new Timeout(2000, Mockito.times(0))).deliverEmails(anyCollection());
@@ -67,39 +70,88 @@ public class NotificationDaemonTest {
   @Test
   public void calls_both_api_and_deprecated_API() {
     Notification notification = mock(Notification.class);
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(notification)).thenReturn(emptyList());
 
     underTest.start();
-    inOrder.verify(notificationService, timeout(2000)).deliverEmails(singleton(notification));
+    inOrder.verify(notificationService, timeout(2000)).deliverEmails(singletonList(notification));
     inOrder.verify(notificationService).deliver(notification);
     inOrder.verifyNoMoreInteractions();
     underTest.stop();
   }
 
   @Test
-  public void notifications_are_processed_one_by_one_even_with_new_API() {
-    Notification notification1 = mock(Notification.class);
-    Notification notification2 = mock(Notification.class);
-    Notification notification3 = mock(Notification.class);
-    Notification notification4 = mock(Notification.class);
-    when(manager.getFromQueue())
-      .thenReturn(notification1)
-      .thenReturn(notification2)
-      .thenReturn(notification3)
-      .thenReturn(notification4)
-      .thenReturn(null);
+  public void notifications_are_delivered_by_batches_grouped_by_type() {
+    Notification foo1 = new FooNotification();
+    Notification bar1 = new BarNotification();
+    Notification foo2 = new FooNotification();
+    Notification foo3 = new FooNotification();
+    when(manager.getFromQueue(NotificationDaemon.DEFAULT_BATCH_SIZE))
+      .thenReturn(asList(foo1, bar1, foo2))
+      .thenReturn(singletonList(foo3))
+      .thenReturn(emptyList());
+    when(notificationService.deliverEmails(anyCollection())).thenReturn(1);
 
     underTest.start();
-    inOrder.verify(notificationService, timeout(2000)).deliverEmails(singleton(notification1));
-    inOrder.verify(notificationService).deliver(notification1);
-    inOrder.verify(notificationService, timeout(2000)).deliverEmails(singleton(notification2));
-    inOrder.verify(notificationService).deliver(notification2);
-    inOrder.verify(notificationService, timeout(2000)).deliverEmails(singleton(notification3));
-    inOrder.verify(notificationService).deliver(notification3);
-    inOrder.verify(notificationService, timeout(2000)).deliverEmails(singleton(notification4));
-    inOrder.verify(notificationService).deliver(notification4);
+    inOrder.verify(notificationService, timeout(2000)).deliverEmails(asList(foo1, foo2));
+    inOrder.verify(notificationService).deliverEmails(singletonList(bar1));
+    inOrder.verify(notificationService).deliver(foo1);
+    inOrder.verify(notificationService).deliver(bar1);
+    inOrder.verify(notificationService).deliver(foo2);
+    inOrder.verify(notificationService, timeout(2000)).deliverEmails(singletonList(foo3));
+    inOrder.verify(notificationService).deliver(foo3);
     inOrder.verifyNoMoreInteractions();
     underTest.stop();
 
+    assertThat(underTest.getProcessedCount()).isEqualTo(4);
+    assertThat(underTest.getSentCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void failure_of_a_type_or_of_a_notification_does_not_discard_the_rest_of_the_batch() {
+    Notification foo1 = new FooNotification();
+    Notification bar1 = new BarNotification();
+    Notification foo2 = new FooNotification();
+    when(manager.getFromQueue(NotificationDaemon.DEFAULT_BATCH_SIZE))
+      .thenReturn(asList(foo1, bar1, foo2))
+      .thenReturn(emptyList());
+    when(notificationService.deliverEmails(asList(foo1, foo2))).thenThrow(new IllegalStateException("Faking failure of handler"));
+    when(notificationService.deliverEmails(singletonList(bar1))).thenReturn(1);
+    when(notificationService.deliver(foo1)).thenThrow(new IllegalStateException("Faking failure of dispatcher"));
+    when(notificationService.deliver(foo2)).thenReturn(1);
+
+    underTest.start();
+    inOrder.verify(notificationService, timeout(2000)).deliverEmails(asList(foo1, foo2));
+    inOrder.verify(notificationService).deliverEmails(singletonList(bar1));
+    inOrder.verify(notificationService).deliver(foo1);
+    inOrder.verify(notificationService).deliver(bar1);
+    inOrder.verify(notificationService).deliver(foo2);
+    Mockito.verify(manager, timeout(2000).atLeast(2)).getFromQueue(NotificationDaemon.DEFAULT_BATCH_SIZE);
+    underTest.stop();
+
+    assertThat(underTest.getProcessedCount()).isEqualTo(3);
+    assertThat(underTest.getSentCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void batch_size_is_configurable() {
+    settings.setProperty(NotificationDaemon.PROPERTY_BATCH_SIZE, 10);
+    underTest = new NotificationDaemon(settings.asConfig(), manager, notificationService);
+    when(manager.getFromQueue(anyInt())).thenReturn(emptyList());
+
+    underTest.start();
+    Mockito.verify(manager, timeout(2000).atLeastOnce()).getFromQueue(10);
+    underTest.stop();
+  }
+
+  private static class FooNotification extends Notification {
+    FooNotification() {
+      super("foo");
+    }
+  }
+
+  private static class BarNotification extends Notification {
+    BarNotification() {
+      super("bar");
+    }
   }
 }
@@ -81,6 +81,7 @@ public class EmailNotificationChannelTest {
 
   @After
   public void tearDown() {
+    underTest.stop();
     smtpServer.stop();
   }
 
@@ -348,6 +349,53 @@ public class EmailNotificationChannelTest {
       .contains(emailMessage11.getMessage());
   }
 
+  @Test
+  public void deliverAll_sends_all_emails_when_there_are_more_than_the_concurrent_senders() {
+    configure();
+    EmailTemplate template = mock(EmailTemplate.class);
+    Set<EmailDeliveryRequest> requests = IntStream.range(0, 20)
+      .mapToObj(i -> {
+        Notification notification = mock(Notification.class);
+        when(template.format(notification)).thenReturn(new EmailMessage().setSubject("sub" + i).setPlainTextMessage("msg" + i));
+        return new EmailDeliveryRequest("foo" + i + "@donut", notification);
+      })
+      .collect(toSet());
+    EmailNotificationChannel underTest = new EmailNotificationChannel(configuration, new EmailTemplate[] {template}, null);
+
+    int count = underTest.deliverAll(requests);
+
+    assertThat(count).isEqualTo(20);
+    assertThat(smtpServer.getMessages())
+      .extracting(WiserMessage::getEnvelopeReceiver)
+      .containsOnly(IntStream.range(0, 20).mapToObj(i -> "foo" + i + "@donut").toArray(String[]::new));
+  }
+
+  @Test
+  public void deliverAll_sends_and_counts_the_other_emails_when_one_fails() {
+    configure();
+    EmailTemplate template = mock(EmailTemplate.class);
+    Set<EmailDeliveryRequest> requests = IntStream.range(0, 20)
+      .mapToObj(i -> {
+        Notification notification = mock(Notification.class);
+        EmailMessage emailMessage = new EmailMessage().setSubject("sub" + i).setPlainTextMessage("msg" + i);
+        if (i == 0) {
+          emailMessage = mock(EmailMessage.class);
+          when(emailMessage.getMessage()).thenThrow(new IllegalStateException("Faking failure of email"));
+        }
+        when(template.format(notification)).thenReturn(emailMessage);
+        return new EmailDeliveryRequest("foo" + i + "@donut", notification);
+      })
+      .collect(toSet());
+    underTest = new EmailNotificationChannel(configuration, new EmailTemplate[] {template}, null);
+
+    int count = underTest.deliverAll(requests);
+
+    assertThat(count).isEqualTo(19);
+    assertThat(smtpServer.getMessages())
+      .extracting(WiserMessage::getEnvelopeReceiver)
+      .containsOnly(IntStream.range(1, 20).mapToObj(i -> "foo" + i + "@donut").toArray(String[]::new));
+  }
+
   @DataProvider
   public static Object[][] emptyStrings() {
     return new Object[][] {
@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Test;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.notification.NotificationDaemon;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.systeminfo.SystemInfoUtils.attribute;
+
+public class NotificationSectionTest {
+
+  private NotificationDaemon notificationDaemon = mock(NotificationDaemon.class);
+  private NotificationSection underTest = new NotificationSection(notificationDaemon);
+
+  @Test
+  public void jmx_name_is_not_empty() {
+    assertThat(underTest.name()).isEqualTo("Notifications");
+  }
+
+  @Test
+  public void notification_info() {
+    when(notificationDaemon.getPendingCount()).thenReturn(12L);
+    when(notificationDaemon.getProcessedCount()).thenReturn(345L);
+    when(notificationDaemon.getSentCount()).thenReturn(678L);
+    when(notificationDaemon.getProcessingTime()).thenReturn(9_000L);
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(section.getName()).isEqualTo("Web Notifications");
+    assertThat(attribute(section, "Pending").getLongValue()).isEqualTo(12L);
+    assertThat(attribute(section, "Processed").getLongValue()).isEqualTo(345L);
+    assertThat(attribute(section, "Sent").getLongValue()).isEqualTo(678L);
+    assertThat(attribute(section, "Processing Time (ms)").getLongValue()).isEqualTo(9_000L);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Test;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.user.PermissionCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.systeminfo.SystemInfoUtils.attribute;
+
+public class PermissionCacheSectionTest {
+
+  private PermissionCache permissionCache = mock(PermissionCache.class);
+  private PermissionCacheSection underTest = new PermissionCacheSection(permissionCache);
+
+  @Test
+  public void jmx_name_is_not_empty() {
+    assertThat(underTest.name()).isEqualTo("PermissionCache");
+  }
+
+  @Test
+  public void permission_cache_info() {
+    when(permissionCache.getHitCount()).thenReturn(120L);
+    when(permissionCache.getMissCount()).thenReturn(12L);
+    when(permissionCache.getSize()).thenReturn(8L);
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(section.getName()).isEqualTo("Web Permission Cache");
+    assertThat(attribute(section, "Hits").getLongValue()).isEqualTo(120L);
+    assertThat(attribute(section, "Misses").getLongValue()).isEqualTo(12L);
+    assertThat(attribute(section, "Size").getLongValue()).isEqualTo(8L);
+  }
+}
@@ -20,8 +20,10 @@
 package org.sonar.server.measure.ws;
 
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -42,6 +44,8 @@ import org.sonar.db.component.SnapshotQuery;
 import org.sonar.db.component.SnapshotQuery.SORT_FIELD;
 import org.sonar.db.component.SnapshotQuery.SORT_ORDER;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureSeries;
+import org.sonar.db.measure.MeasureSeriesDto;
 import org.sonar.db.measure.PastMeasureQuery;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.server.component.ComponentFinder;
@@ -172,6 +176,48 @@ public class SearchHistoryAction implements MeasuresWsAction {
   }
 
   private List<MeasureDto> searchMeasures(DbSession dbSession, SearchHistoryRequest request, SearchHistoryResult result) {
+    List<Integer> metricIds = result.getMetrics().stream().map(MetricDto::getId).collect(MoreCollectors.toList());
+    List<MeasureSeriesDto> series = dbClient.measureSeriesDao().selectByComponentUuidAndMetricIds(dbSession, result.getComponent().uuid(), metricIds);
+    if (series.isEmpty()) {
+      // component has not been analyzed since the series were introduced
+      return searchPastMeasures(dbSession, request, result);
+    }
+    if (!haveDistinctDates(result.getAnalyses())) {
+      // points of series can't be attributed to analyses created at the same date
+      return searchPastMeasures(dbSession, request, result);
+    }
+    return toMeasures(series, result.getAnalyses());
+  }
+
+  private static boolean haveDistinctDates(List<SnapshotDto> analyses) {
+    return analyses.stream().map(SnapshotDto::getCreatedAt).distinct().count() == analyses.size();
+  }
+
+  /**
+   * Points of series are identified by the date of their analysis. Points of the analyses that are out of the
+   * requested period are ignored.
+   */
+  private static List<MeasureDto> toMeasures(List<MeasureSeriesDto> series, List<SnapshotDto> analyses) {
+    Map<Long, String> analysisUuidsByDate = analyses.stream().collect(MoreCollectors.uniqueIndex(SnapshotDto::getCreatedAt, SnapshotDto::getUuid));
+    List<MeasureDto> measures = new ArrayList<>();
+    for (MeasureSeriesDto dto : series) {
+      for (MeasureSeries.Point point : dto.getSeries().getPoints()) {
+        String analysisUuid = analysisUuidsByDate.get(point.getDate());
+        if (analysisUuid != null) {
+          measures.add(new MeasureDto()
+            .setComponentUuid(dto.getComponentUuid())
+            .setMetricId(dto.getMetricId())
+            .setAnalysisUuid(analysisUuid)
+            .setValue(point.getValue())
+            .setVariation(point.getVariation())
+            .setData(point.getData()));
+        }
+      }
+    }
+    return measures;
+  }
+
+  private List<MeasureDto> searchPastMeasures(DbSession dbSession, SearchHistoryRequest request, SearchHistoryResult result) {
     Date from = parseStartingDateOrDateTime(request.getFrom());
     Date to = parseEndingDateOrDateTime(request.getTo());
     PastMeasureQuery dbQuery = new PastMeasureQuery(
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.source;
 
+import java.util.Collections;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -76,9 +77,7 @@ public class SourceService {
     if (dto == null) {
       return Optional.empty();
     }
-    return Optional.of(dto.getSourceData().getLinesList().stream()
-      .filter(line -> line.hasLine() && line.getLine() >= from)
-      .limit((toInclusive - from) + 1L)
+    return Optional.of(dto.getSourceLines(from, toInclusive).stream()
       .map(function)
       .collect(MoreCollectors.toList()));
   }
@@ -88,8 +87,11 @@ public class SourceService {
     if (dto == null) {
       return Optional.empty();
     }
-    return Optional.of(dto.getSourceData().getLinesList().stream()
-      .filter(line -> line.hasLine() && lines.contains(line.getLine()))
+    if (lines.isEmpty()) {
+      return Optional.of(Collections.emptyList());
+    }
+    return Optional.of(dto.getSourceLines(Collections.min(lines), Collections.max(lines)).stream()
+      .filter(line -> lines.contains(line.getLine()))
       .map(function)
       .collect(MoreCollectors.toList()));
   }
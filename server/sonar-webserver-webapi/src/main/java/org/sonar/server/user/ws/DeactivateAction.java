@@ -42,6 +42,7 @@ import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.usertoken.UserTokenCache;
 
 import static java.lang.String.format;
 import static java.util.Collections.singletonList;
@@ -61,15 +62,17 @@ public class DeactivateAction implements UsersWsAction {
   private final UserSession userSession;
   private final UserJsonWriter userWriter;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final UserTokenCache userTokenCache;
   private final boolean isSonarCloud;
 
   public DeactivateAction(DbClient dbClient, UserIndexer userIndexer, UserSession userSession, UserJsonWriter userWriter,
-    DefaultOrganizationProvider defaultOrganizationProvider, Configuration configuration) {
+    DefaultOrganizationProvider defaultOrganizationProvider, UserTokenCache userTokenCache, Configuration configuration) {
     this.dbClient = dbClient;
     this.userIndexer = userIndexer;
     this.userSession = userSession;
     this.userWriter = userWriter;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.userTokenCache = userTokenCache;
     this.isSonarCloud = configuration.getBoolean(SONARCLOUD_ENABLED.getKey()).orElse(false);
   }
 
@@ -121,6 +124,7 @@ public class DeactivateAction implements UsersWsAction {
       dbClient.userPropertiesDao().deleteByUser(dbSession, user);
       deactivateUser(dbSession, user);
       userIndexer.commitAndIndex(dbSession, user);
+      userTokenCache.evictTokensOf(user.getUuid());
 
       LOGGER.info("Deactivate user: {}; by admin: {}", login, userSession.isSystemAdministrator());
     }
@@ -25,6 +25,7 @@ import org.sonar.api.server.ws.WebService;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.usertoken.UserTokenCache;
 
 import static org.sonar.server.usertoken.ws.UserTokenSupport.ACTION_REVOKE;
 import static org.sonar.server.usertoken.ws.UserTokenSupport.PARAM_LOGIN;
@@ -34,10 +35,12 @@ public class RevokeAction implements UserTokensWsAction {
 
   private final DbClient dbClient;
   private final UserTokenSupport userTokenSupport;
+  private final UserTokenCache userTokenCache;
 
-  public RevokeAction(DbClient dbClient, UserTokenSupport userTokenSupport) {
+  public RevokeAction(DbClient dbClient, UserTokenSupport userTokenSupport, UserTokenCache userTokenCache) {
     this.dbClient = dbClient;
     this.userTokenSupport = userTokenSupport;
+    this.userTokenCache = userTokenCache;
   }
 
   @Override
@@ -66,6 +69,7 @@ public class RevokeAction implements UserTokensWsAction {
       UserDto user = userTokenSupport.getUser(dbSession, request);
       dbClient.userTokenDao().deleteByUserAndName(dbSession, user, name);
       dbSession.commit();
+      userTokenCache.evictTokensOf(user.getUuid());
     }
     response.noContent();
   }
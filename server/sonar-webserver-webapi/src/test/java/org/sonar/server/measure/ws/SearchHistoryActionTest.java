@@ -37,6 +37,8 @@ import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureSeries;
+import org.sonar.db.measure.MeasureSeriesDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.component.TestComponentFinder;
@@ -251,6 +253,79 @@ public class SearchHistoryActionTest {
       analysisDates.get(1), analysisDates.get(2), analysisDates.get(3));
   }
 
+  @Test
+  public void return_measures_from_series() {
+    SnapshotDto laterAnalysis = dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setCreatedAt(analysis.getCreatedAt() + 42_000));
+    insertSeries(project, complexityMetric, new MeasureSeries()
+      .add(new MeasureSeries.Point(analysis.getCreatedAt(), 101d, null, null))
+      .add(new MeasureSeries.Point(laterAnalysis.getCreatedAt(), 100d, null, null)));
+    insertSeries(project, newViolationMetric, new MeasureSeries()
+      .add(new MeasureSeries.Point(analysis.getCreatedAt(), null, 5d, null))
+      .add(new MeasureSeries.Point(laterAnalysis.getCreatedAt(), null, 10d, null)));
+    // project_measures are ignored as soon as the component has series
+    dbClient.measureDao().insert(dbSession, newMeasureDto(nclocMetric, project, analysis).setValue(201d));
+    db.commit();
+
+    SearchHistoryRequest request = SearchHistoryRequest.builder()
+      .setComponent(project.getDbKey())
+      .setMetrics(asList(complexityMetric.getKey(), nclocMetric.getKey(), newViolationMetric.getKey()))
+      .build();
+    SearchHistoryResponse result = call(request);
+
+    String analysisDate = formatDateTime(analysis.getCreatedAt());
+    String laterAnalysisDate = formatDateTime(laterAnalysis.getCreatedAt());
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getDate, HistoryValue::getValue)
+      .containsExactly(tuple(analysisDate, "101"), tuple(laterAnalysisDate, "100"));
+    assertThat(result.getMeasures(1).getHistoryList()).extracting(HistoryValue::getDate, HistoryValue::hasValue)
+      .containsExactly(tuple(analysisDate, false), tuple(laterAnalysisDate, false));
+    assertThat(result.getMeasures(2).getHistoryList()).extracting(HistoryValue::getDate, HistoryValue::getValue)
+      .containsExactly(tuple(analysisDate, "5"), tuple(laterAnalysisDate, "10"));
+  }
+
+  @Test
+  public void return_measures_from_project_measures_when_analyses_have_the_same_date() {
+    SnapshotDto analysisAtSameDate = dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setCreatedAt(analysis.getCreatedAt()));
+    insertSeries(project, complexityMetric, new MeasureSeries()
+      .add(new MeasureSeries.Point(analysis.getCreatedAt(), 101d, null, null)));
+    dbClient.measureDao().insert(dbSession, newMeasureDto(complexityMetric, project, analysis).setValue(101d));
+    dbClient.measureDao().insert(dbSession, newMeasureDto(complexityMetric, project, analysisAtSameDate).setValue(102d));
+    db.commit();
+
+    SearchHistoryRequest request = SearchHistoryRequest.builder()
+      .setComponent(project.getDbKey())
+      .setMetrics(singletonList(complexityMetric.getKey()))
+      .build();
+    SearchHistoryResponse result = call(request);
+
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getValue).containsExactlyInAnyOrder("101", "102");
+  }
+
+  @Test
+  public void inclusive_from_and_to_dates_on_series() {
+    project = db.components().insertPrivateProject();
+    userSession.addProjectPermission(UserRole.USER, project);
+    MeasureSeries series = new MeasureSeries();
+    List<String> analysisDates = LongStream.rangeClosed(1, 9)
+      .mapToObj(i -> dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setCreatedAt(System2.INSTANCE.now() + i * 1_000_000_000L)))
+      .peek(a -> series.add(new MeasureSeries.Point(a.getCreatedAt(), Double.valueOf(a.getCreatedAt()), null, null)))
+      .map(a -> formatDateTime(a.getCreatedAt()))
+      .collect(MoreCollectors.toList());
+    insertSeries(project, complexityMetric, series);
+    db.commit();
+
+    SearchHistoryRequest request = SearchHistoryRequest.builder()
+      .setComponent(project.getDbKey())
+      .setMetrics(singletonList(complexityMetric.getKey()))
+      .setFrom(analysisDates.get(1))
+      .setTo(analysisDates.get(3))
+      .build();
+    SearchHistoryResponse result = call(request);
+
+    assertThat(result.getPaging()).extracting(Paging::getPageIndex, Paging::getPageSize, Paging::getTotal).containsExactly(1, 100, 3);
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getDate).containsExactly(
+      analysisDates.get(1), analysisDates.get(2), analysisDates.get(3));
+  }
+
   @Test
   public void return_best_values_for_files() {
     dbClient.metricDao().insert(dbSession, newMetricDto().setKey("optimized").setValueType(ValueType.INT.name()).setOptimizedBestValue(true).setBestValue(456d));
@@ -483,6 +558,14 @@ public class SearchHistoryActionTest {
     assertThat(measure.getHistory(0).hasValue()).isFalse();
   }
 
+  private void insertSeries(ComponentDto component, MetricDto metric, MeasureSeries series) {
+    dbClient.measureSeriesDao().insert(dbSession, new MeasureSeriesDto()
+      .setComponentUuid(component.uuid())
+      .setProjectUuid(component.projectUuid())
+      .setMetricId(metric.getId())
+      .setSeries(series));
+  }
+
   private SearchHistoryResponse call(SearchHistoryRequest request) {
     TestRequest testRequest = ws.newRequest();
 
@@ -40,6 +40,7 @@ import org.sonar.server.issue.AvatarResolverImpl;
 import org.sonar.server.organization.MemberUpdater;
 import org.sonar.server.organization.OrganizationValidationImpl;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupFinder;
 import org.sonar.server.ws.TestRequest;
@@ -49,6 +50,7 @@ import org.sonarqube.ws.Organizations.AddMemberWsResponse;
 import static java.lang.String.format;
 import static java.util.Optional.ofNullable;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.sonar.db.permission.OrganizationPermission.ADMINISTER;
 import static org.sonar.db.permission.OrganizationPermission.ADMINISTER_QUALITY_GATES;
 import static org.sonar.db.user.GroupMembershipQuery.IN;
@@ -70,7 +72,7 @@ public class AddMemberActionTest {
   private OrganizationsWsSupport wsSupport = new OrganizationsWsSupport(new OrganizationValidationImpl(), dbClient);
   private WsActionTester ws = new WsActionTester(
     new AddMemberAction(dbClient, userSession, new AvatarResolverImpl(), wsSupport,
-      new MemberUpdater(dbClient, new DefaultGroupFinder(dbClient), new UserIndexer(dbClient, es.client()))));
+      new MemberUpdater(dbClient, new DefaultGroupFinder(dbClient), new UserIndexer(dbClient, es.client()), mock(PermissionCache.class))));
 
   @Test
   public void add_member() {
@@ -49,6 +49,7 @@ import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.user.index.UserIndexDefinition;
 import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.usertoken.UserTokenCache;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
@@ -57,6 +58,8 @@ import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.api.web.UserRole.CODEVIEWER;
 import static org.sonar.api.web.UserRole.USER;
 import static org.sonar.db.organization.OrganizationTesting.newOrganizationDto;
@@ -90,8 +93,9 @@ public class DeactivateActionTest {
   private UserIndexer userIndexer = new UserIndexer(dbClient, es.client());
   private DbSession dbSession = db.getSession();
   private MapSettings settings = new MapSettings();
+  private UserTokenCache userTokenCache = mock(UserTokenCache.class);
   private WsActionTester ws = new WsActionTester(new DeactivateAction(dbClient, userIndexer, userSession,
-    new UserJsonWriter(userSession), defaultOrganizationProvider, settings.asConfig()));
+    new UserJsonWriter(userSession), defaultOrganizationProvider, userTokenCache, settings.asConfig()));
 
   @Test
   public void deactivate_user_and_delete_his_related_data() {
@@ -136,6 +140,7 @@ public class DeactivateActionTest {
     deactivate(user.getLogin());
 
     assertThat(db.getDbClient().userTokenDao().selectByUser(dbSession, user)).isEmpty();
+    verify(userTokenCache).evictTokensOf(user.getUuid());
   }
 
   @Test
@@ -432,6 +437,6 @@ public class DeactivateActionTest {
   private WsActionTester newSonarCloudWs() {
     settings.setProperty(SONARCLOUD_ENABLED.getKey(), true);
     return new WsActionTester(new DeactivateAction(dbClient, userIndexer, userSession,
-      new UserJsonWriter(userSession), defaultOrganizationProvider, settings.asConfig()));
+      new UserJsonWriter(userSession), defaultOrganizationProvider, userTokenCache, settings.asConfig()));
   }
 }
@@ -34,10 +34,13 @@ import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.usertoken.UserTokenCache;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.WsActionTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.server.usertoken.ws.UserTokenSupport.PARAM_LOGIN;
 import static org.sonar.server.usertoken.ws.UserTokenSupport.PARAM_NAME;
 
@@ -52,7 +55,8 @@ public class RevokeActionTest {
 
   private DbClient dbClient = db.getDbClient();
   private DbSession dbSession = db.getSession();
-  private WsActionTester ws = new WsActionTester(new RevokeAction(dbClient, new UserTokenSupport(db.getDbClient(), userSession)));
+  private UserTokenCache userTokenCache = mock(UserTokenCache.class);
+  private WsActionTester ws = new WsActionTester(new RevokeAction(dbClient, new UserTokenSupport(db.getDbClient(), userSession), userTokenCache));
 
   @Test
   public void revoke_action() {
@@ -85,6 +89,7 @@ public class RevokeActionTest {
     assertThat(dbClient.userTokenDao().selectByUser(dbSession, user2))
       .extracting(UserTokenDto::getName)
       .containsExactlyInAnyOrder(tokenFromAnotherUser.getName());
+    verify(userTokenCache).evictTokensOf(user1.getUuid());
   }
 
   @Test
@@ -0,0 +1,78 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Function;
+import org.apache.commons.lang.StringUtils;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Non-closed issue tracking as implemented before {@link TrackingIndex}: each matching pass builds a multimap of
+ * the unmatched base issues by a key object allocated for every issue. Used as reference, both for the results and
+ * for the performance of {@link Tracker#trackNonClosed(Input, Input)}.
+ */
+public class ReferenceTracker<RAW extends Trackable, BASE extends Trackable> {
+
+  public NonClosedTracking<RAW, BASE> trackNonClosed(Input<RAW> rawInput, Input<BASE> baseInput) {
+    NonClosedTracking<RAW, BASE> tracking = NonClosedTracking.of(rawInput, baseInput);
+
+    match(tracking, t -> Arrays.asList(t.getRuleKey(), t.getLine(), lineHash(t), t.getMessage()));
+    match(tracking, t -> Arrays.asList(t.getRuleKey(), t.getLine(), lineHash(t)));
+    if (!tracking.isComplete()) {
+      new BlockRecognizer<RAW, BASE>().match(rawInput, baseInput, tracking);
+    }
+    match(tracking, t -> Arrays.asList(t.getRuleKey(), t.getMessage(), lineHash(t)));
+    match(tracking, t -> Arrays.asList(t.getRuleKey(), t.getMessage(), t.getLine()));
+    match(tracking, t -> Arrays.asList(t.getRuleKey(), lineHash(t)));
+
+    return tracking;
+  }
+
+  private static String lineHash(Trackable trackable) {
+    return StringUtils.defaultString(trackable.getLineHash(), "");
+  }
+
+  private void match(Tracking<RAW, BASE> tracking, Function<Trackable, Object> searchKeyFactory) {
+    if (tracking.isComplete()) {
+      return;
+    }
+
+    Multimap<Object, BASE> baseSearch = ArrayListMultimap.create();
+    tracking.getUnmatchedBases()
+      .forEach(base -> baseSearch.put(searchKeyFactory.apply(base), base));
+
+    tracking.getUnmatchedRaws().forEach(raw -> {
+      Object rawKey = searchKeyFactory.apply(raw);
+      Collection<BASE> bases = baseSearch.get(rawKey);
+      bases.stream()
+        .sorted(comparing(Trackable::getUpdateDate).reversed())
+        .findFirst()
+        .ifPresent(match -> {
+          tracking.match(raw, match);
+          baseSearch.remove(rawKey, match);
+        });
+    });
+  }
+}
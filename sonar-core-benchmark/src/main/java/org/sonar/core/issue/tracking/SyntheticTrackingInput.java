@@ -0,0 +1,180 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.rule.RuleKey;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Raw and base issues of a synthetic file, generated from a seed.
+ * <p>
+ * The base file has a few distinct line hashes, as generated code does, so that many issues share the same keys.
+ * The raw file is the base file with lines inserted at random positions. A ratio of the base issues is missing from
+ * the raw file, another one has a different message, and new issues are added.
+ */
+public final class SyntheticTrackingInput {
+  private static final int RULES = 20;
+  private static final int MESSAGES = 50;
+
+  private final Input<SyntheticIssue> rawInput;
+  private final Input<SyntheticIssue> baseInput;
+
+  private SyntheticTrackingInput(Input<SyntheticIssue> rawInput, Input<SyntheticIssue> baseInput) {
+    this.rawInput = rawInput;
+    this.baseInput = baseInput;
+  }
+
+  public static SyntheticTrackingInput generate(int issues, double changeRatio, long seed) {
+    checkArgument(changeRatio >= 0 && changeRatio <= 1, "Change ratio must be between 0 and 1. Got: %s", changeRatio);
+    Random random = new Random(seed);
+    int baseLines = issues / 2 + 10;
+    List<String> baseHashes = new ArrayList<>(baseLines);
+    for (int i = 0; i < baseLines; i++) {
+      baseHashes.add("h" + random.nextInt(Math.max(1, baseLines / 4)));
+    }
+
+    // rawLines[i] is the line of the raw file of the line i + 1 of the base file
+    int[] rawLines = new int[baseLines];
+    List<String> rawHashes = new ArrayList<>();
+    for (int i = 0; i < baseLines; i++) {
+      if (random.nextDouble() < changeRatio) {
+        rawHashes.add("new" + i);
+      }
+      rawHashes.add(baseHashes.get(i));
+      rawLines[i] = rawHashes.size();
+    }
+
+    List<SyntheticIssue> baseIssues = new ArrayList<>(issues);
+    List<SyntheticIssue> rawIssues = new ArrayList<>(issues);
+    for (int i = 0; i < issues; i++) {
+      RuleKey ruleKey = RuleKey.of("synthetic", "rule" + random.nextInt(RULES));
+      String message = "message " + random.nextInt(MESSAGES);
+      Integer baseLine = random.nextInt(10) == 0 ? null : (1 + random.nextInt(baseLines));
+      baseIssues.add(new SyntheticIssue(ruleKey, baseLine, hashOf(baseHashes, baseLine), message, new Date(random.nextInt(1_000))));
+
+      if (random.nextDouble() >= changeRatio) {
+        Integer rawLine = baseLine == null ? null : rawLines[baseLine - 1];
+        String rawMessage = random.nextDouble() < changeRatio ? ("changed " + message) : message;
+        rawIssues.add(new SyntheticIssue(ruleKey, rawLine, hashOf(rawHashes, rawLine), rawMessage, new Date()));
+      }
+      if (random.nextDouble() < changeRatio) {
+        int rawLine = 1 + random.nextInt(rawHashes.size());
+        rawIssues.add(new SyntheticIssue(ruleKey, rawLine, rawHashes.get(rawLine - 1), "new " + message, new Date()));
+      }
+    }
+    return new SyntheticTrackingInput(new SyntheticInput(rawIssues, rawHashes), new SyntheticInput(baseIssues, baseHashes));
+  }
+
+  @CheckForNull
+  private static String hashOf(List<String> hashes, @Nullable Integer line) {
+    return line == null ? null : hashes.get(line - 1);
+  }
+
+  public Input<SyntheticIssue> rawInput() {
+    return rawInput;
+  }
+
+  public Input<SyntheticIssue> baseInput() {
+    return baseInput;
+  }
+
+  public static final class SyntheticIssue implements Trackable {
+    private final RuleKey ruleKey;
+    private final Integer line;
+    private final String lineHash;
+    private final String message;
+    private final Date updateDate;
+
+    private SyntheticIssue(RuleKey ruleKey, @Nullable Integer line, @Nullable String lineHash, String message, Date updateDate) {
+      this.ruleKey = ruleKey;
+      this.line = line;
+      this.lineHash = lineHash;
+      this.message = message;
+      this.updateDate = updateDate;
+    }
+
+    @CheckForNull
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @CheckForNull
+    @Override
+    public String getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return ruleKey;
+    }
+
+    @Override
+    public String getStatus() {
+      return org.sonar.api.issue.Issue.STATUS_OPEN;
+    }
+
+    @Override
+    public Date getUpdateDate() {
+      return updateDate;
+    }
+  }
+
+  private static final class SyntheticInput implements Input<SyntheticIssue> {
+    private final List<SyntheticIssue> issues;
+    private final LineHashSequence lineHashSequence;
+    private final BlockHashSequence blockHashSequence;
+
+    private SyntheticInput(List<SyntheticIssue> issues, List<String> lineHashes) {
+      this.issues = issues;
+      this.lineHashSequence = new LineHashSequence(lineHashes);
+      this.blockHashSequence = BlockHashSequence.create(lineHashSequence);
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return lineHashSequence;
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return blockHashSequence;
+    }
+
+    @Override
+    public Collection<SyntheticIssue> getIssues() {
+      return issues;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.core.issue.tracking.SyntheticTrackingInput.SyntheticIssue;
+
+/**
+ * Tracking of the non-closed issues of a synthetic file, with {@link Tracker} and with {@link ReferenceTracker}.
+ * Setup fails if both trackers do not match the same issues. Allocations can be compared with {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackerBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int issues;
+
+  @Param({"0.1", "0.3"})
+  public double changeRatio;
+
+  private final Tracker<SyntheticIssue, SyntheticIssue> tracker = new Tracker<>();
+  private final ReferenceTracker<SyntheticIssue, SyntheticIssue> referenceTracker = new ReferenceTracker<>();
+  private SyntheticTrackingInput input;
+
+  @Setup
+  public void setUp() {
+    input = SyntheticTrackingInput.generate(issues, changeRatio, 42L);
+    Map<SyntheticIssue, SyntheticIssue> matches = tracker.trackNonClosed(input.rawInput(), input.baseInput()).getMatchedRaws();
+    Map<SyntheticIssue, SyntheticIssue> referenceMatches = referenceTracker.trackNonClosed(input.rawInput(), input.baseInput()).getMatchedRaws();
+    if (!matches.equals(referenceMatches)) {
+      throw new IllegalStateException("Tracker and reference tracker do not match the same issues");
+    }
+  }
+
+  @Benchmark
+  public Tracking<SyntheticIssue, SyntheticIssue> indexed() {
+    return tracker.trackNonClosed(input.rawInput(), input.baseInput());
+  }
+
+  @Benchmark
+  public Tracking<SyntheticIssue, SyntheticIssue> reference() {
+    return referenceTracker.trackNonClosed(input.rawInput(), input.baseInput());
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import org.junit.Test;
+import org.sonar.core.issue.tracking.SyntheticTrackingInput.SyntheticIssue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SyntheticTrackingInputTest {
+
+  @Test
+  public void generates_base_and_raw_issues() {
+    SyntheticTrackingInput input = SyntheticTrackingInput.generate(100, 0.2, 1L);
+
+    assertThat(input.baseInput().getIssues()).hasSize(100);
+    assertThat(input.rawInput().getIssues()).isNotEmpty();
+    assertThat(input.rawInput().getLineHashSequence().length()).isGreaterThanOrEqualTo(input.baseInput().getLineHashSequence().length());
+  }
+
+  @Test
+  public void issues_of_unchanged_file_are_all_matched() {
+    SyntheticTrackingInput input = SyntheticTrackingInput.generate(50, 0, 1L);
+
+    Tracking<SyntheticIssue, SyntheticIssue> tracking = new Tracker<SyntheticIssue, SyntheticIssue>().trackNonClosed(input.rawInput(), input.baseInput());
+
+    assertThat(input.rawInput().getIssues()).hasSize(50);
+    assertThat(tracking.isComplete()).isTrue();
+    assertThat(tracking.getUnmatchedBases()).isEmpty();
+  }
+
+  @Test
+  public void tracker_matches_same_issues_as_reference_tracker() {
+    for (long seed = 0; seed < 20; seed++) {
+      for (double changeRatio : new double[] {0, 0.1, 0.5, 1}) {
+        SyntheticTrackingInput input = SyntheticTrackingInput.generate(500, changeRatio, seed);
+
+        Tracking<SyntheticIssue, SyntheticIssue> tracking = new Tracker<SyntheticIssue, SyntheticIssue>().trackNonClosed(input.rawInput(), input.baseInput());
+        Tracking<SyntheticIssue, SyntheticIssue> reference = new ReferenceTracker<SyntheticIssue, SyntheticIssue>().trackNonClosed(input.rawInput(), input.baseInput());
+
+        assertThat(tracking.getMatchedRaws()).isEqualTo(reference.getMatchedRaws());
+      }
+    }
+  }
+
+  @Test
+  public void fail_if_change_ratio_is_out_of_bounds() {
+    assertThatThrownBy(() -> SyntheticTrackingInput.generate(1, -0.5, 1L))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Change ratio must be between 0 and 1. Got: -0.5");
+  }
+}
@@ -102,6 +102,18 @@ public final class PurgeProperties {
         .category(CoreProperties.CATEGORY_GENERAL)
         .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
         .index(6)
+        .build(),
+
+      PropertyDefinition.builder(PurgeConstants.HOUSEKEEPING_BUDGET_IN_SECONDS)
+        .defaultValue("300")
+        .name("Expected duration of housekeeping")
+        .description("Number of seconds the DbCleaner is expected to take to clean up a project after an analysis. "
+          + "A warning is logged, with the duration of each table, when it takes longer.")
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(7)
         .build()
       );
   }
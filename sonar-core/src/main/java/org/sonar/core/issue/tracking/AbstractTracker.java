@@ -19,200 +19,39 @@
  */
 package org.sonar.core.issue.tracking;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-import java.util.Collection;
-import java.util.Objects;
-import java.util.function.Function;
-import javax.annotation.Nonnull;
-import org.apache.commons.lang.StringUtils;
-import org.sonar.api.issue.Issue;
-import org.sonar.api.rule.RuleKey;
-
-import static java.util.Comparator.comparing;
-
 public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
 
-  protected void match(Tracking<RAW, BASE> tracking, Function<Trackable, SearchKey> searchKeyFactory) {
+  /**
+   * Matches the unmatched raw issues with the unmatched base issues having the same rule and the same values of the
+   * fields of the search key.
+   */
+  protected void match(Tracking<RAW, BASE> tracking, SearchKey searchKey) {
     if (tracking.isComplete()) {
       return;
     }
 
-    Multimap<SearchKey, BASE> baseSearch = ArrayListMultimap.create();
-    tracking.getUnmatchedBases()
-      .forEach(base -> baseSearch.put(searchKeyFactory.apply(base), base));
-
-    tracking.getUnmatchedRaws().forEach(raw -> {
-      SearchKey rawKey = searchKeyFactory.apply(raw);
-      Collection<BASE> bases = baseSearch.get(rawKey);
-      bases.stream()
-        // Choose the more recently updated issue first to get the latest changes in siblings
-        .sorted(comparing(Trackable::getUpdateDate).reversed())
-        .findFirst()
-        .ifPresent(match -> {
-          tracking.match(raw, match);
-          baseSearch.remove(rawKey, match);
-        });
-    });
-  }
-
-  protected interface SearchKey {
-  }
-
-  protected static class LineAndLineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
-    private final Integer line;
-
-    protected LineAndLineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.line = trackable.getLine();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
-      }
-      LineAndLineHashKey that = (LineAndLineHashKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(ruleKey, lineHash, line != null ? line : 0);
-    }
-  }
-
-  protected static class LineAndLineHashAndMessage implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
-    private final String message;
-    private final Integer line;
-
-    protected LineAndLineHashAndMessage(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.line = trackable.getLine();
-      this.message = trackable.getMessage();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (o == null || getClass() != o.getClass()) {
-        return false;
-      }
-      LineAndLineHashAndMessage that = (LineAndLineHashAndMessage) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && lineHash.equals(that.lineHash)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(ruleKey, lineHash, message, line != null ? line : 0);
-    }
-  }
-
-  protected static class LineHashAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final String lineHash;
-
-    LineHashAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (o == null || getClass() != o.getClass()) {
-        return false;
-      }
-      LineHashAndMessageKey that = (LineHashAndMessageKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(ruleKey, message, lineHash);
-    }
+    tracking.index().match(tracking, searchKey);
   }
 
-  protected static class LineAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final Integer line;
-
-    LineAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.line = trackable.getLine();
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (o == null || getClass() != o.getClass()) {
-        return false;
-      }
-      LineAndMessageKey that = (LineAndMessageKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(ruleKey, message, line != null ? line : 0);
-    }
-  }
-
-  protected static class LineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
-
-    LineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (o == null || getClass() != o.getClass()) {
-        return false;
-      }
-      LineHashKey that = (LineHashKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(ruleKey, lineHash);
+  /**
+   * Fields, in addition to the rule, which must be equal for a raw issue to match a base issue. A missing line hash
+   * is equal to an empty one.
+   */
+  protected enum SearchKey {
+    LINE_AND_LINE_HASH_AND_MESSAGE(true, true, true),
+    LINE_AND_LINE_HASH(true, true, false),
+    LINE_HASH_AND_MESSAGE(false, true, true),
+    LINE_AND_MESSAGE(true, false, true),
+    LINE_HASH(false, true, false);
+
+    final boolean line;
+    final boolean lineHash;
+    final boolean message;
+
+    SearchKey(boolean line, boolean lineHash, boolean message) {
+      this.line = line;
+      this.lineHash = lineHash;
+      this.message = message;
     }
   }
 
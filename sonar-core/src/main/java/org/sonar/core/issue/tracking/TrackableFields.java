@@ -0,0 +1,110 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Fields of a collection of {@link Trackable} compared by {@link AbstractTracker}, read once and stored by position,
+ * along with their hash codes, so that matching passes do not allocate a key per issue.
+ */
+final class TrackableFields<T extends Trackable> {
+  private static final int NO_LINE = Integer.MIN_VALUE;
+
+  private final List<T> trackables;
+  private final RuleKey[] ruleKeys;
+  private final int[] ruleKeyHashes;
+  private final int[] lines;
+  private final String[] lineHashes;
+  private final int[] lineHashHashes;
+  private final String[] messages;
+  private final int[] messageHashes;
+  private final long[] updateDates;
+
+  TrackableFields(Collection<T> trackables) {
+    this.trackables = new ArrayList<>(trackables);
+    int size = this.trackables.size();
+    this.ruleKeys = new RuleKey[size];
+    this.ruleKeyHashes = new int[size];
+    this.lines = new int[size];
+    this.lineHashes = new String[size];
+    this.lineHashHashes = new int[size];
+    this.messages = new String[size];
+    this.messageHashes = new int[size];
+    this.updateDates = new long[size];
+    for (int i = 0; i < size; i++) {
+      T trackable = this.trackables.get(i);
+      ruleKeys[i] = trackable.getRuleKey();
+      ruleKeyHashes[i] = Objects.hashCode(ruleKeys[i]);
+      Integer line = trackable.getLine();
+      lines[i] = line == null ? NO_LINE : line;
+      lineHashes[i] = StringUtils.defaultString(trackable.getLineHash(), "");
+      lineHashHashes[i] = lineHashes[i].hashCode();
+      messages[i] = trackable.getMessage();
+      messageHashes[i] = Objects.hashCode(messages[i]);
+      Date updateDate = trackable.getUpdateDate();
+      updateDates[i] = updateDate == null ? Long.MIN_VALUE : updateDate.getTime();
+    }
+  }
+
+  int size() {
+    return trackables.size();
+  }
+
+  T get(int i) {
+    return trackables.get(i);
+  }
+
+  long updateDate(int i) {
+    return updateDates[i];
+  }
+
+  int hash(int i, AbstractTracker.SearchKey searchKey) {
+    int hash = ruleKeyHashes[i];
+    if (searchKey.line) {
+      hash = 31 * hash + (lines[i] == NO_LINE ? 0 : lines[i]);
+    }
+    if (searchKey.lineHash) {
+      hash = 31 * hash + lineHashHashes[i];
+    }
+    if (searchKey.message) {
+      hash = 31 * hash + messageHashes[i];
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Whether the fields of the search key are equal for the trackable at position {@code i} and the trackable at
+   * position {@code j} of {@code other}. Hash codes are expected to be compared beforehand.
+   */
+  boolean sameKey(int i, TrackableFields<?> other, int j, AbstractTracker.SearchKey searchKey) {
+    // start with most discriminant field
+    return (!searchKey.line || lines[i] == other.lines[j])
+      && (!searchKey.lineHash || lineHashes[i].equals(other.lineHashes[j]))
+      && (!searchKey.message || Objects.equals(messages[i], other.messages[j]))
+      && Objects.equals(ruleKeys[i], other.ruleKeys[j]);
+  }
+}
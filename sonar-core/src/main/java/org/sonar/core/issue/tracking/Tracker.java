@@ -34,30 +34,30 @@ public class Tracker<RAW extends Trackable, BASE extends Trackable> extends Abst
     NonClosedTracking<RAW, BASE> tracking = NonClosedTracking.of(rawInput, baseInput);
 
     // 1. match by rule, line, line hash and message
-    match(tracking, LineAndLineHashAndMessage::new);
+    match(tracking, SearchKey.LINE_AND_LINE_HASH_AND_MESSAGE);
 
     // 2. match issues with same rule, same line and same line hash, but not necessarily with same message
-    match(tracking, LineAndLineHashKey::new);
+    match(tracking, SearchKey.LINE_AND_LINE_HASH);
 
     // 3. detect code moves by comparing blocks of codes
     detectCodeMoves(rawInput, baseInput, tracking);
 
     // 4. match issues with same rule, same message and same line hash
-    match(tracking, LineHashAndMessageKey::new);
+    match(tracking, SearchKey.LINE_HASH_AND_MESSAGE);
 
     // 5. match issues with same rule, same line and same message
-    match(tracking, LineAndMessageKey::new);
+    match(tracking, SearchKey.LINE_AND_MESSAGE);
 
     // 6. match issues with same rule and same line hash but different line and different message.
     // See SONAR-2812
-    match(tracking, LineHashKey::new);
+    match(tracking, SearchKey.LINE_HASH);
 
     return tracking;
   }
 
   public Tracking<RAW, BASE> trackClosed(NonClosedTracking<RAW, BASE> nonClosedTracking, Input<BASE> baseInput) {
     ClosedTracking<RAW, BASE> closedTracking = ClosedTracking.of(nonClosedTracking, baseInput);
-    match(closedTracking, LineAndLineHashAndMessage::new);
+    match(closedTracking, SearchKey.LINE_AND_LINE_HASH_AND_MESSAGE);
 
     return new MergedTracking<>(nonClosedTracking, closedTracking);
   }
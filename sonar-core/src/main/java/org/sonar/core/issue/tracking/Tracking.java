@@ -35,6 +35,7 @@ public class Tracking<RAW extends Trackable, BASE extends Trackable> {
   protected final IdentityHashMap<BASE, RAW> baseToRaw;
   private final Collection<RAW> raws;
   private final Collection<BASE> bases;
+  private TrackingIndex<RAW, BASE> index;
 
   Tracking(Collection<RAW> rawInput, Collection<BASE> baseInput) {
     this(rawInput, baseInput, new IdentityHashMap<>(), new IdentityHashMap<>());
@@ -84,6 +85,16 @@ public class Tracking<RAW extends Trackable, BASE extends Trackable> {
     }
   }
 
+  /**
+   * Index of the issues used by the matching passes of {@link AbstractTracker}, created on first use.
+   */
+  TrackingIndex<RAW, BASE> index() {
+    if (index == null) {
+      index = new TrackingIndex<>(new TrackableFields<>(raws), new TrackableFields<>(bases));
+    }
+    return index;
+  }
+
   public boolean isComplete() {
     return rawToBase.size() == raws.size();
   }
@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.Arrays;
+
+/**
+ * Index of the base issues of a {@link Tracking} by the hash code of a {@link AbstractTracker.SearchKey}.
+ * <p>
+ * Fields and hash codes of raw and base issues are computed once, when the index is created. The open-addressing
+ * table (linear probing, no chaining) is allocated once too, and filled again with the unmatched base issues at the
+ * start of each pass. Base issues matched during a pass are flagged rather than removed from the table.
+ */
+final class TrackingIndex<RAW extends Trackable, BASE extends Trackable> {
+  private static final int EMPTY = -1;
+
+  private final TrackableFields<RAW> raws;
+  private final TrackableFields<BASE> bases;
+  private final int[] baseHashes;
+  private final boolean[] matchedBases;
+  private final int[] table;
+  private final int mask;
+
+  TrackingIndex(TrackableFields<RAW> raws, TrackableFields<BASE> bases) {
+    this.raws = raws;
+    this.bases = bases;
+    this.baseHashes = new int[bases.size()];
+    this.matchedBases = new boolean[bases.size()];
+    // load factor of at most 0.5
+    this.table = new int[Math.max(2, Integer.highestOneBit(Math.max(1, bases.size())) << 2)];
+    this.mask = table.length - 1;
+  }
+
+  /**
+   * Matches each unmatched raw issue, in the order of the raw input, with the unmatched base issue having the same
+   * search key. When several base issues have the same key, the most recently updated one is chosen (the first one
+   * of the base input on equality), in order to get the latest changes in siblings.
+   */
+  void match(Tracking<RAW, BASE> tracking, AbstractTracker.SearchKey searchKey) {
+    if (!indexUnmatchedBases(tracking, searchKey)) {
+      return;
+    }
+    for (int r = 0; r < raws.size(); r++) {
+      RAW raw = raws.get(r);
+      if (tracking.baseFor(raw) != null) {
+        continue;
+      }
+      int best = findBase(r, searchKey);
+      if (best != EMPTY) {
+        tracking.match(raw, bases.get(best));
+        matchedBases[best] = true;
+      }
+    }
+  }
+
+  private boolean indexUnmatchedBases(Tracking<RAW, BASE> tracking, AbstractTracker.SearchKey searchKey) {
+    Arrays.fill(table, EMPTY);
+    boolean indexed = false;
+    for (int b = 0; b < bases.size(); b++) {
+      matchedBases[b] = !tracking.containsUnmatchedBase(bases.get(b));
+      if (!matchedBases[b]) {
+        int hash = bases.hash(b, searchKey);
+        baseHashes[b] = hash;
+        int slot = hash & mask;
+        while (table[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = b;
+        indexed = true;
+      }
+    }
+    return indexed;
+  }
+
+  private int findBase(int raw, AbstractTracker.SearchKey searchKey) {
+    int hash = raws.hash(raw, searchKey);
+    int best = EMPTY;
+    for (int slot = hash & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+      int b = table[slot];
+      if (!matchedBases[b] && baseHashes[b] == hash && raws.sameKey(raw, bases, b, searchKey) && isBetterMatch(b, best)) {
+        best = b;
+      }
+    }
+    return best;
+  }
+
+  private boolean isBetterMatch(int base, int best) {
+    if (best == EMPTY) {
+      return true;
+    }
+    long updateDate = bases.updateDate(base);
+    long bestUpdateDate = bases.updateDate(best);
+    return updateDate > bestUpdateDate || (updateDate == bestUpdateDate && base < best);
+  }
+}
@@ -449,6 +449,69 @@ public class TrackerTest {
     assertThat(tracking.baseFor(raw2)).isEqualTo(base1);
   }
 
+  @Test
+  public void match_most_recently_updated_base_issue_first() {
+    FakeInput baseInput = new FakeInput("H1");
+    Issue oldBase = new Issue(1, "H1", RULE_SYSTEM_PRINT, "msg", org.sonar.api.issue.Issue.STATUS_OPEN, new Date(1_000L));
+    Issue recentBase = new Issue(1, "H1", RULE_SYSTEM_PRINT, "msg", org.sonar.api.issue.Issue.STATUS_OPEN, new Date(2_000L));
+    baseInput.addIssue(oldBase).addIssue(recentBase);
+
+    FakeInput rawInput = new FakeInput("H1");
+    Issue raw1 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue raw2 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    Tracking<Issue, Issue> tracking = tracker.trackNonClosed(rawInput, baseInput);
+    assertThat(tracking.baseFor(raw1)).isSameAs(recentBase);
+    assertThat(tracking.baseFor(raw2)).isSameAs(oldBase);
+  }
+
+  @Test
+  public void match_first_base_issue_when_update_dates_are_equal() {
+    Date updateDate = new Date(1_000L);
+    FakeInput baseInput = new FakeInput("H1");
+    Issue base1 = new Issue(1, "H1", RULE_SYSTEM_PRINT, "msg", org.sonar.api.issue.Issue.STATUS_OPEN, updateDate);
+    Issue base2 = new Issue(1, "H1", RULE_SYSTEM_PRINT, "msg", org.sonar.api.issue.Issue.STATUS_OPEN, updateDate);
+    baseInput.addIssue(base1).addIssue(base2);
+
+    FakeInput rawInput = new FakeInput("H1");
+    Issue raw = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    Tracking<Issue, Issue> tracking = tracker.trackNonClosed(rawInput, baseInput);
+    assertThat(tracking.baseFor(raw)).isSameAs(base1);
+    assertThat(tracking.getUnmatchedBases()).containsExactly(base2);
+  }
+
+  @Test
+  public void issue_without_line_does_not_match_issue_on_line_0() {
+    FakeInput baseInput = new FakeInput();
+    baseInput.addIssue(new Issue(0, "", RULE_SYSTEM_PRINT, "msg", org.sonar.api.issue.Issue.STATUS_OPEN, new Date()));
+
+    FakeInput rawInput = new FakeInput();
+    Issue raw = rawInput.createIssue(RULE_SYSTEM_PRINT, "other msg");
+
+    Tracking<Issue, Issue> tracking = new SimpleTracker<Issue, Issue>().track(rawInput.getIssues(), baseInput.getIssues());
+    assertThat(tracking.baseFor(raw)).isNull();
+  }
+
+  @Test
+  public void match_many_issues_with_same_key() {
+    FakeInput baseInput = new FakeInput("H1", "H2");
+    FakeInput rawInput = new FakeInput("H1", "H2");
+    for (int i = 0; i < 1_000; i++) {
+      baseInput.createIssueOnLine(1 + i % 2, RULE_SYSTEM_PRINT, "msg" + i % 3);
+      rawInput.createIssueOnLine(1 + i % 2, RULE_SYSTEM_PRINT, "msg" + i % 3);
+    }
+
+    Tracking<Issue, Issue> tracking = tracker.trackNonClosed(rawInput, baseInput);
+    assertThat(tracking.isComplete()).isTrue();
+    assertThat(tracking.getUnmatchedBases()).isEmpty();
+    rawInput.getIssues().forEach(raw -> {
+      Issue base = tracking.baseFor(raw);
+      assertThat(base.getLine()).isEqualTo(raw.getLine());
+      assertThat(base.getMessage()).isEqualTo(raw.getMessage());
+    });
+  }
+
   private static class Issue implements Trackable {
     private final RuleKey ruleKey;
     private final Integer line;
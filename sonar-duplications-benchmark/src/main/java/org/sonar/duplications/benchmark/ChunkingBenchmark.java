@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.batch.sensor.cpd.internal.TokensLine;
+import org.sonar.duplications.internal.pmd.PmdBlockChunker;
+import org.sonar.duplications.statement.Statement;
+
+/**
+ * Chunking of all the files of the corpus into blocks, from statements (Java) or from lines of tokens
+ * (languages whose sensors provide CPD tokens).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChunkingBenchmark {
+
+  @Param({"200"})
+  public int files;
+
+  @Param({"20"})
+  public int methodsPerFile;
+
+  @Param({"0.2"})
+  public double duplicationDensity;
+
+  private final CpdPipeline pipeline = new CpdPipeline();
+  private final PmdBlockChunker pmdBlockChunker = new PmdBlockChunker(CpdPipeline.BLOCK_SIZE);
+  private final List<List<Statement>> statements = new ArrayList<>();
+  private final List<List<TokensLine>> tokensLines = new ArrayList<>();
+
+  @Setup
+  public void setUp() {
+    statements.clear();
+    tokensLines.clear();
+    for (String source : SyntheticCorpus.generate(files, methodsPerFile, duplicationDensity, 42L).sources()) {
+      tokensLines.add(CpdPipeline.tokensLines(pipeline.tokenize(source)));
+      statements.add(pipeline.statements(pipeline.tokenize(source)));
+    }
+  }
+
+  @Benchmark
+  public void chunkStatements(Blackhole blackhole) {
+    for (int i = 0; i < statements.size(); i++) {
+      blackhole.consume(pipeline.blocks(SyntheticCorpus.resourceId(i), statements.get(i)));
+    }
+  }
+
+  @Benchmark
+  public void chunkTokensLines(Blackhole blackhole) {
+    for (int i = 0; i < tokensLines.size(); i++) {
+      blackhole.consume(pmdBlockChunker.chunk(SyntheticCorpus.resourceId(i), tokensLines.get(i)));
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.MappedCloneIndex;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+
+/**
+ * Insertion of the blocks of all the files of the corpus into a clone index, followed by the sort triggered
+ * by the first query. Compares the index on heap with the index mapped in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CloneIndexBenchmark {
+
+  @Param({"1000"})
+  public int files;
+
+  @Param({"20"})
+  public int methodsPerFile;
+
+  @Param({"0.2"})
+  public double duplicationDensity;
+
+  @Param({"packed", "mapped"})
+  public String index;
+
+  private final List<Block> blocks = new ArrayList<>();
+  private Path dir;
+
+  @Setup
+  public void setUp() throws IOException {
+    CpdPipeline pipeline = new CpdPipeline();
+    blocks.clear();
+    List<String> sources = SyntheticCorpus.generate(files, methodsPerFile, duplicationDensity, 42L).sources();
+    for (int i = 0; i < sources.size(); i++) {
+      blocks.addAll(pipeline.blocks(SyntheticCorpus.resourceId(i), sources.get(i)));
+    }
+    dir = Files.createTempDirectory("clone-index-benchmark");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(dir);
+  }
+
+  @Benchmark
+  public void insertAndSort(Blackhole blackhole) {
+    CloneIndex cloneIndex = "mapped".equals(index) ? new MappedCloneIndex(dir) : new PackedMemoryCloneIndex();
+    try {
+      for (Block block : blocks) {
+        cloneIndex.insert(block);
+      }
+      // first query sorts the index
+      blackhole.consume(cloneIndex.getBySequenceHash(blocks.get(0).getBlockHash()));
+    } finally {
+      if (cloneIndex instanceof MappedCloneIndex) {
+        ((MappedCloneIndex) cloneIndex).close();
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.sonar.api.batch.sensor.cpd.internal.TokensLine;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.BlockChunker;
+import org.sonar.duplications.java.JavaStatementBuilder;
+import org.sonar.duplications.java.JavaTokenProducer;
+import org.sonar.duplications.statement.Statement;
+import org.sonar.duplications.statement.StatementChunker;
+import org.sonar.duplications.token.Token;
+import org.sonar.duplications.token.TokenChunker;
+import org.sonar.duplications.token.TokenQueue;
+
+/**
+ * The steps of duplication detection applied to the files of a {@link SyntheticCorpus}, as done by the scanner.
+ */
+class CpdPipeline {
+
+  static final int BLOCK_SIZE = 10;
+
+  private final TokenChunker tokenChunker = JavaTokenProducer.build();
+  private final StatementChunker statementChunker = JavaStatementBuilder.build();
+  private final BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+
+  TokenQueue tokenize(String source) {
+    return tokenChunker.chunk(source);
+  }
+
+  List<Statement> statements(TokenQueue tokens) {
+    return statementChunker.chunk(tokens);
+  }
+
+  List<Block> blocks(String resourceId, List<Statement> statements) {
+    return blockChunker.chunk(resourceId, statements);
+  }
+
+  List<Block> blocks(String resourceId, String source) {
+    return blocks(resourceId, statements(tokenize(source)));
+  }
+
+  /**
+   * Groups tokens by line, the same way sensors provide CPD tokens to the scanner.
+   */
+  static List<TokensLine> tokensLines(TokenQueue tokens) {
+    List<TokensLine> lines = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    int unit = 0;
+    int startUnit = 1;
+    int line = -1;
+    for (Token token : tokens) {
+      if (token.getLine() != line && value.length() > 0) {
+        lines.add(new TokensLine(startUnit, unit, line, value.toString()));
+        value.setLength(0);
+        startUnit = unit + 1;
+      }
+      line = token.getLine();
+      value.append(token.getValue());
+      unit++;
+    }
+    if (value.length() > 0) {
+      lines.add(new TokensLine(startUnit, unit, line, value.toString()));
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.detector.original.OriginalCloneDetectionAlgorithm;
+import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+
+/**
+ * Detection of the duplications of each file of the corpus, against a sorted index of all the blocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DetectionBenchmark {
+
+  @Param({"200"})
+  public int files;
+
+  @Param({"20"})
+  public int methodsPerFile;
+
+  @Param({"0.05", "0.2", "0.5"})
+  public double duplicationDensity;
+
+  private final List<List<Block>> blocksByFile = new ArrayList<>();
+  private CloneIndex index;
+
+  @Setup
+  public void setUp() {
+    CpdPipeline pipeline = new CpdPipeline();
+    blocksByFile.clear();
+    index = new PackedMemoryCloneIndex();
+    List<String> sources = SyntheticCorpus.generate(files, methodsPerFile, duplicationDensity, 42L).sources();
+    for (int i = 0; i < sources.size(); i++) {
+      List<Block> blocks = pipeline.blocks(SyntheticCorpus.resourceId(i), sources.get(i));
+      blocksByFile.add(blocks);
+      for (Block block : blocks) {
+        index.insert(block);
+      }
+    }
+    // sort the index before measurements
+    index.getByResourceId(SyntheticCorpus.resourceId(0));
+  }
+
+  @Benchmark
+  public void suffixTree(Blackhole blackhole) {
+    for (List<Block> blocks : blocksByFile) {
+      blackhole.consume(SuffixTreeCloneDetectionAlgorithm.detect(index, blocks));
+    }
+  }
+
+  @Benchmark
+  public void original(Blackhole blackhole) {
+    for (List<Block> blocks : blocksByFile) {
+      blackhole.consume(OriginalCloneDetectionAlgorithm.detect(index, blocks));
+    }
+  }
+}
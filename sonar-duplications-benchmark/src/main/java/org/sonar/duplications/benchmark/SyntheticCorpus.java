@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Java-like source files generated for benchmarks. Each file is a class made of methods. A method is either
+ * unique, or copied from a pool of methods shared by all the files: the duplication density is the probability
+ * for a method to be copied. Generation is deterministic for a given seed.
+ */
+public class SyntheticCorpus {
+
+  private static final int STATEMENTS_PER_METHOD = 15;
+  private static final int SHARED_METHODS = 50;
+
+  private final List<String> sources;
+
+  private SyntheticCorpus(List<String> sources) {
+    this.sources = sources;
+  }
+
+  /**
+   * @param files number of files
+   * @param methodsPerFile number of methods in each file
+   * @param duplicationDensity probability, between 0 and 1, for a method to be a copy of a shared method
+   * @param seed seed of the random generator
+   */
+  public static SyntheticCorpus generate(int files, int methodsPerFile, double duplicationDensity, long seed) {
+    if (duplicationDensity < 0 || duplicationDensity > 1) {
+      throw new IllegalArgumentException("Duplication density must be between 0 and 1. Got: " + duplicationDensity);
+    }
+    Random random = new Random(seed);
+    List<String> sharedMethods = new ArrayList<>(SHARED_METHODS);
+    for (int i = 0; i < SHARED_METHODS; i++) {
+      sharedMethods.add(generateMethod(random, "shared" + i));
+    }
+
+    List<String> sources = new ArrayList<>(files);
+    for (int file = 0; file < files; file++) {
+      StringBuilder source = new StringBuilder();
+      source.append("package bench;\n\npublic class File").append(file).append(" {\n");
+      for (int method = 0; method < methodsPerFile; method++) {
+        if (random.nextDouble() < duplicationDensity) {
+          source.append(sharedMethods.get(random.nextInt(SHARED_METHODS)));
+        } else {
+          source.append(generateMethod(random, "method" + method));
+        }
+      }
+      source.append("}\n");
+      sources.add(source.toString());
+    }
+    return new SyntheticCorpus(sources);
+  }
+
+  public List<String> sources() {
+    return Collections.unmodifiableList(sources);
+  }
+
+  public static String resourceId(int fileIndex) {
+    return "bench/File" + fileIndex + ".java";
+  }
+
+  private static String generateMethod(Random random, String name) {
+    StringBuilder method = new StringBuilder();
+    method.append("\n  public int ").append(name).append("(int a, int b) {\n");
+    method.append("    int ").append(variable(random)).append(" = a;\n");
+    for (int i = 0; i < STATEMENTS_PER_METHOD; i++) {
+      method.append(generateStatement(random));
+    }
+    method.append("    return a + b;\n  }\n");
+    return method.toString();
+  }
+
+  private static String generateStatement(Random random) {
+    String v1 = variable(random);
+    String v2 = variable(random);
+    switch (random.nextInt(4)) {
+      case 0:
+        return "    int " + v1 + " = " + v2 + "(a, " + random.nextInt(1000) + ");\n";
+      case 1:
+        return "    if (a > " + random.nextInt(1000) + ") {\n      b = " + v1 + "(b);\n    }\n";
+      case 2:
+        return "    for (int " + v1 + " = 0; " + v1 + " < b; " + v1 + "++) {\n      a += " + v2 + ".size();\n    }\n";
+      default:
+        return "    " + v1 + ".add(\"" + v2 + "\", a * " + random.nextInt(1000) + ");\n";
+    }
+  }
+
+  private static String variable(Random random) {
+    return "v" + random.nextInt(10_000);
+  }
+}
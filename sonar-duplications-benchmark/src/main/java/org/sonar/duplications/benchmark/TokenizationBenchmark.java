@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.token.TokenQueue;
+
+/**
+ * Tokenization and grouping of tokens into statements of all the files of the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TokenizationBenchmark {
+
+  @Param({"200"})
+  public int files;
+
+  @Param({"20"})
+  public int methodsPerFile;
+
+  @Param({"0.2"})
+  public double duplicationDensity;
+
+  private final CpdPipeline pipeline = new CpdPipeline();
+  private List<String> sources;
+  private TokenQueue[] tokens;
+
+  @Setup
+  public void setUp() {
+    sources = SyntheticCorpus.generate(files, methodsPerFile, duplicationDensity, 42L).sources();
+    tokens = new TokenQueue[sources.size()];
+    for (int i = 0; i < sources.size(); i++) {
+      tokens[i] = pipeline.tokenize(sources.get(i));
+    }
+  }
+
+  @Benchmark
+  public void tokenize(Blackhole blackhole) {
+    for (String source : sources) {
+      blackhole.consume(pipeline.tokenize(source));
+    }
+  }
+
+  @Benchmark
+  public void tokenizeAndChunkStatements(Blackhole blackhole) {
+    for (String source : sources) {
+      blackhole.consume(pipeline.statements(pipeline.tokenize(source)));
+    }
+  }
+
+  @Benchmark
+  public void groupTokensByLine(Blackhole blackhole) {
+    for (TokenQueue fileTokens : tokens) {
+      blackhole.consume(CpdPipeline.tokensLines(fileTokens));
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SyntheticCorpusTest {
+
+  @Test
+  public void generates_requested_number_of_files() {
+    List<String> sources = SyntheticCorpus.generate(7, 3, 0.5, 1L).sources();
+
+    assertThat(sources).hasSize(7);
+    assertThat(sources.get(0)).startsWith("package bench;").contains("public class File0 {");
+    assertThat(sources.get(6)).contains("public class File6 {");
+  }
+
+  @Test
+  public void generation_is_deterministic_for_a_given_seed() {
+    assertThat(SyntheticCorpus.generate(5, 4, 0.3, 12L).sources())
+      .isEqualTo(SyntheticCorpus.generate(5, 4, 0.3, 12L).sources())
+      .isNotEqualTo(SyntheticCorpus.generate(5, 4, 0.3, 13L).sources());
+  }
+
+  @Test
+  public void density_controls_copies_of_shared_methods() {
+    assertThat(SyntheticCorpus.generate(10, 10, 0, 1L).sources()).noneMatch(s -> s.contains("shared"));
+    assertThat(SyntheticCorpus.generate(10, 10, 1, 1L).sources()).noneMatch(s -> s.contains(" method"));
+  }
+
+  @Test
+  public void duplicated_corpus_produces_clones() {
+    CpdPipeline pipeline = new CpdPipeline();
+    List<String> sources = SyntheticCorpus.generate(2, 5, 1, 1L).sources();
+
+    assertThat(pipeline.blocks(SyntheticCorpus.resourceId(0), sources.get(0))).isNotEmpty();
+  }
+
+  @Test
+  public void fail_if_density_is_out_of_bounds() {
+    assertThatThrownBy(() -> SyntheticCorpus.generate(1, 1, 1.5, 1L))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Duplication density must be between 0 and 1. Got: 1.5");
+  }
+
+  @Test
+  public void resource_id() {
+    assertThat(SyntheticCorpus.resourceId(3)).isEqualTo("bench/File3.java");
+  }
+}
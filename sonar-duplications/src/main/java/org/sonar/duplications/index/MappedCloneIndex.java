@@ -0,0 +1,457 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.utils.FastStringComparator;
+
+/**
+ * Same as {@link PackedMemoryCloneIndex}, except that blocks are stored off-heap, in files mapped in memory.
+ * <p>
+ * The heap doesn't grow with the number of blocks: only the distinct resource ids are kept on heap, and blocks
+ * refer to them by ordinal. The files are created in the given directory, grow by segments and are deleted when
+ * the index is closed.
+ * </p>
+ * <p>
+ * As in {@link PackedMemoryCloneIndex}, blocks are sorted by hash on the first query, and queries are binary searches.
+ * Once sorted, the index can be read concurrently by several threads. Insertions are not thread-safe.
+ * </p>
+ */
+public class MappedCloneIndex extends AbstractCloneIndex implements Closeable {
+
+  private static final int BLOCK_INTS = 5;
+
+  /**
+   * By default, each segment of the mapped files holds 2^20 blocks.
+   */
+  private static final int DEFAULT_SEGMENT_SHIFT = 20;
+
+  private final int hashInts;
+
+  /**
+   * Resource ordinal, hash and {@link #BLOCK_INTS} ints
+   */
+  private final int blockInts;
+
+  private final MappedInts blockData;
+
+  private final MappedInts resourceIdsIndex;
+
+  private final List<String> resourceIds = new ArrayList<>();
+
+  private final Map<String, Integer> ordinalsByResourceId = new HashMap<>();
+
+  /**
+   * Position of each resource ordinal in the order of resource ids. Computed when sorting.
+   */
+  private int[] resourceRanks;
+
+  private volatile boolean sorted;
+
+  private int size;
+
+  public MappedCloneIndex(Path dir) {
+    this(dir, 8);
+  }
+
+  /**
+   * @param dir the directory of the mapped files
+   * @param hashBytes size of hash in bytes
+   */
+  public MappedCloneIndex(Path dir, int hashBytes) {
+    this(dir, hashBytes, DEFAULT_SEGMENT_SHIFT);
+  }
+
+  MappedCloneIndex(Path dir, int hashBytes, int segmentShift) {
+    this.hashInts = hashBytes / 4;
+    this.blockInts = 1 + hashInts + BLOCK_INTS;
+    try {
+      Files.createDirectories(dir);
+      this.blockData = new MappedInts(Files.createTempFile(dir, "blocks", ".dat"), blockInts, segmentShift);
+      this.resourceIdsIndex = new MappedInts(Files.createTempFile(dir, "blocks-by-resource", ".dat"), 1, segmentShift);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create clone index in " + dir, e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation does not guarantee that blocks would be sorted by index.</strong>
+   * </p>
+   */
+  @Override
+  public Collection<Block> getByResourceId(String resourceId) {
+    ensureSorted();
+
+    Integer ordinal = ordinalsByResourceId.get(resourceId);
+    if (ordinal == null) {
+      return Collections.emptyList();
+    }
+    int rank = resourceRanks[ordinal];
+    int index = lowerBoundByResourceRank(rank);
+
+    List<Block> result = new ArrayList<>();
+    while (index < size && rankOfBlock(resourceIdsIndex.get(index, 0)) == rank) {
+      result.add(createBlock(resourceIdsIndex.get(index, 0), null));
+      index++;
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    ensureSorted();
+
+    int[] hash = sequenceHash.toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+
+    int index = lowerBoundByHash(hash);
+
+    List<Block> result = new ArrayList<>();
+    while (index < size && compareHash(index, hash) == 0) {
+      // no need to extract hash
+      result.add(createBlock(index, sequenceHash));
+      index++;
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation allows insertion of two blocks with same index for one resource.</strong>
+   * </p>
+   */
+  @Override
+  public void insert(Block block) {
+    int[] hash = block.getBlockHash().toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+    sorted = false;
+    blockData.ensureCapacity(size + 1);
+
+    int field = 0;
+    blockData.set(size, field++, ordinalOf(block.getResourceId()));
+    for (int i = 0; i < hashInts; i++) {
+      blockData.set(size, field++, hash[i]);
+    }
+    blockData.set(size, field++, block.getIndexInFile());
+    blockData.set(size, field++, block.getStartLine());
+    blockData.set(size, field++, block.getEndLine());
+    blockData.set(size, field++, block.getStartUnit());
+    blockData.set(size, field, block.getEndUnit());
+
+    size++;
+  }
+
+  private int ordinalOf(String resourceId) {
+    return ordinalsByResourceId.computeIfAbsent(resourceId, id -> {
+      resourceIds.add(id);
+      return resourceIds.size() - 1;
+    });
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<ResourceBlocks> iterator() {
+    ensureSorted();
+    return new ResourceIterator();
+  }
+
+  @Override
+  public int noResources() {
+    return resourceIds.size();
+  }
+
+  /**
+   * Deletes the mapped files. Memory is released once the buffers are garbage collected.
+   */
+  @Override
+  public void close() {
+    blockData.close();
+    resourceIdsIndex.close();
+  }
+
+  private Block createBlock(int index, @Nullable ByteArray byteHash) {
+    int field = 0;
+    String resourceId = resourceIds.get(blockData.get(index, field++));
+    ByteArray blockHash;
+    if (byteHash == null) {
+      int[] hash = new int[hashInts];
+      for (int j = 0; j < hashInts; j++) {
+        hash[j] = blockData.get(index, field++);
+      }
+      blockHash = new ByteArray(hash);
+    } else {
+      blockHash = byteHash;
+      field += hashInts;
+    }
+
+    int indexInFile = blockData.get(index, field++);
+    int firstLineNumber = blockData.get(index, field++);
+    int lastLineNumber = blockData.get(index, field++);
+    int startUnit = blockData.get(index, field++);
+    int endUnit = blockData.get(index, field);
+
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(blockHash)
+      .setIndexInFile(indexInFile)
+      .setLines(firstLineNumber, lastLineNumber)
+      .setUnit(startUnit, endUnit)
+      .build();
+  }
+
+  private int rankOfBlock(int index) {
+    return resourceRanks[blockData.get(index, 0)];
+  }
+
+  private int lowerBoundByResourceRank(int rank) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >> 1;
+      if (rankOfBlock(resourceIdsIndex.get(mid, 0)) < rank) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
+  private int lowerBoundByHash(int[] hash) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >> 1;
+      if (compareHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
+  private int compareHash(int index, int[] hash) {
+    for (int k = 0; k < hashInts; k++) {
+      int value = blockData.get(index, 1 + k);
+      if (value < hash[k]) {
+        return -1;
+      }
+      if (value > hash[k]) {
+        return 1;
+      }
+    }
+    return 0;
+  }
+
+  private void ensureSorted() {
+    if (sorted) {
+      return;
+    }
+    synchronized (this) {
+      if (sorted) {
+        return;
+      }
+
+      DataUtils.sort(byBlockHash);
+
+      List<Integer> ordinals = new ArrayList<>(resourceIds.size());
+      for (int i = 0; i < resourceIds.size(); i++) {
+        ordinals.add(i);
+      }
+      ordinals.sort((o1, o2) -> FastStringComparator.INSTANCE.compare(resourceIds.get(o1), resourceIds.get(o2)));
+      resourceRanks = new int[resourceIds.size()];
+      for (int rank = 0; rank < ordinals.size(); rank++) {
+        resourceRanks[ordinals.get(rank)] = rank;
+      }
+
+      resourceIdsIndex.ensureCapacity(size);
+      for (int i = 0; i < size; i++) {
+        resourceIdsIndex.set(i, 0, i);
+      }
+      DataUtils.sort(byResourceId);
+
+      sorted = true;
+    }
+  }
+
+  private final DataUtils.Sortable byBlockHash = new DataUtils.Sortable() {
+    @Override
+    public void swap(int i, int j) {
+      for (int k = 0; k < blockInts; k++) {
+        int x = blockData.get(i, k);
+        blockData.set(i, k, blockData.get(j, k));
+        blockData.set(j, k, x);
+      }
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      for (int k = 1; k <= hashInts; k++) {
+        int x = blockData.get(i, k);
+        int y = blockData.get(j, k);
+        if (x != y) {
+          return x < y;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  };
+
+  private final DataUtils.Sortable byResourceId = new DataUtils.Sortable() {
+    @Override
+    public void swap(int i, int j) {
+      int tmp = resourceIdsIndex.get(i, 0);
+      resourceIdsIndex.set(i, 0, resourceIdsIndex.get(j, 0));
+      resourceIdsIndex.set(j, 0, tmp);
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      return rankOfBlock(resourceIdsIndex.get(i, 0)) < rankOfBlock(resourceIdsIndex.get(j, 0));
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  };
+
+  private class ResourceIterator implements Iterator<ResourceBlocks> {
+    private int index = 0;
+
+    @Override
+    public boolean hasNext() {
+      return index < size;
+    }
+
+    @Override
+    public ResourceBlocks next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      int rank = rankOfBlock(resourceIdsIndex.get(index, 0));
+      List<Block> blocks = new ArrayList<>();
+
+      // while we are at the same resource, keep going
+      do {
+        blocks.add(createBlock(resourceIdsIndex.get(index, 0), null));
+        index++;
+      } while (hasNext() && rankOfBlock(resourceIdsIndex.get(index, 0)) == rank);
+
+      return new ResourceBlocks(blocks.get(0).getResourceId(), blocks);
+    }
+  }
+
+  /**
+   * Records of fixed size stored in a file mapped in memory. The file grows by segments, so that
+   * it's not limited to the 2GB that can be mapped by a single buffer.
+   */
+  private static class MappedInts {
+    private final Path file;
+    private final int recordInts;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final FileChannel channel;
+    private final List<IntBuffer> segments = new ArrayList<>();
+
+    private MappedInts(Path file, int recordInts, int segmentShift) throws IOException {
+      this.file = file;
+      this.recordInts = recordInts;
+      this.segmentShift = segmentShift;
+      this.segmentMask = (1 << segmentShift) - 1;
+      this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private int get(int record, int field) {
+      return segments.get(record >>> segmentShift).get(offset(record, field));
+    }
+
+    private void set(int record, int field, int value) {
+      segments.get(record >>> segmentShift).put(offset(record, field), value);
+    }
+
+    private int offset(int record, int field) {
+      return (record & segmentMask) * recordInts + field;
+    }
+
+    private void ensureCapacity(int records) {
+      long segmentBytes = ((long) recordInts << segmentShift) * Integer.BYTES;
+      while ((long) segments.size() << segmentShift < records) {
+        try {
+          IntBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * segmentBytes, segmentBytes)
+            .order(ByteOrder.nativeOrder())
+            .asIntBuffer();
+          segments.add(segment);
+        } catch (IOException e) {
+          throw new IllegalStateException("Fail to map clone index file " + file, e);
+        }
+      }
+    }
+
+    private void close() {
+      segments.clear();
+      try {
+        channel.close();
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // the file can't be deleted on some platforms until the buffers are garbage collected. It's
+        // in a temporary directory anyway.
+      }
+    }
+  }
+}
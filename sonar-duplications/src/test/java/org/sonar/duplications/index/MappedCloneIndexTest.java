@@ -0,0 +1,223 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedCloneIndexTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File dir;
+  private MappedCloneIndex index;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = temp.newFolder();
+    index = new MappedCloneIndex(dir.toPath());
+  }
+
+  @After
+  public void tearDown() {
+    index.close();
+  }
+
+  @Test
+  public void test() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("a", 2));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 1));
+    index.insert(newBlock("d", 1));
+    index.insert(newBlock("e", 1));
+    index.insert(newBlock("e", 2));
+    index.insert(newBlock("e", 3));
+
+    assertThat(index.noResources()).isEqualTo(5);
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(5);
+    assertThat(index.getBySequenceHash(new ByteArray(2L))).hasSize(2);
+    assertThat(index.getBySequenceHash(new ByteArray(3L))).hasSize(1);
+    assertThat(index.getBySequenceHash(new ByteArray(4L))).isEmpty();
+    assertThat(index.getByResourceId("a")).hasSize(2);
+    assertThat(index.getByResourceId("b")).hasSize(1);
+    assertThat(index.getByResourceId("e")).hasSize(3);
+    assertThat(index.getByResourceId("does not exist")).isEmpty();
+  }
+
+  @Test
+  public void should_restore_blocks() {
+    Block block = Block.builder()
+      .setResourceId("a")
+      .setBlockHash(new ByteArray("0123456789abcdef"))
+      .setIndexInFile(3)
+      .setLines(10, 20)
+      .setUnit(100, 200)
+      .build();
+    index.insert(block);
+
+    assertThat(index.getByResourceId("a")).containsExactly(block);
+    Block found = index.getBySequenceHash(new ByteArray("0123456789abcdef")).iterator().next();
+    assertThat(found.getResourceId()).isEqualTo("a");
+    assertThat(found.getIndexInFile()).isEqualTo(3);
+    assertThat(found.getStartLine()).isEqualTo(10);
+    assertThat(found.getEndLine()).isEqualTo(20);
+    assertThat(found.getStartUnit()).isEqualTo(100);
+    assertThat(found.getEndUnit()).isEqualTo(200);
+  }
+
+  @Test
+  public void should_construct_blocks_with_normalized_hash() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 1));
+    ByteArray requestedHash = new ByteArray(1L);
+    Collection<Block> blocks = index.getBySequenceHash(requestedHash);
+    assertThat(blocks).hasSize(3);
+    for (Block block : blocks) {
+      assertThat(block.getBlockHash()).isSameAs(requestedHash);
+    }
+  }
+
+  @Test
+  public void iterate() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("c", 1));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 2));
+    index.insert(newBlock("a", 2));
+
+    Iterator<ResourceBlocks> it = index.iterator();
+    List<ResourceBlocks> resourcesBlocks = new ArrayList<>();
+    while (it.hasNext()) {
+      resourcesBlocks.add(it.next());
+    }
+
+    assertThat(resourcesBlocks).extracting(ResourceBlocks::resourceId).containsExactly("a", "b", "c");
+    assertThat(resourcesBlocks.get(0).blocks()).hasSize(2);
+    assertThat(resourcesBlocks.get(1).blocks()).hasSize(1);
+    assertThat(resourcesBlocks.get(2).blocks()).hasSize(2);
+  }
+
+  @Test
+  public void should_return_same_results_as_packed_memory_index() {
+    MappedCloneIndex smallSegments = new MappedCloneIndex(dir.toPath(), 8, 4);
+    PackedMemoryCloneIndex packed = new PackedMemoryCloneIndex();
+    try {
+      for (int i = 0; i < 1000; i++) {
+        Block block = newBlock("r" + (i % 37), i % 101);
+        smallSegments.insert(block);
+        packed.insert(block);
+      }
+
+      assertThat(smallSegments.noResources()).isEqualTo(packed.noResources());
+      for (int i = 0; i < 101; i++) {
+        ByteArray hash = new ByteArray((long) i);
+        assertThat(smallSegments.getBySequenceHash(hash)).containsExactlyInAnyOrderElementsOf(packed.getBySequenceHash(hash));
+      }
+      for (int i = 0; i < 37; i++) {
+        assertThat(smallSegments.getByResourceId("r" + i)).containsExactlyInAnyOrderElementsOf(packed.getByResourceId("r" + i));
+      }
+    } finally {
+      smallSegments.close();
+    }
+  }
+
+  @Test
+  public void should_insert_after_queries() {
+    index.insert(newBlock("a", 1));
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(1);
+
+    index.insert(newBlock("b", 1));
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(2);
+    assertThat(index.getByResourceId("b")).hasSize(1);
+  }
+
+  @Test
+  public void should_support_concurrent_queries_once_sorted() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      index.insert(newBlock("r" + (i % 10), i % 100));
+    }
+    assertThat(index.noResources()).isEqualTo(10);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        long hash = i;
+        String resourceId = "r" + (i % 10);
+        results.add(executorService.submit(() -> index.getBySequenceHash(new ByteArray(hash)).size() + index.getByResourceId(resourceId).size()));
+      }
+      for (Future<Integer> result : results) {
+        assertThat(result.get()).isEqualTo(10 + 100);
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void attempt_to_insert_hash_of_incorrect_size() {
+    MappedCloneIndex smallHashes = new MappedCloneIndex(dir.toPath(), 4);
+    try {
+      smallHashes.insert(newBlock("a", 1));
+    } finally {
+      smallHashes.close();
+    }
+  }
+
+  @Test
+  public void delete_files_when_closed() {
+    index.insert(newBlock("a", 1));
+    assertThat(dir.list()).isNotEmpty();
+
+    index.close();
+
+    assertThat(dir.list()).isEmpty();
+  }
+
+  private static Block newBlock(String resourceId, long hash) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(1)
+      .setLines(1, 2)
+      .build();
+  }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputProject;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.scan.ScanProperties;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+
+import static org.apache.commons.lang.StringUtils.defaultString;
+
+/**
+ * Data computed by the scanner from the content of files, kept in the working directory between the analyses
+ * of a project and branch. Entries are keyed by the hash of the content of the file they were computed from, so
+ * they remain valid for as long as the file is unchanged, whatever its path.
+ * <p>
+ * The entries read or written during an analysis are copied to a new generation of the cache, which replaces the
+ * previous one once the analysis is complete. Entries of the files that were changed or deleted are therefore dropped.
+ * </p>
+ */
+public class AnalysisCache implements Startable {
+  public static final String DIR_NAME = "analysis-cache";
+
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+  private static final String CURRENT_DIR = "current";
+  private static final String NEXT_DIR = "next";
+
+  private final boolean enabled;
+  private final Path currentDir;
+  private final Path nextDir;
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  public AnalysisCache(ScanProperties properties, DefaultInputProject project, BranchConfiguration branchConfiguration, SonarRuntime runtime) {
+    this.enabled = properties.analysisCacheEnabled();
+    // entries computed by another version of the scanner are not reused
+    String scope = DigestUtils.sha1Hex(project.key() + ":" + defaultString(branchConfiguration.branchName()) + ":" + runtime.getApiVersion());
+    Path dir = project.getWorkDir().resolve(DIR_NAME).resolve(scope);
+    this.currentDir = dir.resolve(CURRENT_DIR);
+    this.nextDir = dir.resolve(NEXT_DIR);
+  }
+
+  @Override
+  public void start() {
+    if (enabled) {
+      deleteQuietly(nextDir);
+      createDirectories(nextDir);
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return empty if the cache is disabled or if it has no entry of this kind for the content of the file
+   */
+  public <M extends Message> Optional<List<M>> read(DefaultInputFile inputFile, String kind, Parser<M> parser) {
+    if (!enabled || inputFile.hash() == null) {
+      return Optional.empty();
+    }
+    Path entry = entry(currentDir, inputFile, kind);
+    if (!Files.isRegularFile(entry)) {
+      misses.incrementAndGet();
+      return Optional.empty();
+    }
+    List<M> messages = new ArrayList<>();
+    try (CloseableIterator<M> it = Protobuf.readStream(entry.toFile(), parser)) {
+      it.forEachRemaining(messages::add);
+    }
+    copyToNextGeneration(entry, entry(nextDir, inputFile, kind));
+    hits.incrementAndGet();
+    return Optional.of(messages);
+  }
+
+  public <M extends Message> void write(DefaultInputFile inputFile, String kind, Iterable<M> messages) {
+    if (!enabled || inputFile.hash() == null) {
+      return;
+    }
+    Path entry = entry(nextDir, inputFile, kind);
+    createDirectories(entry.getParent());
+    Protobuf.writeStream(messages, entry.toFile(), false);
+  }
+
+  /**
+   * Replaces the previous generation of the cache by the entries used during this analysis, and logs
+   * the ratio of cache hits.
+   */
+  public void save() {
+    if (!enabled) {
+      return;
+    }
+    int total = hits.get() + misses.get();
+    if (total > 0) {
+      LOG.info("Analysis cache: {}/{} hits ({}%)", hits.get(), total, hits.get() * 100 / total);
+    }
+    deleteQuietly(currentDir);
+    try {
+      Files.move(nextDir, currentDir, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to save analysis cache in " + currentDir, e);
+    }
+  }
+
+  int hits() {
+    return hits.get();
+  }
+
+  int misses() {
+    return misses.get();
+  }
+
+  @Override
+  public void stop() {
+    // the new generation is dropped if the analysis failed before it was saved
+    deleteQuietly(nextDir);
+  }
+
+  private static Path entry(Path dir, DefaultInputFile inputFile, String kind) {
+    return dir.resolve(kind).resolve(inputFile.hash());
+  }
+
+  private static void copyToNextGeneration(Path entry, Path nextEntry) {
+    createDirectories(nextEntry.getParent());
+    try {
+      Files.copy(entry, nextEntry, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to copy analysis cache entry " + entry, e);
+    }
+  }
+
+  private static void createDirectories(Path dir) {
+    try {
+      Files.createDirectories(dir);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create directory " + dir, e);
+    }
+  }
+
+  private static void deleteQuietly(Path dir) {
+    FileUtils.deleteQuietly(dir.toFile());
+  }
+}
@@ -19,8 +19,10 @@
  */
 package org.sonar.scanner.cpd;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -54,6 +56,9 @@ import org.sonar.scanner.util.ProgressReport;
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module.
  * The sensors are responsible for handling exclusions and block sizes.
+ * <p>
+ * Detections of the different files are executed concurrently (see {@link CpdSettings#getThreads()}), but results are
+ * saved in the report in the order of the index, so that the report does not depend on scheduling.
  */
 public class CpdExecutor {
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
@@ -68,11 +73,12 @@ public class CpdExecutor {
   private final ProgressReport progressReport;
   private final CpdSettings settings;
   private final ExecutorService executorService;
+  private final int threads;
   private int count = 0;
   private int total;
 
   public CpdExecutor(CpdSettings settings, SonarCpdBlockIndex index, ReportPublisher publisher, InputComponentStore inputComponentCache) {
-    this(settings, index, publisher, inputComponentCache, Executors.newSingleThreadExecutor());
+    this(settings, index, publisher, inputComponentCache, Executors.newFixedThreadPool(settings.getThreads()));
   }
 
   public CpdExecutor(CpdSettings settings, SonarCpdBlockIndex index, ReportPublisher publisher, InputComponentStore inputComponentCache,
@@ -83,6 +89,7 @@ public class CpdExecutor {
     this.componentStore = inputComponentCache;
     this.progressReport = new ProgressReport("CPD computation", TimeUnit.SECONDS.toMillis(10));
     this.executorService = executorService;
+    this.threads = settings.getThreads();
   }
 
   public void execute() {
@@ -110,10 +117,7 @@ public class CpdExecutor {
     total = components.size();
     progressReport.start(String.format("CPD Executor Calculating CPD for %d %s", total, pluralize(total)));
     try {
-      for (FileBlocks fileBlocks : components) {
-        runCpdAnalysis(executorService, fileBlocks.getInputFile(), fileBlocks.getBlocks(), timeout);
-        count++;
-      }
+      runCpdAnalysis(components, timeout);
       progressReport.stopAndLogTotalTime("CPD Executor CPD calculation finished");
     } catch (Exception e) {
       progressReport.stop("");
@@ -127,34 +131,56 @@ public class CpdExecutor {
     return files == 1 ? "file" : "files";
   }
 
-  void runCpdAnalysis(ExecutorService executorService, DefaultInputFile inputFile, Collection<Block> fileBlocks, long timeout) {
-    LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
-    progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
+  /**
+   * At most {@link #threads} detections are pending at a time, so that each of them is started as soon as it is submitted
+   * and the timeout applies to the detection itself rather than to its wait in the queue of the executor.
+   */
+  private void runCpdAnalysis(List<FileBlocks> components, long timeout) {
+    Deque<PendingDetection> pendingDetections = new ArrayDeque<>(threads);
+    Iterator<FileBlocks> it = components.iterator();
+    while (it.hasNext() || !pendingDetections.isEmpty()) {
+      while (it.hasNext() && pendingDetections.size() < threads) {
+        FileBlocks fileBlocks = it.next();
+        LOG.debug("Detection of duplications for {}", fileBlocks.getInputFile().absolutePath());
+        pendingDetections.add(new PendingDetection(fileBlocks.getInputFile(), executorService.submit(() -> detect(fileBlocks))));
+      }
+      PendingDetection detection = pendingDetections.remove();
+      progressReport.message(String.format("%d/%d - current file: %s", count, total, detection.inputFile.absolutePath()));
+      waitAndSave(detection, timeout);
+      count++;
+    }
+  }
+
+  private List<CloneGroup> detect(FileBlocks fileBlocks) {
+    DefaultInputFile inputFile = fileBlocks.getInputFile();
+    List<CloneGroup> duplications = SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks.getBlocks());
+    if ("java".equalsIgnoreCase(inputFile.language())) {
+      return duplications;
+    }
+    int minTokens = settings.getMinimumTokens(inputFile.language());
+    Predicate<CloneGroup> minimumTokensPredicate = DuplicationPredicates.numberOfUnitsNotLessThan(minTokens);
+    return duplications.stream()
+      .filter(minimumTokensPredicate)
+      .collect(Collectors.toList());
+  }
 
+  private void waitAndSave(PendingDetection detection, long timeout) {
+    DefaultInputFile inputFile = detection.inputFile;
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
     try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+      duplications = detection.result.get(timeout, TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for {}", inputFile.absolutePath());
-      futureResult.cancel(true);
+      detection.result.cancel(true);
       return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during detection of duplication for " + inputFile.absolutePath(), e);
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
 
-    List<CloneGroup> filtered;
-    if (!"java".equalsIgnoreCase(inputFile.language())) {
-      int minTokens = settings.getMinimumTokens(inputFile.language());
-      Predicate<CloneGroup> minimumTokensPredicate = DuplicationPredicates.numberOfUnitsNotLessThan(minTokens);
-      filtered = duplications.stream()
-        .filter(minimumTokensPredicate)
-        .collect(Collectors.toList());
-    } else {
-      filtered = duplications;
-    }
-
-    saveDuplications(inputFile, filtered);
+    saveDuplications(inputFile, duplications);
   }
 
   final void saveDuplications(final DefaultInputComponent component, List<CloneGroup> duplications) {
@@ -221,6 +247,16 @@ public class CpdExecutor {
     return dupBuilder.build();
   }
 
+  private static class PendingDetection {
+    private final DefaultInputFile inputFile;
+    private final Future<List<CloneGroup>> result;
+
+    private PendingDetection(DefaultInputFile inputFile, Future<List<CloneGroup>> result) {
+      this.inputFile = inputFile;
+      this.result = result;
+    }
+  }
+
   private static class FileBlocks {
     private final DefaultInputFile inputFile;
     private final Collection<Block> blocks;
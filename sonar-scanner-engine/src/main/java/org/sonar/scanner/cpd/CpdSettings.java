@@ -24,6 +24,9 @@ import org.sonar.api.config.Configuration;
 import org.sonar.duplications.block.BlockChunker;
 
 public class CpdSettings {
+  static final String THREADS_PROPERTY = "sonar.cpd.threads";
+  static final String MAPPED_INDEX_PROPERTY = "sonar.cpd.mappedIndex";
+
   private final Configuration settings;
 
   public CpdSettings(Configuration config) {
@@ -34,6 +37,13 @@ public class CpdSettings {
     return settings.getBoolean(CoreProperties.CPD_CROSS_PROJECT).orElse(false);
   }
 
+  /**
+   * Whether CPD blocks are stored in files mapped in memory instead of the heap. Recommended for very large projects.
+   */
+  public boolean isMappedIndexEnabled() {
+    return settings.getBoolean(MAPPED_INDEX_PROPERTY).orElse(false);
+  }
+
   /**
    * Not applicable to Java, as the {@link BlockChunker} that it uses does not record start and end units of each block.
    * Also, it uses statements instead of tokens.
@@ -41,4 +51,15 @@ public class CpdSettings {
   int getMinimumTokens(String languageKey) {
     return settings.getInt("sonar.cpd." + languageKey + ".minimumTokens").orElse(100);
   }
+
+  /**
+   * Number of threads used to detect duplications. Defaults to the number of available processors.
+   */
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY).orElse(Runtime.getRuntime().availableProcessors());
+    if (threads < 1) {
+      throw new IllegalArgumentException(String.format("Property %s must be strictly positive. Got: %d", THREADS_PROPERTY, threads));
+    }
+    return threads;
+  }
 }
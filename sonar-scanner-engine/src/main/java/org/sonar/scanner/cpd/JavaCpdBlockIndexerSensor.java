@@ -24,7 +24,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
@@ -36,14 +38,17 @@ import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.api.scanner.sensor.ProjectSensor;
 import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.block.BlockChunker;
 import org.sonar.duplications.java.JavaStatementBuilder;
 import org.sonar.duplications.java.JavaTokenProducer;
 import org.sonar.duplications.statement.Statement;
 import org.sonar.duplications.statement.StatementChunker;
 import org.sonar.duplications.token.TokenChunker;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.scanner.protocol.output.ScannerReport;
 
 /**
  * Special case for Java that use a dedicated block indexer.
@@ -52,11 +57,14 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 public class JavaCpdBlockIndexerSensor implements ProjectSensor {
 
   private static final int BLOCK_SIZE = 10;
+  private static final String CACHE_KIND = "java-cpd-blocks-" + BLOCK_SIZE;
   private static final Logger LOG = LoggerFactory.getLogger(JavaCpdBlockIndexerSensor.class);
   private final SonarCpdBlockIndex index;
+  private final AnalysisCache cache;
 
-  public JavaCpdBlockIndexerSensor(SonarCpdBlockIndex index) {
+  public JavaCpdBlockIndexerSensor(SonarCpdBlockIndex index, AnalysisCache cache) {
     this.index = index;
+    this.cache = cache;
   }
 
   @Override
@@ -89,6 +97,14 @@ public class JavaCpdBlockIndexerSensor implements ProjectSensor {
     BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
 
     for (InputFile inputFile : sourceFiles) {
+      DefaultInputFile defaultInputFile = (DefaultInputFile) inputFile;
+      Optional<List<ScannerReport.CpdTextBlock>> cachedBlocks = cache.read(defaultInputFile, CACHE_KIND, ScannerReport.CpdTextBlock.parser());
+      if (cachedBlocks.isPresent()) {
+        LOG.debug("Populating index from cache for {}", inputFile);
+        index.insert(inputFile, toBlocks(inputFile.key(), cachedBlocks.get()));
+        continue;
+      }
+
       LOG.debug("Populating index from {}", inputFile);
       String resourceEffectiveKey = inputFile.key();
 
@@ -109,8 +125,37 @@ public class JavaCpdBlockIndexerSensor implements ProjectSensor {
       } catch (Exception e) {
         throw new IllegalStateException("Cannot process file " + inputFile.file(), e);
       }
+      cache.write(defaultInputFile, CACHE_KIND, toCacheEntries(blocks));
       index.insert(inputFile, blocks);
     }
   }
 
+  private static List<Block> toBlocks(String resourceKey, List<ScannerReport.CpdTextBlock> cachedBlocks) {
+    List<Block> blocks = new ArrayList<>(cachedBlocks.size());
+    for (ScannerReport.CpdTextBlock cachedBlock : cachedBlocks) {
+      blocks.add(Block.builder()
+        .setResourceId(resourceKey)
+        .setBlockHash(new ByteArray(cachedBlock.getHash()))
+        .setIndexInFile(blocks.size())
+        .setLines(cachedBlock.getStartLine(), cachedBlock.getEndLine())
+        .setUnit(cachedBlock.getStartTokenIndex(), cachedBlock.getEndTokenIndex())
+        .build());
+    }
+    return blocks;
+  }
+
+  private static List<ScannerReport.CpdTextBlock> toCacheEntries(List<Block> blocks) {
+    List<ScannerReport.CpdTextBlock> entries = new ArrayList<>(blocks.size());
+    for (Block block : blocks) {
+      entries.add(ScannerReport.CpdTextBlock.newBuilder()
+        .setHash(block.getBlockHash().toHexString())
+        .setStartLine(block.getStartLine())
+        .setEndLine(block.getEndLine())
+        .setStartTokenIndex(block.getStartUnit())
+        .setEndTokenIndex(block.getEndUnit())
+        .build());
+    }
+    return entries;
+  }
+
 }
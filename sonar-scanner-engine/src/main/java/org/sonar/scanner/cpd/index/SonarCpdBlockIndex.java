@@ -19,18 +19,23 @@
  */
 package org.sonar.scanner.cpd.index;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.picocontainer.Startable;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.AbstractCloneIndex;
 import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.MappedCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import org.sonar.scanner.cpd.CpdSettings;
@@ -39,17 +44,42 @@ import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.report.ReportPublisher;
 
-public class SonarCpdBlockIndex extends AbstractCloneIndex {
+/**
+ * Blocks are inserted by sensors. Once they are all executed, the index is only read by {@link org.sonar.scanner.cpd.CpdExecutor},
+ * possibly from several threads.
+ */
+public class SonarCpdBlockIndex extends AbstractCloneIndex implements Startable {
   private static final Logger LOG = Loggers.get(SonarCpdBlockIndex.class);
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final CloneIndex mem;
   private final ReportPublisher publisher;
   // Files already tokenized
   private final Set<InputFile> indexedFiles = new HashSet<>();
   private final CpdSettings settings;
 
-  public SonarCpdBlockIndex(ReportPublisher publisher, CpdSettings settings) {
+  public SonarCpdBlockIndex(ReportPublisher publisher, CpdSettings settings, TempFolder tempFolder) {
     this.publisher = publisher;
     this.settings = settings;
+    if (settings.isMappedIndexEnabled()) {
+      this.mem = new MappedCloneIndex(tempFolder.newDir("cpd-index").toPath());
+    } else {
+      this.mem = new PackedMemoryCloneIndex();
+    }
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    if (mem instanceof Closeable) {
+      try {
+        ((Closeable) mem).close();
+      } catch (IOException e) {
+        LOG.debug("Fail to close CPD index", e);
+      }
+    }
   }
 
   public void insert(InputFile inputFile, Collection<Block> blocks) {
@@ -22,6 +22,7 @@ package org.sonar.scanner.report;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.URL;
@@ -37,7 +38,6 @@ import org.picocontainer.Startable;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
@@ -135,12 +135,23 @@ public class ReportPublisher implements Startable {
   }
 
   public void execute() {
-    File report = generateReportFile();
+    File reportFile = null;
+    if (properties.streamReport()) {
+      // all the files of the report are generated before the upload starts. Only their compression overlaps with it.
+      generateReport();
+    } else {
+      reportFile = generateReportFile();
+    }
     if (properties.shouldKeepReport()) {
       LOG.info("Analysis report generated in " + reportDir);
     }
     if (!analysisMode.isMediumTest()) {
-      String taskId = upload(report);
+      String taskId;
+      if (reportFile == null) {
+        taskId = upload(new PostRequest.StreamedPart(MediaTypes.ZIP, "scanner-report.zip", this::zipReport));
+      } else {
+        taskId = upload(reportFile);
+      }
       prepareAndDumpMetadata(taskId);
     }
 
@@ -157,19 +168,27 @@ public class ReportPublisher implements Startable {
     }
   }
 
+  private void generateReport() {
+    long startTime = System.currentTimeMillis();
+    for (ReportPublisherStep publisher : publishers) {
+      publisher.publish(writer);
+    }
+    if (properties.packReport()) {
+      writer.pack();
+    }
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
+  }
+
   private File generateReportFile() {
+    generateReport();
     try {
       long startTime = System.currentTimeMillis();
-      for (ReportPublisherStep publisher : publishers) {
-        publisher.publish(writer);
+      File reportZip = temp.newFile("scanner-report", ".zip");
+      try (OutputStream output = Files.newOutputStream(reportZip.toPath())) {
+        zipReport(output);
       }
       long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
-
-      startTime = System.currentTimeMillis();
-      File reportZip = temp.newFile("scanner-report", ".zip");
-      ZipUtils.zipDir(reportDir.toFile(), reportZip);
-      stopTime = System.currentTimeMillis();
       LOG.info("Analysis report compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
       return reportZip;
     } catch (IOException e) {
@@ -177,19 +196,35 @@ public class ReportPublisher implements Startable {
     }
   }
 
+  /**
+   * Compresses the report directory into the given stream, which is not closed. Files are compressed on
+   * {@link ScanProperties#reportCompressionThreads()} threads. Entries are sorted by path, so that the same content
+   * is written when the request is sent again (for example when it's redirected).
+   */
+  void zipReport(OutputStream output) throws IOException {
+    new ReportZipper(properties.reportCompressionThreads()).zip(reportDir, output);
+  }
+
   /**
    * Uploads the report file to server and returns the generated task id
    */
   String upload(File report) {
-    LOG.debug("Upload report");
-    long startTime = System.currentTimeMillis();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
+    return submit(newSubmitRequest().setPart("report", new PostRequest.Part(MediaTypes.ZIP, report)));
+  }
+
+  /**
+   * Uploads the report, compressed by the given part while it is sent, to server and returns the generated task id
+   */
+  String upload(PostRequest.StreamedPart report) {
+    return submit(newSubmitRequest().setStreamedPart("report", report));
+  }
+
+  private PostRequest newSubmitRequest() {
     PostRequest post = new PostRequest("api/ce/submit")
       .setMediaType(MediaTypes.PROTOBUF)
       .setParam("organization", properties.organizationKey().orElse(null))
       .setParam("projectKey", moduleHierarchy.root().key())
-      .setParam("projectName", moduleHierarchy.root().getOriginalName())
-      .setPart("report", filePart);
+      .setParam("projectName", moduleHierarchy.root().getOriginalName());
 
     String branchName = branchConfiguration.branchName();
     if (branchName != null) {
@@ -200,7 +235,12 @@ public class ReportPublisher implements Startable {
         post.setParam(CHARACTERISTIC, "pullRequest=" + branchConfiguration.pullRequestKey());
       }
     }
+    return post;
+  }
 
+  private String submit(PostRequest post) {
+    LOG.debug("Upload report");
+    long startTime = System.currentTimeMillis();
     WsResponse response;
     try {
       response = wsClient.call(post).failIfNotSuccessful();
@@ -0,0 +1,417 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+
+/**
+ * Compresses a directory as a zip archive, deflating its files on a pool of threads.
+ * <p>
+ * Files are split in chunks that are deflated independently and written in order. All the chunks of a file but the
+ * last one end with a sync flush, so that together they form a single deflate stream, and are primed with the end
+ * of the previous chunk so that the compression ratio stays close to the one of a single deflater. As the CRC and the
+ * compressed size of a file are only known once it is written, they are in a data descriptor following its data.
+ * Archives larger than 4GB use the Zip64 extensions, the same way {@link java.util.zip.ZipOutputStream} does.
+ * <p>
+ * The archive only depends on the content of the directory, not on the number of threads.
+ */
+class ReportZipper {
+
+  static final int CHUNK_SIZE = 128 * 1024;
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int PENDING_WRITES_PER_THREAD = 4;
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int VERSION = 20;
+  private static final int ZIP64_VERSION = 45;
+  private static final int UTF8_FLAG = 0x0800;
+  private static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+  private final int threads;
+
+  ReportZipper(int threads) {
+    this.threads = threads;
+  }
+
+  /**
+   * Compresses the directory into the given stream, which is not closed. Entries are sorted by path.
+   */
+  void zip(Path dir, OutputStream output) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> stream = Files.walk(dir)) {
+      paths = stream.filter(p -> !p.equals(dir)).sorted().collect(Collectors.toList());
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads, ReportZipper::newThread);
+    try {
+      Archive archive = new Archive(output, executor);
+      for (Path path : paths) {
+        String entryName = dir.relativize(path).toString().replace(File.separatorChar, '/');
+        long time = Files.getLastModifiedTime(path).toMillis();
+        if (Files.isDirectory(path)) {
+          archive.addDirectory(entryName + "/", time);
+        } else {
+          archive.addFile(entryName, path, time);
+        }
+      }
+      archive.finish();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Thread newThread(Runnable r) {
+    Thread thread = new Thread(r, "Report compression");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private class Archive {
+    private final OutputStream output;
+    private final ExecutorService executor;
+    private final Deque<PendingWrite> pendingWrites = new ArrayDeque<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private long offset = 0;
+
+    private Archive(OutputStream output, ExecutorService executor) {
+      this.output = new BufferedOutputStream(output, BUFFER_SIZE);
+      this.executor = executor;
+    }
+
+    private void addDirectory(String name, long time) throws IOException {
+      Entry entry = new Entry(name, time, STORED);
+      entries.add(entry);
+      enqueue(() -> writeLocalHeader(entry));
+    }
+
+    private void addFile(String name, Path file, long time) throws IOException {
+      Entry entry = new Entry(name, time, DEFLATED);
+      entries.add(entry);
+      enqueue(() -> writeLocalHeader(entry));
+      CRC32 crc = new CRC32();
+      long size = 0;
+      try (InputStream input = Files.newInputStream(file)) {
+        byte[] previous = null;
+        byte[] chunk = readChunk(input);
+        boolean last = false;
+        while (!last) {
+          byte[] next = null;
+          last = chunk.length < CHUNK_SIZE;
+          if (!last) {
+            next = readChunk(input);
+            last = next.length == 0;
+          }
+          crc.update(chunk);
+          size += chunk.length;
+          Future<byte[]> deflated = executor.submit(deflate(chunk, previous, last));
+          enqueue(() -> writeDeflated(entry, deflated));
+          previous = chunk;
+          chunk = next;
+        }
+      }
+      entry.crc = crc.getValue();
+      entry.size = size;
+      enqueue(() -> writeDataDescriptor(entry));
+    }
+
+    /**
+     * Writes are done in order on the calling thread. Only a few chunks are waiting to be written, so that the memory
+     * used does not depend on the size of the files.
+     */
+    private void enqueue(PendingWrite write) throws IOException {
+      pendingWrites.add(write);
+      while (pendingWrites.size() > threads * PENDING_WRITES_PER_THREAD) {
+        pendingWrites.poll().write();
+      }
+    }
+
+    private void finish() throws IOException {
+      while (!pendingWrites.isEmpty()) {
+        pendingWrites.poll().write();
+      }
+      long centralDirectoryOffset = offset;
+      for (Entry entry : entries) {
+        writeCentralHeader(entry);
+      }
+      long centralDirectorySize = offset - centralDirectoryOffset;
+      if (entries.size() >= ZIP64_MAGIC_COUNT || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectorySize >= ZIP64_MAGIC) {
+        writeZip64End(centralDirectoryOffset, centralDirectorySize);
+      }
+      writeEnd(centralDirectoryOffset, centralDirectorySize);
+      output.flush();
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+      entry.offset = offset;
+      ByteBuffer header = newBuffer(30 + entry.name.length);
+      header.putInt(LOCAL_HEADER_SIGNATURE);
+      header.putShort((short) VERSION);
+      header.putShort((short) entry.flags());
+      header.putShort((short) entry.method);
+      header.putInt(entry.dosTime);
+      // CRC and sizes are in the data descriptor
+      header.putInt(0);
+      header.putInt(0);
+      header.putInt(0);
+      header.putShort((short) entry.name.length);
+      header.putShort((short) 0);
+      header.put(entry.name);
+      write(header);
+    }
+
+    private void writeDeflated(Entry entry, Future<byte[]> deflated) throws IOException {
+      byte[] bytes;
+      try {
+        bytes = deflated.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while compressing " + entry.nameAsString());
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Fail to compress " + entry.nameAsString(), e.getCause());
+      }
+      output.write(bytes);
+      offset += bytes.length;
+      entry.compressedSize += bytes.length;
+    }
+
+    private void writeDataDescriptor(Entry entry) throws IOException {
+      boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+      ByteBuffer descriptor = newBuffer(zip64 ? 24 : 16);
+      descriptor.putInt(DATA_DESCRIPTOR_SIGNATURE);
+      descriptor.putInt((int) entry.crc);
+      if (zip64) {
+        descriptor.putLong(entry.compressedSize);
+        descriptor.putLong(entry.size);
+      } else {
+        descriptor.putInt((int) entry.compressedSize);
+        descriptor.putInt((int) entry.size);
+      }
+      write(descriptor);
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException {
+      List<Long> zip64Values = new ArrayList<>();
+      if (entry.size >= ZIP64_MAGIC) {
+        zip64Values.add(entry.size);
+      }
+      if (entry.compressedSize >= ZIP64_MAGIC) {
+        zip64Values.add(entry.compressedSize);
+      }
+      if (entry.offset >= ZIP64_MAGIC) {
+        zip64Values.add(entry.offset);
+      }
+      int extraLength = zip64Values.isEmpty() ? 0 : (4 + 8 * zip64Values.size());
+      int version = zip64Values.isEmpty() ? VERSION : ZIP64_VERSION;
+      ByteBuffer header = newBuffer(46 + entry.name.length + extraLength);
+      header.putInt(CENTRAL_HEADER_SIGNATURE);
+      header.putShort((short) version);
+      header.putShort((short) version);
+      header.putShort((short) entry.flags());
+      header.putShort((short) entry.method);
+      header.putInt(entry.dosTime);
+      header.putInt((int) entry.crc);
+      header.putInt((int) Math.min(entry.compressedSize, ZIP64_MAGIC));
+      header.putInt((int) Math.min(entry.size, ZIP64_MAGIC));
+      header.putShort((short) entry.name.length);
+      header.putShort((short) extraLength);
+      // comment length, disk number, internal and external attributes
+      header.putShort((short) 0);
+      header.putShort((short) 0);
+      header.putShort((short) 0);
+      header.putInt(0);
+      header.putInt((int) Math.min(entry.offset, ZIP64_MAGIC));
+      header.put(entry.name);
+      if (!zip64Values.isEmpty()) {
+        header.putShort((short) ZIP64_EXTRA_ID);
+        header.putShort((short) (8 * zip64Values.size()));
+        zip64Values.forEach(header::putLong);
+      }
+      write(header);
+    }
+
+    private void writeZip64End(long centralDirectoryOffset, long centralDirectorySize) throws IOException {
+      long zip64EndOffset = offset;
+      ByteBuffer end = newBuffer(56 + 20);
+      end.putInt(ZIP64_END_SIGNATURE);
+      // size of the remaining record
+      end.putLong(44);
+      end.putShort((short) ZIP64_VERSION);
+      end.putShort((short) ZIP64_VERSION);
+      end.putInt(0);
+      end.putInt(0);
+      end.putLong(entries.size());
+      end.putLong(entries.size());
+      end.putLong(centralDirectorySize);
+      end.putLong(centralDirectoryOffset);
+
+      end.putInt(ZIP64_LOCATOR_SIGNATURE);
+      end.putInt(0);
+      end.putLong(zip64EndOffset);
+      end.putInt(1);
+      write(end);
+    }
+
+    private void writeEnd(long centralDirectoryOffset, long centralDirectorySize) throws IOException {
+      ByteBuffer end = newBuffer(22);
+      end.putInt(END_SIGNATURE);
+      end.putShort((short) 0);
+      end.putShort((short) 0);
+      end.putShort((short) Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+      end.putShort((short) Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+      end.putInt((int) Math.min(centralDirectorySize, ZIP64_MAGIC));
+      end.putInt((int) Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+      end.putShort((short) 0);
+      write(end);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+      output.write(buffer.array());
+      offset += buffer.capacity();
+    }
+  }
+
+  private static ByteBuffer newBuffer(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static byte[] readChunk(InputStream input) throws IOException {
+    byte[] chunk = new byte[CHUNK_SIZE];
+    int length = 0;
+    int read;
+    while (length < CHUNK_SIZE && (read = input.read(chunk, length, CHUNK_SIZE - length)) >= 0) {
+      length += read;
+    }
+    if (length == CHUNK_SIZE) {
+      return chunk;
+    }
+    byte[] lastChunk = new byte[length];
+    System.arraycopy(chunk, 0, lastChunk, 0, length);
+    return lastChunk;
+  }
+
+  private static Callable<byte[]> deflate(byte[] chunk, @Nullable byte[] previous, boolean last) {
+    return () -> {
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      try {
+        if (previous != null) {
+          int length = Math.min(DICTIONARY_SIZE, previous.length);
+          deflater.setDictionary(previous, previous.length - length, length);
+        }
+        deflater.setInput(chunk);
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream(chunk.length / 2 + 64);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        if (last) {
+          deflater.finish();
+          while (!deflater.finished()) {
+            deflated.write(buffer, 0, deflater.deflate(buffer));
+          }
+        } else {
+          int length;
+          do {
+            length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            deflated.write(buffer, 0, length);
+          } while (length == buffer.length);
+        }
+        return deflated.toByteArray();
+      } finally {
+        deflater.end();
+      }
+    };
+  }
+
+  @FunctionalInterface
+  private interface PendingWrite {
+    void write() throws IOException;
+  }
+
+  private static class Entry {
+    private final byte[] name;
+    private final int dosTime;
+    private final int method;
+    private long crc = 0;
+    private long size = 0;
+    private long compressedSize = 0;
+    private long offset = 0;
+
+    private Entry(String name, long time, int method) {
+      this.name = name.getBytes(StandardCharsets.UTF_8);
+      this.dosTime = toDosTime(time);
+      this.method = method;
+    }
+
+    private int flags() {
+      return method == DEFLATED ? (UTF8_FLAG | DATA_DESCRIPTOR_FLAG) : UTF8_FLAG;
+    }
+
+    private String nameAsString() {
+      return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * MS-DOS date and time, in the local time zone like {@link java.util.zip.ZipEntry#setTime(long)}
+     */
+    private static int toDosTime(long time) {
+      LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+      if (date.getYear() < 1980) {
+        date = LocalDateTime.of(1980, 1, 1, 0, 0);
+      }
+      return ((date.getYear() - 1980) << 25) | (date.getMonthValue() << 21) | (date.getDayOfMonth() << 16)
+        | (date.getHour() << 11) | (date.getMinute() << 5) | (date.getSecond() >> 1);
+    }
+  }
+}
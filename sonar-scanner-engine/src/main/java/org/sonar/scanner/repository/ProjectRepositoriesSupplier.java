@@ -41,7 +41,7 @@ public class ProjectRepositoriesSupplier implements Supplier<ProjectRepositories
     this.branchConfig = branchConfig;
   }
 
-  public ProjectRepositories get() {
+  public synchronized ProjectRepositories get() {
     if (project == null) {
       Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
       project = loader.load(scannerProperties.getProjectKey(), branchConfig.longLivingSonarReferenceBranch());
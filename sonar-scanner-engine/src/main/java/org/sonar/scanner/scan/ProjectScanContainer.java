@@ -45,6 +45,7 @@ import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.bootstrap.MetricProvider;
 import org.sonar.scanner.bootstrap.PostJobExtensionDictionnary;
 import org.sonar.scanner.bootstrap.ProcessedScannerProperties;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.ci.CiConfigurationProvider;
 import org.sonar.scanner.ci.vendors.AppVeyor;
 import org.sonar.scanner.ci.vendors.AzureDevops;
@@ -260,6 +261,9 @@ public class ProjectScanContainer extends ComponentContainer {
       CpdSettings.class,
       SonarCpdBlockIndex.class,
 
+      // Analysis cache
+      AnalysisCache.class,
+
       // PostJobs
       PostJobsExecutor.class,
       PostJobOptimizer.class,
@@ -357,6 +361,7 @@ public class ProjectScanContainer extends ComponentContainer {
 
     getComponentByType(CpdExecutor.class).execute();
     getComponentByType(ReportPublisher.class).execute();
+    getComponentByType(AnalysisCache.class).save();
 
     if (properties.shouldWaitForQualityGate()) {
       LOG.info("------------- Check Quality Gate status");
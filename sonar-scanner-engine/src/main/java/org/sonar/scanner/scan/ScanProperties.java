@@ -39,6 +39,11 @@ public class ScanProperties {
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
   public static final String SONAR_REPORT_EXPORT_PATH = "sonar.report.export.path";
   public static final String PRELOAD_FILE_METADATA_KEY = "sonar.preloadFileMetadata";
+  public static final String INDEXING_THREADS_KEY = "sonar.scanner.indexingThreads";
+  public static final String STREAM_REPORT_KEY = "sonar.scanner.streamReport";
+  public static final String PACK_REPORT_KEY = "sonar.scanner.packReport";
+  public static final String REPORT_COMPRESSION_THREADS_KEY = "sonar.scanner.reportCompressionThreads";
+  public static final String ANALYSIS_CACHE_ENABLED_KEY = "sonar.scanner.cache.enabled";
   public static final String FORCE_RELOAD_KEY = "sonar.scm.forceReloadAll";
   public static final String SCM_REVISION = "sonar.scm.revision";
   public static final String QUALITY_GATE_WAIT = "sonar.qualitygate.wait";
@@ -56,10 +61,52 @@ public class ScanProperties {
     return configuration.getBoolean(KEEP_REPORT_PROP_KEY).orElse(false) || configuration.getBoolean(VERBOSE_KEY).orElse(false);
   }
 
+  /**
+   * Whether the report is compressed while being uploaded, instead of being compressed in a temporary file first.
+   * The report is still fully generated before the upload starts. Requires the HTTP proxies, if any, to support
+   * chunked requests.
+   */
+  public boolean streamReport() {
+    return configuration.getBoolean(STREAM_REPORT_KEY).orElse(false);
+  }
+
+  public boolean packReport() {
+    return configuration.getBoolean(PACK_REPORT_KEY).orElse(false);
+  }
+
+  /**
+   * Whether data computed from the content of files is kept in the working directory to be reused by the next analyses.
+   */
+  public boolean analysisCacheEnabled() {
+    return configuration.getBoolean(ANALYSIS_CACHE_ENABLED_KEY).orElse(false);
+  }
+
   public boolean preloadFileMetadata() {
     return configuration.getBoolean(PRELOAD_FILE_METADATA_KEY).orElse(false);
   }
 
+  /**
+   * Number of threads generating metadata of files during indexing. Defaults to the number of available processors.
+   */
+  public int indexingThreads() {
+    int threads = configuration.getInt(INDEXING_THREADS_KEY).orElse(Runtime.getRuntime().availableProcessors());
+    if (threads < 1) {
+      throw MessageException.of(String.format("Property '%s' must be strictly positive. Got: %d", INDEXING_THREADS_KEY, threads));
+    }
+    return threads;
+  }
+
+  /**
+   * Number of threads compressing the files of the report. Defaults to the number of available processors.
+   */
+  public int reportCompressionThreads() {
+    int threads = configuration.getInt(REPORT_COMPRESSION_THREADS_KEY).orElse(Runtime.getRuntime().availableProcessors());
+    if (threads < 1) {
+      throw MessageException.of(String.format("Property '%s' must be strictly positive. Got: %d", REPORT_COMPRESSION_THREADS_KEY, threads));
+    }
+    return threads;
+  }
+
   public Optional<String> organizationKey() {
     return configuration.get(ORGANIZATION);
   }
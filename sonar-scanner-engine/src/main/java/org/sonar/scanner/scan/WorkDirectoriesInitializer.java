@@ -26,6 +26,7 @@ import java.nio.file.Path;
 import java.util.Iterator;
 import org.sonar.core.util.FileUtils;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.fs.InputModuleHierarchy;
 
 /**
@@ -65,6 +66,9 @@ public class WorkDirectoriesInitializer {
     }
   }
 
+  /**
+   * The lock file and the analysis cache are kept.
+   */
   private static void deleteAllRecursivelyExceptLockFile(Path dirToDelete) {
     try (DirectoryStream<Path> stream = list(dirToDelete)) {
 
@@ -78,6 +82,9 @@ public class WorkDirectoriesInitializer {
   }
 
   private static DirectoryStream<Path> list(Path dir) throws IOException {
-    return Files.newDirectoryStream(dir, entry -> !DirectoryLock.LOCK_FILE_NAME.equals(entry.getFileName().toString()));
+    return Files.newDirectoryStream(dir, entry -> {
+      String fileName = entry.getFileName().toString();
+      return !DirectoryLock.LOCK_FILE_NAME.equals(fileName) && !AnalysisCache.DIR_NAME.equals(fileName);
+    });
   }
 }
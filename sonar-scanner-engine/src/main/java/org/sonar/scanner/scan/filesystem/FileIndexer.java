@@ -94,8 +94,8 @@ public class FileIndexer {
   }
 
   void indexFile(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters, ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions,
-    Path sourceFile, Type type, ProgressReport progressReport, ProjectFileIndexer.ExclusionCounter exclusionCounter, @Nullable IgnoreCommand ignoreCommand)
-    throws IOException {
+    Path sourceFile, Type type, ProgressReport progressReport, ProjectFileIndexer.ExclusionCounter exclusionCounter, @Nullable IgnoreCommand ignoreCommand,
+    MetadataPreloader metadataPreloader) throws IOException {
     // get case of real file without resolving link
     Path realAbsoluteFile = sourceFile.toRealPath(LinkOption.NOFOLLOW_LINKS).toAbsolutePath().normalize();
     if (!realAbsoluteFile.startsWith(project.getBaseDir())) {
@@ -144,8 +144,9 @@ public class FileIndexer {
     LOG.debug("'{}' indexed {}with language '{}'", projectRelativePath, type == Type.TEST ? "as test " : "", inputFile.language());
     evaluateCoverageExclusions(moduleCoverageAndDuplicationExclusions, inputFile);
     evaluateDuplicationExclusions(moduleCoverageAndDuplicationExclusions, inputFile);
-    if (properties.preloadFileMetadata()) {
-      inputFile.checkMetadata();
+    // Metadata of published files is always needed (at least by the report), so it's computed in parallel right away
+    if (inputFile.isPublished() || properties.preloadFileMetadata()) {
+      metadataPreloader.preload(inputFile);
     }
     int count = componentStore.inputFiles().size();
     progressReport.message(count + " " + pluralizeFiles(count) + " indexed...  (last one was " + inputFile.getProjectRelativePath() + ")");
@@ -0,0 +1,95 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+
+/**
+ * Generates the metadata of indexed files (charset, lines, hashes and status) on a pool of threads, while the file system
+ * is still being walked. The queue of pending files is bounded: when it's full, the thread walking the file system
+ * generates the metadata of the file itself.
+ */
+class MetadataPreloader {
+  private static final int QUEUE_SIZE_PER_THREAD = 100;
+
+  private final ThreadPoolExecutor executor;
+  private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+  MetadataPreloader(int threads) {
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD),
+      MetadataPreloader::newThread, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  private static Thread newThread(Runnable r) {
+    Thread thread = new Thread(r, "File metadata generator");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  void preload(DefaultInputFile inputFile) {
+    throwIfFailed();
+    executor.execute(() -> {
+      if (failure.get() != null) {
+        return;
+      }
+      try {
+        inputFile.checkMetadata();
+      } catch (RuntimeException e) {
+        failure.compareAndSet(null, e);
+      }
+    });
+  }
+
+  /**
+   * Waits for the metadata of all the files to be generated and rethrows the first failure, if any.
+   */
+  void awaitTermination() {
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+        // keep waiting, generation of metadata is bounded by the size of the files
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while generating metadata of files", e);
+    }
+    throwIfFailed();
+  }
+
+  /**
+   * Stops generation of metadata of pending files. No-op if already terminated.
+   */
+  void stop() {
+    executor.shutdownNow();
+  }
+
+  private void throwIfFailed() {
+    RuntimeException e = failure.get();
+    if (e != null) {
+      executor.shutdownNow();
+      throw e;
+    }
+  }
+}
@@ -50,6 +50,7 @@ import org.sonar.scanner.fs.InputModuleHierarchy;
 import org.sonar.scanner.scan.ModuleConfiguration;
 import org.sonar.scanner.scan.ModuleConfigurationProvider;
 import org.sonar.scanner.scan.ProjectServerSettings;
+import org.sonar.scanner.scan.ScanProperties;
 import org.sonar.scanner.scm.ScmConfiguration;
 import org.sonar.scanner.util.ProgressReport;
 
@@ -73,12 +74,15 @@ public class ProjectFileIndexer {
   private final FileIndexer fileIndexer;
   private final IgnoreCommand ignoreCommand;
   private final boolean useScmExclusion;
+  private final ScanProperties properties;
 
   private ProgressReport progressReport;
+  private MetadataPreloader metadataPreloader;
 
   public ProjectFileIndexer(InputComponentStore componentStore, ProjectExclusionFilters exclusionFilters,
     InputModuleHierarchy inputModuleHierarchy, GlobalConfiguration globalConfig, GlobalServerSettings globalServerSettings, ProjectServerSettings projectServerSettings,
-    FileIndexer fileIndexer, ProjectCoverageAndDuplicationExclusions projectCoverageAndDuplicationExclusions, ScmConfiguration scmConfiguration) {
+    FileIndexer fileIndexer, ProjectCoverageAndDuplicationExclusions projectCoverageAndDuplicationExclusions, ScmConfiguration scmConfiguration,
+    ScanProperties properties) {
     this.componentStore = componentStore;
     this.inputModuleHierarchy = inputModuleHierarchy;
     this.globalConfig = globalConfig;
@@ -90,6 +94,7 @@ public class ProjectFileIndexer {
     this.scmConfiguration = scmConfiguration;
     this.ignoreCommand = loadIgnoreCommand();
     this.useScmExclusion = ignoreCommand != null;
+    this.properties = properties;
   }
 
   public void index() {
@@ -100,12 +105,18 @@ public class ProjectFileIndexer {
     projectCoverageAndDuplicationExclusions.log("  ");
     ExclusionCounter exclusionCounter = new ExclusionCounter();
 
-    if (useScmExclusion) {
-      ignoreCommand.init(inputModuleHierarchy.root().getBaseDir().toAbsolutePath());
-      indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
-      ignoreCommand.clean();
-    } else {
-      indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+    metadataPreloader = new MetadataPreloader(properties.indexingThreads());
+    try {
+      if (useScmExclusion) {
+        ignoreCommand.init(inputModuleHierarchy.root().getBaseDir().toAbsolutePath());
+        indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+        ignoreCommand.clean();
+      } else {
+        indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+      }
+      metadataPreloader.awaitTermination();
+    } finally {
+      metadataPreloader.stop();
     }
 
     int totalIndexed = componentStore.inputFiles().size();
@@ -196,7 +207,8 @@ public class ProjectFileIndexer {
         if (dirOrFile.toFile().isDirectory()) {
           indexDirectory(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, dirOrFile, type, exclusionCounter);
         } else {
-          fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, dirOrFile, type, progressReport, exclusionCounter, ignoreCommand);
+          fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, dirOrFile, type, progressReport, exclusionCounter, ignoreCommand,
+            metadataPreloader);
         }
       }
     } catch (IOException e) {
@@ -239,7 +251,8 @@ public class ProjectFileIndexer {
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
       if (!Files.isHidden(file)) {
-        fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type, progressReport, exclusionCounter, ignoreCommand);
+        fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type, progressReport, exclusionCounter, ignoreCommand,
+          metadataPreloader);
       }
       return FileVisitResult.CONTINUE;
     }
@@ -19,11 +19,14 @@
  */
 package org.sonar.scanner.scm;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
@@ -45,10 +48,14 @@ import static org.sonar.api.utils.Preconditions.checkArgument;
 class DefaultBlameOutput implements BlameOutput {
 
   private static final Logger LOG = Loggers.get(DefaultBlameOutput.class);
+  private static final int SLOWEST_FILES_COUNT = 10;
 
   private final ScannerReportWriter writer;
   private AnalysisWarnings analysisWarnings;
   private final Set<InputFile> allFilesToBlame = new LinkedHashSet<>();
+  private final Map<InputFile, BlameBatch> batchByFile = new HashMap<>();
+  private final PriorityQueue<FileBlameTime> slowestFiles = new PriorityQueue<>(Comparator.comparingLong(FileBlameTime::timeMs));
+  private long totalBlameTimeMs;
   private ProgressReport progressReport;
   private int count;
   private int total;
@@ -63,11 +70,24 @@ class DefaultBlameOutput implements BlameOutput {
     progressReport.start("SCM Publisher " + total + " " + pluralize(total) + " to be analyzed");
   }
 
+  /**
+   * Must be called before the files are given to the SCM provider. As the provider is free to blame the files of a batch
+   * in any order, the blame time of a file is the time elapsed since the previous result of the batch (or since
+   * the start of the batch for the first result).
+   */
+  synchronized void startBatch(List<InputFile> files) {
+    BlameBatch batch = new BlameBatch(System.nanoTime());
+    for (InputFile file : files) {
+      batchByFile.put(file, batch);
+    }
+  }
+
   @Override
   public synchronized void blameResult(InputFile file, List<BlameLine> lines) {
     checkNotNull(file);
     checkNotNull(lines);
     checkArgument(allFilesToBlame.contains(file), "It was not expected to blame file %s", file);
+    recordBlameTime(file);
 
     if (lines.size() != file.lines()) {
       LOG.debug("Ignoring blame result since provider returned {} blame lines but file {} has {} lines", lines.size(), file, file.lines());
@@ -97,6 +117,35 @@ class DefaultBlameOutput implements BlameOutput {
     progressReport.message(count + "/" + total + " " + pluralize(count) + " have been analyzed");
   }
 
+  private void recordBlameTime(InputFile file) {
+    BlameBatch batch = batchByFile.remove(file);
+    if (batch == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    long timeMs = TimeUnit.NANOSECONDS.toMillis(now - batch.lastResultNanos);
+    batch.lastResultNanos = now;
+    totalBlameTimeMs += timeMs;
+    LOG.debug("Blame of {} computed in {}ms", file, timeMs);
+    slowestFiles.add(new FileBlameTime(file, timeMs));
+    if (slowestFiles.size() > SLOWEST_FILES_COUNT) {
+      slowestFiles.poll();
+    }
+  }
+
+  synchronized long totalBlameTimeMs() {
+    return totalBlameTimeMs;
+  }
+
+  /**
+   * @return the files that took the most time to blame, the slowest first
+   */
+  synchronized List<FileBlameTime> slowestFiles() {
+    List<FileBlameTime> result = new ArrayList<>(slowestFiles);
+    result.sort(Comparator.comparingLong(FileBlameTime::timeMs).reversed());
+    return result;
+  }
+
   private static void validateLine(BlameLine line, int lineId, InputFile file) {
     checkArgument(StringUtils.isNotBlank(line.revision()), "Blame revision is blank for file %s at line %s", file, lineId);
     checkArgument(line.date() != null, "Blame date is null for file %s at line %s", file, lineId);
@@ -143,4 +192,30 @@ class DefaultBlameOutput implements BlameOutput {
   private static String pluralize(long filesCount) {
     return filesCount == 1 ? "source file" : "source files";
   }
+
+  private static class BlameBatch {
+    private long lastResultNanos;
+
+    private BlameBatch(long startNanos) {
+      this.lastResultNanos = startNanos;
+    }
+  }
+
+  static class FileBlameTime {
+    private final InputFile file;
+    private final long timeMs;
+
+    FileBlameTime(InputFile file, long timeMs) {
+      this.file = file;
+      this.timeMs = timeMs;
+    }
+
+    InputFile file() {
+      return file;
+    }
+
+    long timeMs() {
+      return timeMs;
+    }
+  }
 }
@@ -21,6 +21,7 @@ package org.sonar.scanner.scm;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.StringUtils;
@@ -51,12 +52,36 @@ import static org.sonar.api.CoreProperties.SCM_PROVIDER_KEY;
     project = false,
     module = false,
     global = false,
-    type = PropertyType.BOOLEAN)
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = ScmConfiguration.BLAME_THREADS_KEY,
+    defaultValue = "1",
+    name = "Number of threads blaming files",
+    description = "Number of batches of files given concurrently to the blame command of the SCM provider. Values greater than 1 "
+      + "require the blame command of the provider to support concurrent calls, and have no effect unless "
+      + "'" + ScmConfiguration.BLAME_BATCH_SIZE_KEY + "' is set.",
+    category = CoreProperties.CATEGORY_SCM,
+    project = false,
+    module = false,
+    global = false,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = ScmConfiguration.BLAME_BATCH_SIZE_KEY,
+    name = "Number of files per blame batch",
+    description = "Maximum number of files given to each call of the blame command of the SCM provider, when '"
+      + ScmConfiguration.BLAME_THREADS_KEY + "' is greater than 1. By default, all the files are given to a single call.",
+    category = CoreProperties.CATEGORY_SCM,
+    project = false,
+    module = false,
+    global = false,
+    type = PropertyType.INTEGER)
 })
 public class ScmConfiguration implements Startable {
   private static final Logger LOG = Loggers.get(ScmConfiguration.class);
 
   public static final String FORCE_RELOAD_KEY = "sonar.scm.forceReloadAll";
+  public static final String BLAME_THREADS_KEY = "sonar.scm.blame.threads";
+  public static final String BLAME_BATCH_SIZE_KEY = "sonar.scm.blame.batchSize";
 
   static final String MESSAGE_SCM_STEP_IS_DISABLED_BY_CONFIGURATION = "SCM Step is disabled by configuration";
   static final String MESSAGE_SCM_EXCLUSIONS_IS_DISABLED_BY_CONFIGURATION = "Exclusions based on SCM info is disabled by configuration";
@@ -162,6 +187,30 @@ public class ScmConfiguration implements Startable {
     return settings.getBoolean(FORCE_RELOAD_KEY).orElse(false);
   }
 
+  /**
+   * Number of batches of files blamed concurrently. Defaults to 1, as most providers already parallelize the blame
+   * of the files they are given. The blame command of {@link #provider()} is called from several threads when greater
+   * than 1, which users enable only for providers which support it.
+   */
+  public int blameThreads() {
+    return checkPositive(BLAME_THREADS_KEY, settings.getInt(BLAME_THREADS_KEY).orElse(1));
+  }
+
+  /**
+   * Maximum number of files given to each call of the blame command. Empty by default, in which case the blame command
+   * is called once with all the files.
+   */
+  public Optional<Integer> blameBatchSize() {
+    return settings.getInt(BLAME_BATCH_SIZE_KEY).map(size -> checkPositive(BLAME_BATCH_SIZE_KEY, size));
+  }
+
+  private static int checkPositive(String key, int value) {
+    if (value < 1) {
+      throw MessageException.of(String.format("Property '%s' must be strictly positive. Got: %d", key, value));
+    }
+    return value;
+  }
+
   @Override
   public void stop() {
     // Nothing to do
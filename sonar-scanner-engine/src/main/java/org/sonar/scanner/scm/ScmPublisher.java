@@ -19,8 +19,19 @@
  */
 package org.sonar.scanner.scm;
 
-import java.util.LinkedList;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.fs.FileSystem;
@@ -40,6 +51,8 @@ import org.sonar.scanner.repository.ProjectRepositoriesSupplier;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
+import static java.util.Collections.singletonList;
+
 public final class ScmPublisher {
 
   private static final Logger LOG = Loggers.get(ScmPublisher.class);
@@ -79,14 +92,97 @@ public final class ScmPublisher {
     if (!filesToBlame.isEmpty()) {
       String key = provider.key();
       LOG.info("SCM Publisher SCM provider for this project is: " + key);
+      List<List<InputFile>> batches = splitInBatches(filesToBlame);
+      int threads = Math.min(configuration.blameThreads(), batches.size());
       DefaultBlameOutput output = new DefaultBlameOutput(writer, analysisWarnings, filesToBlame);
       try {
-        provider.blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
+        blame(provider, batches, threads, output);
       } catch (Exception e) {
         output.finish(false);
         throw e;
       }
       output.finish(true);
+      writeBlameTimes(output, threads, batches.size());
+    }
+  }
+
+  private void blame(ScmProvider provider, List<List<InputFile>> batches, int threads, DefaultBlameOutput output) {
+    if (threads == 1) {
+      for (List<InputFile> batch : batches) {
+        blameBatch(provider, batch, output);
+      }
+      return;
+    }
+    LOG.info("SCM Publisher {} batches of files blamed by {} threads. The blame command of provider '{}' must support concurrent calls.",
+      batches.size(), threads, provider.key());
+    ExecutorService executor = Executors.newFixedThreadPool(threads, ScmPublisher::newThread);
+    try {
+      List<Future<?>> futures = new ArrayList<>(batches.size());
+      for (List<InputFile> batch : batches) {
+        futures.add(executor.submit(() -> blameBatch(provider, batch, output)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Fail to blame files", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while blaming files", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void blameBatch(ScmProvider provider, List<InputFile> batch, DefaultBlameOutput output) {
+    output.startBatch(batch);
+    provider.blameCommand().blame(new DefaultBlameInput(fs, batch), output);
+  }
+
+  private static Thread newThread(Runnable r) {
+    Thread thread = new Thread(r, "SCM blame");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Files are given all at once to the provider, unless a batch size is configured to blame them on several threads.
+   */
+  private List<List<InputFile>> splitInBatches(List<InputFile> files) {
+    Optional<Integer> batchSize = configuration.blameBatchSize();
+    if (configuration.blameThreads() == 1 || !batchSize.isPresent()) {
+      return singletonList(files);
+    }
+    return split(files, batchSize.get());
+  }
+
+  private static List<List<InputFile>> split(List<InputFile> files, int batchSize) {
+    List<List<InputFile>> batches = new ArrayList<>();
+    for (int from = 0; from < files.size(); from += batchSize) {
+      batches.add(files.subList(from, Math.min(files.size(), from + batchSize)));
+    }
+    return batches;
+  }
+
+  /**
+   * Appends the blame times to the analysis log of the report, which is the scanner context displayed by the Compute Engine.
+   */
+  private void writeBlameTimes(DefaultBlameOutput output, int threads, int batches) {
+    File analysisLog = writer.getFileStructure().analysisLog();
+    try (BufferedWriter fileWriter = Files.newBufferedWriter(analysisLog.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      fileWriter.append("SCM blame:\n");
+      fileWriter.append(String.format("  - threads=%d", threads)).append('\n');
+      fileWriter.append(String.format("  - batches=%d", batches)).append('\n');
+      fileWriter.append(String.format("  - totalTimeMs=%d", output.totalBlameTimeMs())).append('\n');
+      fileWriter.append("Slowest files to blame:\n");
+      for (DefaultBlameOutput.FileBlameTime slowestFile : output.slowestFiles()) {
+        fileWriter.append(String.format("  - %s=%dms", slowestFile.file(), slowestFile.timeMs())).append('\n');
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to write SCM blame times to analysis log", e);
     }
   }
 
@@ -94,7 +190,7 @@ public final class ScmPublisher {
     if (configuration.forceReloadAll()) {
       LOG.warn("Forced reloading of SCM data for all files.");
     }
-    List<InputFile> filesToBlame = new LinkedList<>();
+    List<InputFile> filesToBlame = new ArrayList<>();
     for (DefaultInputFile f : componentStore.allFilesToPublish()) {
       if (configuration.forceReloadAll() || f.status() != Status.SAME) {
         addIfNotEmpty(filesToBlame, f);
@@ -0,0 +1,159 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputProject;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.utils.Version;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.scan.ScanProperties;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnalysisCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private ScanProperties properties = mock(ScanProperties.class);
+  private DefaultInputProject project = mock(DefaultInputProject.class);
+  private BranchConfiguration branchConfiguration = mock(BranchConfiguration.class);
+  private SonarRuntime runtime = mock(SonarRuntime.class);
+  private File workDir;
+
+  private ScannerReport.CpdTextBlock block = ScannerReport.CpdTextBlock.newBuilder().setHash("abcd").setStartLine(1).setEndLine(10).build();
+  private DefaultInputFile file1 = new TestInputFileBuilder("foo", "src/Foo1.java").setHash("hash1").build();
+  private DefaultInputFile file2 = new TestInputFileBuilder("foo", "src/Foo2.java").setHash("hash2").build();
+
+  @Before
+  public void setUp() throws IOException {
+    workDir = temp.newFolder();
+    when(properties.analysisCacheEnabled()).thenReturn(true);
+    when(project.key()).thenReturn("project");
+    when(project.getWorkDir()).thenReturn(workDir.toPath());
+    when(branchConfiguration.branchName()).thenReturn("master");
+    when(runtime.getApiVersion()).thenReturn(Version.create(8, 1));
+  }
+
+  @Test
+  public void reuse_entries_of_previous_analysis() {
+    AnalysisCache firstAnalysis = startCache();
+    assertThat(firstAnalysis.read(file1, "kind", ScannerReport.CpdTextBlock.parser())).isEmpty();
+    firstAnalysis.write(file1, "kind", singletonList(block));
+    firstAnalysis.save();
+    firstAnalysis.stop();
+
+    AnalysisCache secondAnalysis = startCache();
+    assertThat(secondAnalysis.read(file1, "kind", ScannerReport.CpdTextBlock.parser())).hasValue(singletonList(block));
+    assertThat(secondAnalysis.read(file1, "other", ScannerReport.CpdTextBlock.parser())).isEmpty();
+    assertThat(secondAnalysis.read(file2, "kind", ScannerReport.CpdTextBlock.parser())).isEmpty();
+    assertThat(secondAnalysis.hits()).isEqualTo(1);
+    assertThat(secondAnalysis.misses()).isEqualTo(2);
+    secondAnalysis.save();
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Analysis cache: 1/3 hits (33%)");
+  }
+
+  @Test
+  public void entries_are_keyed_by_content_hash() {
+    AnalysisCache firstAnalysis = startCache();
+    firstAnalysis.write(file1, "kind", singletonList(block));
+    firstAnalysis.save();
+
+    DefaultInputFile movedFile = new TestInputFileBuilder("foo", "src/other/Foo1.java").setHash("hash1").build();
+    DefaultInputFile changedFile = new TestInputFileBuilder("foo", "src/Foo1.java").setHash("changed").build();
+    AnalysisCache secondAnalysis = startCache();
+    assertThat(secondAnalysis.read(movedFile, "kind", ScannerReport.CpdTextBlock.parser())).hasValue(singletonList(block));
+    assertThat(secondAnalysis.read(changedFile, "kind", ScannerReport.CpdTextBlock.parser())).isEmpty();
+  }
+
+  @Test
+  public void drop_entries_not_used_by_last_analysis() {
+    AnalysisCache firstAnalysis = startCache();
+    firstAnalysis.write(file1, "kind", singletonList(block));
+    firstAnalysis.write(file2, "kind", singletonList(block));
+    firstAnalysis.save();
+
+    AnalysisCache secondAnalysis = startCache();
+    assertThat(secondAnalysis.read(file1, "kind", ScannerReport.CpdTextBlock.parser())).isPresent();
+    secondAnalysis.save();
+
+    AnalysisCache thirdAnalysis = startCache();
+    assertThat(thirdAnalysis.read(file1, "kind", ScannerReport.CpdTextBlock.parser())).isPresent();
+    assertThat(thirdAnalysis.read(file2, "kind", ScannerReport.CpdTextBlock.parser())).isEmpty();
+  }
+
+  @Test
+  public void keep_previous_entries_if_analysis_fails() {
+    AnalysisCache firstAnalysis = startCache();
+    firstAnalysis.write(file1, "kind", singletonList(block));
+    firstAnalysis.save();
+
+    AnalysisCache failedAnalysis = startCache();
+    failedAnalysis.stop();
+
+    assertThat(startCache().read(file1, "kind", ScannerReport.CpdTextBlock.parser())).isPresent();
+  }
+
+  @Test
+  public void entries_are_scoped_by_branch() {
+    AnalysisCache firstAnalysis = startCache();
+    firstAnalysis.write(file1, "kind", singletonList(block));
+    firstAnalysis.save();
+
+    when(branchConfiguration.branchName()).thenReturn("feature");
+    assertThat(startCache().read(file1, "kind", ScannerReport.CpdTextBlock.parser())).isEmpty();
+  }
+
+  @Test
+  public void do_nothing_if_disabled() {
+    when(properties.analysisCacheEnabled()).thenReturn(false);
+
+    AnalysisCache underTest = startCache();
+    underTest.write(file1, "kind", singletonList(block));
+    underTest.save();
+
+    assertThat(underTest.isEnabled()).isFalse();
+    assertThat(startCache().read(file1, "kind", ScannerReport.CpdTextBlock.parser())).isEmpty();
+    assertThat(new File(workDir, AnalysisCache.DIR_NAME)).doesNotExist();
+  }
+
+  private AnalysisCache startCache() {
+    AnalysisCache cache = new AnalysisCache(properties, project, branchConfiguration, runtime);
+    cache.start();
+    return cache;
+  }
+}
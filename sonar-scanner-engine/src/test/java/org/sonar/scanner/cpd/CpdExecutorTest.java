@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.junit.Before;
@@ -36,6 +37,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatchers;
+import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.util.CloseableIterator;
@@ -75,7 +77,7 @@ public class CpdExecutorTest {
   private ExecutorService executorService = mock(ExecutorService.class);
   private CpdSettings settings = mock(CpdSettings.class);
   private ReportPublisher publisher = mock(ReportPublisher.class);
-  private SonarCpdBlockIndex index = new SonarCpdBlockIndex(publisher, settings);
+  private SonarCpdBlockIndex index = new SonarCpdBlockIndex(publisher, settings, mock(TempFolder.class));
   private ScannerReportReader reader;
   private DefaultInputFile batchComponent1;
   private DefaultInputFile batchComponent2;
@@ -91,6 +93,7 @@ public class CpdExecutorTest {
 
     DefaultInputProject project = TestInputFileBuilder.newDefaultInputProject("foo", baseDir);
     componentStore = new InputComponentStore(mock(BranchConfiguration.class));
+    when(settings.getThreads()).thenReturn(1);
     executor = new CpdExecutor(settings, index, publisher, componentStore, executorService);
     reader = new ScannerReportReader(outputDir);
 
@@ -206,6 +209,21 @@ public class CpdExecutorTest {
     assertThat(logTester.logs(LoggerLevel.ERROR)).contains("Resource not found in component store: unknown. Skipping CPD computation for it");
   }
 
+  @Test
+  public void should_detect_duplications_of_all_files_in_parallel() {
+    when(settings.getThreads()).thenReturn(2);
+    when(settings.getMinimumTokens("php")).thenReturn(0);
+    index.insert(batchComponent1, Arrays.asList(newBlock(batchComponent1, 0, "AAAAAAAABBBBBBBB"), newBlock(batchComponent1, 1, "CCCCCCCCDDDDDDDD")));
+    index.insert(batchComponent2, Arrays.asList(newBlock(batchComponent2, 0, "AAAAAAAABBBBBBBB"), newBlock(batchComponent2, 1, "CCCCCCCCDDDDDDDD")));
+    index.insert(batchComponent3, Collections.singletonList(newBlock(batchComponent3, 0, "EEEEEEEEFFFFFFFF")));
+
+    new CpdExecutor(settings, index, publisher, componentStore, Executors.newFixedThreadPool(2)).execute();
+
+    assertDuplication(readDuplications(batchComponent1, 1)[0], 1, 2, batchComponent2.scannerId(), 1, 2);
+    assertDuplication(readDuplications(batchComponent2, 1)[0], 1, 2, batchComponent1.scannerId(), 1, 2);
+    readDuplications(batchComponent3, 0);
+  }
+
   @Test
   public void should_timeout() {
     Block block = Block.builder()
@@ -223,6 +241,16 @@ public class CpdExecutorTest {
         "Timeout during detection of duplications for .*Foo.php");
   }
 
+  private static Block newBlock(DefaultInputFile file, int indexInFile, String hash) {
+    return Block.builder()
+      .setBlockHash(new ByteArray(hash))
+      .setResourceId(file.key())
+      .setIndexInFile(indexInFile)
+      .setLines(indexInFile + 1, indexInFile + 1)
+      .setUnit(indexInFile, indexInFile)
+      .build();
+  }
+
   private DefaultInputFile createComponent(String relativePath, int lines) {
     return createComponent(relativePath, lines, f -> {
     });
@@ -54,4 +54,31 @@ public class CpdSettingsTest {
     assertThat(cpdSettings.getMinimumTokens("java")).isEqualTo(42);
     assertThat(cpdSettings.getMinimumTokens("php")).isEqualTo(33);
   }
+
+  @Test
+  public void threads_default_to_number_of_processors() {
+    when(configuration.getInt(anyString())).thenReturn(Optional.empty());
+    assertThat(cpdSettings.getThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  public void threads_are_configurable() {
+    when(configuration.getInt("sonar.cpd.threads")).thenReturn(Optional.of(3));
+    assertThat(cpdSettings.getThreads()).isEqualTo(3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_threads_is_not_positive() {
+    when(configuration.getInt("sonar.cpd.threads")).thenReturn(Optional.of(0));
+    cpdSettings.getThreads();
+  }
+
+  @Test
+  public void mapped_index_is_disabled_by_default() {
+    when(configuration.getBoolean("sonar.cpd.mappedIndex")).thenReturn(Optional.empty());
+    assertThat(cpdSettings.isMappedIndexEnabled()).isFalse();
+
+    when(configuration.getBoolean("sonar.cpd.mappedIndex")).thenReturn(Optional.of(true));
+    assertThat(cpdSettings.isMappedIndexEnabled()).isTrue();
+  }
 }
@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
@@ -33,15 +34,21 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonar.duplications.block.Block;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.scanner.protocol.output.ScannerReport;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 public class JavaCpdBlockIndexerSensorTest {
 
@@ -53,9 +60,15 @@ public class JavaCpdBlockIndexerSensorTest {
   @Mock
   private SonarCpdBlockIndex index;
 
+  @Mock
+  private AnalysisCache cache;
+
   @Captor
   private ArgumentCaptor<List<Block>> blockCaptor;
 
+  @Captor
+  private ArgumentCaptor<List<ScannerReport.CpdTextBlock>> cacheEntriesCaptor;
+
   private DefaultInputFile file;
 
   @Before
@@ -75,18 +88,45 @@ public class JavaCpdBlockIndexerSensorTest {
   @Test
   public void testExclusions() {
     file.setExcludedForDuplication(true);
-    new JavaCpdBlockIndexerSensor(index).execute(context);
+    new JavaCpdBlockIndexerSensor(index, cache).execute(context);
     verifyZeroInteractions(index);
   }
 
   @Test
   public void testJavaIndexing() {
-    new JavaCpdBlockIndexerSensor(index).execute(context);
+    new JavaCpdBlockIndexerSensor(index, cache).execute(context);
 
     verify(index).insert(eq(file), blockCaptor.capture());
     List<Block> blockList = blockCaptor.getValue();
 
     assertThat(blockList).hasSize(26);
+    verify(cache).write(eq(file), eq("java-cpd-blocks-10"), cacheEntriesCaptor.capture());
+    assertThat(cacheEntriesCaptor.getValue()).hasSize(26);
+  }
+
+  @Test
+  public void read_blocks_from_cache() {
+    ScannerReport.CpdTextBlock cachedBlock = ScannerReport.CpdTextBlock.newBuilder()
+      .setHash("0123456789abcdef")
+      .setStartLine(3)
+      .setEndLine(12)
+      .setStartTokenIndex(10)
+      .setEndTokenIndex(50)
+      .build();
+    when(cache.read(eq(file), eq("java-cpd-blocks-10"), any())).thenReturn(Optional.of(singletonList(cachedBlock)));
+
+    new JavaCpdBlockIndexerSensor(index, cache).execute(context);
+
+    verify(index).insert(eq(file), blockCaptor.capture());
+    assertThat(blockCaptor.getValue()).hasSize(1);
+    Block block = blockCaptor.getValue().get(0);
+    assertThat(block.getResourceId()).isEqualTo(file.key());
+    assertThat(block.getBlockHash().toHexString()).isEqualTo("0123456789abcdef");
+    assertThat(block.getStartLine()).isEqualTo(3);
+    assertThat(block.getEndLine()).isEqualTo(12);
+    assertThat(block.getStartUnit()).isEqualTo(10);
+    assertThat(block.getEndUnit()).isEqualTo(50);
+    verify(cache, never()).write(any(), any(), any());
   }
 
 }
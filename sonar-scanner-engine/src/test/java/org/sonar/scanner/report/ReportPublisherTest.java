@@ -19,6 +19,9 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
@@ -38,16 +41,19 @@ import org.sonar.api.impl.utils.JUnitTempFolder;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.fs.InputModuleHierarchy;
+import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.scan.ScanProperties;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonarqube.ws.Ce;
 import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.MockWsResponse;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
@@ -91,6 +97,7 @@ public class ReportPublisherTest {
     when(moduleHierarchy.root()).thenReturn(root);
     when(server.getPublicRootUrl()).thenReturn("https://localhost");
     when(server.getVersion()).thenReturn("6.4");
+    when(properties.reportCompressionThreads()).thenReturn(2);
     when(properties.metadataFilePath()).thenReturn(reportTempFolder.newDir().toPath()
       .resolve("folder")
       .resolve("report-task.txt"));
@@ -238,6 +245,45 @@ public class ReportPublisherTest {
       .contains("More about the report processing at https://publicserver/sonarqube/api/ce/task?id=TASK-123");
   }
 
+  @Test
+  public void should_stream_report_when_uploading() throws IOException {
+    when(properties.streamReport()).thenReturn(true);
+    MockWsResponse submitMockResponse = new MockWsResponse();
+    submitMockResponse.setContent(Ce.SubmitResponse.newBuilder().setTaskId("task-1234").build().toByteArray());
+    when(wsClient.call(any())).thenReturn(submitMockResponse);
+    underTest.start();
+    underTest.getWriter().writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("foo").build());
+    underTest.execute();
+
+    ArgumentCaptor<WsRequest> capture = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient).call(capture.capture());
+    PostRequest request = (PostRequest) capture.getValue();
+    assertThat(request.getParts()).isEmpty();
+    PostRequest.StreamedPart part = request.getStreamedParts().get("report");
+
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    part.getContentWriter().writeTo(zip);
+    File unzipped = ZipUtils.unzip(new ByteArrayInputStream(zip.toByteArray()), reportTempFolder.newDir());
+    assertThat(unzipped.toPath().resolve("metadata.pb")).exists();
+  }
+
+  @Test
+  public void zip_report_is_reproducible() throws IOException {
+    underTest.start();
+    Files.write(underTest.getReportDir().resolve("b.pb"), new byte[] {1, 2});
+    Files.write(underTest.getReportDir().resolve("a.pb"), new byte[] {3});
+
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    underTest.zipReport(first);
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    underTest.zipReport(second);
+
+    assertThat(first.toByteArray()).isEqualTo(second.toByteArray());
+    File unzipped = ZipUtils.unzip(new ByteArrayInputStream(first.toByteArray()), reportTempFolder.newDir());
+    assertThat(unzipped.toPath().resolve("a.pb")).hasBinaryContent(new byte[] {3});
+    assertThat(unzipped.toPath().resolve("b.pb")).hasBinaryContent(new byte[] {1, 2});
+  }
+
   @Test
   public void dump_information_to_custom_path() {
     underTest.prepareAndDumpMetadata("TASK-123");
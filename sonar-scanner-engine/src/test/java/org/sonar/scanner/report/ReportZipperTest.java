@@ -0,0 +1,131 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.ZipUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportZipperTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Path dir;
+  private byte[] large;
+  private byte[] twoChunks;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = temp.newFolder().toPath();
+    Random random = new Random(42);
+    // compressible content spanning several chunks
+    large = new byte[ReportZipper.CHUNK_SIZE * 3 + 1_234];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) (i % 97 == 0 ? random.nextInt() : 'a' + (i / 1_000) % 26);
+    }
+    twoChunks = new byte[ReportZipper.CHUNK_SIZE * 2];
+    random.nextBytes(twoChunks);
+
+    Files.createDirectories(dir.resolve("sub/deep"));
+    Files.write(dir.resolve("empty.pb"), new byte[0]);
+    Files.write(dir.resolve("small.pb"), new byte[] {1, 2, 3});
+    Files.write(dir.resolve("sub/large.pb"), large);
+    Files.write(dir.resolve("sub/deep/two_chunks.pb"), twoChunks);
+  }
+
+  @Test
+  public void zip_is_read_as_a_stream() throws IOException {
+    byte[] zip = zip(3);
+
+    File unzipped = ZipUtils.unzip(new ByteArrayInputStream(zip), temp.newFolder());
+
+    assertContent(unzipped.toPath());
+  }
+
+  @Test
+  public void zip_is_read_from_its_central_directory() throws IOException {
+    File zipFile = temp.newFile();
+    Files.write(zipFile.toPath(), zip(3));
+
+    try (ZipFile zip = new ZipFile(zipFile)) {
+      assertThat(Collections.list(zip.entries())).extracting(ZipEntry::getName)
+        .containsExactly("empty.pb", "small.pb", "sub/", "sub/deep/", "sub/deep/two_chunks.pb", "sub/large.pb");
+      assertThat(zip.getEntry("sub/").isDirectory()).isTrue();
+      assertThat(zip.getEntry("sub/large.pb").getSize()).isEqualTo(large.length);
+      assertThat(zip.getEntry("sub/large.pb").getCompressedSize()).isLessThan(large.length / 2);
+      assertThat(read(zip, "empty.pb")).isEmpty();
+      assertThat(read(zip, "small.pb")).containsExactly(1, 2, 3);
+      assertThat(read(zip, "sub/large.pb")).isEqualTo(large);
+      assertThat(read(zip, "sub/deep/two_chunks.pb")).isEqualTo(twoChunks);
+    }
+  }
+
+  @Test
+  public void zip_does_not_depend_on_number_of_threads() throws IOException {
+    assertThat(zip(1)).isEqualTo(zip(4));
+  }
+
+  @Test
+  public void zip_empty_directory() throws IOException {
+    Path emptyDir = temp.newFolder().toPath();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    new ReportZipper(2).zip(emptyDir, output);
+
+    File unzipped = ZipUtils.unzip(new ByteArrayInputStream(output.toByteArray()), temp.newFolder());
+    assertThat(unzipped.list()).isEmpty();
+  }
+
+  private byte[] zip(int threads) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new ReportZipper(threads).zip(dir, output);
+    return output.toByteArray();
+  }
+
+  private void assertContent(Path unzipped) {
+    assertThat(unzipped.resolve("empty.pb")).hasBinaryContent(new byte[0]);
+    assertThat(unzipped.resolve("small.pb")).hasBinaryContent(new byte[] {1, 2, 3});
+    assertThat(unzipped.resolve("sub/large.pb")).hasBinaryContent(large);
+    assertThat(unzipped.resolve("sub/deep/two_chunks.pb")).hasBinaryContent(twoChunks);
+  }
+
+  private static byte[] read(ZipFile zip, String name) throws IOException {
+    try (InputStream input = zip.getInputStream(zip.getEntry(name))) {
+      return IOUtils.toByteArray(input);
+    }
+  }
+}
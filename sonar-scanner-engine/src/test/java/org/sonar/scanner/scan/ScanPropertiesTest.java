@@ -57,6 +57,11 @@ public class ScanPropertiesTest {
     assertThat(underTest.branch()).isEmpty();
     assertThat(underTest.organizationKey()).isEmpty();
     assertThat(underTest.preloadFileMetadata()).isFalse();
+    assertThat(underTest.streamReport()).isFalse();
+    assertThat(underTest.packReport()).isFalse();
+    assertThat(underTest.analysisCacheEnabled()).isFalse();
+    assertThat(underTest.indexingThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+    assertThat(underTest.reportCompressionThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
     assertThat(underTest.shouldKeepReport()).isFalse();
     assertThat(underTest.metadataFilePath()).isEqualTo(project.getWorkDir().resolve("report-task.txt"));
     underTest.validate();
@@ -80,6 +85,54 @@ public class ScanPropertiesTest {
     assertThat(underTest.preloadFileMetadata()).isTrue();
   }
 
+  @Test
+  public void should_define_indexing_threads() {
+    settings.setProperty("sonar.scanner.indexingThreads", "3");
+    assertThat(underTest.indexingThreads()).isEqualTo(3);
+  }
+
+  @Test
+  public void fail_if_indexing_threads_is_not_positive() {
+    settings.setProperty("sonar.scanner.indexingThreads", "0");
+
+    exception.expect(MessageException.class);
+    exception.expectMessage("Property 'sonar.scanner.indexingThreads' must be strictly positive. Got: 0");
+    underTest.indexingThreads();
+  }
+
+  @Test
+  public void should_define_report_compression_threads() {
+    settings.setProperty("sonar.scanner.reportCompressionThreads", "3");
+    assertThat(underTest.reportCompressionThreads()).isEqualTo(3);
+  }
+
+  @Test
+  public void fail_if_report_compression_threads_is_not_positive() {
+    settings.setProperty("sonar.scanner.reportCompressionThreads", "0");
+
+    exception.expect(MessageException.class);
+    exception.expectMessage("Property 'sonar.scanner.reportCompressionThreads' must be strictly positive. Got: 0");
+    underTest.reportCompressionThreads();
+  }
+
+  @Test
+  public void should_define_stream_report() {
+    settings.setProperty("sonar.scanner.streamReport", "true");
+    assertThat(underTest.streamReport()).isTrue();
+  }
+
+  @Test
+  public void should_enable_analysis_cache() {
+    settings.setProperty("sonar.scanner.cache.enabled", "true");
+    assertThat(underTest.analysisCacheEnabled()).isTrue();
+  }
+
+  @Test
+  public void should_define_pack_report() {
+    settings.setProperty("sonar.scanner.packReport", "true");
+    assertThat(underTest.packReport()).isTrue();
+  }
+
   @Test
   public void should_define_keep_report() {
     settings.setProperty("sonar.scanner.keepReport", "true");
@@ -27,6 +27,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.fs.InputModuleHierarchy;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -80,6 +81,18 @@ public class WorkDirectoriesInitializerTest {
     assertThat(rootWorkDir.list()).containsOnly(DirectoryLock.LOCK_FILE_NAME);
   }
 
+  @Test
+  public void keep_analysis_cache() throws IOException {
+    File cacheEntry = new File(rootWorkDir, AnalysisCache.DIR_NAME + "/current/entry");
+    cacheEntry.getParentFile().mkdirs();
+    cacheEntry.createNewFile();
+
+    initializer.execute();
+
+    assertThat(rootWorkDir.list()).containsOnly(DirectoryLock.LOCK_FILE_NAME, AnalysisCache.DIR_NAME);
+    assertThat(cacheEntry).exists();
+  }
+
   @Test
   public void cleaningRootModuleShouldNotDeleteChildrenWorkDir() throws IOException {
     DefaultInputModule moduleA = mock(DefaultInputModule.class);
@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.batch.fs.internal.DefaultIndexedFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.Metadata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataPreloaderTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private MetadataPreloader underTest = new MetadataPreloader(4);
+
+  @Test
+  public void generate_metadata_of_all_files() {
+    List<DefaultInputFile> files = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      DefaultInputFile file = newFile("src/File" + i + ".xoo", f -> f.setMetadata(new Metadata(1, 1, "hash", new int[] {0}, new int[] {0}, 0)));
+      files.add(file);
+      underTest.preload(file);
+    }
+    underTest.awaitTermination();
+
+    assertThat(files).allMatch(f -> f.lines() == 1);
+  }
+
+  @Test
+  public void rethrow_first_failure() {
+    underTest.preload(newFile("src/Foo.xoo", f -> {
+      throw new IllegalStateException("Fail to read");
+    }));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Fail to read");
+    underTest.awaitTermination();
+  }
+
+  @Test
+  public void stop_is_idempotent() {
+    underTest.stop();
+    underTest.stop();
+  }
+
+  private static DefaultInputFile newFile(String relativePath, Consumer<DefaultInputFile> metadataGenerator) {
+    return new DefaultInputFile(new DefaultIndexedFile("foo", Paths.get("/tmp/foo"), relativePath, "xoo"), metadataGenerator);
+  }
+}
@@ -29,18 +29,26 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.scm.BlameLine;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.scanner.notifications.DefaultAnalysisWarnings;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class DefaultBlameOutputTest {
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
+  @Rule
+  public LogTester logTester = new LogTester().setLevel(LoggerLevel.DEBUG);
   private System2 system2 = mock(System2.class);
   private DefaultAnalysisWarnings analysisWarnings = new DefaultAnalysisWarnings(system2);
 
@@ -93,4 +101,24 @@ public class DefaultBlameOutputTest {
       .blameResult(file, singletonList(new BlameLine().date(new Date()).author("guy")));
   }
 
+  @Test
+  public void record_blame_time_of_files() {
+    ScannerReportWriter writer = mock(ScannerReportWriter.class);
+    InputFile file1 = new TestInputFileBuilder("foo", "src/main/java/Foo1.java").setLines(1).build();
+    InputFile file2 = new TestInputFileBuilder("foo", "src/main/java/Foo2.java").setLines(1).build();
+    InputFile file3 = new TestInputFileBuilder("foo", "src/main/java/Foo3.java").setLines(1).build();
+    DefaultBlameOutput output = new DefaultBlameOutput(writer, analysisWarnings, Arrays.asList(file1, file2, file3));
+    output.startBatch(Arrays.asList(file1, file2));
+    output.startBatch(singletonList(file3));
+
+    output.blameResult(file1, singletonList(new BlameLine().revision("1").date(new Date()).author("guy")));
+    output.blameResult(file3, singletonList(new BlameLine().revision("1").date(new Date()).author("guy")));
+    output.finish(true);
+
+    verify(writer, times(2)).writeComponentChangesets(any(ScannerReport.Changesets.class));
+    assertThat(output.slowestFiles()).extracting(DefaultBlameOutput.FileBlameTime::file).containsOnly(file1, file3);
+    assertThat(output.totalBlameTimeMs()).isGreaterThanOrEqualTo(0L);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).anyMatch(log -> log.startsWith("Blame of " + file1 + " computed in "));
+  }
+
 }
@@ -201,6 +201,41 @@ public class ScmConfigurationTest {
     assertThat(underTest.provider()).isNull();
   }
 
+  @Test
+  public void blame_all_files_at_once_on_one_thread_by_default() {
+    assertThat(underTest.blameThreads()).isEqualTo(1);
+    assertThat(underTest.blameBatchSize()).isEmpty();
+  }
+
+  @Test
+  public void configure_blame_threads_and_batch_size() {
+    when(settings.getInt(ScmConfiguration.BLAME_THREADS_KEY)).thenReturn(Optional.of(4));
+    when(settings.getInt(ScmConfiguration.BLAME_BATCH_SIZE_KEY)).thenReturn(Optional.of(50));
+
+    assertThat(underTest.blameThreads()).isEqualTo(4);
+    assertThat(underTest.blameBatchSize()).contains(50);
+  }
+
+  @Test
+  public void fail_if_blame_threads_is_not_positive() {
+    when(settings.getInt(ScmConfiguration.BLAME_THREADS_KEY)).thenReturn(Optional.of(0));
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Property 'sonar.scm.blame.threads' must be strictly positive. Got: 0");
+
+    underTest.blameThreads();
+  }
+
+  @Test
+  public void fail_if_blame_batch_size_is_not_positive() {
+    when(settings.getInt(ScmConfiguration.BLAME_BATCH_SIZE_KEY)).thenReturn(Optional.of(0));
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Property 'sonar.scm.blame.batchSize' must be strictly positive. Got: 0");
+
+    underTest.blameBatchSize();
+  }
+
   @DataProvider
   public static Object[][] malformedScmLinks() {
     return new Object[][] {
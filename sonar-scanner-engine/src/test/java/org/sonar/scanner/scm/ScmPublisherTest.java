@@ -0,0 +1,222 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.scm.BlameCommand;
+import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.api.batch.scm.ScmProvider;
+import org.sonar.api.notifications.AnalysisWarnings;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.report.ReportPublisher;
+import org.sonar.scanner.repository.ProjectRepositoriesSupplier;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+
+import static java.util.Collections.synchronizedList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ScmPublisherTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ScmConfiguration configuration = mock(ScmConfiguration.class);
+  private InputComponentStore componentStore = mock(InputComponentStore.class);
+  private ReportPublisher reportPublisher = mock(ReportPublisher.class);
+  private FakeBlameCommand blameCommand = new FakeBlameCommand();
+  private File reportDir;
+  private List<DefaultInputFile> files;
+  private ScmPublisher underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    reportDir = temp.newFolder();
+    when(reportPublisher.getWriter()).thenReturn(new ScannerReportWriter(reportDir));
+    when(configuration.provider()).thenReturn(new FakeScmProvider(blameCommand));
+    when(configuration.forceReloadAll()).thenReturn(true);
+    when(configuration.blameThreads()).thenReturn(1);
+    when(configuration.blameBatchSize()).thenReturn(Optional.empty());
+    files = IntStream.range(0, 5)
+      .mapToObj(i -> new TestInputFileBuilder("foo", "src/Foo" + i + ".java").initMetadata("line").build())
+      .collect(Collectors.toList());
+    when(componentStore.allFilesToPublish()).thenReturn(new ArrayList<>(files));
+    underTest = new ScmPublisher(configuration, mock(ProjectRepositoriesSupplier.class), componentStore, mock(FileSystem.class), reportPublisher,
+      mock(BranchConfiguration.class), mock(AnalysisWarnings.class));
+  }
+
+  @Test
+  public void blame_all_files_in_a_single_call_when_batch_size_is_not_configured() {
+    when(configuration.blameThreads()).thenReturn(4);
+
+    underTest.publish();
+
+    assertThat(blameCommand.calls).containsExactly(new ArrayList<InputFile>(files));
+    assertChangesetsAreWritten();
+  }
+
+  @Test
+  public void blame_all_files_in_a_single_call_when_a_single_thread_is_configured() {
+    when(configuration.blameBatchSize()).thenReturn(Optional.of(2));
+
+    underTest.publish();
+
+    assertThat(blameCommand.calls).containsExactly(new ArrayList<InputFile>(files));
+    assertChangesetsAreWritten();
+  }
+
+  @Test
+  public void split_files_in_batches_of_configured_size() {
+    when(configuration.blameThreads()).thenReturn(2);
+    when(configuration.blameBatchSize()).thenReturn(Optional.of(2));
+
+    underTest.publish();
+
+    assertThat(blameCommand.calls)
+      .extracting(List::size)
+      .containsExactlyInAnyOrder(2, 2, 1);
+    assertThat(blameCommand.calls.stream().flatMap(List::stream)).containsExactlyInAnyOrderElementsOf(files);
+    assertChangesetsAreWritten();
+  }
+
+  @Test
+  public void blame_batches_concurrently() {
+    when(configuration.blameThreads()).thenReturn(2);
+    when(configuration.blameBatchSize()).thenReturn(Optional.of(2));
+    // the first two batches wait for each other, so the analysis would time out if they were blamed sequentially
+    blameCommand.concurrentCalls = new CountDownLatch(2);
+
+    underTest.publish();
+
+    assertThat(blameCommand.threadNames).hasSize(3).allMatch(name -> name.equals("SCM blame"));
+    assertThat(blameCommand.concurrentCallsTimedOut).isFalse();
+    assertChangesetsAreWritten();
+  }
+
+  @Test
+  public void fail_when_blame_of_a_batch_fails() {
+    when(configuration.blameThreads()).thenReturn(2);
+    when(configuration.blameBatchSize()).thenReturn(Optional.of(2));
+    blameCommand.failingFile = files.get(4);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to blame " + files.get(4));
+
+    underTest.publish();
+  }
+
+  @Test
+  public void write_blame_times_to_analysis_log() throws IOException {
+    when(configuration.blameThreads()).thenReturn(2);
+    when(configuration.blameBatchSize()).thenReturn(Optional.of(2));
+
+    underTest.publish();
+
+    File analysisLog = new ScannerReportWriter(reportDir).getFileStructure().analysisLog();
+    String log = new String(Files.readAllBytes(analysisLog.toPath()), StandardCharsets.UTF_8);
+    assertThat(log)
+      .contains("SCM blame:\n  - threads=2\n  - batches=3\n  - totalTimeMs=")
+      .contains("Slowest files to blame:\n");
+    files.forEach(file -> assertThat(log).containsPattern("  - " + file + "=\\d+ms\n"));
+  }
+
+  private void assertChangesetsAreWritten() {
+    ScannerReportReader reader = new ScannerReportReader(reportDir);
+    files.forEach(file -> assertThat(reader.readChangesets(file.scannerId())).isNotNull());
+  }
+
+  private static class FakeScmProvider extends ScmProvider {
+    private final BlameCommand blameCommand;
+
+    private FakeScmProvider(BlameCommand blameCommand) {
+      this.blameCommand = blameCommand;
+    }
+
+    @Override
+    public String key() {
+      return "fake";
+    }
+
+    @Override
+    public BlameCommand blameCommand() {
+      return blameCommand;
+    }
+  }
+
+  private static class FakeBlameCommand extends BlameCommand {
+    private final List<List<InputFile>> calls = synchronizedList(new ArrayList<>());
+    private final List<String> threadNames = synchronizedList(new ArrayList<>());
+    private CountDownLatch concurrentCalls = new CountDownLatch(0);
+    private volatile boolean concurrentCallsTimedOut = false;
+    private InputFile failingFile;
+
+    @Override
+    public void blame(BlameInput input, BlameOutput output) {
+      List<InputFile> filesToBlame = new ArrayList<>();
+      input.filesToBlame().forEach(filesToBlame::add);
+      calls.add(filesToBlame);
+      threadNames.add(Thread.currentThread().getName());
+      waitForConcurrentCalls();
+      for (InputFile file : filesToBlame) {
+        if (file.equals(failingFile)) {
+          throw new IllegalStateException("Fail to blame " + file);
+        }
+        output.blameResult(file, Collections.singletonList(new BlameLine().revision("1").date(new Date()).author("guy")));
+      }
+    }
+
+    private void waitForConcurrentCalls() {
+      concurrentCalls.countDown();
+      try {
+        if (!concurrentCalls.await(10, TimeUnit.SECONDS)) {
+          concurrentCallsTimedOut = true;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -51,6 +51,14 @@ public class FileStructure {
       this.filePrefix = filePrefix;
       this.fileSuffix = fileSuffix;
     }
+
+    String filePrefix() {
+      return filePrefix;
+    }
+
+    String fileSuffix() {
+      return fileSuffix;
+    }
   }
 
   private final File dir;
@@ -82,6 +90,20 @@ public class FileStructure {
     return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
   }
 
+  /**
+   * @see ReportSegments
+   */
+  public File segmentsData() {
+    return new File(dir, "segments.dat");
+  }
+
+  /**
+   * @see ReportSegments
+   */
+  public File segmentsIndex() {
+    return new File(dir, "segments.idx");
+  }
+
   public File contextProperties() {
     return new File(dir, "context-props.pb");
   }
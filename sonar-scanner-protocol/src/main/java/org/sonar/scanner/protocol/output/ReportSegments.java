@@ -0,0 +1,260 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+
+import static java.lang.String.format;
+
+/**
+ * Single-file container of the component data of a report (the files of {@link Domain}).
+ * <p>
+ * The data file is the concatenation of the content of the component files, in the order of (domain, component ref).
+ * The index file gives, for each of them, its position and length in the data file. Reading a segment maps
+ * the data file in memory, so random access to a component does not require to read the whole data file.
+ * </p>
+ * <p>
+ * A report is packed once it's complete. The component files are deleted, so that the zipped report contains only
+ * a few files instead of one or more per component.
+ * </p>
+ */
+public class ReportSegments {
+
+  private static final int MAGIC_NUMBER = 0x53515253;
+  private static final int VERSION = 1;
+
+  private final File dataFile;
+  private final Map<Domain, Map<Integer, Segment>> segmentsByDomain;
+  private MappedByteBuffer mappedDataFile;
+
+  private ReportSegments(File dataFile, Map<Domain, Map<Integer, Segment>> segmentsByDomain) {
+    this.dataFile = dataFile;
+    this.segmentsByDomain = segmentsByDomain;
+  }
+
+  /**
+   * Moves the component files of the report into the data file and writes its index. This is a no-op
+   * if the report has no component files.
+   */
+  public static void pack(FileStructure fileStructure) {
+    List<ComponentFile> componentFiles = listComponentFiles(fileStructure);
+    if (componentFiles.isEmpty()) {
+      return;
+    }
+    File dataFile = fileStructure.segmentsData();
+    File indexFile = fileStructure.segmentsIndex();
+    try (OutputStream data = new BufferedOutputStream(Files.newOutputStream(dataFile.toPath()));
+      DataOutputStream index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile.toPath())))) {
+      index.writeInt(MAGIC_NUMBER);
+      index.writeInt(VERSION);
+      index.writeInt(componentFiles.size());
+      long offset = 0L;
+      for (ComponentFile componentFile : componentFiles) {
+        long length = Files.copy(componentFile.file.toPath(), data);
+        index.writeUTF(componentFile.domain.name());
+        index.writeInt(componentFile.componentRef);
+        index.writeLong(offset);
+        index.writeLong(length);
+        offset += length;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to pack analysis report in " + dataFile, e);
+    }
+    for (ComponentFile componentFile : componentFiles) {
+      if (!componentFile.file.delete()) {
+        throw new IllegalStateException("Fail to delete packed file " + componentFile.file);
+      }
+    }
+  }
+
+  private static List<ComponentFile> listComponentFiles(FileStructure fileStructure) {
+    File[] files = fileStructure.root().listFiles();
+    if (files == null) {
+      throw new IllegalStateException("Fail to list files of directory " + fileStructure.root());
+    }
+    List<ComponentFile> componentFiles = new ArrayList<>();
+    for (File file : files) {
+      if (file.isFile()) {
+        toComponentFile(file).ifPresent(componentFiles::add);
+      }
+    }
+    componentFiles.sort(Comparator.<ComponentFile, Domain>comparing(f -> f.domain).thenComparingInt(f -> f.componentRef));
+    return componentFiles;
+  }
+
+  private static Optional<ComponentFile> toComponentFile(File file) {
+    String name = file.getName();
+    for (Domain domain : Domain.values()) {
+      String prefix = domain.filePrefix();
+      String suffix = domain.fileSuffix();
+      if (name.length() > prefix.length() + suffix.length() && name.startsWith(prefix) && name.endsWith(suffix)) {
+        String ref = name.substring(prefix.length(), name.length() - suffix.length());
+        if (StringUtils.isNumeric(ref)) {
+          return Optional.of(new ComponentFile(domain, Integer.parseInt(ref), file));
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @return empty if the report is not packed
+   */
+  public static Optional<ReportSegments> open(FileStructure fileStructure) {
+    File indexFile = fileStructure.segmentsIndex();
+    if (!indexFile.isFile()) {
+      return Optional.empty();
+    }
+    Map<Domain, Map<Integer, Segment>> segmentsByDomain = new EnumMap<>(Domain.class);
+    try (DataInputStream index = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+      int magicNumber = index.readInt();
+      int version = index.readInt();
+      if (magicNumber != MAGIC_NUMBER || version != VERSION) {
+        throw new IllegalStateException(format("Unsupported format of analysis report index %s (version %d)", indexFile, version));
+      }
+      int count = index.readInt();
+      for (int i = 0; i < count; i++) {
+        Domain domain = Domain.valueOf(index.readUTF());
+        int componentRef = index.readInt();
+        long offset = index.readLong();
+        long length = index.readLong();
+        segmentsByDomain.computeIfAbsent(domain, d -> new HashMap<>()).put(componentRef, new Segment(offset, length));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read analysis report index " + indexFile, e);
+    }
+    return Optional.of(new ReportSegments(fileStructure.segmentsData(), segmentsByDomain));
+  }
+
+  public boolean contains(Domain domain, int componentRef) {
+    return segment(domain, componentRef) != null;
+  }
+
+  /**
+   * @return {@code null} if there is no data for this component in the domain
+   */
+  @CheckForNull
+  public InputStream open(Domain domain, int componentRef) {
+    Segment segment = segment(domain, componentRef);
+    if (segment == null) {
+      return null;
+    }
+    return new ByteBufferInputStream(map(segment));
+  }
+
+  @CheckForNull
+  private Segment segment(Domain domain, int componentRef) {
+    Map<Integer, Segment> segments = segmentsByDomain.get(domain);
+    return segments == null ? null : segments.get(componentRef);
+  }
+
+  private synchronized ByteBuffer map(Segment segment) {
+    try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        // a single buffer can't map more than 2GB, so only the segment is mapped
+        return channel.map(FileChannel.MapMode.READ_ONLY, segment.offset, segment.length);
+      }
+      if (mappedDataFile == null) {
+        mappedDataFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to map analysis report data " + dataFile, e);
+    }
+    ByteBuffer buffer = mappedDataFile.duplicate();
+    // cast to Buffer, otherwise code compiled with Java 9+ fails on Java 8 (covariant return types of ByteBuffer)
+    ((Buffer) buffer).position((int) segment.offset);
+    ((Buffer) buffer).limit((int) (segment.offset + segment.length));
+    return buffer.slice();
+  }
+
+  private static class ComponentFile {
+    private final Domain domain;
+    private final int componentRef;
+    private final File file;
+
+    private ComponentFile(Domain domain, int componentRef, File file) {
+      this.domain = domain;
+      this.componentRef = componentRef;
+      this.file = file;
+    }
+  }
+
+  private static class Segment {
+    private final long offset;
+    private final long length;
+
+    private Segment(long offset, long length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(len, buffer.remaining());
+      buffer.get(bytes, off, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -19,7 +19,13 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
 import javax.annotation.CheckForNull;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
@@ -29,6 +35,7 @@ import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
 public class ScannerReportReader {
 
   private final FileStructure fileStructure;
+  private ReportSegments segments;
 
   public ScannerReportReader(File dir) {
     this.fileStructure = new FileStructure(dir);
@@ -59,119 +66,79 @@ public class ScannerReportReader {
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.MEASURES, componentRef, ScannerReport.Measure.parser());
   }
 
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
-    }
-    return null;
+    return readComponentMessage(FileStructure.Domain.CHANGESETS, componentRef, ScannerReport.Changesets.parser());
   }
 
   public ScannerReport.Component readComponent(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
-    if (!fileExists(file)) {
+    ScannerReport.Component component = readComponentMessage(FileStructure.Domain.COMPONENT, componentRef, ScannerReport.Component.parser());
+    if (component == null) {
+      File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
       throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return component;
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.ISSUES, componentRef, ScannerReport.Issue.parser());
   }
 
   public CloseableIterator<ScannerReport.ExternalIssue> readComponentExternalIssues(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.EXTERNAL_ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.ExternalIssue.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.EXTERNAL_ISSUES, componentRef, ScannerReport.ExternalIssue.parser());
   }
 
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.DUPLICATIONS, componentRef, ScannerReport.Duplication.parser());
   }
 
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, ScannerReport.CpdTextBlock.parser());
   }
 
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.SYMBOLS, componentRef, ScannerReport.Symbol.parser());
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
   }
 
   @CheckForNull
   public CloseableIterator<ScannerReport.LineSgnificantCode> readComponentSignificantCode(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SGNIFICANT_CODE, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineSgnificantCode.parser());
+    if (hasComponentData(FileStructure.Domain.SGNIFICANT_CODE, fileRef)) {
+      return readComponentStream(FileStructure.Domain.SGNIFICANT_CODE, fileRef, ScannerReport.LineSgnificantCode.parser());
     }
     return null;
   }
 
   @CheckForNull
   public ScannerReport.ChangedLines readComponentChangedLines(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGED_LINES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.ChangedLines.parser());
-    }
-    return null;
+    return readComponentMessage(FileStructure.Domain.CHANGED_LINES, fileRef, ScannerReport.ChangedLines.parser());
   }
 
   public boolean hasSignificantCode(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SGNIFICANT_CODE, fileRef);
-    return fileExists(file);
+    return hasComponentData(FileStructure.Domain.SGNIFICANT_CODE, fileRef);
   }
 
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef, ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   public boolean hasCoverage(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.COVERAGES, componentRef);
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.COVERAGES, fileRef, ScannerReport.LineCoverage.parser());
   }
 
+  /**
+   * @return {@code null} if the file has no source or if the report is packed, see {@link #openFileSource(int)}
+   */
   @CheckForNull
   public File readFileSource(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, fileRef);
@@ -181,6 +148,16 @@ public class ScannerReportReader {
     return null;
   }
 
+  /**
+   * Opens the source of a file, whether the report is packed or not. The stream must be closed by caller.
+   *
+   * @return {@code null} if the file has no source
+   */
+  @CheckForNull
+  public InputStream openFileSource(int fileRef) {
+    return openComponentData(FileStructure.Domain.SOURCE, fileRef);
+  }
+
   public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
     File file = fileStructure.contextProperties();
     if (!fileExists(file)) {
@@ -197,6 +174,59 @@ public class ScannerReportReader {
     return Protobuf.readStream(file, ScannerReport.AnalysisWarning.parser());
   }
 
+  private boolean hasComponentData(FileStructure.Domain domain, int componentRef) {
+    if (fileExists(fileStructure.fileFor(domain, componentRef))) {
+      return true;
+    }
+    ReportSegments reportSegments = segments();
+    return reportSegments != null && reportSegments.contains(domain, componentRef);
+  }
+
+  private <MSG extends Message> CloseableIterator<MSG> readComponentStream(FileStructure.Domain domain, int componentRef, Parser<MSG> parser) {
+    InputStream input = openComponentData(domain, componentRef);
+    if (input == null) {
+      return emptyCloseableIterator();
+    }
+    return Protobuf.readStream(input, parser);
+  }
+
+  @CheckForNull
+  private <MSG extends Message> MSG readComponentMessage(FileStructure.Domain domain, int componentRef, Parser<MSG> parser) {
+    InputStream input = openComponentData(domain, componentRef);
+    if (input == null) {
+      return null;
+    }
+    return Protobuf.read(input, parser);
+  }
+
+  /**
+   * Component data is read from its own file if it exists, else from the packed report, if any.
+   */
+  @CheckForNull
+  private InputStream openComponentData(FileStructure.Domain domain, int componentRef) {
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (fileExists(file)) {
+      try {
+        return new BufferedInputStream(new FileInputStream(file));
+      } catch (FileNotFoundException e) {
+        throw new IllegalStateException("Fail to open file " + file, e);
+      }
+    }
+    ReportSegments reportSegments = segments();
+    return reportSegments == null ? null : reportSegments.open(domain, componentRef);
+  }
+
+  /**
+   * The report may be packed after the reader is created, so absence of {@link ReportSegments} is not cached.
+   */
+  @CheckForNull
+  private ReportSegments segments() {
+    if (segments == null) {
+      segments = ReportSegments.open(fileStructure).orElse(null);
+    }
+    return segments;
+  }
+
   private static boolean fileExists(File file) {
     return file.exists() && file.isFile();
   }
@@ -173,4 +173,14 @@ public class ScannerReportWriter {
     return fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
   }
 
+  /**
+   * Moves the data of all components into a single indexed file. The report must be complete: nothing
+   * can be written to the component files after this call.
+   *
+   * @see ReportSegments
+   */
+  public void pack() {
+    ReportSegments.pack(fileStructure);
+  }
+
 }
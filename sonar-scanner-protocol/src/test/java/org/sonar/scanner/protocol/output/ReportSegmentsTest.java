@@ -0,0 +1,119 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportSegmentsTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File dir;
+  private ScannerReportWriter writer;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = temp.newFolder();
+    writer = new ScannerReportWriter(dir);
+  }
+
+  @Test
+  public void pack_component_files_into_single_indexed_file() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setRootComponentRef(1).build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(2).setProjectRelativePath("src/Foo.java").build());
+    writer.writeComponentIssues(2, asList(ScannerReport.Issue.newBuilder().setMsg("foo").build(), ScannerReport.Issue.newBuilder().setMsg("bar").build()));
+    FileUtils.write(writer.getSourceFile(2), "line1\nline2", UTF_8);
+
+    writer.pack();
+
+    FileStructure fileStructure = writer.getFileStructure();
+    assertThat(fileStructure.fileFor(Domain.COMPONENT, 1)).doesNotExist();
+    assertThat(fileStructure.fileFor(Domain.ISSUES, 2)).doesNotExist();
+    assertThat(fileStructure.fileFor(Domain.SOURCE, 2)).doesNotExist();
+    assertThat(fileStructure.metadataFile()).exists();
+    assertThat(fileStructure.segmentsData()).exists();
+    assertThat(fileStructure.segmentsIndex()).exists();
+
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    assertThat(reader.readMetadata().getRootComponentRef()).isEqualTo(1);
+    assertThat(reader.readComponent(2).getProjectRelativePath()).isEqualTo("src/Foo.java");
+    assertThat(reader.readComponentIssues(2)).toIterable().extracting(ScannerReport.Issue::getMsg).containsExactly("foo", "bar");
+    assertThat(reader.readComponentIssues(1)).isExhausted();
+    assertThat(reader.readFileSource(2)).isNull();
+    try (InputStream source = reader.openFileSource(2)) {
+      assertThat(IOUtils.toString(source, UTF_8)).isEqualTo("line1\nline2");
+    }
+    assertThat(reader.openFileSource(1)).isNull();
+  }
+
+  @Test
+  public void index_segments_by_domain_and_component() throws IOException {
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(3).build());
+    FileUtils.write(writer.getSourceFile(3), "three", UTF_8);
+    FileUtils.write(writer.getSourceFile(12), "twelve", UTF_8);
+    writer.pack();
+
+    ReportSegments segments = ReportSegments.open(writer.getFileStructure()).get();
+    assertThat(segments.contains(Domain.COMPONENT, 3)).isTrue();
+    assertThat(segments.contains(Domain.SOURCE, 3)).isTrue();
+    assertThat(segments.contains(Domain.ISSUES, 3)).isFalse();
+    assertThat(segments.open(Domain.ISSUES, 3)).isNull();
+    try (InputStream source = segments.open(Domain.SOURCE, 12)) {
+      assertThat(IOUtils.toString(source, UTF_8)).isEqualTo("twelve");
+    }
+    try (InputStream source = segments.open(Domain.SOURCE, 3)) {
+      assertThat(IOUtils.toString(source, UTF_8)).isEqualTo("three");
+    }
+  }
+
+  @Test
+  public void do_nothing_if_report_has_no_component_data() {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().build());
+
+    writer.pack();
+
+    assertThat(writer.getFileStructure().segmentsData()).doesNotExist();
+    assertThat(ReportSegments.open(writer.getFileStructure())).isEmpty();
+    assertThat(new ScannerReportReader(dir).readMetadata()).isNotNull();
+  }
+
+  @Test
+  public void read_unpacked_report() {
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+
+    assertThat(ReportSegments.open(writer.getFileStructure())).isEmpty();
+    assertThat(new ScannerReportReader(dir).readComponent(1).getRef()).isEqualTo(1);
+  }
+}
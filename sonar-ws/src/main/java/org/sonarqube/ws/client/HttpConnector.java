@@ -36,6 +36,7 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
 
 import static java.lang.String.format;
 import static java.net.HttpURLConnection.HTTP_MOVED_PERM;
@@ -129,7 +130,8 @@ public class HttpConnector implements WsConnector {
 
     RequestBody body;
     Map<String, PostRequest.Part> parts = postRequest.getParts();
-    if (parts.isEmpty()) {
+    Map<String, PostRequest.StreamedPart> streamedParts = postRequest.getStreamedParts();
+    if (parts.isEmpty() && streamedParts.isEmpty()) {
       // parameters are defined in the body (application/x-www-form-urlencoded)
       FormBody.Builder formBody = new FormBody.Builder();
       postRequest.getParameters().getKeys()
@@ -149,6 +151,7 @@ public class HttpConnector implements WsConnector {
           part.getFile().getName(),
           RequestBody.create(MediaType.parse(part.getMediaType()), part.getFile()));
       });
+      streamedParts.forEach((name, part) -> bodyBuilder.addFormDataPart(name, part.getFileName(), toRequestBody(part)));
       body = bodyBuilder.build();
     }
     Request.Builder okRequestBuilder = prepareOkRequestBuilder(postRequest, urlBuilder).post(body);
@@ -157,6 +160,25 @@ public class HttpConnector implements WsConnector {
     return new OkHttpResponse(response);
   }
 
+  /**
+   * The length of the body is unknown, so it is sent with chunked transfer encoding.
+   */
+  private static RequestBody toRequestBody(PostRequest.StreamedPart part) {
+    MediaType mediaType = MediaType.parse(part.getMediaType());
+    PostRequest.ContentWriter contentWriter = part.getContentWriter();
+    return new RequestBody() {
+      @Override
+      public MediaType contentType() {
+        return mediaType;
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        contentWriter.writeTo(sink.outputStream());
+      }
+    };
+  }
+
   private HttpUrl.Builder prepareUrlBuilder(WsRequest wsRequest) {
     String path = wsRequest.getPath();
     return baseUrl
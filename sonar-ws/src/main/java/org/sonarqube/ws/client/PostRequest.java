@@ -20,6 +20,8 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -29,6 +31,7 @@ import java.util.Map;
 public class PostRequest extends BaseRequest<PostRequest> {
 
   private final Map<String, Part> parts = new LinkedHashMap<>();
+  private final Map<String, StreamedPart> streamedParts = new LinkedHashMap<>();
 
   public PostRequest(String path) {
     super(path);
@@ -48,6 +51,21 @@ public class PostRequest extends BaseRequest<PostRequest> {
     return parts;
   }
 
+  /**
+   * @since 8.1
+   */
+  public PostRequest setStreamedPart(String name, StreamedPart part) {
+    this.streamedParts.put(name, part);
+    return this;
+  }
+
+  /**
+   * @since 8.1
+   */
+  public Map<String, StreamedPart> getStreamedParts() {
+    return streamedParts;
+  }
+
   public static class Part {
     private final String mediaType;
     private final File file;
@@ -66,4 +84,47 @@ public class PostRequest extends BaseRequest<PostRequest> {
     }
   }
 
+  /**
+   * Part whose content is streamed to the server while it is being generated, so that its length does not
+   * need to be known in advance.
+   *
+   * @since 8.1
+   */
+  public static class StreamedPart {
+    private final String mediaType;
+    private final String fileName;
+    private final ContentWriter contentWriter;
+
+    public StreamedPart(String mediaType, String fileName, ContentWriter contentWriter) {
+      this.mediaType = mediaType;
+      this.fileName = fileName;
+      this.contentWriter = contentWriter;
+    }
+
+    public String getMediaType() {
+      return mediaType;
+    }
+
+    public String getFileName() {
+      return fileName;
+    }
+
+    public ContentWriter getContentWriter() {
+      return contentWriter;
+    }
+  }
+
+  /**
+   * @since 8.1
+   */
+  @FunctionalInterface
+  public interface ContentWriter {
+    /**
+     * Writes the content of a part. It can be called several times for the same request, for example
+     * when it's redirected, so it must write the same content each time.
+     * The output stream must not be closed.
+     */
+    void writeTo(OutputStream output) throws IOException;
+  }
+
 }
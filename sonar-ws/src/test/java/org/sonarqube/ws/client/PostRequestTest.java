@@ -43,6 +43,7 @@ public class PostRequestTest {
   public void empty_parts_and_params_by_default() {
     PostRequest request = new PostRequest("api/issues/search");
     assertThat(request.getParts()).isEmpty();
+    assertThat(request.getStreamedParts()).isEmpty();
     assertThat(request.getParams()).isEmpty();
   }
 
@@ -57,4 +58,17 @@ public class PostRequestTest {
     assertThat(part.getMediaType()).isEqualTo(MediaTypes.JSON);
     assertThat(part.getFile()).isSameAs(reportFile);
   }
+
+  @Test
+  public void add_streamed_part() {
+    PostRequest.ContentWriter writer = output -> output.write(1);
+    PostRequest request = new PostRequest("api/issues/search")
+      .setStreamedPart("report", new PostRequest.StreamedPart(MediaTypes.ZIP, "report.zip", writer));
+
+    assertThat(request.getParts()).isEmpty();
+    PostRequest.StreamedPart part = request.getStreamedParts().get("report");
+    assertThat(part.getMediaType()).isEqualTo(MediaTypes.ZIP);
+    assertThat(part.getFileName()).isEqualTo("report.zip");
+    assertThat(part.getContentWriter()).isSameAs(writer);
+  }
 }